@@ -0,0 +1,78 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.persistencia.PersistenciaJson;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la serialización de reservas (con cliente, habitación y pago) por
+ * reflexión con adaptadores de árbol frente a los adaptadores en streaming.
+ *
+ * Con -prof gc se ve la diferencia de memoria asignada por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AdaptadoresBenchmark {
+    private static final Type LISTA_RESERVAS = new TypeToken<List<Reserva>>() { }.getType();
+
+    @Param({"10000"})
+    private int reservas;
+
+    private List<Reserva> datos;
+    private Gson gsonReflexion;
+    private Gson gsonStreaming;
+    private String jsonReflexion;
+    private String jsonStreaming;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        datos = DatosSinteticos.generar(50, Math.max(1, reservas / 10), reservas).getReservas();
+        gsonReflexion = GsonReflexion.crear(false);
+        gsonStreaming = new PersistenciaJson().getGson();
+        jsonReflexion = gsonReflexion.toJson(datos, LISTA_RESERVAS);
+        jsonStreaming = gsonStreaming.toJson(datos, LISTA_RESERVAS);
+    }
+
+    @Benchmark
+    public String serializarReflexion() {
+        return gsonReflexion.toJson(datos, LISTA_RESERVAS);
+    }
+
+    @Benchmark
+    public String serializarStreaming() {
+        return gsonStreaming.toJson(datos, LISTA_RESERVAS);
+    }
+
+    @Benchmark
+    public List<Reserva> deserializarReflexion() {
+        return gsonReflexion.fromJson(jsonReflexion, LISTA_RESERVAS);
+    }
+
+    @Benchmark
+    public List<Reserva> deserializarStreaming() {
+        return gsonStreaming.fromJson(jsonStreaming, LISTA_RESERVAS);
+    }
+}
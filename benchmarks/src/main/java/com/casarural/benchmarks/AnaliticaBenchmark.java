@@ -0,0 +1,90 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.analitica.InformeAnalitica;
+import com.casarural.gestioncasa.analitica.MotorAnalitica;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informe de ingresos y ocupación de un año sobre tres años de reservas, con
+ * las tres agrupaciones. El recorrido es paralelo, así que el tiempo depende
+ * de los núcleos de la máquina; con -prof gc se ve que la memoria asignada no
+ * crece con el número de reservas (solo los contadores de cada hilo).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnaliticaBenchmark {
+
+    @Param({"100000", "2000000"})
+    private int reservas;
+
+    @Param({"TOTAL", "HABITACION", "MES"})
+    private Agrupacion agrupacion;
+
+    private List<Reserva> lista;
+    private List<Habitacion> habitaciones;
+    private final LocalDate desde = LocalDate.of(2031, 1, 1);
+    private final LocalDate hasta = LocalDate.of(2032, 1, 1);
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        Random random = new Random(42);
+        Cliente cliente = new Cliente("Cliente", "00000000T", "cliente@email.com", "600000000");
+        habitaciones = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            habitaciones.add(new Habitacion(String.format("H%04d", i), "Habitación " + i, 2, Dinero.deCentimos((40 + i) * 100L)));
+        }
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 15, 0);
+        EstadoReserva[] estados = EstadoReserva.values();
+
+        lista = new ArrayList<>(reservas);
+        for (int i = 0; i < reservas; i++) {
+            Habitacion habitacion = habitaciones.get(random.nextInt(habitaciones.size()));
+            int noches = 1 + random.nextInt(10);
+            LocalDateTime inicio = base.plusDays(random.nextInt(3 * 365));
+            Dinero precio = Dinero.deCentimos(noches * (4_000L + random.nextInt(12_000)));
+            PagoEfectivo pago = null;
+            if (i % 2 == 0) {
+                pago = new PagoEfectivo(precio, "Efectivo", precio);
+                pago.setFechaPago(inicio.minusDays(random.nextInt(60)));
+            }
+            lista.add(Reserva.restaurar(UUID.randomUUID(), cliente, habitacion, inicio, inicio.plusDays(noches).withHour(11),
+                noches, precio, estados[random.nextInt(estados.length)], pago));
+        }
+    }
+
+    @Benchmark
+    public InformeAnalitica analizar() {
+        return MotorAnalitica.analizar(lista, habitaciones, desde, hasta, agrupacion);
+    }
+}
@@ -0,0 +1,89 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.eventos.BusEventos;
+import com.casarural.gestioncasa.eventos.EventoDominio;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coste de publicar un evento desde varios hilos con un suscriptor lento:
+ * el bus sobre búfer circular (no espera nunca) frente a una cola bloqueante
+ * acotada, donde los productores se quedan esperando a que el consumidor
+ * libere sitio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class BusEventosBenchmark {
+    private static final int CAPACIDAD = 16_384;
+    // Trabajo simulado del suscriptor por cada evento recibido
+    private static final long TRABAJO_NANOS = 200;
+
+    private final EventoDominio evento = new EventoDominio.ClienteEliminado(
+        new Cliente("Ana López", "12345678A", "ana@correo.com", "600000000"));
+
+    private BusEventos bus;
+    private BlockingQueue<EventoDominio> cola;
+    private Thread consumidor;
+
+    @Setup
+    public void preparar() {
+        bus = new BusEventos(CAPACIDAD);
+        bus.suscribir("benchmark", lote -> LockSupport.parkNanos(TRABAJO_NANOS * lote.size()));
+
+        cola = new ArrayBlockingQueue<>(CAPACIDAD);
+        consumidor = Thread.ofPlatform().daemon().start(() -> {
+            List<EventoDominio> lote = new ArrayList<>();
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    lote.add(cola.take());
+                    cola.drainTo(lote, 255);
+                    LockSupport.parkNanos(TRABAJO_NANOS * lote.size());
+                    lote.clear();
+                }
+            } catch (InterruptedException e) {
+                // Fin del benchmark
+            }
+        });
+    }
+
+    @TearDown
+    public void cerrar() throws InterruptedException {
+        bus.close();
+        consumidor.interrupt();
+        consumidor.join();
+    }
+
+    @Benchmark
+    public void busCircular() {
+        bus.publicar(evento);
+    }
+
+    @Benchmark
+    public void colaBloqueante() throws InterruptedException {
+        cola.put(evento);
+    }
+}
@@ -0,0 +1,146 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.disponibilidad.CalendarioOcupacion;
+import com.casarural.gestioncasa.disponibilidad.MotorDisponibilidad;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informes de ocupación de toda la casa para el próximo año: recorriendo la
+ * lista de reservas (convirtiendo las fechas de cada una) frente al
+ * calendario de ocupación por noches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CalendarioBenchmark {
+
+    @Param({"50"})
+    private int habitaciones;
+
+    @Param({"20000"})
+    private int reservas;
+
+    private List<Habitacion> listaHabitaciones;
+    private List<Reserva> listaReservas;
+    private CalendarioOcupacion calendario;
+    private LocalDate desde;
+    private LocalDate hasta;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        DatosSinteticos datos = DatosSinteticos.generar(habitaciones, 1_000, reservas);
+        listaHabitaciones = datos.getCasaRural().getHabitaciones();
+        listaReservas = datos.getReservas();
+        MotorDisponibilidad motor = new MotorDisponibilidad();
+        motor.reconstruir(listaReservas);
+        calendario = motor.getCalendario();
+        desde = LocalDate.now().plusDays(1);
+        hasta = desde.plusDays(365);
+    }
+
+    // ===== OCUPACIÓN POR NOCHE =====
+
+    @Benchmark
+    public int[] ocupacionPorNocheRecorriendo() {
+        int total = (int) (hasta.toEpochDay() - desde.toEpochDay());
+        int[] cuenta = new int[total];
+        // Una habitación con reservas solapadas cuenta una sola vez por noche
+        List<Set<Habitacion>> ocupadas = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            ocupadas.add(new HashSet<>());
+        }
+        for (Reserva reserva : listaReservas) {
+            if (reserva.getEstado() == EstadoReserva.CANCELADA) {
+                continue;
+            }
+            LocalDate entrada = reserva.getFechaInicio().toLocalDate();
+            LocalDate salida = reserva.getFechaFin().toLocalDate();
+            for (LocalDate noche = entrada; noche.isBefore(salida); noche = noche.plusDays(1)) {
+                if (!noche.isBefore(desde) && noche.isBefore(hasta)) {
+                    int indice = (int) (noche.toEpochDay() - desde.toEpochDay());
+                    if (ocupadas.get(indice).add(reserva.getHabitacion())) {
+                        cuenta[indice]++;
+                    }
+                }
+            }
+        }
+        return cuenta;
+    }
+
+    @Benchmark
+    public int[] ocupacionPorNocheCalendario() {
+        return calendario.ocupacionPorNoche(listaHabitaciones, desde, hasta);
+    }
+
+    // ===== HABITACIONES LIBRES UNA SEMANA =====
+
+    @Benchmark
+    public List<Habitacion> habitacionesLibresRecorriendo() {
+        LocalDate salida = desde.plusDays(7);
+        Set<Habitacion> ocupadas = new HashSet<>();
+        for (Reserva reserva : listaReservas) {
+            if (reserva.getEstado() != EstadoReserva.CANCELADA
+                && reserva.getFechaInicio().toLocalDate().isBefore(salida)
+                && reserva.getFechaFin().toLocalDate().isAfter(desde)) {
+                ocupadas.add(reserva.getHabitacion());
+            }
+        }
+        List<Habitacion> libres = new ArrayList<>();
+        for (Habitacion habitacion : listaHabitaciones) {
+            if (!ocupadas.contains(habitacion)) {
+                libres.add(habitacion);
+            }
+        }
+        return libres;
+    }
+
+    @Benchmark
+    public List<Habitacion> habitacionesLibresCalendario() {
+        return calendario.habitacionesLibres(listaHabitaciones, desde, desde.plusDays(7));
+    }
+
+    // ===== TASA DE OCUPACIÓN ANUAL =====
+
+    @Benchmark
+    public double tasaOcupacionRecorriendo() {
+        return (double) sumaNoches(ocupacionPorNocheRecorriendo()) / ((long) listaHabitaciones.size() * 365);
+    }
+
+    @Benchmark
+    public double tasaOcupacionCalendario() {
+        return calendario.tasaOcupacion(listaHabitaciones, desde, hasta);
+    }
+
+    private static long sumaNoches(int[] cuenta) {
+        long suma = 0;
+        for (int noches : cuenta) {
+            suma += noches;
+        }
+        return suma;
+    }
+}
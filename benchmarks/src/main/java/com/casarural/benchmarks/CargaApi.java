@@ -0,0 +1,170 @@
+package com.casarural.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cliente de carga para la API HTTP (ServidorApi) ya arrancada.
+ *
+ * Lanza varios usuarios concurrentes, cada uno en su hilo virtual, que
+ * durante el tiempo indicado consultan la disponibilidad de una semana al
+ * azar, las habitaciones y, en una de cada cinco peticiones, intentan crear
+ * una reserva (las que chocan con otra responden 409 y cuentan como atendidas).
+ * Al terminar muestra el rendimiento y la latencia (p50, p99 y máxima).
+ *
+ * Uso: java ... com.casarural.benchmarks.CargaApi [url] [usuarios] [segundos]
+ * Por defecto: http://localhost:8080, 64 usuarios, 20 segundos.
+ */
+public class CargaApi {
+
+    // Resultado de un usuario: latencias (ns) y peticiones por tipo de respuesta
+    private record Medidas(long[] latencias, int peticiones, int correctas, int conflictos, int errores) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int usuarios = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        HttpClient cliente = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+        List<String> habitaciones = codigosHabitacion(cliente, url);
+        if (habitaciones.isEmpty()) {
+            System.out.println("❌ La API no tiene habitaciones: cree datos de prueba antes de lanzar la carga");
+            return;
+        }
+        String documento = registrarCliente(cliente, url);
+
+        System.out.println("🚀 " + usuarios + " usuarios contra " + url + " durante " + segundos + " s ("
+            + habitaciones.size() + " habitaciones)");
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        long inicio = System.nanoTime();
+        List<Future<Medidas>> resultados = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < usuarios; i++) {
+                resultados.add(hilos.submit(() -> usuario(cliente, url, habitaciones, documento, fin)));
+            }
+        }
+        double duracion = (System.nanoTime() - inicio) / 1e9;
+
+        int peticiones = 0, correctas = 0, conflictos = 0, errores = 0;
+        List<long[]> todas = new ArrayList<>();
+        for (Future<Medidas> resultado : resultados) {
+            Medidas medidas = resultado.get();
+            peticiones += medidas.peticiones();
+            correctas += medidas.correctas();
+            conflictos += medidas.conflictos();
+            errores += medidas.errores();
+            todas.add(medidas.latencias());
+        }
+        long[] latencias = todas.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+        System.out.printf("Peticiones: %d (%d correctas, %d conflictos, %d errores)%n", peticiones, correctas, conflictos, errores);
+        System.out.printf("Rendimiento: %.0f peticiones/s%n", peticiones / duracion);
+        if (latencias.length > 0) {
+            System.out.printf("Latencia: p50 %.2f ms, p99 %.2f ms, máxima %.2f ms%n",
+                percentil(latencias, 0.50), percentil(latencias, 0.99), latencias[latencias.length - 1] / 1e6);
+        }
+    }
+
+    private static Medidas usuario(HttpClient cliente, String url, List<String> habitaciones, String documento, long fin) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencias = new long[1024];
+        int peticiones = 0, correctas = 0, conflictos = 0, errores = 0;
+        LocalDate hoy = LocalDate.now();
+
+        while (System.nanoTime() < fin) {
+            LocalDate entrada = hoy.plusDays(1 + random.nextInt(365));
+            LocalDate salida = entrada.plusDays(1 + random.nextInt(7));
+            HttpRequest peticion;
+            int tipo = random.nextInt(10);
+            if (tipo < 2) {
+                String habitacion = habitaciones.get(random.nextInt(habitaciones.size()));
+                String cuerpo = "{\"cliente\":\"" + documento + "\",\"habitacion\":\"" + habitacion + "\","
+                    + "\"fechaInicio\":\"" + entrada + "T14:00\",\"fechaFin\":\"" + salida + "T12:00\"}";
+                peticion = HttpRequest.newBuilder(URI.create(url + "/reservas"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                    .build();
+            } else if (tipo < 8) {
+                peticion = HttpRequest.newBuilder(URI.create(url + "/disponibilidad?desde=" + entrada + "&hasta=" + salida)).build();
+            } else {
+                peticion = HttpRequest.newBuilder(URI.create(url + "/habitaciones")).build();
+            }
+
+            long inicio = System.nanoTime();
+            int estado;
+            try {
+                estado = cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                estado = -1;
+            }
+            long latencia = System.nanoTime() - inicio;
+
+            if (peticiones == latencias.length) {
+                latencias = Arrays.copyOf(latencias, latencias.length * 2);
+            }
+            latencias[peticiones++] = latencia;
+            if (estado >= 200 && estado < 300) {
+                correctas++;
+            } else if (estado == 409) {
+                conflictos++;
+            } else {
+                errores++;
+            }
+        }
+        return new Medidas(Arrays.copyOf(latencias, peticiones), peticiones, correctas, conflictos, errores);
+    }
+
+    private static List<String> codigosHabitacion(HttpClient cliente, String url) throws Exception {
+        HttpResponse<String> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url + "/habitaciones")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        JsonArray habitaciones = JsonParser.parseString(respuesta.body()).getAsJsonArray();
+        List<String> codigos = new ArrayList<>();
+        for (JsonElement habitacion : habitaciones) {
+            if (habitacion.getAsJsonObject().get("disponible").getAsBoolean()) {
+                codigos.add(habitacion.getAsJsonObject().get("codigo").getAsString());
+            }
+        }
+        return codigos;
+    }
+
+    // Cliente propio de la prueba, con un documento distinto en cada ejecución
+    private static String registrarCliente(HttpClient cliente, String url) throws Exception {
+        String documento = "CARGA" + System.currentTimeMillis();
+        String cuerpo = "{\"nombre\":\"Prueba de carga\",\"numeroDocumento\":\"" + documento + "\","
+            + "\"email\":\"carga@casarural.com\",\"telefono\":\"600000000\"}";
+        HttpResponse<String> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url + "/clientes"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 201) {
+            throw new IllegalStateException("No se pudo registrar el cliente de la prueba: " + respuesta.body());
+        }
+        return documento;
+    }
+
+    private static double percentil(long[] ordenadas, double percentil) {
+        int posicion = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, posicion)] / 1e6;
+    }
+}
@@ -0,0 +1,59 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de construir una reserva con pago al cargarla.
+ *
+ * porConstructorVacio reproduce lo que hacía Gson por reflexión antes de
+ * sobrescribir los campos: Reserva() genera un UUID aleatorio, dos fechas y un
+ * Cliente y una Habitación vacíos (cada uno con su UUID), y PagoTarjeta() otro
+ * UUID y otra fecha. Se ejecuta con varios hilos para que se note la contención
+ * en SecureRandom. Con -prof gc se ve la memoria asignada por reserva.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class ConstruccionBenchmark {
+    private final UUID id = UUID.randomUUID();
+    private final Cliente cliente = new Cliente("Cliente", "00000000T", "cliente@email.com", "600000000");
+    private final Habitacion habitacion = new Habitacion("H001", "Habitación 1", 2, Dinero.de("50.00"));
+    private final LocalDateTime inicio = LocalDateTime.of(2030, 1, 10, 15, 0);
+    private final LocalDateTime fin = LocalDateTime.of(2030, 1, 12, 11, 0);
+    private final Dinero precio = Dinero.de("100.00");
+
+    @Benchmark
+    public Object[] porConstructorVacio() {
+        return new Object[] {new Reserva(), new PagoTarjeta()};
+    }
+
+    @Benchmark
+    public Reserva restaurar() {
+        PagoTarjeta pago = PagoTarjeta.restaurar(id, precio, inicio, "Tarjeta", "Cliente", "4111111111111111", "1111", "123", "12/30");
+        return Reserva.restaurar(id, cliente, habitacion, inicio, fin, 2, precio, EstadoReserva.CONFIRMADA, pago);
+    }
+}
@@ -0,0 +1,98 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Varios operadores asocian y anulan pagos sobre las mismas reservas a la vez.
+ *
+ * Compara los cambios con versión (cada hilo lee la reserva, decide y cambia
+ * solo si sigue en la versión leída) con hacer lo mismo bajo un único cerrojo
+ * global. Con pocas reservas hay mucha contención; con muchas, casi ninguna.
+ * Los cambios con versión que encuentran la reserva cambiada fallan en el
+ * acto y cuentan como operación hecha (el operador volvería a consultarla).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContencionReservasBenchmark {
+
+    private static final Dinero PRECIO = Dinero.de("100.00");
+
+    @Param({"1", "16", "1024"})
+    private int reservas;
+
+    private final Object cerrojoGlobal = new Object();
+    private Reserva[] lista;
+    private PagoEfectivo pago;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        Cliente cliente = new Cliente("Contención", "00000000T", "contencion@casarural.com", "600000000");
+        Habitacion habitacion = new Habitacion("H001", "Habitación 1", 2, PRECIO);
+        LocalDate entrada = LocalDate.now().plusYears(1);
+        lista = new Reserva[reservas];
+        for (int i = 0; i < reservas; i++) {
+            lista[i] = new Reserva(cliente, habitacion, entrada.atTime(14, 0), entrada.plusDays(1).atTime(12, 0), PRECIO);
+        }
+        pago = new PagoEfectivo(PRECIO, "Efectivo", PRECIO);
+    }
+
+    @Benchmark
+    public boolean conVersion() throws Exception {
+        Reserva reserva = lista[ThreadLocalRandom.current().nextInt(lista.length)];
+        long version = reserva.getVersion();
+        boolean conPago = reserva.getPago() != null;
+        try {
+            if (conPago) {
+                reserva.anularPago(version);
+            } else {
+                reserva.asociarPago(pago, version);
+            }
+            return true;
+        } catch (VersionObsoletaExcepcion | EstadoReservaExcepcion e) {
+            // Otro hilo cambió la reserva entre la lectura y el cambio
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean cerrojoGlobal() throws Exception {
+        Reserva reserva = lista[ThreadLocalRandom.current().nextInt(lista.length)];
+        synchronized (cerrojoGlobal) {
+            if (reserva.getPago() != null) {
+                reserva.anularPago();
+            } else {
+                reserva.asociarPago(pago);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Genera conjuntos de datos sintéticos de tamaño configurable para los benchmarks.
+ * La semilla es fija para que todas las ejecuciones trabajen sobre los mismos datos.
+ */
+public class DatosSinteticos {
+    private final CasaRural casaRural;
+    private final List<Cliente> clientes;
+    private final List<Reserva> reservas;
+
+    private DatosSinteticos(CasaRural casaRural, List<Cliente> clientes, List<Reserva> reservas) {
+        this.casaRural = casaRural;
+        this.clientes = clientes;
+        this.reservas = reservas;
+    }
+
+    /**
+     * @param numHabitaciones habitaciones de la casa rural
+     * @param numClientes     clientes registrados
+     * @param numReservas     reservas repartidas entre clientes y habitaciones
+     */
+    public static DatosSinteticos generar(int numHabitaciones, int numClientes, int numReservas) throws Exception {
+        Random random = new Random(42);
+
+        CasaRural casaRural = new CasaRural(UUID.randomUUID(), "Casa Rural Benchmark", "Camino del Monte 1", "910000000");
+        for (int i = 0; i < numHabitaciones; i++) {
+            Dinero precio = Dinero.deCentimos((40 + random.nextInt(80)) * 100L);
+            casaRural.agregarHabitacion(new Habitacion(String.format("H%04d", i), "Habitación " + i, 1 + random.nextInt(4), precio));
+        }
+
+        List<Cliente> clientes = new ArrayList<>(numClientes);
+        for (int i = 0; i < numClientes; i++) {
+            clientes.add(new Cliente("Cliente " + i, String.format("%08dX", i), "cliente" + i + "@email.com", "6" + String.format("%08d", i)));
+        }
+
+        // Las reservas empiezan mañana para superar la validación de fechas
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(15).withMinute(0).withSecond(0).withNano(0);
+        List<Reserva> reservas = new ArrayList<>(numReservas);
+        for (int i = 0; i < numReservas; i++) {
+            Cliente cliente = clientes.get(random.nextInt(clientes.size()));
+            Habitacion habitacion = casaRural.getHabitaciones().get(random.nextInt(numHabitaciones));
+            LocalDateTime inicio = base.plusDays(random.nextInt(3 * 365));
+            int noches = 1 + random.nextInt(7);
+            LocalDateTime fin = inicio.plusDays(noches).withHour(11);
+            Dinero precioTotal = habitacion.getPrecioNoche().multiplicar(noches);
+
+            Reserva reserva = new Reserva(cliente, habitacion, inicio, fin, precioTotal);
+            if (i % 2 == 0) {
+                reserva.setPago(new PagoTarjeta(precioTotal, "Tarjeta", cliente.getNombre(), "4111111111111111", "123", "12/30"));
+            } else if (i % 3 == 0) {
+                reserva.setPago(new PagoEfectivo(precioTotal, "Efectivo", precioTotal.sumar(Dinero.de("10"))));
+            }
+            reservas.add(reserva);
+        }
+
+        return new DatosSinteticos(casaRural, clientes, reservas);
+    }
+
+    public CasaRural getCasaRural() {
+        return casaRural;
+    }
+
+    public List<Cliente> getClientes() {
+        return clientes;
+    }
+
+    public List<Reserva> getReservas() {
+        return reservas;
+    }
+}
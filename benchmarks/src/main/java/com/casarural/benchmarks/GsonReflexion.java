@@ -0,0 +1,93 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Configuración de Gson anterior a los adaptadores en streaming (serialización
+ * por reflexión y adaptadores basados en árbol), conservada como referencia
+ * para los benchmarks.
+ */
+public final class GsonReflexion {
+
+    private GsonReflexion() {
+    }
+
+    public static Gson crear(boolean legible) {
+        GsonBuilder builder = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new FechaArbol())
+            .registerTypeAdapter(Dinero.class, new DineroArbol())
+            .registerTypeAdapter(Pago.class, new PagoArbol());
+        if (legible) {
+            builder.setPrettyPrinting();
+        }
+        return builder.create();
+    }
+
+    private static class FechaArbol implements JsonSerializer<LocalDateTime>, JsonDeserializer<LocalDateTime> {
+        private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+        @Override
+        public JsonElement serialize(LocalDateTime src, Type typeOfSrc, JsonSerializationContext context) {
+            return context.serialize(src.format(formatter));
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            return LocalDateTime.parse(json.getAsString(), formatter);
+        }
+    }
+
+    // Los importes se guardaban como número (BigDecimal)
+    private static class DineroArbol implements JsonSerializer<Dinero>, JsonDeserializer<Dinero> {
+        @Override
+        public JsonElement serialize(Dinero src, Type typeOfSrc, JsonSerializationContext context) {
+            return context.serialize(src.aBigDecimal());
+        }
+
+        @Override
+        public Dinero deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            return Dinero.de(json.getAsBigDecimal());
+        }
+    }
+
+    // Construye el árbol completo del pago para añadir "tipo" y lo vuelve a recorrer al leer
+    private static class PagoArbol implements JsonSerializer<Pago>, JsonDeserializer<Pago> {
+        @Override
+        public JsonElement serialize(Pago src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject jsonObject = context.serialize(src).getAsJsonObject();
+            jsonObject.addProperty("tipo", src.getClass().getSimpleName());
+            return jsonObject;
+        }
+
+        @Override
+        public Pago deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonObject jsonObject = json.getAsJsonObject();
+            String tipo = jsonObject.get("tipo").getAsString();
+
+            if ("PagoTarjeta".equals(tipo)) {
+                return context.deserialize(json, PagoTarjeta.class);
+            } else if ("PagoEfectivo".equals(tipo)) {
+                return context.deserialize(json, PagoEfectivo.class);
+            } else {
+                throw new JsonParseException("Tipo de pago desconocido: " + tipo);
+            }
+        }
+    }
+}
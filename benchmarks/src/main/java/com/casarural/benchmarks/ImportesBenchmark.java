@@ -0,0 +1,97 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suma de ingresos de un millón de reservas (las no canceladas): con los
+ * importes en BigDecimal, como estaban antes, cada suma crea un objeto nuevo;
+ * con Dinero se acumulan los céntimos en un long y solo se crea el resultado.
+ *
+ * Con -prof gc se ve la diferencia de memoria asignada por operación
+ * (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImportesBenchmark {
+
+    @Param({"1000000"})
+    private int reservas;
+
+    private Reserva[] lista;
+    // Los mismos precios en BigDecimal, como se guardaban en la reserva
+    private BigDecimal[] preciosDecimales;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random random = new Random(42);
+        Cliente cliente = new Cliente("Cliente", "00000000T", "cliente@email.com", "600000000");
+        Habitacion habitacion = new Habitacion("H001", "Habitación 1", 2, Dinero.de("50.00"));
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 10, 15, 0);
+        EstadoReserva[] estados = EstadoReserva.values();
+
+        lista = new Reserva[reservas];
+        preciosDecimales = new BigDecimal[reservas];
+        for (int i = 0; i < reservas; i++) {
+            int noches = 1 + random.nextInt(14);
+            // Precios con céntimos, como los que dan las reglas de tarifa
+            Dinero precio = Dinero.deCentimos(noches * (4_000L + random.nextInt(12_000)));
+            lista[i] = Reserva.restaurar(UUID.randomUUID(), cliente, habitacion, inicio, inicio.plusDays(noches), noches,
+                precio, estados[random.nextInt(estados.length)], null);
+            preciosDecimales[i] = new BigDecimal(precio.toString());
+        }
+
+        BigDecimal esperado = sumaBigDecimal();
+        if (esperado.compareTo(sumaDinero().aBigDecimal()) != 0) {
+            throw new IllegalStateException("Las dos sumas no coinciden: " + esperado + " / " + sumaDinero());
+        }
+    }
+
+    @Benchmark
+    public BigDecimal sumaBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lista.length; i++) {
+            if (lista[i].getEstado() != EstadoReserva.CANCELADA) {
+                total = total.add(preciosDecimales[i]);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Dinero sumaDinero() {
+        long centimos = 0;
+        for (Reserva reserva : lista) {
+            if (reserva.getEstado() != EstadoReserva.CANCELADA) {
+                centimos = reserva.getPrecioTotal().sumarA(centimos);
+            }
+        }
+        return Dinero.deCentimos(centimos);
+    }
+}
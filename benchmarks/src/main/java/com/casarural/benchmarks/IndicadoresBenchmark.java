@@ -0,0 +1,82 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.analitica.IndicadoresEnVivo;
+import com.casarural.gestioncasa.analitica.InformeAnalitica;
+import com.casarural.gestioncasa.analitica.MotorAnalitica;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lo que cuesta refrescar un panel: leer los ingresos de un mes de los
+ * indicadores al día frente a recalcularlos recorriendo todas las reservas,
+ * y lo que añade a cada cambio de estado mantenerlos (con varios hilos a la
+ * vez, que es donde se notaría un contador compartido).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IndicadoresBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int reservas;
+
+    private List<Reserva> lista;
+    private List<Habitacion> habitaciones;
+    private IndicadoresEnVivo indicadores;
+    private YearMonth mes;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        DatosSinteticos datos = DatosSinteticos.generar(20, 1_000, reservas);
+        lista = datos.getReservas();
+        habitaciones = datos.getCasaRural().getHabitaciones();
+        indicadores = new IndicadoresEnVivo();
+        indicadores.reconstruir(lista);
+        mes = YearMonth.now().plusMonths(6);
+    }
+
+    @Benchmark
+    public Dinero leerAlDia() {
+        return indicadores.getIngresos(mes);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public InformeAnalitica recalcular() {
+        return MotorAnalitica.analizar(lista, habitaciones, mes.atDay(1), mes.plusMonths(1).atDay(1), Agrupacion.TOTAL);
+    }
+
+    // Cancela una reserva y la vuelve a confirmar: resta y vuelve a sumar sus importes
+    @Benchmark
+    @Threads(8)
+    public void actualizarCambioEstado() {
+        Reserva reserva = lista.get(ThreadLocalRandom.current().nextInt(lista.size()));
+        indicadores.estadoCambiado(reserva, EstadoReserva.CONFIRMADA, EstadoReserva.CANCELADA);
+        indicadores.estadoCambiado(reserva, EstadoReserva.CANCELADA, EstadoReserva.CONFIRMADA);
+    }
+}
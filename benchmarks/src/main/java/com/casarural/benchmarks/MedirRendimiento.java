@@ -0,0 +1,41 @@
+package com.casarural.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanza los benchmarks que coinciden con el patrón midiendo a la vez el
+ * rendimiento (operaciones por unidad de tiempo), el tiempo medio por
+ * operación y la memoria asignada (perfilador gc: gc.alloc.rate en MB/s y
+ * gc.alloc.rate.norm en bytes por operación). Los resultados quedan también
+ * en JSON para comparar una ejecución con otra.
+ *
+ * Uso: java -cp target/benchmarks.jar com.casarural.benchmarks.MedirRendimiento [patrón] [reservas,...]
+ * Por ejemplo, "MedirRendimiento Servicio 10000,1000000" mide las operaciones
+ * del servicio con diez mil y con un millón de reservas sintéticas.
+ */
+public class MedirRendimiento {
+    private static final String RESULTADOS = "jmh-resultados.json";
+
+    public static void main(String[] args) throws RunnerException {
+        String patron = args.length > 0 ? args[0] : ".*";
+        ChainedOptionsBuilder opciones = new OptionsBuilder()
+            .include(patron)
+            .mode(Mode.Throughput)
+            .mode(Mode.AverageTime)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(RESULTADOS);
+        if (args.length > 1) {
+            // Sustituye los tamaños de los benchmarks que tienen el parámetro "reservas"
+            opciones.param("reservas", args[1].split(","));
+        }
+        new Runner(opciones.build()).run();
+        System.out.println("📄 Resultados en " + RESULTADOS);
+    }
+}
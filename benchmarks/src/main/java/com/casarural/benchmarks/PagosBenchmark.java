@@ -0,0 +1,117 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.ResultadoReserva;
+import com.casarural.gestioncasa.SolicitudReserva;
+import com.casarural.gestioncasa.pago.OrdenCobro;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+import com.casarural.gestioncasa.pago.PasarelaSimulada;
+import com.casarural.gestioncasa.pago.ResultadoCobro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pago con tarjeta de un lote de reservas contra la pasarela simulada con
+ * latencia: cobrando cada pago en el hilo que lo pide antes de asociarlo (como
+ * hacía el menú) frente a enviarlos al procesador de pagos, que los cobra por
+ * lotes en varios carriles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PagosBenchmark {
+
+    @Param({"5"})
+    private int latenciaMs;
+
+    @Param({"200"})
+    private int pagos;
+
+    private PasarelaSimulada pasarela;
+    private ServicioTemporal temporal;
+    private GestionCasaRuralService servicio;
+    private List<Reserva> reservas;
+
+    @Setup(Level.Invocation)
+    public void preparar() throws Exception {
+        pasarela = new PasarelaSimulada(Duration.ofMillis(latenciaMs));
+        temporal = ServicioTemporal.crear("pagos", pasarela);
+        servicio = temporal.getServicio();
+        List<Habitacion> habitaciones = temporal.darAltaHabitaciones(20);
+        Cliente cliente = temporal.registrarGestorCanales();
+
+        // Reservas sin solapes: cada habitación, días consecutivos
+        List<SolicitudReserva> solicitudes = new ArrayList<>(pagos);
+        LocalDate hoy = LocalDate.now();
+        for (int i = 0; i < pagos; i++) {
+            LocalDate entrada = hoy.plusDays(1 + 2L * (i / habitaciones.size()));
+            solicitudes.add(new SolicitudReserva(cliente, habitaciones.get(i % habitaciones.size()),
+                entrada.atTime(14, 0), entrada.plusDays(1).atTime(12, 0)));
+        }
+        reservas = servicio.reservarLote(solicitudes).stream().map(ResultadoReserva::reserva).toList();
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrar() throws IOException {
+        temporal.close();
+    }
+
+    private static PagoTarjeta pago(Reserva reserva) {
+        return new PagoTarjeta(reserva.getPrecioTotal(), "Tarjeta", ServicioTemporal.GESTOR_CANALES, "4111111111111111", "123", "12/30");
+    }
+
+    @Benchmark
+    public int sincrono() throws Exception {
+        int liquidados = 0;
+        for (Reserva reserva : reservas) {
+            PagoTarjeta pago = pago(reserva);
+            ResultadoCobro cobro = pasarela.cobrar(List.of(new OrdenCobro(reserva.getId().toString(), reserva.getId(), pago))).get(0);
+            if (cobro.aceptado()) {
+                servicio.asociarPago(reserva, pago, reserva.getVersion());
+                liquidados++;
+            }
+        }
+        return liquidados;
+    }
+
+    @Benchmark
+    public int procesador() throws Exception {
+        List<CompletableFuture<ResultadoCobro>> cobros = new ArrayList<>(reservas.size());
+        for (Reserva reserva : reservas) {
+            cobros.add(servicio.enviarPago(reserva, pago(reserva), reserva.getVersion(), reserva.getId().toString()));
+        }
+        int liquidados = 0;
+        for (CompletableFuture<ResultadoCobro> cobro : cobros) {
+            if (cobro.join().aceptado()) {
+                liquidados++;
+            }
+        }
+        return liquidados;
+    }
+}
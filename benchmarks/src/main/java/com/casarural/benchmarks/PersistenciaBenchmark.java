@@ -0,0 +1,170 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.persistencia.PersistenciaBinaria;
+import com.casarural.gestioncasa.persistencia.PersistenciaJson;
+import com.casarural.gestioncasa.persistencia.ReceptorDatos;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la persistencia anterior (árbol completo con Gson.toJson/fromJson sobre
+ * FileWriter/FileReader sin buffer) con el motor en streaming y con el formato
+ * binario proyectado en memoria. El tamaño de cada archivo se muestra al preparar.
+ *
+ * Para ver la memoria asignada por operación: java -jar target/benchmarks.jar Persistencia -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenciaBenchmark {
+
+    @Param({"10000", "100000"})
+    private int reservas;
+
+    private DatosSinteticos datos;
+    private Gson gsonArbol;
+    private PersistenciaJson persistencia;
+    private PersistenciaBinaria binaria;
+    private Path archivoArbol;
+    private Path archivoStreaming;
+    private Path archivoBinario;
+    private Path archivoSalida;
+
+    // Misma estructura que usaba el servicio antes del motor en streaming
+    private static class DatosSistema {
+        private CasaRural casaRural;
+        private List<Cliente> clientes;
+        private List<Reserva> reservas;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        datos = DatosSinteticos.generar(50, Math.max(1, reservas / 10), reservas);
+        gsonArbol = GsonReflexion.crear(true);
+        persistencia = new PersistenciaJson();
+        binaria = new PersistenciaBinaria();
+
+        archivoArbol = Files.createTempFile("bench-arbol", ".json");
+        archivoStreaming = Files.createTempFile("bench-streaming", ".json");
+        archivoBinario = Files.createTempFile("bench-binario", ".bin");
+        archivoSalida = Files.createTempFile("bench-salida", ".json");
+
+        guardarArbol(archivoArbol);
+        persistencia.guardar(archivoStreaming, datos.getCasaRural(), datos.getClientes(), datos.getReservas());
+        binaria.guardar(archivoBinario, datos.getCasaRural(), datos.getClientes(), datos.getReservas(), false);
+        System.out.println("\nTamaño: árbol " + Files.size(archivoArbol) + " bytes, streaming " + Files.size(archivoStreaming)
+            + " bytes, binario " + Files.size(archivoBinario) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(archivoArbol);
+        Files.deleteIfExists(archivoStreaming);
+        Files.deleteIfExists(archivoBinario);
+        Files.deleteIfExists(archivoSalida);
+    }
+
+    private void guardarArbol(Path archivo) throws IOException {
+        DatosSistema sistema = new DatosSistema();
+        sistema.casaRural = datos.getCasaRural();
+        sistema.clientes = datos.getClientes();
+        sistema.reservas = datos.getReservas();
+        FileWriter writer = new FileWriter(archivo.toFile());
+        gsonArbol.toJson(sistema, writer);
+        writer.close();
+    }
+
+    @Benchmark
+    public void guardarArbol() throws IOException {
+        guardarArbol(archivoSalida);
+    }
+
+    @Benchmark
+    public long guardarStreaming() throws IOException {
+        return persistencia.guardar(archivoSalida, datos.getCasaRural(), datos.getClientes(), datos.getReservas());
+    }
+
+    @Benchmark
+    public long guardarBinario() throws IOException {
+        return binaria.guardar(archivoSalida, datos.getCasaRural(), datos.getClientes(), datos.getReservas(), false);
+    }
+
+    @Benchmark
+    public Object cargarArbol() throws IOException {
+        FileReader reader = new FileReader(archivoArbol.toFile());
+        DatosSistema sistema = gsonArbol.fromJson(reader, DatosSistema.class);
+        reader.close();
+        return sistema;
+    }
+
+    @Benchmark
+    public Object cargarStreaming() throws IOException {
+        Acumulador acumulador = new Acumulador();
+        persistencia.cargar(archivoStreaming, acumulador);
+        return acumulador;
+    }
+
+    @Benchmark
+    public Object cargarBinario() throws IOException {
+        Acumulador acumulador = new Acumulador();
+        binaria.cargar(archivoBinario, acumulador);
+        return acumulador;
+    }
+
+    private static class Acumulador implements ReceptorDatos {
+        private CasaRural casaRural;
+        private final List<Habitacion> habitaciones = new ArrayList<>();
+        private final List<Cliente> clientes = new ArrayList<>();
+        private final List<Reserva> reservas = new ArrayList<>();
+
+        @Override
+        public void casaRural(CasaRural casaRural) {
+            this.casaRural = casaRural;
+        }
+
+        @Override
+        public void habitacion(Habitacion habitacion) {
+            habitaciones.add(habitacion);
+        }
+
+        @Override
+        public void cliente(Cliente cliente) {
+            clientes.add(cliente);
+        }
+
+        @Override
+        public void reserva(Reserva reserva) {
+            reservas.add(reserva);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.ResultadoReserva;
+import com.casarural.gestioncasa.SolicitudReserva;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importación de un lote de solicitudes de reserva a través del servicio:
+ * una a una (cada una con su comprobación, su paso por el cerrojo común y su
+ * escritura en el diario) frente a reservarLote (un recorrido por habitación
+ * y una sola escritura en el diario).
+ *
+ * Cada invocación parte de un servicio nuevo en un directorio temporal con la
+ * mitad de reservas ya hechas, así que hay solicitudes que chocan con reservas
+ * existentes y otras que chocan entre sí.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReservaLoteBenchmark {
+
+    @Param({"50"})
+    private int habitaciones;
+
+    @Param({"1000", "10000"})
+    private int solicitudes;
+
+    private ServicioTemporal temporal;
+    private GestionCasaRuralService servicio;
+    private List<SolicitudReserva> lote;
+
+    @Setup(Level.Invocation)
+    public void preparar() throws Exception {
+        temporal = ServicioTemporal.crear("reservas-lote");
+        servicio = temporal.getServicio();
+        List<Habitacion> lista = temporal.darAltaHabitaciones(habitaciones);
+        Cliente cliente = temporal.registrarGestorCanales();
+
+        // Misma secuencia en cada invocación
+        Random random = new Random(42);
+        servicio.reservarLote(solicitudes(random, lista, cliente, solicitudes / 2));
+        lote = solicitudes(random, lista, cliente, solicitudes);
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrar() throws IOException {
+        temporal.close();
+    }
+
+    private static List<SolicitudReserva> solicitudes(Random random, List<Habitacion> habitaciones, Cliente cliente, int numero) {
+        LocalDate hoy = LocalDate.now();
+        List<SolicitudReserva> lista = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            LocalDate entrada = hoy.plusDays(1 + random.nextInt(365));
+            LocalDate salida = entrada.plusDays(1 + random.nextInt(7));
+            lista.add(new SolicitudReserva(cliente, habitaciones.get(random.nextInt(habitaciones.size())),
+                entrada.atTime(14, 0), salida.atTime(12, 0)));
+        }
+        return lista;
+    }
+
+    @Benchmark
+    public int unaAUna() throws Exception {
+        int aceptadas = 0;
+        for (SolicitudReserva solicitud : lote) {
+            try {
+                servicio.reservar(solicitud.cliente(), solicitud.habitacion(), solicitud.fechaInicio(), solicitud.fechaFin());
+                aceptadas++;
+            } catch (HabitacionNoDisponibleExcepcion e) {
+                // Rechazada por solape
+            }
+        }
+        return aceptadas;
+    }
+
+    @Benchmark
+    public int lote() {
+        int aceptadas = 0;
+        for (ResultadoReserva resultado : servicio.reservarLote(lote)) {
+            if (resultado.aceptada()) {
+                aceptadas++;
+            }
+        }
+        return aceptadas;
+    }
+}
@@ -0,0 +1,233 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.ResultadoCarga;
+import com.casarural.gestioncasa.ResultadoImportacion;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.indices.IndiceDuplicados;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.persistencia.EstadisticasSnapshot;
+import com.casarural.gestioncasa.persistencia.PersistenciaJson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones del servicio tal como las usan la consola y la API, sobre un
+ * servicio cargado con un conjunto sintético del tamaño indicado: guardar y
+ * cargar, comprobaciones de existencia, habitaciones disponibles, alta de
+ * reservas, pagos y cambios de estado (estos con sus observadores: diario,
+ * índices, vistas, indicadores y eventos).
+ *
+ * Cada iteración parte de un servicio nuevo cargado desde el mismo archivo,
+ * así que las reservas que se crean en una iteración no se acumulan en la
+ * siguiente. Las búsquedas alternan claves que existen y que no existen.
+ *
+ * Para ver rendimiento, tiempo medio y memoria asignada a la vez: MedirRendimiento Servicio
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ServicioBenchmark {
+    // Claves que se consultan en cada búsqueda (la mitad no existen)
+    private static final int CLAVES = 1024;
+    // Reservas sin pago sobre las que se alternan pagos y cambios de estado
+    private static final int RESERVAS_MODIFICABLES = 1024;
+    // Las reservas nuevas van después de las sintéticas (que ocupan los tres próximos años)
+    private static final LocalDateTime INICIO_ALTAS = LocalDateTime.now().plusYears(5).withHour(14).withMinute(0)
+        .withSecond(0).withNano(0);
+
+    @Param({"10000", "100000"})
+    private int reservas;
+
+    private Path archivoBase;
+    private ServicioTemporal temporal;
+    private GestionCasaRuralService servicio;
+    private IndiceDuplicados indices;
+    private List<Habitacion> habitaciones;
+    private Cliente cliente;
+
+    private String[] codigos;
+    private String[] documentos;
+    private UUID[] ids;
+    private Reserva[] candidatas;
+    private Reserva[] modificables;
+    private int siguiente;
+    // Noche libre siguiente para las altas: recorre las habitaciones y luego avanza un día
+    private long altas;
+
+    @Setup(Level.Trial)
+    public void prepararArchivo() throws Exception {
+        DatosSinteticos datos = DatosSinteticos.generar(50, Math.max(1, reservas / 10), reservas);
+        archivoBase = Files.createTempFile("bench-servicio", ".json");
+        new PersistenciaJson().guardar(archivoBase, datos.getCasaRural(), datos.getClientes(), datos.getReservas());
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararServicio() throws Exception {
+        temporal = ServicioTemporal.crear("bench-servicio");
+        Files.copy(archivoBase, temporal.getDirectorio().resolve("gestion-cr.json"));
+        servicio = temporal.getServicio();
+        servicio.cargar();
+        habitaciones = servicio.getHabitaciones();
+        List<Cliente> clientes = servicio.getClientes();
+        List<Reserva> lista = servicio.getReservas();
+        cliente = clientes.get(0);
+        indices = new IndiceDuplicados();
+        indices.reconstruir(habitaciones, clientes, lista);
+
+        Random random = new Random(42);
+        codigos = new String[CLAVES];
+        documentos = new String[CLAVES];
+        ids = new UUID[CLAVES];
+        candidatas = new Reserva[CLAVES];
+        for (int i = 0; i < CLAVES; i++) {
+            boolean existe = i % 2 == 0;
+            Reserva reserva = lista.get(random.nextInt(lista.size()));
+            codigos[i] = existe ? habitaciones.get(random.nextInt(habitaciones.size())).getCodigo() : "X" + i;
+            documentos[i] = existe ? clientes.get(random.nextInt(clientes.size())).getNumeroDocumento() : "NO" + i;
+            ids[i] = existe ? reserva.getId() : UUID.randomUUID();
+            // Misma reserva o la misma desplazada un día, que no está
+            candidatas[i] = existe ? reserva : Reserva.restaurar(UUID.randomUUID(), reserva.getCliente(), reserva.getHabitacion(),
+                reserva.getFechaInicio().plusDays(1), reserva.getFechaFin().plusDays(1), reserva.getNoches(),
+                reserva.getPrecioTotal(), reserva.getEstado(), null);
+        }
+
+        altas = 0;
+        modificables = new Reserva[RESERVAS_MODIFICABLES];
+        for (int i = 0; i < RESERVAS_MODIFICABLES; i++) {
+            modificables[i] = reservarSiguiente();
+        }
+        siguiente = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrarServicio() throws IOException {
+        temporal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarArchivo() throws IOException {
+        Files.deleteIfExists(archivoBase);
+    }
+
+    private int siguiente(int tamano) {
+        siguiente = siguiente + 1 == tamano ? 0 : siguiente + 1;
+        return siguiente;
+    }
+
+    private Reserva reservarSiguiente() throws Exception {
+        Habitacion habitacion = habitaciones.get((int) (altas % habitaciones.size()));
+        LocalDateTime entrada = INICIO_ALTAS.plusDays(altas / habitaciones.size());
+        altas++;
+        return servicio.reservar(cliente, habitacion, entrada, entrada.plusDays(1).withHour(12));
+    }
+
+    // ===== PERSISTENCIA =====
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public EstadisticasSnapshot guardar() throws IOException {
+        return servicio.compactar();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ResultadoCarga cargar() {
+        return servicio.cargar();
+    }
+
+    // Todos los registros del archivo ya están cargados: se mide la comprobación de duplicados
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ResultadoImportacion cargarConVerificacion() {
+        return servicio.cargarConVerificacion();
+    }
+
+    // ===== CONSULTAS =====
+
+    @Benchmark
+    public boolean existeHabitacion() {
+        return servicio.buscarHabitacion(codigos[siguiente(CLAVES)]) != null;
+    }
+
+    @Benchmark
+    public boolean existeCliente() {
+        return servicio.buscarCliente(documentos[siguiente(CLAVES)]) != null;
+    }
+
+    @Benchmark
+    public boolean existeReservaPorId() {
+        return servicio.buscarReserva(ids[siguiente(CLAVES)]) != null;
+    }
+
+    // Reserva igual (cliente, habitación y fechas) a otra ya existente, como se comprueba al importar
+    @Benchmark
+    public boolean existeReservaDuplicada() {
+        return indices.contiene(candidatas[siguiente(CLAVES)]);
+    }
+
+    // Copia de la vista, como la numera la consola
+    @Benchmark
+    public List<Habitacion> habitacionesDisponibles() {
+        Collection<Habitacion> disponibles = servicio.getHabitacionesDisponibles();
+        return List.copyOf(disponibles);
+    }
+
+    // ===== CAMBIOS =====
+
+    @Benchmark
+    public Reserva reservar() throws Exception {
+        try {
+            return reservarSiguiente();
+        } catch (HabitacionNoDisponibleExcepcion e) {
+            throw new IllegalStateException("Las altas del benchmark no deberían solaparse", e);
+        }
+    }
+
+    // Asociar deja la reserva CONFIRMADA y anular la devuelve a PENDIENTE, lista para la siguiente vuelta
+    @Benchmark
+    public String asociarYAnularPago() throws Exception {
+        Reserva reserva = modificables[siguiente(RESERVAS_MODIFICABLES)];
+        PagoEfectivo pago = new PagoEfectivo(reserva.getPrecioTotal(), "Efectivo", reserva.getPrecioTotal());
+        String justificante = servicio.asociarPago(reserva, pago, reserva.getVersion());
+        servicio.anularPago(reserva, reserva.getVersion());
+        return justificante;
+    }
+
+    @Benchmark
+    public EstadoReserva cambiarEstado() throws Exception {
+        Reserva reserva = modificables[siguiente(RESERVAS_MODIFICABLES)];
+        EstadoReserva nuevo = reserva.getEstado() == EstadoReserva.PENDIENTE ? EstadoReserva.CONFIRMADA : EstadoReserva.PENDIENTE;
+        reserva.cambiarEstado(nuevo);
+        return nuevo;
+    }
+}
@@ -0,0 +1,92 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.excepciones.RegistroDuplicadoExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.PasarelaPago;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Servicio completo (diario, índices, observadores) sobre un directorio
+ * temporal, para los benchmarks que pasan por el servicio. Al cerrarlo se
+ * cierra el servicio y se borra el directorio con todo lo que haya escrito.
+ */
+public class ServicioTemporal implements AutoCloseable {
+    /** Nombre del cliente que hace las reservas importadas (también titular de sus pagos) */
+    public static final String GESTOR_CANALES = "Gestor de canales";
+
+    private static final Dinero PRECIO_NOCHE = Dinero.de("60.00");
+
+    private final Path directorio;
+    private final GestionCasaRuralService servicio;
+
+    private ServicioTemporal(Path directorio, GestionCasaRuralService servicio) {
+        this.directorio = directorio;
+        this.servicio = servicio;
+    }
+
+    /**
+     * @param prefijo Prefijo del directorio temporal
+     */
+    public static ServicioTemporal crear(String prefijo) throws IOException {
+        Path directorio = Files.createTempDirectory(prefijo);
+        return new ServicioTemporal(directorio, new GestionCasaRuralService(directorio));
+    }
+
+    /**
+     * @param pasarela Pasarela que cobra los pagos enviados con enviarPago
+     */
+    public static ServicioTemporal crear(String prefijo, PasarelaPago pasarela) throws IOException {
+        Path directorio = Files.createTempDirectory(prefijo);
+        return new ServicioTemporal(directorio, new GestionCasaRuralService(directorio, pasarela));
+    }
+
+    public GestionCasaRuralService getServicio() {
+        return servicio;
+    }
+
+    /**
+     * @return Directorio de la instantánea y del diario (para copiar en él un archivo de datos antes de cargar)
+     */
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Da de alta las habitaciones H001, H002... dobles y con el mismo precio por noche
+     */
+    public List<Habitacion> darAltaHabitaciones(int numero) throws RegistroDuplicadoExcepcion, ImporteInvalidoExcepcion {
+        List<Habitacion> habitaciones = new ArrayList<>(numero);
+        for (int i = 1; i <= numero; i++) {
+            habitaciones.add(servicio.darAltaHabitacion(String.format("H%03d", i), "Habitación " + i, 2, PRECIO_NOCHE));
+        }
+        return habitaciones;
+    }
+
+    /**
+     * Registra el cliente a cuyo nombre se hacen las reservas de los benchmarks
+     */
+    public Cliente registrarGestorCanales() throws RegistroDuplicadoExcepcion {
+        return servicio.registrarCliente(GESTOR_CANALES, "00000000T", "canales@casarural.com", "600000000");
+    }
+
+    @Override
+    public void close() throws IOException {
+        servicio.cerrar();
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path archivo : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(archivo);
+            }
+        }
+    }
+}
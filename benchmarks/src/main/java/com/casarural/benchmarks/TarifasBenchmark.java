@@ -0,0 +1,123 @@
+package com.casarural.benchmarks;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.tarifas.MotorTarifas;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.EstanciaLarga;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.FinDeSemana;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Temporada;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precio de una estancia con reglas de temporada, fin de semana y estancia
+ * larga: con la tabla compilada del motor de tarifas (resta de dos sumas
+ * acumuladas) frente a evaluar las reglas noche a noche.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TarifasBenchmark {
+    private static final int ESTANCIAS = 1024;
+
+    private MotorTarifas motor;
+    private Habitacion habitacion;
+    private List<ReglaTarifa> reglas;
+    private LocalDateTime[] entradas;
+    private LocalDateTime[] salidas;
+    private int siguiente;
+
+    @Setup
+    public void preparar() throws Exception {
+        habitacion = new Habitacion("H001", "Habitación Doble", 2, Dinero.de("75.00"));
+        int anio = LocalDate.now().getYear();
+        reglas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            reglas.add(new Temporada("Verano " + (anio + i), LocalDate.of(anio + i, 7, 1), LocalDate.of(anio + i, 8, 31), new BigDecimal("1.40")));
+            reglas.add(new Temporada("Navidad " + (anio + i), LocalDate.of(anio + i, 12, 20), LocalDate.of(anio + i, 12, 31), new BigDecimal("1.25")));
+        }
+        reglas.add(new FinDeSemana(Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY), new BigDecimal("1.15")));
+        reglas.add(new EstanciaLarga(7, new BigDecimal("0.90")));
+        reglas.add(new EstanciaLarga(14, new BigDecimal("0.85")));
+
+        motor = new MotorTarifas(Clock.systemDefaultZone());
+        motor.habitacionAgregada(habitacion);
+        motor.setReglas(reglas);
+
+        Random random = new Random(42);
+        entradas = new LocalDateTime[ESTANCIAS];
+        salidas = new LocalDateTime[ESTANCIAS];
+        for (int i = 0; i < ESTANCIAS; i++) {
+            LocalDate entrada = LocalDate.now().plusDays(random.nextInt(600));
+            entradas[i] = entrada.atTime(14, 0);
+            salidas[i] = entrada.plusDays(1 + random.nextInt(14)).atTime(12, 0);
+        }
+    }
+
+    @Benchmark
+    public Dinero tablaCompilada() {
+        int i = siguiente++ & (ESTANCIAS - 1);
+        return motor.cotizar(habitacion, entradas[i], salidas[i]);
+    }
+
+    @Benchmark
+    public Dinero nocheANoche() {
+        int i = siguiente++ & (ESTANCIAS - 1);
+        LocalDate entrada = entradas[i].toLocalDate();
+        LocalDate salida = salidas[i].toLocalDate();
+        BigDecimal precioNoche = habitacion.getPrecioNoche().aBigDecimal();
+        long centimos = 0;
+        int noches = 0;
+        for (LocalDate noche = entrada; noche.isBefore(salida); noche = noche.plusDays(1), noches++) {
+            BigDecimal factor = BigDecimal.ONE;
+            for (ReglaTarifa regla : reglas) {
+                if (regla instanceof Temporada temporada && !noche.isBefore(temporada.desde()) && !noche.isAfter(temporada.hasta())) {
+                    factor = factor.multiply(temporada.factor());
+                    break;
+                }
+            }
+            for (ReglaTarifa regla : reglas) {
+                if (regla instanceof FinDeSemana finDeSemana && finDeSemana.dias().contains(noche.getDayOfWeek())) {
+                    factor = factor.multiply(finDeSemana.factor());
+                }
+            }
+            centimos += precioNoche.multiply(factor).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        EstanciaLarga mejor = null;
+        for (ReglaTarifa regla : reglas) {
+            if (regla instanceof EstanciaLarga estancia && noches >= estancia.nochesMinimas()
+                    && (mejor == null || estancia.nochesMinimas() > mejor.nochesMinimas())) {
+                mejor = estancia;
+            }
+        }
+        if (mejor != null) {
+            centimos = BigDecimal.valueOf(centimos).multiply(mejor.factor()).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        return Dinero.deCentimos(centimos);
+    }
+}
@@ -0,0 +1,913 @@
+package com.casarural;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.ResultadoCarga;
+import com.casarural.gestioncasa.ResultadoImportacion;
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.analitica.Indicadores;
+import com.casarural.gestioncasa.analitica.IndicadoresEnVivo;
+import com.casarural.gestioncasa.analitica.InformeAnalitica;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.excepciones.RegistroDuplicadoExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+import com.casarural.gestioncasa.persistencia.EstadisticasSnapshot;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pantallas de la consola: piden los datos al operador, llaman al servicio y
+ * muestran el resultado. Toda la entrada y salida por consola está aquí; el
+ * servicio solo recibe parámetros y devuelve resultados.
+ */
+public class ConsolaCasaRural {
+    private final GestionCasaRuralService servicio;
+    private final Scanner scanner;
+    // Resultados de los cobros con tarjeta terminados, pendientes de mostrar
+    private final Queue<String> avisosPagos = new ConcurrentLinkedQueue<>();
+
+    public ConsolaCasaRural(GestionCasaRuralService servicio, Scanner scanner) {
+        this.servicio = servicio;
+        this.scanner = scanner;
+    }
+
+    // ===== PERSISTENCIA =====
+
+    public void cargar() {
+        ResultadoCarga carga = servicio.cargar();
+        if (carga.origen() == null) {
+            System.out.println("❌ Error al cargar los datos: " + carga.error().getMessage());
+            System.out.println("ℹ️  Se iniciará con datos vacíos.");
+        } else if (carga.copiaAnterior()) {
+            System.out.println("⚠️  Datos recuperados de la copia anterior: " + carga.origen()
+                + " (pueden faltar los últimos cambios)");
+        } else {
+            System.out.println("✅ Datos cargados correctamente desde: " + carga.origen());
+        }
+
+        if (carga.cambiosRecuperados() > 0) {
+            System.out.println("🔁 " + carga.cambiosRecuperados() + " cambios recuperados del diario: " + servicio.getArchivoDiario());
+        }
+        if (carga.errorDiario() != null) {
+            System.out.println("❌ Error al reproducir el diario de cambios: " + carga.errorDiario().getMessage());
+        }
+        if (carga.importesRedondeados() > 0) {
+            System.out.println("⚠️  " + carga.importesRedondeados() + " importes con más de dos decimales redondeados al céntimo"
+                + " (la mitad hacia arriba); se guardarán así en la próxima instantánea");
+        }
+
+        if (carga.errorConversion() != null) {
+            System.out.println("⚠️  No se pudo reescribir el archivo en el formato actual: " + carga.errorConversion().getMessage());
+        } else if (carga.copiaMigracion() != null) {
+            System.out.println("🔄 Archivo migrado al formato actual (copia del original en " + carga.copiaMigracion() + ")");
+        } else if (carga.convertido()) {
+            System.out.println("🔄 Datos de " + carga.origen() + " convertidos al formato configurado: " + servicio.getArchivoDatos());
+        }
+
+        try {
+            int reglas = servicio.cargarReglasTarifa();
+            if (reglas > 0) {
+                System.out.println("💶 " + reglas + " reglas de tarifa cargadas de: " + servicio.getArchivoTarifas());
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️  No se pudieron leer las reglas de tarifa (se cobra el precio por noche): " + e.getMessage());
+        }
+    }
+
+    public void guardar() {
+        try {
+            servicio.guardar();
+            System.out.println("✅ Cambios guardados en el diario: " + servicio.getArchivoDiario());
+            System.out.println("💾 Instantánea completa en curso en segundo plano: " + servicio.getArchivoDatos());
+            EstadisticasSnapshot ultima = servicio.getUltimaInstantanea();
+            if (ultima != null) {
+                System.out.println("📈 Última " + ultima + " (" + servicio.getInstantaneas() + " en esta sesión, "
+                    + servicio.getBytesInstantaneas() + " bytes escritos)");
+            }
+            IOException error = servicio.getErrorInstantanea();
+            if (error != null) {
+                System.out.println("⚠️  La última instantánea falló (los cambios siguen en el diario): " + error.getMessage());
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Error al guardar los datos: " + e.getMessage());
+        }
+    }
+
+    public void cargarConVerificacion() {
+        ResultadoImportacion resultado = servicio.cargarConVerificacion();
+        if (resultado.error() != null) {
+            System.out.println("❌ Error al cargar los datos: " + resultado.error().getMessage());
+            // Los registros leídos antes del error ya se han incorporado
+            if (resultado.totalAgregados() + resultado.totalOmitidos() == 0) {
+                return;
+            }
+        }
+        if (resultado.casaActualizada() != null) {
+            System.out.println("✅ Información de la casa rural actualizada: " + resultado.casaActualizada());
+        }
+        for (String omitido : resultado.omitidos()) {
+            System.out.println("⚠️  Omitido: " + omitido);
+        }
+
+        System.out.println("\n📊 === RESUMEN DE CARGA ===");
+        System.out.println("🏠 Habitaciones: " + resultado.habitacionesAgregadas() + " agregadas, " + resultado.habitacionesDuplicadas() + " duplicadas");
+        System.out.println("👤 Clientes: " + resultado.clientesAgregados() + " agregados, " + resultado.clientesDuplicados() + " duplicados");
+        System.out.println("📅 Reservas: " + resultado.reservasAgregadas() + " agregadas, " + resultado.reservasDuplicadas() + " duplicadas"
+            + (resultado.reservasSolapadas() > 0 ? ", " + resultado.reservasSolapadas() + " solapadas con otras reservas" : ""));
+
+        if (resultado.totalAgregados() > 0) {
+            System.out.println("✅ Carga completada: " + resultado.totalAgregados() + " elementos agregados");
+        }
+        if (resultado.totalOmitidos() > 0) {
+            System.out.println("⚠️  " + resultado.totalOmitidos() + " elementos duplicados fueron omitidos");
+        }
+        if (resultado.totalAgregados() == 0 && resultado.totalOmitidos() == 0) {
+            System.out.println("ℹ️  No se encontraron datos nuevos para cargar");
+        }
+    }
+
+    public void cerrar() {
+        try {
+            servicio.cerrar();
+        } catch (IOException e) {
+            System.out.println("❌ Error al guardar los últimos cambios: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Avisa si algún cambio de la última operación no se pudo registrar en el
+     * diario y muestra los cobros con tarjeta que han terminado entretanto
+     */
+    public void mostrarAvisos() {
+        IOException error = servicio.tomarErrorDiario();
+        if (error != null) {
+            System.out.println("⚠️  No se pudo registrar el cambio en el diario: " + error.getMessage());
+        }
+        String aviso;
+        while ((aviso = avisosPagos.poll()) != null) {
+            System.out.println(aviso);
+        }
+    }
+
+    // ===== GESTIÓN DE HABITACIONES =====
+
+    public void darAltaHabitacion() {
+        System.out.println("\n🏨 DAR DE ALTA HABITACIÓN");
+        System.out.println("=".repeat(40));
+
+        System.out.print("Código de la habitación: ");
+        String codigo = scanner.nextLine().trim();
+
+        System.out.print("Descripción: ");
+        String descripcion = scanner.nextLine().trim();
+
+        int capacidad = leerEnteroPositivo("Capacidad (personas): ");
+
+        Dinero precioNoche = leerImporte("Precio por noche (€): ");
+
+        try {
+            Habitacion habitacion = servicio.darAltaHabitacion(codigo, descripcion, capacidad, precioNoche);
+            System.out.println("✅ Habitación creada correctamente: " + habitacion.getCodigo());
+        } catch (Exception e) {
+            System.out.println("❌ Error al crear habitación: " + e.getMessage());
+        }
+    }
+
+    public void listarHabitaciones() {
+        List<Habitacion> habitaciones = servicio.getHabitaciones();
+        if (habitaciones.isEmpty()) {
+            System.out.println("No hay habitaciones registradas en la casa rural.");
+            return;
+        }
+
+        String nombre = servicio.getNombreCasa();
+        System.out.println("\n=== HABITACIONES DE LA CASA RURAL ===");
+        System.out.println("Casa Rural: " + (nombre != null ? nombre : "Sin nombre"));
+        System.out.println("Total de habitaciones: " + habitaciones.size());
+        System.out.println("=====================================");
+
+        for (int i = 0; i < habitaciones.size(); i++) {
+            Habitacion hab = habitaciones.get(i);
+            System.out.println("\nHabitación " + (i + 1) + ":");
+            System.out.println("  Código: " + hab.getCodigo());
+            System.out.println("  Descripción: " + hab.getDescripcion());
+            System.out.println("  Capacidad: " + hab.getCapacidad() + " persona(s)");
+            System.out.println("  Precio por noche: " + hab.getPrecioNoche() + " €");
+            System.out.println("  Estado: " + (hab.isDisponible() ? "Disponible" : "Ocupada"));
+        }
+
+        System.out.println("\n=====================================");
+    }
+
+    // ===== GESTIÓN DE CLIENTES =====
+
+    public void registrarCliente() {
+        System.out.println("\n👤 === REGISTRAR NUEVO CLIENTE ===");
+
+        // Validar nombre (sin números)
+        String nombre;
+        do {
+            System.out.print("Nombre completo: ");
+            nombre = scanner.nextLine().trim();
+            if (nombre.isEmpty()) {
+                System.out.println("❌ El nombre no puede estar vacío.");
+            } else if (!nombre.matches("^[a-zA-ZÀ-ÿ\\s]+$")) {
+                System.out.println("❌ El nombre solo puede contener letras y espacios.");
+            }
+        } while (nombre.isEmpty() || !nombre.matches("^[a-zA-ZÀ-ÿ\\s]+$"));
+
+        System.out.print("Número de documento: ");
+        String numeroDocumento = scanner.nextLine().trim();
+
+        System.out.print("Email: ");
+        String email = scanner.nextLine().trim();
+
+        // Validar teléfono (solo números)
+        String telefono;
+        do {
+            System.out.print("Teléfono: ");
+            telefono = scanner.nextLine().trim();
+            if (telefono.isEmpty()) {
+                System.out.println("❌ El teléfono no puede estar vacío.");
+            } else if (!telefono.matches("^\\d+$")) {
+                System.out.println("❌ El teléfono solo puede contener números.");
+            }
+        } while (telefono.isEmpty() || !telefono.matches("^\\d+$"));
+
+        try {
+            Cliente cliente = servicio.registrarCliente(nombre, numeroDocumento, email, telefono);
+            System.out.println("✅ Cliente registrado correctamente: " + cliente.getNombre());
+        } catch (RegistroDuplicadoExcepcion e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    public void listarClientes() {
+        listarClientes(servicio.getClientes());
+    }
+
+    // Las pantallas que eligen un cliente por número listan y eligen sobre la misma copia
+    private void listarClientes(List<Cliente> clientes) {
+        if (clientes.isEmpty()) {
+            System.out.println("No hay clientes registrados.");
+            return;
+        }
+
+        System.out.println("\n👥 === LISTA DE CLIENTES ===");
+        for (int i = 0; i < clientes.size(); i++) {
+            Cliente cliente = clientes.get(i);
+            System.out.println("\nCliente " + (i + 1) + ":");
+            System.out.println("  Nombre: " + cliente.getNombre());
+            System.out.println("  Documento: " + cliente.getNumeroDocumento());
+            System.out.println("  Email: " + cliente.getEmail());
+            System.out.println("  Teléfono: " + cliente.getTelefono());
+        }
+        System.out.println("\n=================================");
+    }
+
+    public void eliminarCliente() {
+        List<Cliente> clientes = servicio.getClientes();
+        if (clientes.isEmpty()) {
+            System.out.println("No hay clientes registrados para eliminar.");
+            return;
+        }
+
+        System.out.println("\n🗑️ === ELIMINAR CLIENTE ===");
+
+        // Mostrar lista de clientes
+        listarClientes(clientes);
+
+        System.out.print("Número del cliente a eliminar: ");
+        int numCliente = leerEnteroPositivo("Seleccione el número del cliente: ") - 1;
+
+        if (numCliente < 0 || numCliente >= clientes.size()) {
+            System.out.println("❌ Número de cliente no válido.");
+            return;
+        }
+
+        Cliente clienteAEliminar = clientes.get(numCliente);
+
+        // Verificar si el cliente tiene reservas activas (PENDIENTES o CONFIRMADAS)
+        if (servicio.tieneReservas(clienteAEliminar, EstadoReserva.PENDIENTE, EstadoReserva.CONFIRMADA)) {
+            System.out.println("❌ No se puede eliminar el cliente '" + clienteAEliminar.getNombre() + "' porque tiene reservas activas.");
+            System.out.println("💡 Primero debe cancelar todas las reservas activas del cliente antes de eliminarlo.");
+            return;
+        }
+
+        if (servicio.tieneReservas(clienteAEliminar, EstadoReserva.CANCELADA, EstadoReserva.COMPLETADA)) {
+            System.out.println("⚠️ El cliente '" + clienteAEliminar.getNombre() + "' tiene reservas finalizadas (canceladas o completadas).");
+            System.out.println("ℹ️ Estas reservas se mantendrán en el historial después de eliminar el cliente.");
+        }
+
+        // Confirmar eliminación
+        System.out.println("\n¿Está seguro de que desea eliminar al cliente?");
+        System.out.println("Cliente: " + clienteAEliminar.getNombre());
+        System.out.println("Documento: " + clienteAEliminar.getNumeroDocumento());
+        System.out.println("Email: " + clienteAEliminar.getEmail());
+        System.out.println("Teléfono: " + clienteAEliminar.getTelefono());
+        System.out.print("Confirmar eliminación (s/n): ");
+
+        if (!confirmar()) {
+            System.out.println("ℹ️ Operación cancelada.");
+            return;
+        }
+
+        try {
+            // Si mientras tanto se le ha hecho una reserva, el servicio no lo elimina
+            servicio.eliminarCliente(clienteAEliminar);
+            System.out.println("✅ Cliente eliminado correctamente: " + clienteAEliminar.getNombre());
+        } catch (EstadoReservaExcepcion e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    public void mostrarHistorialCliente() {
+        List<Cliente> clientes = servicio.getClientes();
+        if (clientes.isEmpty()) {
+            System.out.println("No hay clientes registrados.");
+            return;
+        }
+
+        System.out.println("\n📜 === HISTORIAL DE CLIENTE ===");
+        listarClientes(clientes);
+
+        int numCliente = leerEnteroPositivo("Seleccione el número del cliente: ") - 1;
+        if (numCliente < 0 || numCliente >= clientes.size()) {
+            System.out.println("❌ Número de cliente no válido.");
+            return;
+        }
+
+        Cliente cliente = clientes.get(numCliente);
+        List<Reserva> historial = servicio.getReservasCliente(cliente);
+        System.out.println("\nCliente: " + cliente.getNombre() + " (" + cliente.getNumeroDocumento() + ")");
+        if (historial.isEmpty()) {
+            System.out.println("ℹ️  El cliente no tiene reservas.");
+            return;
+        }
+
+        for (Reserva reserva : historial) {
+            System.out.println("  - " + reserva.getHabitacion().getCodigo() + ": "
+                + reserva.getFechaInicio().toLocalDate() + " - " + reserva.getFechaFin().toLocalDate()
+                + " (" + reserva.getNoches() + " noches, " + reserva.getPrecioTotal() + "€) " + reserva.getEstado());
+        }
+        System.out.println("📊 Reservas por estado: " + servicio.getRecuentoReservas(cliente));
+        System.out.println("💰 Gasto total (sin canceladas): " + servicio.getGastoCliente(cliente) + "€");
+    }
+
+    // ===== GESTIÓN DE RESERVAS =====
+
+    public void crearReserva() {
+        System.out.println("\n📅 === CREAR NUEVA RESERVA ===");
+
+        // Verificar que hay habitaciones disponibles
+        // Se numera una copia: la vista puede cambiar mientras el operador elige
+        List<Habitacion> disponibles = List.copyOf(servicio.getHabitacionesDisponibles());
+        if (disponibles.isEmpty()) {
+            System.out.println("❌ No hay habitaciones disponibles.");
+            return;
+        }
+
+        // Verificar que hay clientes registrados
+        List<Cliente> clientes = servicio.getClientes();
+        if (clientes.isEmpty()) {
+            System.out.println("❌ No hay clientes registrados. Registre un cliente primero.");
+            return;
+        }
+
+        // Seleccionar cliente
+        System.out.println("\nSeleccione un cliente:");
+        listarClientes(clientes);
+        System.out.print("Número del cliente: ");
+
+        int numCliente = leerEnteroPositivo("Seleccione el número del cliente: ") - 1;
+        if (numCliente < 0 || numCliente >= clientes.size()) {
+            System.out.println("❌ Número de cliente no válido.");
+            return;
+        }
+        Cliente cliente = clientes.get(numCliente);
+
+        // Seleccionar habitación
+        System.out.println("\nHabitaciones disponibles:");
+        for (int i = 0; i < disponibles.size(); i++) {
+            Habitacion hab = disponibles.get(i);
+            System.out.println((i + 1) + ". " + hab.getCodigo() + " - " + hab.getDescripcion() + " (" + hab.getPrecioNoche() + "€/noche)");
+        }
+        System.out.print("Número de la habitación: ");
+
+        int numHabitacion = leerEnteroPositivo("Seleccione el número de la habitación: ") - 1;
+        if (numHabitacion < 0 || numHabitacion >= disponibles.size()) {
+            System.out.println("❌ Habitación no válida.");
+            return;
+        }
+        Habitacion habitacion = disponibles.get(numHabitacion);
+
+        // Ingresar fechas
+        System.out.print("Fecha de inicio (YYYY-MM-DD HH:mm): ");
+        String fechaInicioStr = scanner.nextLine().trim();
+        System.out.print("Fecha de fin (YYYY-MM-DD HH:mm): ");
+        String fechaFinStr = scanner.nextLine().trim();
+
+        try {
+            // Usar DateTimeFormatter para parsear el formato con espacio
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+            LocalDateTime fechaInicio = LocalDateTime.parse(fechaInicioStr, formatter);
+            LocalDateTime fechaFin = LocalDateTime.parse(fechaFinStr, formatter);
+
+            // Crear reserva
+            Reserva reserva;
+            try {
+                reserva = servicio.reservar(cliente, habitacion, fechaInicio, fechaFin);
+            } catch (HabitacionNoDisponibleExcepcion e) {
+                System.out.println("❌ " + e.getMessage());
+                mostrarHabitacionesLibres(fechaInicio, fechaFin);
+                return;
+            }
+
+            System.out.println("✅ Reserva creada correctamente:");
+            System.out.println("   Cliente: " + cliente.getNombre());
+            System.out.println("   Habitación: " + habitacion.getCodigo());
+            System.out.println("   Noches: " + reserva.getNoches());
+            System.out.println("   Precio total: " + reserva.getPrecioTotal() + "€");
+
+        } catch (Exception e) {
+            System.out.println("❌ Error al crear reserva: " + e.getMessage());
+            System.out.println("💡 Formato esperado: YYYY-MM-DD HH:mm (ejemplo: 2026-01-01 20:00)");
+        }
+    }
+
+    // Sugiere las habitaciones que sí están libres en las fechas pedidas
+    private void mostrarHabitacionesLibres(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        List<Habitacion> libres = servicio.getHabitacionesLibres(fechaInicio, fechaFin);
+        if (libres.isEmpty()) {
+            System.out.println("💡 No hay habitaciones libres en esas fechas.");
+            return;
+        }
+        System.out.println("💡 Habitaciones libres en esas fechas:");
+        for (Habitacion libre : libres) {
+            System.out.println("   - " + libre.getCodigo() + " - " + libre.getDescripcion() + " (" + libre.getPrecioNoche() + "€/noche, "
+                + servicio.cotizar(libre, fechaInicio, fechaFin) + "€ la estancia)");
+        }
+    }
+
+    public void listarReservas() {
+        listarReservas(servicio.getReservas());
+    }
+
+    private void listarReservas(List<Reserva> reservas) {
+        if (reservas.isEmpty()) {
+            System.out.println("No hay reservas registradas.");
+            return;
+        }
+
+        System.out.println("\n📋 === LISTA DE RESERVAS ===");
+        for (int i = 0; i < reservas.size(); i++) {
+            Reserva reserva = reservas.get(i);
+            System.out.println("\nReserva " + (i + 1) + ":");
+            System.out.println("  Cliente: " + reserva.getCliente().getNombre());
+            System.out.println("  Habitación: " + reserva.getHabitacion().getCodigo());
+            System.out.println("  Fechas: " + reserva.getFechaInicio().toLocalDate() + " - " + reserva.getFechaFin().toLocalDate());
+            System.out.println("  Noches: " + reserva.getNoches());
+            System.out.println("  Precio total: " + reserva.getPrecioTotal() + "€");
+            System.out.println("  Estado: " + reserva.getEstado());
+            System.out.println("  Pago: " + (reserva.getPago() != null ? "Pagado" : "Pendiente"));
+        }
+        System.out.println("\n=================================");
+    }
+
+    public void cambiarEstadoReserva() {
+        List<Reserva> reservas = servicio.getReservas();
+        if (reservas.isEmpty()) {
+            System.out.println("No hay reservas registradas.");
+            return;
+        }
+
+        System.out.println("\n🔄 === CAMBIAR ESTADO DE RESERVA ===");
+        listarReservas(reservas);
+
+        System.out.print("Número de la reserva: ");
+        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
+
+        if (numReserva < 0 || numReserva >= reservas.size()) {
+            System.out.println("❌ Reserva no válida.");
+            return;
+        }
+
+        Reserva reserva = reservas.get(numReserva);
+        // Versión que ve el operador: si otro cambia la reserva mientras elige, no se pisa su cambio
+        long version = reserva.getVersion();
+
+        System.out.println("Estados disponibles:");
+        System.out.println("1. PENDIENTE");
+        System.out.println("2. CONFIRMADA");
+        System.out.println("3. CANCELADA");
+        System.out.println("4. COMPLETADA");
+        System.out.print("Seleccione nuevo estado: ");
+
+        int opcionEstado = leerEntero("Nuevo estado (1=Pendiente, 2=Confirmada, 3=Cancelada): ");
+        EstadoReserva nuevoEstado = null;
+
+        switch (opcionEstado) {
+            case 1: nuevoEstado = EstadoReserva.PENDIENTE; break;
+            case 2: nuevoEstado = EstadoReserva.CONFIRMADA; break;
+            case 3: nuevoEstado = EstadoReserva.CANCELADA; break;
+            case 4: nuevoEstado = EstadoReserva.COMPLETADA; break;
+            default:
+                System.out.println("❌ Opción no válida.");
+                return;
+        }
+
+        try {
+            servicio.cambiarEstado(reserva, nuevoEstado, version);
+            System.out.println("✅ Estado de la reserva actualizado a: " + nuevoEstado);
+        } catch (EstadoReservaExcepcion e) {
+            System.out.println("❌ Error al cambiar estado: " + e.getMessage());
+        } catch (VersionObsoletaExcepcion e) {
+            System.out.println("⚠️ La reserva ha cambiado mientras tanto. Vuelva a consultarla.");
+        }
+    }
+
+    // ===== GESTIÓN DE PAGOS =====
+
+    public void asociarPago() {
+        System.out.println("\n💳 === ASOCIAR PAGO A RESERVA ===");
+
+        // Mostrar solo reservas sin pago (se numera una copia de la vista)
+        List<Reserva> reservasSinPago = List.copyOf(servicio.getReservasSinPago());
+
+        if (reservasSinPago.isEmpty()) {
+            System.out.println("No hay reservas pendientes de pago.");
+            return;
+        }
+
+        System.out.println("Reservas pendientes de pago:");
+        for (int i = 0; i < reservasSinPago.size(); i++) {
+            Reserva reserva = reservasSinPago.get(i);
+            System.out.println((i + 1) + ". " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo() + " (" + reserva.getPrecioTotal() + "€)");
+        }
+
+        System.out.print("Número de la reserva: ");
+        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
+
+        if (numReserva < 0 || numReserva >= reservasSinPago.size()) {
+            System.out.println("❌ Reserva no válida.");
+            return;
+        }
+
+        Reserva reserva = reservasSinPago.get(numReserva);
+        long version = reserva.getVersion();
+
+        System.out.println("Métodos de pago:");
+        System.out.println("1. Tarjeta");
+        System.out.println("2. Efectivo");
+        System.out.print("Seleccione método de pago: ");
+
+        int metodoPago = leerEntero("Método de pago (1=Efectivo, 2=Tarjeta): ");
+        Pago pago = null;
+
+        try {
+            if (metodoPago == 1) {
+                // Pago con tarjeta
+                System.out.print("Titular de la tarjeta: ");
+                String titular = scanner.nextLine().trim();
+
+                System.out.print("Número de tarjeta: ");
+                String numeroTarjeta = scanner.nextLine().trim();
+
+                System.out.print("CVV: ");
+                String cvv = scanner.nextLine().trim();
+
+                System.out.print("Fecha de vencimiento (MM/YY): ");
+                String fechaVencimiento = scanner.nextLine().trim();
+
+                pago = new PagoTarjeta(reserva.getPrecioTotal(), "Tarjeta", titular, numeroTarjeta, cvv, fechaVencimiento);
+
+            } else if (metodoPago == 2) {
+                // Pago en efectivo
+                System.out.print("Importe recibido en efectivo (€): ");
+                Dinero importeEfectivo = leerImporte("Importe en efectivo (€): ");
+
+                // Validar que el importe en efectivo sea suficiente
+                if (importeEfectivo.compareTo(reserva.getPrecioTotal()) < 0) {
+                    System.out.println("❌ Error: El importe en efectivo debe ser mayor o igual al precio total.");
+                    System.out.println("   Precio total: " + reserva.getPrecioTotal() + "€");
+                    System.out.println("   Importe recibido: " + importeEfectivo + "€");
+                    return;
+                }
+
+                pago = new PagoEfectivo(reserva.getPrecioTotal(), "Efectivo", importeEfectivo);
+
+            } else {
+                System.out.println("❌ Método de pago no válido.");
+                return;
+            }
+
+            if (pago instanceof PagoTarjeta) {
+                // El cobro lo hace la pasarela en segundo plano; el resultado se muestra al volver al menú
+                String descripcion = reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo();
+                String justificante = pago.procesarPago();
+                servicio.enviarPago(reserva, pago, version, UUID.randomUUID().toString())
+                    .thenAccept(cobro -> avisosPagos.add(cobro.aceptado()
+                        ? "✅ Pago liquidado (" + descripcion + "): " + justificante + ", referencia " + cobro.referencia()
+                            + ". Estado de la reserva: " + reserva.getEstado()
+                        : "❌ Pago rechazado (" + descripcion + "): " + cobro.motivo()));
+                System.out.println("⏳ Pago enviado a la pasarela. La reserva se confirmará cuando se liquide el cobro.");
+                return;
+            }
+
+            String justificante = servicio.asociarPago(reserva, pago, version);
+            System.out.println(justificante);
+            System.out.println("✅ Pago asociado correctamente a la reserva.");
+            System.out.println("ℹ️ Estado actual de la reserva: " + reserva.getEstado());
+
+        } catch (VersionObsoletaExcepcion e) {
+            System.out.println("⚠️ La reserva ha cambiado mientras tanto. Vuelva a consultarla.");
+        } catch (Exception e) {
+            System.out.println("❌ Error al procesar el pago: " + e.getMessage());
+        }
+    }
+
+    public void anularPago() {
+        System.out.println("\n❌ === ANULAR PAGO DE RESERVA ===");
+
+        // Mostrar solo reservas con pago (se numera una copia de la vista)
+        List<Reserva> reservasConPago = List.copyOf(servicio.getReservasConPago());
+
+        if (reservasConPago.isEmpty()) {
+            System.out.println("No hay reservas con pago asociado.");
+            return;
+        }
+
+        System.out.println("Reservas con pago asociado:");
+        for (int i = 0; i < reservasConPago.size(); i++) {
+            Reserva reserva = reservasConPago.get(i);
+            Pago pago = reserva.getPago();
+            System.out.println((i + 1) + ". " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo() +
+                            " (" + pago.getMetodoPago() + " - " + pago.getImporte() + "€)");
+        }
+
+        System.out.print("Número de la reserva: ");
+        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
+
+        if (numReserva < 0 || numReserva >= reservasConPago.size()) {
+            System.out.println("❌ Reserva no válida.");
+            return;
+        }
+
+        Reserva reserva = reservasConPago.get(numReserva);
+        long version = reserva.getVersion();
+
+        // Confirmar anulación
+        System.out.println("\n¿Está seguro de que desea anular el pago?");
+        System.out.println("Reserva: " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo());
+        System.out.println("Pago: " + reserva.getPago().getMetodoPago() + " - " + reserva.getPago().getImporte() + "€");
+        System.out.print("Confirmar (s/n): ");
+
+        if (!confirmar()) {
+            System.out.println("ℹ️ Operación cancelada.");
+            return;
+        }
+
+        // Anular el pago (si estaba CONFIRMADA vuelve a PENDIENTE en el mismo cambio)
+        try {
+            servicio.anularPago(reserva, version);
+        } catch (EstadoReservaExcepcion e) {
+            System.out.println("❌ Error al anular el pago: " + e.getMessage());
+            return;
+        } catch (VersionObsoletaExcepcion e) {
+            System.out.println("⚠️ La reserva ha cambiado mientras tanto. Vuelva a consultarla.");
+            return;
+        }
+
+        System.out.println("✅ Pago anulado correctamente.");
+        System.out.println("ℹ️ Estado actual de la reserva: " + reserva.getEstado());
+    }
+
+    // ===== ESTADÍSTICAS =====
+
+    /**
+     * Muestra los indicadores que se mantienen al día y, si se pide, los verifica
+     */
+    public void mostrarIndicadoresEnVivo() {
+        IndicadoresEnVivo indicadores = servicio.getIndicadores();
+        YearMonth mes = YearMonth.now();
+        System.out.println("\n⚡ === INDICADORES AL DÍA ===");
+        System.out.print("📋 Reservas:");
+        for (EstadoReserva estado : EstadoReserva.values()) {
+            System.out.print(" " + estado + " " + indicadores.getReservas(estado));
+        }
+        System.out.println();
+        System.out.println("💰 Ingresos de " + mes + ": " + indicadores.getIngresos(mes) + "€ (" + mes.plusMonths(1) + ": "
+            + indicadores.getIngresos(mes.plusMonths(1)) + "€)");
+        indicadores.getCobradoPorMetodo().forEach((metodo, importe) ->
+            System.out.println("💳 Cobrado con " + metodo + ": " + importe + "€"));
+        for (Habitacion habitacion : servicio.getHabitaciones()) {
+            System.out.println("🛏️  " + habitacion.getCodigo() + ": " + indicadores.getIngresos(habitacion) + "€, "
+                + indicadores.getNochesReservadas(habitacion, mes) + " noches reservadas en " + mes);
+        }
+
+        System.out.print("\n¿Verificar contra un recálculo completo? [s/N]: ");
+        if (confirmar()) {
+            List<String> diferencias = servicio.verificarIndicadores();
+            if (diferencias.isEmpty()) {
+                System.out.println("✅ Los indicadores cuadran con el recálculo.");
+            } else {
+                System.out.println("⚠️  " + diferencias.size() + " diferencias:");
+                diferencias.forEach(diferencia -> System.out.println("   - " + diferencia));
+            }
+        }
+    }
+
+    /**
+     * Pide el periodo y la agrupación y muestra los ingresos y la ocupación
+     */
+    public void mostrarInforme() {
+        System.out.println("\n📈 === INGRESOS Y OCUPACIÓN ===");
+        LocalDate inicioAnio = LocalDate.now().withDayOfYear(1);
+        LocalDate desde = leerFecha("Primera noche (YYYY-MM-DD) [" + inicioAnio + "]: ", inicioAnio);
+        LocalDate ultimaNoche = leerFecha("Última noche (YYYY-MM-DD) [" + desde.plusYears(1).minusDays(1) + "]: ",
+            desde.plusYears(1).minusDays(1));
+        if (ultimaNoche.isBefore(desde)) {
+            System.out.println("❌ La última noche no puede ser anterior a la primera.");
+            return;
+        }
+
+        System.out.println("Agrupar: 1. Total  2. Por habitación  3. Por mes");
+        Agrupacion agrupacion = switch (leerEntero("Seleccione una opción: ")) {
+            case 2 -> Agrupacion.HABITACION;
+            case 3 -> Agrupacion.MES;
+            default -> Agrupacion.TOTAL;
+        };
+
+        long inicio = System.nanoTime();
+        InformeAnalitica informe = servicio.analizar(desde, ultimaNoche.plusDays(1), agrupacion);
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.println("\n📊 Del " + desde + " al " + ultimaNoche + " (" + informe.reservasAnalizadas()
+            + " reservas analizadas en " + milisegundos + " ms)");
+        if (!informe.grupos().isEmpty()) {
+            System.out.println(String.format("%-12s %8s %7s %10s %12s %10s %10s %9s %8s",
+                "", "Reservas", "Cancel.", "Noches", "Ingresos", "Ocupación", "ADR", "RevPAR", "Estancia"));
+            for (Indicadores grupo : informe.grupos()) {
+                mostrarFila(grupo);
+            }
+            System.out.println("-".repeat(96));
+        }
+        mostrarFila(informe.total());
+        Indicadores total = informe.total();
+        System.out.println("\n💰 Ingresos de las noches del periodo: " + total.ingresos() + "€");
+        System.out.println("💳 Cobrado en el periodo: " + total.cobrado() + "€");
+        System.out.println(String.format("🛏️  Ocupación: %.1f%% (%d de %d noches)", total.ocupacion(),
+            total.nochesVendidas(), total.nochesDisponibles()));
+        System.out.println("🌙 Precio medio por noche (ADR): " + total.precioMedioNoche() + "€");
+        System.out.println("📐 Ingresos por noche disponible (RevPAR): " + total.ingresosPorNocheDisponible() + "€");
+        System.out.println(String.format("🧳 Estancia media: %.2f noches", total.estanciaMedia()));
+        System.out.println(String.format("🚫 Cancelaciones: %d de %d reservas (%.1f%%)", total.canceladas(),
+            total.reservas(), total.tasaCancelacion()));
+    }
+
+    private void mostrarFila(Indicadores grupo) {
+        System.out.println(String.format("%-12s %8d %7d %10d %12s %9.1f%% %10s %9s %8.2f",
+            grupo.grupo(), grupo.reservas(), grupo.canceladas(), grupo.nochesVendidas(), grupo.ingresos(),
+            grupo.ocupacion(), grupo.precioMedioNoche(), grupo.ingresosPorNocheDisponible(), grupo.estanciaMedia()));
+    }
+
+    // ===== DATOS DE PRUEBA =====
+
+    public void crearDatosPrueba() {
+        System.out.println("\n🧪 === CREANDO DATOS DE PRUEBA ===");
+
+        // Verificar si ya existen datos en el sistema
+        if (servicio.hayDatos()) {
+            System.out.println("⚠️  Ya existen datos en el sistema:");
+            String nombre = servicio.getNombreCasa();
+            if (nombre != null && !nombre.isEmpty()) {
+                System.out.println("   - Casa Rural: " + nombre);
+            }
+            System.out.println("   - " + servicio.getHabitaciones().size() + " habitaciones");
+            System.out.println("   - " + servicio.getClientes().size() + " clientes");
+            System.out.println("   - " + servicio.getReservas().size() + " reservas");
+
+            System.out.println("\n¿Desea recrear los datos de prueba? (Se perderán los datos actuales) [s/N]: ");
+            if (!confirmar()) {
+                System.out.println("ℹ️  Operación cancelada. Los datos existentes se mantendrán.");
+                return;
+            }
+        }
+
+        try {
+            servicio.crearDatosPrueba();
+            System.out.println("✅ Datos de prueba creados correctamente:");
+            System.out.println("   - Casa Rural: " + servicio.getNombreCasa());
+            System.out.println("   - 2 habitaciones");
+            System.out.println("   - 1 cliente registrado");
+            System.out.println("   - 1 reserva confirmada con pago");
+        } catch (IOException e) {
+            System.out.println("❌ Error al guardar los datos de prueba: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("❌ Error al crear datos de prueba: " + e.getMessage());
+        }
+    }
+
+    // ===== LECTURA DE DATOS =====
+
+    private boolean confirmar() {
+        String respuesta = scanner.nextLine().trim().toLowerCase();
+        return respuesta.equals("s") || respuesta.equals("si");
+    }
+
+    /**
+     * Lee un entero de la entrada estándar de manera segura
+     * @param mensaje Mensaje a mostrar al usuario
+     * @return El entero leído
+     */
+    private int leerEntero(String mensaje) {
+        while (true) {
+            try {
+                System.out.print(mensaje);
+                String input = scanner.nextLine().trim();
+                return Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Error: Debe introducir un número entero válido. Inténtelo de nuevo.");
+            }
+        }
+    }
+
+    /**
+     * Lee un entero positivo de la entrada estándar de manera segura
+     * @param mensaje Mensaje a mostrar al usuario
+     * @return El entero positivo leído
+     */
+    private int leerEnteroPositivo(String mensaje) {
+        while (true) {
+            int numero = leerEntero(mensaje);
+            if (numero > 0) {
+                return numero;
+            } else {
+                System.out.println("❌ Error: El número debe ser mayor que 0. Inténtelo de nuevo.");
+            }
+        }
+    }
+
+    /**
+     * Lee una fecha de la entrada estándar; si se deja en blanco, devuelve la indicada
+     * @param mensaje Mensaje a mostrar al usuario
+     * @param porDefecto Fecha si no se escribe ninguna
+     * @return La fecha leída
+     */
+    private LocalDate leerFecha(String mensaje, LocalDate porDefecto) {
+        while (true) {
+            System.out.print(mensaje);
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) {
+                return porDefecto;
+            }
+            try {
+                return LocalDate.parse(input);
+            } catch (DateTimeParseException e) {
+                System.out.println("❌ Error: Formato de fecha incorrecto (ej: 2025-07-01). Inténtelo de nuevo.");
+            }
+        }
+    }
+
+    /**
+     * Lee un importe en euros de la entrada estándar de manera segura
+     * @param mensaje Mensaje a mostrar al usuario
+     * @return El importe leído
+     */
+    private Dinero leerImporte(String mensaje) {
+        while (true) {
+            try {
+                System.out.print(mensaje);
+                String input = scanner.nextLine().trim();
+                Dinero valor = Dinero.de(input);
+                if (valor.signo() >= 0) {
+                    return valor;
+                } else {
+                    System.out.println("❌ Error: El precio debe ser mayor o igual a 0. Inténtelo de nuevo.");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Error: Debe introducir un número decimal válido (ej: 50.00). Inténtelo de nuevo.");
+            } catch (IllegalArgumentException e) {
+                System.out.println("❌ Error: El importe admite como máximo dos decimales (ej: 50.25). Inténtelo de nuevo.");
+            }
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package com.casarural;
 
 import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.api.ServidorApi;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.Scanner;
 
 public class Main {
     private static GestionCasaRuralService servicio;
+    private static ConsolaCasaRural consola;
     private static Scanner scanner;
 
-    public static void main(String[] args) {
+    // Puerto de la API si se arranca con --api sin indicar otro
+    private static final int PUERTO_API = 8080;
+
+    public static void main(String[] args) throws IOException {
         servicio = new GestionCasaRuralService();
         scanner = new Scanner(System.in);
+        consola = new ConsolaCasaRural(servicio, scanner);
         
         // Intentar cargar datos existentes
-        servicio.cargar();
+        consola.cargar();
+        
+        // Sin consola: java -jar ... --api [puerto]
+        if (args.length > 0 && args[0].equals("--api")) {
+            iniciarApi(args.length > 1 ? Integer.parseInt(args[1]) : PUERTO_API);
+            return;
+        }
         
         boolean salir = false;
         
@@ -34,13 +50,13 @@ public class Main {
                     gestionarPagos();
                     break;
                 case 5:
-                    servicio.guardar();
+                    consola.guardar();
                     break;
                 case 6:
-                    servicio.cargarConVerificacion();
+                    consola.cargarConVerificacion();
                     break;
                 case 7:
-                    servicio.crearDatosPrueba();
+                    consola.crearDatosPrueba();
                     break;
                 case 8:
                     mostrarEstadisticas();
@@ -53,15 +69,37 @@ public class Main {
                     System.out.println("❌ Opción no válida. Intente nuevamente.");
             }
             
+            consola.mostrarAvisos();
             if (!salir) {
                 System.out.println("\nPresione Enter para continuar...");
                 scanner.nextLine();
             }
         }
         
+        consola.cerrar();
         scanner.close();
     }
 
+    private static void iniciarApi(int puerto) throws IOException {
+        // Sin TCP_NODELAY, las respuestas pequeñas esperan unos 40 ms al ACK retardado del cliente.
+        // Se fija antes de crear el servidor HTTP, que lee la propiedad al cargarse
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        // Solo en localhost salvo que se indique otra interfaz (-Dcasarural.api.direccion=0.0.0.0)
+        String direccion = System.getProperty("casarural.api.direccion");
+        InetAddress interfaz = direccion != null ? InetAddress.getByName(direccion) : InetAddress.getLoopbackAddress();
+        ServidorApi api = new ServidorApi(servicio, new InetSocketAddress(interfaz, puerto));
+        // Al parar el proceso (Ctrl+C) se termina lo pendiente y se guardan los datos
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            consola.cerrar();
+        }));
+        api.iniciar();
+        String anfitrion = interfaz.isLoopbackAddress() ? "localhost" : interfaz.getHostAddress();
+        System.out.println("🌐 API escuchando en http://" + anfitrion + ":" + api.getPuerto() + " (Ctrl+C para salir)");
+    }
+
     private static void mostrarMenuPrincipal() {
         System.out.println("\n" + "=".repeat(50));
         System.out.println("🏠 SISTEMA DE GESTIÓN - CASA RURAL");
@@ -96,10 +134,10 @@ public class Main {
             
             switch (opcion) {
                 case 1:
-                    servicio.darAltaHabitacion();
+                    consola.darAltaHabitacion();
                     break;
                 case 2:
-                    servicio.listarHabitaciones();
+                    consola.listarHabitaciones();
                     break;
                 case 3:
                     volver = true;
@@ -107,6 +145,7 @@ public class Main {
                 default:
                     System.out.println("❌ Opción no válida.");
             }
+            consola.mostrarAvisos();
         }
     }
 
@@ -120,7 +159,8 @@ public class Main {
             System.out.println("1. ➕ Registrar nuevo cliente");
             System.out.println("2. 📋 Listar clientes");
             System.out.println("3. 🗑️ Eliminar cliente");
-            System.out.println("4. 🔙 Volver al menú principal");
+            System.out.println("4. 📜 Historial de un cliente");
+            System.out.println("5. 🔙 Volver al menú principal");
             System.out.println("=".repeat(40));
             System.out.print("Seleccione una opción: ");
             
@@ -128,20 +168,24 @@ public class Main {
             
             switch (opcion) {
                 case 1:
-                    servicio.registrarCliente();
+                    consola.registrarCliente();
                     break;
                 case 2:
-                    servicio.listarClientes();
+                    consola.listarClientes();
                     break;
                 case 3:
-                    servicio.eliminarCliente();
+                    consola.eliminarCliente();
                     break;
                 case 4:
+                    consola.mostrarHistorialCliente();
+                    break;
+                case 5:
                     volver = true;
                     break;
                 default:
                     System.out.println("❌ Opción no válida.");
             }
+            consola.mostrarAvisos();
         }
     }
 
@@ -163,13 +207,13 @@ public class Main {
             
             switch (opcion) {
                 case 1:
-                    servicio.crearReserva();
+                    consola.crearReserva();
                     break;
                 case 2:
-                    servicio.listarReservas();
+                    consola.listarReservas();
                     break;
                 case 3:
-                    servicio.cambiarEstadoReserva();
+                    consola.cambiarEstadoReserva();
                     break;
                 case 4:
                     volver = true;
@@ -177,6 +221,7 @@ public class Main {
                 default:
                     System.out.println("❌ Opción no válida.");
             }
+            consola.mostrarAvisos();
         }
     }
 
@@ -197,10 +242,10 @@ public class Main {
             
             switch (opcion) {
                 case 1:
-                    servicio.asociarPago();
+                    consola.asociarPago();
                     break;
                 case 2:
-                    servicio.anularPago();
+                    consola.anularPago();
                     break;
                 case 3:
                     volver = true;
@@ -208,6 +253,7 @@ public class Main {
                 default:
                     System.out.println("❌ Opción no válida.");
             }
+            consola.mostrarAvisos();
         }
     }
 
@@ -216,22 +262,14 @@ public class Main {
         System.out.println("📊 ESTADÍSTICAS DEL SISTEMA");
         System.out.println("=".repeat(40));
         
-        // Aquí podríamos agregar estadísticas más detalladas en el futuro
         System.out.println("📈 Información general del sistema:");
         System.out.println("   - Sistema operativo: " + System.getProperty("os.name"));
         System.out.println("   - Versión de Java: " + System.getProperty("java.version"));
         System.out.println("   - Archivo de datos: src/main/resources/data/gestion-cr.json");
         System.out.println("   - Estado: Sistema funcionando correctamente ✅");
-        
-        System.out.println("\n💡 Funcionalidades implementadas:");
-        System.out.println("   ✅ Gestión completa de habitaciones");
-        System.out.println("   ✅ Gestión completa de clientes");
-        System.out.println("   ✅ Gestión completa de reservas");
-        System.out.println("   ✅ Sistema de pagos (tarjeta y efectivo)");
-        System.out.println("   ✅ Persistencia JSON con GSON");
-        System.out.println("   ✅ Validaciones de negocio");
-        System.out.println("   ✅ Manejo de excepciones");
-        System.out.println("   ✅ Carga de datos con verificación de duplicados");
+
+        consola.mostrarIndicadoresEnVivo();
+        consola.mostrarInforme();
     }
 
     private static int leerOpcion() {
@@ -75,31 +75,6 @@ public class CasaRural {
         this.habitaciones.remove(habitacion);
     }
 
-    // Listar habitaciones
-    public void listarHabitaciones() {
-        if (habitaciones.isEmpty()) {
-            System.out.println("No hay habitaciones registradas en la casa rural.");
-            return;
-        }
-        
-        System.out.println("\n=== HABITACIONES DE LA CASA RURAL ===");
-        System.out.println("Casa Rural: " + (nombre != null ? nombre : "Sin nombre"));
-        System.out.println("Total de habitaciones: " + habitaciones.size());
-        System.out.println("=====================================");
-        
-        for (int i = 0; i < habitaciones.size(); i++) {
-            Habitacion hab = habitaciones.get(i);
-            System.out.println("\nHabitación " + (i + 1) + ":");
-            System.out.println("  Código: " + hab.getCodigo());
-            System.out.println("  Descripción: " + hab.getDescripcion());
-            System.out.println("  Capacidad: " + hab.getCapacidad() + " persona(s)");
-            System.out.println("  Precio por noche: " + hab.getPrecioNoche() + " €");
-            System.out.println("  Estado: " + (hab.isDisponible() ? "Disponible" : "Ocupada"));
-        }
-        
-        System.out.println("\n=====================================");
-    }
-
     public int getNumeroHabitaciones() {
         return habitaciones.size();
     }
@@ -8,6 +8,8 @@ public class Cliente {
     private String numeroDocumento;
     private String email;
     private String telefono;
+    // Aumenta con cada cambio. No se persiste: empieza en 0 al cargar
+    private volatile long version;
 
     // Constructor
     public Cliente() {
@@ -27,6 +29,20 @@ public class Cliente {
         this.telefono = telefono;
     }
 
+    // Constructor de carga: asigna el id guardado sin generar uno nuevo
+    private Cliente(UUID id, String nombre, String numeroDocumento, String email, String telefono) {
+        this.id = id;
+        this.nombre = nombre;
+        this.numeroDocumento = numeroDocumento;
+        this.email = email;
+        this.telefono = telefono;
+    }
+
+    // Reconstruye un cliente ya existente a partir de los datos persistidos
+    public static Cliente restaurar(UUID id, String nombre, String numeroDocumento, String email, String telefono) {
+        return new Cliente(id, nombre, numeroDocumento, email, telefono);
+    }
+
     // Getters y setters
     public UUID getId() {
         return id;
@@ -43,16 +59,23 @@ public class Cliente {
     public String getTelefono() {
         return telefono;
     }
-    public void setNombre(String nombre) {
+    public long getVersion() {
+        return version;
+    }
+    public synchronized void setNombre(String nombre) {
         this.nombre = nombre;
+        version++;
     }
-    public void setNumeroDocumento(String numeroDocumento) {
+    public synchronized void setNumeroDocumento(String numeroDocumento) {
         this.numeroDocumento = numeroDocumento;
+        version++;
     }
-    public void setEmail(String email) {
+    public synchronized void setEmail(String email) {
         this.email = email;
+        version++;
     }
-    public void setTelefono(String telefono) {
+    public synchronized void setTelefono(String telefono) {
         this.telefono = telefono;
+        version++;
     }
 }
@@ -1,884 +1,1249 @@
 package com.casarural.gestioncasa;
 
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.analitica.IndicadoresEnVivo;
+import com.casarural.gestioncasa.analitica.InformeAnalitica;
+import com.casarural.gestioncasa.analitica.MotorAnalitica;
+import com.casarural.gestioncasa.disponibilidad.CalendarioOcupacion;
+import com.casarural.gestioncasa.disponibilidad.MotorDisponibilidad;
+import com.casarural.gestioncasa.eventos.BusEventos;
+import com.casarural.gestioncasa.eventos.EventoDominio;
+import com.casarural.gestioncasa.indices.IndiceDuplicados;
+import com.casarural.gestioncasa.indices.IndiceReservasCliente;
+import com.casarural.gestioncasa.indices.VistasEnVivo;
+import com.casarural.gestioncasa.modelo.Dinero;
 import com.casarural.gestioncasa.modelo.EstadoReserva;
 import com.casarural.gestioncasa.pago.Pago;
-import com.casarural.gestioncasa.pago.PagoEfectivo;
 import com.casarural.gestioncasa.pago.PagoTarjeta;
+import com.casarural.gestioncasa.pago.PasarelaPago;
+import com.casarural.gestioncasa.pago.PasarelaSimulada;
+import com.casarural.gestioncasa.pago.ProcesadorPagos;
+import com.casarural.gestioncasa.pago.ResultadoCobro;
+import com.casarural.gestioncasa.persistencia.ConversorFormatos;
+import com.casarural.gestioncasa.planificacion.PlanificadorCicloVida;
+import com.casarural.gestioncasa.tarifas.ArchivoTarifas;
+import com.casarural.gestioncasa.tarifas.MotorTarifas;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa;
+import com.casarural.gestioncasa.persistencia.DiarioMutaciones;
+import com.casarural.gestioncasa.persistencia.EstadisticasSnapshot;
+import com.casarural.gestioncasa.persistencia.GestorSnapshots;
+import com.casarural.gestioncasa.persistencia.PersistenciaBinaria;
+import com.casarural.gestioncasa.persistencia.PersistenciaJson;
+import com.casarural.gestioncasa.persistencia.ReceptorDatos;
+import com.casarural.gestioncasa.persistencia.ReceptorMutaciones;
+import com.casarural.gestioncasa.excepciones.ClaveIdempotenciaExcepcion;
 import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.FechasInvalidasExcepcion;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.excepciones.RegistroDuplicadoExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
-
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GestionCasaRuralService {
     private CasaRural casaRural;
     private List<Cliente> clientes;
     private List<Reserva> reservas;
-    private Scanner scanner;
-    private Gson gson;
-    private static final String ARCHIVO_JSON = "src/main/resources/data/gestion-cr.json";
+    private PersistenciaJson persistencia;
+    private ConversorFormatos formatos;
+    // Archivo de la instantánea en el formato configurado (JSON o binario) y en el otro formato
+    private Path archivoDatos;
+    private Path archivoOtroFormato;
+    // Reglas de tarifa (opcional; sin él se cobra el precio por noche)
+    private Path archivoTarifas;
+    private DiarioMutaciones diario;
+    private ObservadorReserva observadorReservas;
+    private ObservadorHabitacion observadorHabitaciones;
+    private GestorSnapshots snapshots;
+    // Protege las listas mientras se modifican o se copian para una instantánea
+    private final Object cerrojoDatos = new Object();
+    // Índices para detectar duplicados sin recorrer las listas
+    private final IndiceDuplicados indices = new IndiceDuplicados();
+    // Ocupación de cada habitación por fechas (reservas no canceladas)
+    private final MotorDisponibilidad disponibilidad = new MotorDisponibilidad();
+    // Reservas de cada cliente agrupadas por estado
+    private final IndiceReservasCliente reservasPorCliente = new IndiceReservasCliente();
+    // Reservas con y sin pago, por estado y habitaciones disponibles, siempre al día
+    private final VistasEnVivo vistas = new VistasEnVivo();
+    // Ingresos, cobros, noches y reservas por estado, siempre al día
+    private final IndicadoresEnVivo indicadores = new IndicadoresEnVivo();
+    // Eventos del dominio para quien necesite enterarse de los cambios sin recorrer las listas
+    private final BusEventos eventos = new BusEventos(CAPACIDAD_EVENTOS);
+    // Cobro de los pagos con tarjeta en segundo plano
+    private final ProcesadorPagos pagos;
+    // Completa las reservas al llegar la salida y cancela las pendientes que no se pagan a tiempo
+    private final PlanificadorCicloVida cicloVida = new PlanificadorCicloVida(Clock.systemDefaultZone(), PLAZO_PAGO);
+    // Precio de las estancias según las reglas de tarifa
+    private final MotorTarifas tarifas = new MotorTarifas(Clock.systemDefaultZone());
+    // Último cambio que no se pudo registrar en el diario, pendiente de comunicar
+    private final AtomicReference<IOException> errorDiario = new AtomicReference<>();
+    private static final String DIRECTORIO_DATOS = "src/main/resources/data";
+    private static final String ARCHIVO_JSON = "gestion-cr.json";
+    private static final String ARCHIVO_BINARIO = "gestion-cr.bin";
+    // Formato de las instantáneas: JSON por defecto, binario con -Dcasarural.formato=binario
+    private static final boolean FORMATO_BINARIO = "binario".equalsIgnoreCase(System.getProperty("casarural.formato", "json"));
+    private static final String ARCHIVO_DIARIO = "gestion-cr.journal";
+    private static final String ARCHIVO_TARIFAS = "tarifas.json";
+    // Número de entradas del diario a partir del cual se escribe una instantánea nueva
+    private static final int ENTRADAS_COMPACTACION = 10_000;
+    // Copias anteriores del archivo de datos que se conservan (gestion-cr.json.1, .2, ...)
+    private static final int GENERACIONES = 3;
+    // Autoguardado: segundos sin cambios (configurable con -Dcasarural.autoguardado=N) y espera máxima
+    private static final Duration RETARDO_AUTOGUARDADO = Duration.ofSeconds(Integer.getInteger("casarural.autoguardado", 5));
+    private static final Duration ESPERA_MAXIMA_AUTOGUARDADO = Duration.ofSeconds(60);
+    // Eventos que caben en el bus antes de que un suscriptor retrasado empiece a perderlos
+    private static final int CAPACIDAD_EVENTOS = 16_384;
+    // Latencia de la pasarela simulada por defecto (configurable con -Dcasarural.pasarela.latencia=ms)
+    private static final Duration LATENCIA_PASARELA = Duration.ofMillis(Integer.getInteger("casarural.pasarela.latencia", 200));
+    private static final int CARRILES_PAGO = 8;
+    // Horas antes de la entrada en que se cancela una reserva pendiente sin pagar (-Dcasarural.plazoPago=N)
+    private static final Duration PLAZO_PAGO = Duration.ofHours(Integer.getInteger("casarural.plazoPago", 24));
 
-    // Adaptadores para GSON
-    private static class LocalDateTimeAdapter implements JsonSerializer<LocalDateTime>, JsonDeserializer<LocalDateTime> {
-        private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
-        @Override
-        public JsonElement serialize(LocalDateTime src, Type typeOfSrc, JsonSerializationContext context) {
-            return context.serialize(src.format(formatter));
-        }
-
-        @Override
-        public LocalDateTime deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            return LocalDateTime.parse(json.getAsString(), formatter);
-        }
+    public GestionCasaRuralService() {
+        this(Paths.get(DIRECTORIO_DATOS));
     }
 
-    private static class PagoAdapter implements JsonSerializer<Pago>, JsonDeserializer<Pago> {
-        @Override
-        public JsonElement serialize(Pago src, Type typeOfSrc, JsonSerializationContext context) {
-            JsonObject jsonObject = context.serialize(src).getAsJsonObject();
-            jsonObject.addProperty("tipo", src.getClass().getSimpleName());
-            return jsonObject;
-        }
-
-        @Override
-        public Pago deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            JsonObject jsonObject = json.getAsJsonObject();
-            String tipo = jsonObject.get("tipo").getAsString();
-            
-            if ("PagoTarjeta".equals(tipo)) {
-                return context.deserialize(json, PagoTarjeta.class);
-            } else if ("PagoEfectivo".equals(tipo)) {
-                return context.deserialize(json, PagoEfectivo.class);
-            } else {
-                throw new JsonParseException("Tipo de pago desconocido: " + tipo);
-            }
-        }
+    /**
+     * @param directorio Directorio de la instantánea y del diario de cambios (p. ej. uno temporal para pruebas de carga)
+     */
+    public GestionCasaRuralService(Path directorio) {
+        this(directorio, new PasarelaSimulada(LATENCIA_PASARELA));
     }
 
-    public GestionCasaRuralService() {
+    /**
+     * @param directorio Directorio de la instantánea y del diario de cambios
+     * @param pasarela Pasarela que cobra los pagos enviados con enviarPago
+     */
+    public GestionCasaRuralService(Path directorio, PasarelaPago pasarela) {
         this.casaRural = new CasaRural();
         this.clientes = new ArrayList<>();
         this.reservas = new ArrayList<>();
-        this.scanner = new Scanner(System.in);
         
-        // Configurar GSON con adaptadores
-        this.gson = new GsonBuilder()
-            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-            .registerTypeAdapter(Pago.class, new PagoAdapter())
-            .setPrettyPrinting()
-            .create();
+        // Instantáneas en JSON en streaming o en binario + diario de cambios
+        this.persistencia = new PersistenciaJson();
+        this.formatos = new ConversorFormatos(persistencia, new PersistenciaBinaria());
+        this.archivoDatos = directorio.resolve(FORMATO_BINARIO ? ARCHIVO_BINARIO : ARCHIVO_JSON);
+        this.archivoOtroFormato = directorio.resolve(FORMATO_BINARIO ? ARCHIVO_JSON : ARCHIVO_BINARIO);
+        this.diario = new DiarioMutaciones(directorio.resolve(ARCHIVO_DIARIO), persistencia);
+        this.archivoTarifas = directorio.resolve(ARCHIVO_TARIFAS);
+        ObservadorServicio observador = new ObservadorServicio();
+        this.observadorReservas = observador;
+        this.observadorHabitaciones = observador;
+        this.snapshots = new GestorSnapshots(archivoDatos, formatos.porExtension(archivoDatos), diario, this::capturar,
+            GENERACIONES, RETARDO_AUTOGUARDADO, ESPERA_MAXIMA_AUTOGUARDADO);
+        this.pagos = new ProcesadorPagos(pasarela, CARRILES_PAGO);
     }
 
     // ===== MÉTODOS DE PERSISTENCIA =====
     
-    public void guardar() {
+    /**
+     * Los cambios se van registrando en el diario a medida que se producen;
+     * guardar los fuerza al disco y lanza una instantánea completa en segundo
+     * plano, sin esperar a que termine.
+     * @return La instantánea en curso
+     */
+    public CompletableFuture<EstadisticasSnapshot> guardar() throws IOException {
+        diario.sincronizar();
+        return snapshots.guardarAhora();
+    }
+
+    /**
+     * Escribe una instantánea completa del estado y espera a que esté en disco
+     */
+    public EstadisticasSnapshot compactar() throws IOException {
         try {
-            DatosSistema datos = new DatosSistema(casaRural, clientes, reservas);
-            FileWriter writer = new FileWriter(ARCHIVO_JSON);
-            gson.toJson(datos, writer);
-            writer.close();
-            System.out.println("✅ Datos guardados correctamente en: " + ARCHIVO_JSON);
-        } catch (IOException e) {
-            System.out.println("❌ Error al guardar los datos: " + e.getMessage());
+            return snapshots.guardarAhora().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
         }
     }
 
-    public void cargar() {
-        try {
-            FileReader reader = new FileReader(ARCHIVO_JSON);
-            DatosSistema datos = gson.fromJson(reader, DatosSistema.class);
-            reader.close();
-            
-            this.casaRural = datos.casaRural;
-            this.clientes = datos.clientes;
-            this.reservas = datos.reservas;
-            
-            System.out.println("✅ Datos cargados correctamente desde: " + ARCHIVO_JSON);
-        } catch (IOException e) {
-            System.out.println("❌ Error al cargar los datos: " + e.getMessage());
-            System.out.println("ℹ️  Se iniciará con datos vacíos.");
+    /**
+     * Bus de eventos del dominio (reservas creadas, cambios de estado y de pago,
+     * habitaciones creadas y clientes eliminados). Las cargas y los datos de prueba
+     * sustituyen el estado completo sin publicar un evento por registro.
+     */
+    public BusEventos getEventos() {
+        return eventos;
+    }
+
+    public Path getArchivoDatos() {
+        return archivoDatos;
+    }
+
+    public Path getArchivoDiario() {
+        return diario.getArchivo();
+    }
+
+    public Path getArchivoTarifas() {
+        return archivoTarifas;
+    }
+
+    /**
+     * @return La última instantánea escrita en esta sesión o null si todavía no hay ninguna
+     */
+    public EstadisticasSnapshot getUltimaInstantanea() {
+        return snapshots.getUltima();
+    }
+
+    public long getInstantaneas() {
+        return snapshots.getInstantaneas();
+    }
+
+    public long getBytesInstantaneas() {
+        return snapshots.getBytesTotales();
+    }
+
+    /**
+     * @return Error de la última instantánea o null si terminó bien (los cambios siguen en el diario)
+     */
+    public IOException getErrorInstantanea() {
+        return snapshots.getUltimoError();
+    }
+
+    /**
+     * Devuelve y olvida el último error al registrar un cambio en el diario.
+     * El cambio ya está aplicado en memoria; se guardará con la próxima instantánea.
+     * @return El error o null si todos los cambios se han registrado
+     */
+    public IOException tomarErrorDiario() {
+        return errorDiario.getAndSet(null);
+    }
+
+    /**
+     * Copia las listas y rota el diario de forma atómica. Se invoca desde el
+     * hilo de instantáneas; la escritura posterior trabaja sobre la copia.
+     */
+    private GestorSnapshots.Instantanea capturar() throws IOException {
+        synchronized (cerrojoDatos) {
+            long segmento = diario.rotar();
+            CasaRural copia = new CasaRural(casaRural.getId(), casaRural.getNombre(), casaRural.getDireccion(), casaRural.getTelefono());
+            copia.setHabitaciones(new ArrayList<>(casaRural.getHabitaciones()));
+            return new GestorSnapshots.Instantanea(copia, new ArrayList<>(clientes), new ArrayList<>(reservas), segmento);
         }
     }
 
     /**
-     * Carga datos desde archivo JSON verificando duplicados
+     * Detiene los cambios de estado automáticos, liquida los pagos en cola,
+     * detiene los suscriptores de eventos, escribe el autoguardado pendiente,
+     * fuerza al disco los cambios y cierra el diario.
+     * El diario se cierra aunque falle la última instantánea.
      */
-    public void cargarConVerificacion() {
+    public void cerrar() throws IOException {
+        cicloVida.close();
+        pagos.close();
+        eventos.close();
+        IOException error = null;
         try {
-            FileReader reader = new FileReader(ARCHIVO_JSON);
-            DatosSistema datos = gson.fromJson(reader, DatosSistema.class);
-            reader.close();
-            
-            if (datos == null) {
-                System.out.println("❌ El archivo está vacío o tiene un formato inválido.");
-                return;
+            snapshots.close();
+        } catch (IOException e) {
+            error = e;
+        }
+        try {
+            diario.close();
+        } catch (IOException e) {
+            if (error == null) {
+                throw e;
             }
-            
-            int habitacionesAgregadas = 0;
-            int habitacionesDuplicadas = 0;
-            int clientesAgregados = 0;
-            int clientesDuplicados = 0;
-            int reservasAgregadas = 0;
-            int reservasDuplicadas = 0;
-            
-            // Verificar y agregar habitaciones
-            if (datos.casaRural != null && datos.casaRural.getHabitaciones() != null) {
-                for (Habitacion hab : datos.casaRural.getHabitaciones()) {
-                    if (existeHabitacion(hab.getCodigo())) {
-                        habitacionesDuplicadas++;
-                        System.out.println("⚠️  Habitación duplicada omitida: " + hab.getCodigo());
-                    } else {
-                        casaRural.agregarHabitacion(hab);
-                        habitacionesAgregadas++;
-                        System.out.println("✅ Habitación agregada: " + hab.getCodigo());
-                    }
-                }
+            error.addSuppressed(e);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public ResultadoCarga cargar() {
+        // Los datos se leen sobre estructuras nuevas y solo se sustituyen si la carga termina bien
+        CargaCompleta carga = cargarInstantanea();
+        
+        // Reproducir sobre la instantánea los cambios registrados después de ella
+        int cambios = 0;
+        IOException errorDiario = null;
+        long redondeadosDiario = persistencia.getImportesRedondeados();
+        try {
+            cambios = diario.reproducir(carga.habitaciones, carga.clientes, carga.reservas, new ReproduccionDiario(carga));
+        } catch (IOException e) {
+            errorDiario = e;
+        }
+        redondeadosDiario = persistencia.getImportesRedondeados() - redondeadosDiario;
+        
+        synchronized (cerrojoDatos) {
+            carga.casaRural.setHabitaciones(carga.habitaciones);
+            this.casaRural = carga.casaRural;
+            this.clientes = carga.clientes;
+            this.reservas = carga.reservas;
+            reconstruirIndices();
+        }
+        
+        Path copiaMigracion = null;
+        boolean convertido = false;
+        IOException errorConversion = null;
+        try {
+            if (carga.version < PersistenciaJson.VERSION_FORMATO) {
+                copiaMigracion = migrarFormato(carga.origen);
+            } else if (carga.origen == archivoOtroFormato) {
+                compactar();
+                convertido = true;
             }
-            
-            // Verificar y agregar clientes
-            if (datos.clientes != null) {
-                for (Cliente cliente : datos.clientes) {
-                    if (existeCliente(cliente.getNumeroDocumento())) {
-                        clientesDuplicados++;
-                        System.out.println("⚠️  Cliente duplicado omitido: " + cliente.getNombre() + " (" + cliente.getNumeroDocumento() + ")");
-                    } else {
-                        clientes.add(cliente);
-                        clientesAgregados++;
-                        System.out.println("✅ Cliente agregado: " + cliente.getNombre());
-                    }
-                }
+        } catch (IOException e) {
+            errorConversion = e;
+        }
+        
+        boolean copiaAnterior = carga.origen != null && carga.origen != archivoDatos && carga.origen != archivoOtroFormato;
+        return new ResultadoCarga(carga.origen, copiaAnterior, carga.error, cambios, errorDiario,
+            copiaMigracion, convertido, errorConversion, carga.importesRedondeados + redondeadosDiario);
+    }
+
+    /**
+     * Carga la instantánea actual o, si falta o está dañada, la generación
+     * anterior más reciente que se pueda leer. Si solo existe el archivo del
+     * otro formato (JSON o binario), se carga ese. Si no se puede leer
+     * ninguno, se empieza con datos vacíos.
+     * El formato de cada archivo se detecta por su contenido.
+     */
+    private CargaCompleta cargarInstantanea() {
+        List<Path> candidatos = new ArrayList<>();
+        candidatos.add(archivoDatos);
+        for (int generacion = 1; generacion <= snapshots.getGeneraciones(); generacion++) {
+            candidatos.add(snapshots.generacion(generacion));
+        }
+        candidatos.add(archivoOtroFormato);
+        
+        IOException primerError = null;
+        for (Path archivo : candidatos) {
+            if (archivo != archivoDatos && !Files.exists(archivo)) {
+                continue;
             }
-            
-            // Verificar y agregar reservas
-            if (datos.reservas != null) {
-                for (Reserva reserva : datos.reservas) {
-                    if (existeReserva(reserva)) {
-                        reservasDuplicadas++;
-                        System.out.println("⚠️  Reserva duplicada omitida: " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo());
-                    } else {
-                        reservas.add(reserva);
-                        reservasAgregadas++;
-                        System.out.println("✅ Reserva agregada: " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo());
-                    }
+            CargaCompleta carga = new CargaCompleta();
+            try {
+                formatos.detectar(archivo).cargar(archivo, carga);
+                carga.origen = archivo;
+                return carga;
+            } catch (IOException e) {
+                if (primerError == null) {
+                    primerError = e;
                 }
             }
-            
-            // Actualizar información de la casa rural si no existe
-            if (datos.casaRural != null && (casaRural.getNombre() == null || casaRural.getNombre().isEmpty())) {
-                casaRural.setId(datos.casaRural.getId());
-                casaRural.setNombre(datos.casaRural.getNombre());
-                casaRural.setDireccion(datos.casaRural.getDireccion());
-                casaRural.setTelefono(datos.casaRural.getTelefono());
-                System.out.println("✅ Información de la casa rural actualizada: " + casaRural.getNombre());
-            }
-            
-            System.out.println("\n📊 === RESUMEN DE CARGA ===");
-            System.out.println("🏠 Habitaciones: " + habitacionesAgregadas + " agregadas, " + habitacionesDuplicadas + " duplicadas");
-            System.out.println("👤 Clientes: " + clientesAgregados + " agregados, " + clientesDuplicados + " duplicados");
-            System.out.println("📅 Reservas: " + reservasAgregadas + " agregadas, " + reservasDuplicadas + " duplicadas");
-            
-            int totalAgregados = habitacionesAgregadas + clientesAgregados + reservasAgregadas;
-            int totalDuplicados = habitacionesDuplicadas + clientesDuplicados + reservasDuplicadas;
-            
-            if (totalAgregados > 0) {
-                System.out.println("✅ Carga completada: " + totalAgregados + " elementos agregados");
-            }
-            
-            if (totalDuplicados > 0) {
-                System.out.println("⚠️  " + totalDuplicados + " elementos duplicados fueron omitidos");
-            }
-            
-            if (totalAgregados == 0 && totalDuplicados == 0) {
-                System.out.println("ℹ️  No se encontraron datos nuevos para cargar");
-            }
-            
-        } catch (IOException e) {
-            System.out.println("❌ Error al cargar los datos: " + e.getMessage());
+        }
+        CargaCompleta vacia = new CargaCompleta();
+        vacia.error = primerError;
+        return vacia;
+    }
+
+    /**
+     * Reescribe un archivo con el formato anterior (reservas con copias anidadas de
+     * cliente y habitación) en el formato actual con referencias por id.
+     * El archivo original se conserva con la extensión ".v1".
+     * @return La copia del archivo original
+     */
+    private Path migrarFormato(Path archivo) throws IOException {
+        Path copia = archivo.resolveSibling(archivo.getFileName() + ".v1");
+        Files.copy(archivo, copia, StandardCopyOption.REPLACE_EXISTING);
+        compactar();
+        return copia;
+    }
+
+    /**
+     * Carga datos desde el archivo de datos verificando duplicados.
+     * Cada registro se comprueba y se incorpora a medida que se lee del archivo.
+     */
+    public ResultadoImportacion cargarConVerificacion() {
+        Path archivo = archivoDatos;
+        CargaVerificada carga = new CargaVerificada();
+        
+        try {
+            formatos.detectar(archivo).cargar(archivo, carga);
         } catch (Exception e) {
-            System.out.println("❌ Error al procesar los datos: " + e.getMessage());
+            // Los registros leídos antes del error ya se han incorporado
+            comprobarCompactacion();
+            return carga.resultado(e);
+        }
+        
+        // Los datos de la casa rural no se registran en el diario
+        if (carga.casaActualizada != null) {
+            try {
+                compactar();
+            } catch (IOException e) {
+                return carga.resultado(e);
+            }
+        } else {
+            comprobarCompactacion();
         }
+        return carga.resultado(null);
     }
 
     /**
      * Verifica si ya existe una habitación con el código especificado
      */
     private boolean existeHabitacion(String codigo) {
+        return buscarHabitacion(codigo) != null;
+    }
+
+    /**
+     * Busca la habitación con el código especificado
+     * @return La habitación o null si no existe
+     */
+    public Habitacion buscarHabitacion(String codigo) {
         if (codigo == null || codigo.trim().isEmpty()) {
-            return false;
-        }
-        
-        for (Habitacion hab : casaRural.getHabitaciones()) {
-            if (codigo.equals(hab.getCodigo())) {
-                return true;
-            }
+            return null;
         }
-        return false;
+        return indices.habitacion(codigo);
     }
 
     /**
      * Verifica si ya existe un cliente con el número de documento especificado
      */
     private boolean existeCliente(String numeroDocumento) {
+        return buscarCliente(numeroDocumento) != null;
+    }
+
+    /**
+     * Busca el cliente con el número de documento especificado
+     * @return El cliente o null si no existe
+     */
+    public Cliente buscarCliente(String numeroDocumento) {
         if (numeroDocumento == null || numeroDocumento.trim().isEmpty()) {
-            return false;
+            return null;
         }
-        
-        for (Cliente cliente : clientes) {
-            if (numeroDocumento.equals(cliente.getNumeroDocumento())) {
-                return true;
-            }
-        }
-        return false;
+        return indices.cliente(numeroDocumento);
+    }
+
+    /**
+     * Busca la reserva con el id especificado
+     * @return La reserva o null si no existe
+     */
+    public Reserva buscarReserva(UUID id) {
+        return indices.reserva(id);
     }
 
     /**
      * Verifica si ya existe una reserva similar (mismo cliente, habitación y fechas)
      */
     private boolean existeReserva(Reserva nuevaReserva) {
-        if (nuevaReserva == null || nuevaReserva.getCliente() == null || nuevaReserva.getHabitacion() == null) {
-            return false;
+        // Las reservas sin cliente, habitación o fechas nunca se consideran duplicadas
+        return indices.contiene(nuevaReserva);
+    }
+
+    // ===== ALTAS, BAJAS Y DIARIO DE CAMBIOS =====
+    
+    // Asigna los observadores y vuelve a construir índices y vistas tras
+    // sustituir las listas completas (se llama con cerrojoDatos tomado)
+    private void reconstruirIndices() {
+        for (Habitacion habitacion : casaRural.getHabitaciones()) {
+            habitacion.setObservador(observadorHabitaciones);
         }
-        
         for (Reserva reserva : reservas) {
-            // Comparar por cliente, habitación y fechas de inicio y fin
-            if (reserva.getCliente() != null && reserva.getHabitacion() != null &&
-                nuevaReserva.getCliente().getId() != null && nuevaReserva.getHabitacion().getId() != null &&
-                reserva.getCliente().getId().equals(nuevaReserva.getCliente().getId()) &&
-                reserva.getHabitacion().getId().equals(nuevaReserva.getHabitacion().getId()) &&
-                reserva.getFechaInicio() != null && nuevaReserva.getFechaInicio() != null &&
-                reserva.getFechaInicio().equals(nuevaReserva.getFechaInicio()) &&
-                reserva.getFechaFin() != null && nuevaReserva.getFechaFin() != null &&
-                reserva.getFechaFin().equals(nuevaReserva.getFechaFin())) {
-                return true;
-            }
+            reserva.setObservador(observadorReservas);
         }
-        return false;
+        indices.reconstruir(casaRural.getHabitaciones(), clientes, reservas);
+        disponibilidad.reconstruir(reservas);
+        reservasPorCliente.reconstruir(reservas);
+        vistas.reconstruir(casaRural.getHabitaciones(), reservas);
+        indicadores.reconstruir(reservas);
+        cicloVida.reconstruir(reservas);
+        tarifas.reconstruir(casaRural.getHabitaciones(), reservas);
     }
-
-    // ===== GESTIÓN DE HABITACIONES =====
     
-    public void darAltaHabitacion() {
-        System.out.println("\n🏨 DAR DE ALTA HABITACIÓN");
-        System.out.println("=".repeat(40));
-        
-        System.out.print("Código de la habitación: ");
-        String codigo = scanner.nextLine().trim();
-        
-        System.out.print("Descripción: ");
-        String descripcion = scanner.nextLine().trim();
-        
-        int capacidad = leerEnteroPositivo("Capacidad (personas): ");
-        
-        BigDecimal precioNoche = leerBigDecimal("Precio por noche (€): ");
-        
+    // Acción de escritura en el diario
+    private interface AccionDiario {
+        void ejecutar() throws IOException;
+    }
+    
+    private void registrarEnDiario(AccionDiario accion) {
         try {
-            Habitacion habitacion = new Habitacion(codigo, descripcion, capacidad, precioNoche);
+            accion.ejecutar();
+            snapshots.cambioRegistrado();
+        } catch (IOException e) {
+            errorDiario.set(e);
+        }
+    }
+    
+    /**
+     * Lanza una instantánea en segundo plano si el diario ha alcanzado el tamaño
+     * máximo, sin esperar al autoguardado. Se llama al terminar cada operación.
+     */
+    private void comprobarCompactacion() {
+        if (diario.getEntradas() >= ENTRADAS_COMPACTACION) {
+            snapshots.guardarAhora();
+        }
+    }
+    
+    // Cada alta o baja se aplica y se registra en el diario sin que pueda
+    // intercalarse la captura de una instantánea (que rota el diario)
+    
+    private void incorporarHabitacion(Habitacion habitacion) {
+        synchronized (cerrojoDatos) {
+            habitacion.setObservador(observadorHabitaciones);
             casaRural.agregarHabitacion(habitacion);
-            System.out.println("✅ Habitación creada correctamente: " + habitacion.getCodigo());
-        } catch (Exception e) {
-            System.out.println("❌ Error al crear habitación: " + e.getMessage());
+            indices.agregar(habitacion);
+            vistas.agregar(habitacion);
+            tarifas.habitacionAgregada(habitacion);
+            registrarEnDiario(() -> diario.habitacionCreada(habitacion));
+            eventos.publicar(new EventoDominio.HabitacionCreada(habitacion));
         }
     }
-
-    public void listarHabitaciones() {
-        casaRural.listarHabitaciones();
+    
+    private void incorporarCliente(Cliente cliente) {
+        synchronized (cerrojoDatos) {
+            clientes.add(cliente);
+            indices.agregar(cliente);
+            registrarEnDiario(() -> diario.clienteRegistrado(cliente));
+        }
     }
-
-    public List<Habitacion> getHabitacionesDisponibles() {
-        List<Habitacion> disponibles = new ArrayList<>();
-        for (Habitacion hab : casaRural.getHabitaciones()) {
-            if (hab.isDisponible()) {
-                disponibles.add(hab);
+    
+    private void retirarCliente(Cliente cliente) {
+        synchronized (cerrojoDatos) {
+            if (clientes.remove(cliente)) {
+                indices.quitar(cliente);
             }
+            registrarEnDiario(() -> diario.clienteEliminado(cliente));
+            eventos.publicar(new EventoDominio.ClienteEliminado(cliente));
         }
-        return disponibles;
     }
-
-    // ===== GESTIÓN DE CLIENTES =====
     
-    public void registrarCliente() {
-        System.out.println("\n👤 === REGISTRAR NUEVO CLIENTE ===");
-        
-        // Validar nombre (sin números)
-        String nombre;
-        do {
-            System.out.print("Nombre completo: ");
-            nombre = scanner.nextLine().trim();
-            if (nombre.isEmpty()) {
-                System.out.println("❌ El nombre no puede estar vacío.");
-            } else if (!nombre.matches("^[a-zA-ZÀ-ÿ\\s]+$")) {
-                System.out.println("❌ El nombre solo puede contener letras y espacios.");
-            }
-        } while (nombre.isEmpty() || !nombre.matches("^[a-zA-ZÀ-ÿ\\s]+$"));
-        
-        System.out.print("Número de documento: ");
-        String numeroDocumento = scanner.nextLine().trim();
-        
-        System.out.print("Email: ");
-        String email = scanner.nextLine().trim();
-        
-        // Validar teléfono (solo números)
-        String telefono;
-        do {
-            System.out.print("Teléfono: ");
-            telefono = scanner.nextLine().trim();
-            if (telefono.isEmpty()) {
-                System.out.println("❌ El teléfono no puede estar vacío.");
-            } else if (!telefono.matches("^\\d+$")) {
-                System.out.println("❌ El teléfono solo puede contener números.");
-            }
-        } while (telefono.isEmpty() || !telefono.matches("^\\d+$"));
-        
-        Cliente cliente = new Cliente(nombre, numeroDocumento, email, telefono);
-        clientes.add(cliente);
-        
-        System.out.println("✅ Cliente registrado correctamente: " + cliente.getNombre());
-    }
-
-    public void listarClientes() {
-        if (clientes.isEmpty()) {
-            System.out.println("No hay clientes registrados.");
-            return;
+    // La comprobación de fechas y la ocupación de la habitación son atómicas bajo
+    // el cerrojo de esa habitación, así que las reservas de habitaciones distintas
+    // no se esperan entre sí; solo el alta en las listas y el diario es común.
+    // El observador se asigna antes de que la reserva sea visible en el motor, los
+    // índices o las vistas: un cambio de estado desde otro hilo llega siempre a todos
+    private void incorporarReserva(Reserva reserva) throws HabitacionNoDisponibleExcepcion {
+        reserva.setObservador(observadorReservas);
+        cicloVida.fijarLimitePago(reserva);
+        disponibilidad.reservar(reserva);
+        synchronized (cerrojoDatos) {
+            reservas.add(reserva);
+            indices.agregar(reserva);
+            reservasPorCliente.agregar(reserva);
+            vistas.agregar(reserva);
+            indicadores.agregar(reserva);
+            cicloVida.programar(reserva);
+            tarifas.ocupar(reserva);
+            registrarEnDiario(() -> diario.reservaCreada(reserva));
+            eventos.publicar(new EventoDominio.ReservaCreada(reserva));
         }
-        
-        System.out.println("\n👥 === LISTA DE CLIENTES ===");
-        for (int i = 0; i < clientes.size(); i++) {
-            Cliente cliente = clientes.get(i);
-            System.out.println("\nCliente " + (i + 1) + ":");
-            System.out.println("  Nombre: " + cliente.getNombre());
-            System.out.println("  Documento: " + cliente.getNumeroDocumento());
-            System.out.println("  Email: " + cliente.getEmail());
-            System.out.println("  Teléfono: " + cliente.getTelefono());
+    }
+    
+    // Alta de las reservas aceptadas de un lote (ya ocupan sus fechas en el motor y
+    // tienen su observador y su límite de pago): un solo paso por el cerrojo común y una sola escritura en el diario
+    private void incorporarReservas(List<Reserva> aceptadas) {
+        synchronized (cerrojoDatos) {
+            reservas.addAll(aceptadas);
+            for (Reserva reserva : aceptadas) {
+                indices.agregar(reserva);
+                reservasPorCliente.agregar(reserva);
+                vistas.agregar(reserva);
+                indicadores.agregar(reserva);
+                cicloVida.programar(reserva);
+                tarifas.ocupar(reserva);
+            }
+            registrarEnDiario(() -> diario.reservasCreadas(aceptadas));
+            for (Reserva reserva : aceptadas) {
+                eventos.publicar(new EventoDominio.ReservaCreada(reserva));
+            }
         }
-        System.out.println("\n=================================");
     }
-
-    public void eliminarCliente() {
-        if (clientes.isEmpty()) {
-            System.out.println("No hay clientes registrados para eliminar.");
-            return;
+    
+    /**
+     * Registra en el diario los cambios de estado y de pago de las reservas,
+     * se hagan desde el servicio o directamente sobre la reserva, mantiene
+     * al día índices, vistas e indicadores (también con la disponibilidad de las habitaciones)
+     * y publica los eventos correspondientes
+     */
+    private class ObservadorServicio implements ObservadorReserva, ObservadorHabitacion {
+        @Override
+        public void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) {
+            disponibilidad.estadoCambiado(reserva, anterior, nuevo);
+            reservasPorCliente.estadoCambiado(reserva, anterior, nuevo);
+            vistas.estadoCambiado(reserva, anterior, nuevo);
+            indicadores.estadoCambiado(reserva, anterior, nuevo);
+            cicloVida.programar(reserva);
+            if (nuevo == EstadoReserva.CANCELADA && anterior != EstadoReserva.CANCELADA) {
+                tarifas.liberar(reserva);
+            }
+            registrarEnDiario(() -> diario.estadoCambiado(reserva));
+            eventos.publicar(new EventoDominio.EstadoCambiado(reserva, anterior, nuevo));
         }
         
-        System.out.println("\n🗑️ === ELIMINAR CLIENTE ===");
-        
-        // Mostrar lista de clientes
-        listarClientes();
-        
-        System.out.print("Número del cliente a eliminar: ");
-        int numCliente = leerEnteroPositivo("Seleccione el número del cliente: ") - 1;
-        
-        if (numCliente < 0 || numCliente >= clientes.size()) {
-            System.out.println("❌ Número de cliente no válido.");
-            return;
+        @Override
+        public void pagoCambiado(Reserva reserva, Pago anterior, Pago nuevo) {
+            vistas.pagoCambiado(reserva);
+            indicadores.pagoCambiado(reserva, anterior, nuevo);
+            if (nuevo != null) {
+                registrarEnDiario(() -> diario.pagoAsociado(reserva, nuevo));
+                eventos.publicar(new EventoDominio.PagoAsociado(reserva, nuevo));
+            } else {
+                registrarEnDiario(() -> diario.pagoAnulado(reserva));
+                eventos.publicar(new EventoDominio.PagoAnulado(reserva, anterior));
+            }
         }
         
-        Cliente clienteAEliminar = clientes.get(numCliente);
-        
-        // Verificar si el cliente tiene reservas activas (PENDIENTES o CONFIRMADAS)
-        boolean tieneReservasActivas = false;
-        boolean tieneReservasFinalizadas = false;
+        @Override
+        public void disponibilidadCambiada(Habitacion habitacion, boolean disponible) {
+            vistas.disponibilidadCambiada(habitacion);
+        }
         
-        for (Reserva reserva : reservas) {
-            if (reserva.getCliente().getId().equals(clienteAEliminar.getId())) {
-                EstadoReserva estado = reserva.getEstado();
-                if (estado == EstadoReserva.PENDIENTE || estado == EstadoReserva.CONFIRMADA) {
-                    tieneReservasActivas = true;
-                } else if (estado == EstadoReserva.CANCELADA || estado == EstadoReserva.COMPLETADA) {
-                    tieneReservasFinalizadas = true;
-                }
+        @Override
+        public void precioCambiado(Habitacion habitacion) {
+            tarifas.precioCambiado(habitacion);
+        }
+    }
+
+    // ===== GESTIÓN DE HABITACIONES =====
+    
+    /**
+     * Da de alta una habitación con los datos indicados
+     * @throws RegistroDuplicadoExcepcion Si ya existe una habitación con ese código
+     */
+    public Habitacion darAltaHabitacion(String codigo, String descripcion, int capacidad, Dinero precioNoche)
+            throws RegistroDuplicadoExcepcion, ImporteInvalidoExcepcion {
+        if (precioNoche == null || precioNoche.signo() <= 0) {
+            throw new ImporteInvalidoExcepcion("El precio por noche debe ser mayor que cero: " + precioNoche);
+        }
+        Habitacion habitacion = new Habitacion(codigo, descripcion, capacidad, precioNoche);
+        synchronized (cerrojoDatos) {
+            if (existeHabitacion(codigo)) {
+                throw new RegistroDuplicadoExcepcion("Ya existe una habitación con el código " + codigo);
             }
+            incorporarHabitacion(habitacion);
         }
-        
-        if (tieneReservasActivas) {
-            System.out.println("❌ No se puede eliminar el cliente '" + clienteAEliminar.getNombre() + "' porque tiene reservas activas.");
-            System.out.println("💡 Primero debe cancelar todas las reservas activas del cliente antes de eliminarlo.");
-            return;
+        comprobarCompactacion();
+        return habitacion;
+    }
+
+    /**
+     * @return Copia de la lista de habitaciones, que se puede recorrer mientras otros hilos la modifican
+     */
+    public List<Habitacion> getHabitaciones() {
+        synchronized (cerrojoDatos) {
+            return new ArrayList<>(casaRural.getHabitaciones());
         }
-        
-        if (tieneReservasFinalizadas) {
-            System.out.println("⚠️ El cliente '" + clienteAEliminar.getNombre() + "' tiene reservas finalizadas (canceladas o completadas).");
-            System.out.println("ℹ️ Estas reservas se mantendrán en el historial después de eliminar el cliente.");
+    }
+
+    /**
+     * @return Vista de solo lectura, siempre al día, de las habitaciones disponibles
+     */
+    public Collection<Habitacion> getHabitacionesDisponibles() {
+        return vistas.getHabitacionesDisponibles();
+    }
+
+    /**
+     * Calendario de noches ocupadas por habitación (informes de ocupación)
+     */
+    public CalendarioOcupacion getCalendarioOcupacion() {
+        return disponibilidad.getCalendario();
+    }
+
+    /**
+     * Habitaciones disponibles que además no tienen reservas entre las fechas indicadas
+     */
+    public List<Habitacion> getHabitacionesLibres(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        return disponibilidad.habitacionesLibres(getHabitacionesDisponibles(), fechaInicio, fechaFin);
+    }
+
+    // ===== GESTIÓN DE CLIENTES =====
+    
+    /**
+     * Registra un cliente con los datos indicados
+     * @throws RegistroDuplicadoExcepcion Si ya existe un cliente con ese número de documento
+     */
+    public Cliente registrarCliente(String nombre, String numeroDocumento, String email, String telefono)
+            throws RegistroDuplicadoExcepcion {
+        Cliente cliente = new Cliente(nombre, numeroDocumento, email, telefono);
+        synchronized (cerrojoDatos) {
+            if (existeCliente(numeroDocumento)) {
+                throw new RegistroDuplicadoExcepcion("Ya existe un cliente con el documento " + numeroDocumento);
+            }
+            incorporarCliente(cliente);
         }
-        
-        // Confirmar eliminación
-        System.out.println("\n¿Está seguro de que desea eliminar al cliente?");
-        System.out.println("Cliente: " + clienteAEliminar.getNombre());
-        System.out.println("Documento: " + clienteAEliminar.getNumeroDocumento());
-        System.out.println("Email: " + clienteAEliminar.getEmail());
-        System.out.println("Teléfono: " + clienteAEliminar.getTelefono());
-        System.out.print("Confirmar eliminación (s/n): ");
-        
-        String confirmacion = scanner.nextLine().trim().toLowerCase();
-        
-        if (confirmacion.equals("s") || confirmacion.equals("si")) {
-            // Eliminar el cliente
-            clientes.remove(numCliente);
-            System.out.println("✅ Cliente eliminado correctamente: " + clienteAEliminar.getNombre());
-        } else {
-            System.out.println("ℹ️ Operación cancelada.");
+        comprobarCompactacion();
+        return cliente;
+    }
+
+    /**
+     * @return Copia de la lista de clientes, que se puede recorrer mientras otros hilos la modifican
+     */
+    public List<Cliente> getClientes() {
+        synchronized (cerrojoDatos) {
+            return new ArrayList<>(clientes);
+        }
+    }
+
+    /**
+     * Da de baja al cliente. Sus reservas finalizadas se mantienen en el historial.
+     * @throws EstadoReservaExcepcion Si el cliente tiene reservas activas (pendientes o confirmadas)
+     */
+    public void eliminarCliente(Cliente cliente) throws EstadoReservaExcepcion {
+        if (tieneReservas(cliente, EstadoReserva.PENDIENTE, EstadoReserva.CONFIRMADA)) {
+            throw new EstadoReservaExcepcion("No se puede eliminar el cliente '" + cliente.getNombre()
+                + "' porque tiene reservas activas");
         }
+        retirarCliente(cliente);
+        comprobarCompactacion();
+    }
+
+    /**
+     * Indica si el cliente tiene alguna reserva en los estados indicados
+     */
+    public boolean tieneReservas(Cliente cliente, EstadoReserva... estados) {
+        return reservasPorCliente.tieneReservas(cliente.getId(), estados);
+    }
+
+    /**
+     * Número de reservas del cliente en cada estado
+     */
+    public Map<EstadoReserva, Integer> getRecuentoReservas(Cliente cliente) {
+        return reservasPorCliente.recuento(cliente.getId());
+    }
+
+    /**
+     * Reservas del cliente en los estados indicados (todas si no se indica ninguno)
+     */
+    public List<Reserva> getReservasCliente(Cliente cliente, EstadoReserva... estados) {
+        return reservasPorCliente.reservas(cliente.getId(), estados);
+    }
+
+    /**
+     * Suma del precio de las reservas no canceladas del cliente
+     */
+    public Dinero getGastoCliente(Cliente cliente) {
+        return reservasPorCliente.gastoTotal(cliente.getId());
     }
 
     // ===== GESTIÓN DE RESERVAS =====
     
-    public void crearReserva() {
-        System.out.println("\n📅 === CREAR NUEVA RESERVA ===");
-        
-        // Verificar que hay habitaciones disponibles
-        List<Habitacion> disponibles = getHabitacionesDisponibles();
-        if (disponibles.isEmpty()) {
-            System.out.println("❌ No hay habitaciones disponibles.");
-            return;
-        }
-        
-        // Verificar que hay clientes registrados
-        if (clientes.isEmpty()) {
-            System.out.println("❌ No hay clientes registrados. Registre un cliente primero.");
-            return;
+    /**
+     * Crea una reserva al precio que dan las reglas de tarifa. Se puede llamar
+     * desde varios hilos: la comprobación de fechas y la ocupación de la
+     * habitación son una sola operación atómica.
+     * @throws HabitacionNoDisponibleExcepcion Si otra reserva ocupa alguna de las fechas
+     */
+    public Reserva reservar(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin)
+            throws FechasInvalidasExcepcion, HabitacionNoDisponibleExcepcion {
+        Dinero precioTotal = cotizarEstancia(habitacion, fechaInicio, fechaFin);
+        
+        Reserva reserva = new Reserva(cliente, habitacion, fechaInicio, fechaFin, precioTotal);
+        incorporarReserva(reserva);
+        comprobarCompactacion();
+        return reserva;
+    }
+
+    /**
+     * Crea de una vez un lote de reservas (por ejemplo, las importadas de un
+     * gestor de canales). Los solapes se detectan en un solo recorrido por
+     * habitación, tanto con las reservas existentes como entre las del propio
+     * lote: de dos solicitudes del lote que se solapan se acepta la que entra antes.
+     * @return El resultado de cada solicitud, en el mismo orden
+     */
+    public List<ResultadoReserva> reservarLote(List<SolicitudReserva> solicitudes) {
+        ResultadoReserva[] resultados = new ResultadoReserva[solicitudes.size()];
+        List<Reserva> candidatas = new ArrayList<>(solicitudes.size());
+        Map<Reserva, Integer> posiciones = new HashMap<>();
+        
+        for (int i = 0; i < solicitudes.size(); i++) {
+            SolicitudReserva solicitud = solicitudes.get(i);
+            if (solicitud.cliente() == null || solicitud.habitacion() == null
+                    || solicitud.fechaInicio() == null || solicitud.fechaFin() == null) {
+                resultados[i] = new ResultadoReserva(solicitud, null, "Solicitud incompleta: faltan el cliente, la habitación o las fechas");
+                continue;
+            }
+            try {
+                Dinero precioTotal = cotizarEstancia(solicitud.habitacion(), solicitud.fechaInicio(), solicitud.fechaFin());
+                Reserva reserva = new Reserva(solicitud.cliente(), solicitud.habitacion(), solicitud.fechaInicio(),
+                    solicitud.fechaFin(), precioTotal);
+                // Con observador y límite de pago antes de entrar en el motor, como en incorporarReserva
+                reserva.setObservador(observadorReservas);
+                cicloVida.fijarLimitePago(reserva);
+                candidatas.add(reserva);
+                posiciones.put(reserva, i);
+            } catch (FechasInvalidasExcepcion e) {
+                resultados[i] = new ResultadoReserva(solicitud, null, e.getMessage());
+            }
         }
         
-        // Seleccionar cliente
-        System.out.println("\nSeleccione un cliente:");
-        listarClientes();
-        System.out.print("Número del cliente: ");
-        
-        int numCliente = leerEnteroPositivo("Seleccione el número del cliente: ") - 1;
-        Cliente cliente = clientes.get(numCliente);
-        
-        // Seleccionar habitación
-        System.out.println("\nHabitaciones disponibles:");
-        for (int i = 0; i < disponibles.size(); i++) {
-            Habitacion hab = disponibles.get(i);
-            System.out.println((i + 1) + ". " + hab.getCodigo() + " - " + hab.getDescripcion() + " (" + hab.getPrecioNoche() + "€/noche)");
+        Map<Reserva, Reserva> rechazadas = disponibilidad.reservarLote(candidatas);
+        List<Reserva> aceptadas = new ArrayList<>(candidatas.size() - rechazadas.size());
+        for (Reserva reserva : candidatas) {
+            int posicion = posiciones.get(reserva);
+            Reserva conflicto = rechazadas.get(reserva);
+            if (conflicto == null) {
+                aceptadas.add(reserva);
+                resultados[posicion] = new ResultadoReserva(solicitudes.get(posicion), reserva, null);
+            } else {
+                resultados[posicion] = new ResultadoReserva(solicitudes.get(posicion), null,
+                    "La habitación " + reserva.getHabitacion().getCodigo() + " ya está reservada del "
+                    + conflicto.getFechaInicio().toLocalDate() + " al " + conflicto.getFechaFin().toLocalDate());
+            }
         }
-        System.out.print("Número de la habitación: ");
         
-        int numHabitacion = leerEnteroPositivo("Seleccione el número de la habitación: ") - 1;
-        Habitacion habitacion = disponibles.get(numHabitacion);
-        
-        // Ingresar fechas
-        System.out.print("Fecha de inicio (YYYY-MM-DD HH:mm): ");
-        String fechaInicioStr = scanner.nextLine().trim();
-        System.out.print("Fecha de fin (YYYY-MM-DD HH:mm): ");
-        String fechaFinStr = scanner.nextLine().trim();
-        
-        try {
-            // Usar DateTimeFormatter para parsear el formato con espacio
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-            LocalDateTime fechaInicio = LocalDateTime.parse(fechaInicioStr, formatter);
-            LocalDateTime fechaFin = LocalDateTime.parse(fechaFinStr, formatter);
-            
-            // Calcular precio total
-            long noches = java.time.temporal.ChronoUnit.DAYS.between(fechaInicio.toLocalDate(), fechaFin.toLocalDate());
-            BigDecimal precioTotal = habitacion.getPrecioNoche().multiply(BigDecimal.valueOf(noches));
-            
-            // Crear reserva
-            Reserva reserva = new Reserva(cliente, habitacion, fechaInicio, fechaFin, precioTotal);
-            reservas.add(reserva);
-            
-            System.out.println("✅ Reserva creada correctamente:");
-            System.out.println("   Cliente: " + cliente.getNombre());
-            System.out.println("   Habitación: " + habitacion.getCodigo());
-            System.out.println("   Noches: " + noches);
-            System.out.println("   Precio total: " + precioTotal + "€");
-            
-        } catch (Exception e) {
-            System.out.println("❌ Error al crear reserva: " + e.getMessage());
-            System.out.println("💡 Formato esperado: YYYY-MM-DD HH:mm (ejemplo: 2026-01-01 20:00)");
+        incorporarReservas(aceptadas);
+        comprobarCompactacion();
+        return Arrays.asList(resultados);
+    }
+
+    // Precio de una estancia nueva, rechazando las que pasan del máximo de noches
+    private Dinero cotizarEstancia(Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin) throws FechasInvalidasExcepcion {
+        if (fechaInicio != null && fechaFin != null
+                && ChronoUnit.DAYS.between(fechaInicio.toLocalDate(), fechaFin.toLocalDate()) > MotorTarifas.ESTANCIA_MAXIMA) {
+            throw new FechasInvalidasExcepcion("La estancia no puede pasar de " + MotorTarifas.ESTANCIA_MAXIMA + " noches");
         }
+        return tarifas.cotizar(habitacion, fechaInicio, fechaFin);
     }
 
-    public void listarReservas() {
-        if (reservas.isEmpty()) {
-            System.out.println("No hay reservas registradas.");
-            return;
+    /**
+     * @return Copia de la lista de reservas, que se puede recorrer mientras otros hilos la modifican
+     */
+    public List<Reserva> getReservas() {
+        synchronized (cerrojoDatos) {
+            return new ArrayList<>(reservas);
         }
-        
-        System.out.println("\n📋 === LISTA DE RESERVAS ===");
-        for (int i = 0; i < reservas.size(); i++) {
-            Reserva reserva = reservas.get(i);
-            System.out.println("\nReserva " + (i + 1) + ":");
-            System.out.println("  Cliente: " + reserva.getCliente().getNombre());
-            System.out.println("  Habitación: " + reserva.getHabitacion().getCodigo());
-            System.out.println("  Fechas: " + reserva.getFechaInicio().toLocalDate() + " - " + reserva.getFechaFin().toLocalDate());
-            System.out.println("  Noches: " + reserva.getNoches());
-            System.out.println("  Precio total: " + reserva.getPrecioTotal() + "€");
-            System.out.println("  Estado: " + reserva.getEstado());
-            System.out.println("  Pago: " + (reserva.getPago() != null ? "Pagado" : "Pendiente"));
+    }
+
+    /**
+     * Cambia el estado de la reserva si sigue en la versión leída
+     * @throws VersionObsoletaExcepcion Si la reserva ha cambiado desde que se leyó
+     */
+    public void cambiarEstado(Reserva reserva, EstadoReserva nuevoEstado, long versionLeida)
+            throws EstadoReservaExcepcion, VersionObsoletaExcepcion {
+        reserva.cambiarEstado(nuevoEstado, versionLeida);
+        comprobarCompactacion();
+    }
+
+    /**
+     * @return Vista de solo lectura, siempre al día, de las reservas en el estado indicado
+     */
+    public Collection<Reserva> getReservasPorEstado(EstadoReserva estado) {
+        return vistas.getReservas(estado);
+    }
+
+    // ===== GESTIÓN DE PAGOS =====
+    
+    /**
+     * @return Vista de solo lectura, siempre al día, de las reservas sin pago
+     */
+    public Collection<Reserva> getReservasSinPago() {
+        return vistas.getReservasSinPago();
+    }
+    
+    /**
+     * @return Vista de solo lectura, siempre al día, de las reservas con pago
+     */
+    public Collection<Reserva> getReservasConPago() {
+        return vistas.getReservasConPago();
+    }
+    
+    /**
+     * Asocia el pago a la reserva si sigue en la versión leída y lo procesa en el
+     * momento, sin pasar por la pasarela (pagos en efectivo recibidos en mano)
+     * @return El justificante del pago
+     * @throws VersionObsoletaExcepcion Si la reserva ha cambiado desde que se leyó
+     */
+    public String asociarPago(Reserva reserva, Pago pago, long versionLeida)
+            throws EstadoReservaExcepcion, ImporteInvalidoExcepcion, VersionObsoletaExcepcion {
+        reserva.asociarPago(pago, versionLeida);
+        String justificante = pago.procesarPago();
+        comprobarCompactacion();
+        return justificante;
+    }
+
+    /**
+     * Envía el pago a la pasarela sin esperar a que se cobre. Cuando el cobro se
+     * liquida, el pago se asocia a la reserva, que pasa de PENDIENTE a CONFIRMADA.
+     * Reenviar la misma clave de idempotencia (para la misma reserva y el mismo
+     * importe) devuelve el resultado del primer envío sin volver a cobrar.
+     * @return Resultado del cobro, que se completa al liquidarse o rechazarse
+     * @throws VersionObsoletaExcepcion Si la reserva ha cambiado desde que se leyó
+     * @throws EstadoReservaExcepcion Si la reserva no admite el pago o ya tiene otro en curso
+     * @throws ClaveIdempotenciaExcepcion Si la clave ya se usó para otra reserva u otro importe
+     */
+    public CompletableFuture<ResultadoCobro> enviarPago(Reserva reserva, Pago pago, long versionLeida, String claveIdempotencia)
+            throws EstadoReservaExcepcion, ImporteInvalidoExcepcion, VersionObsoletaExcepcion, ClaveIdempotenciaExcepcion {
+        return pagos.enviar(reserva, pago, versionLeida, claveIdempotencia);
+    }
+
+    /**
+     * Precio que tendría la estancia en la habitación con las reglas de tarifa actuales
+     * @throws IllegalArgumentException Si pasa de MotorTarifas.ESTANCIA_MAXIMA noches
+     */
+    public Dinero cotizar(Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        return tarifas.cotizar(habitacion, fechaInicio, fechaFin);
+    }
+
+    /**
+     * Sustituye las reglas de tarifa. Las reservas ya hechas conservan su precio.
+     * Las reglas no se guardan con los datos: al arrancar se leen de tarifas.json
+     * (cargarReglasTarifa), así que las fijadas solo con este método se pierden.
+     */
+    public void setReglasTarifa(List<ReglaTarifa> reglas) {
+        tarifas.setReglas(reglas);
+    }
+
+    public List<ReglaTarifa> getReglasTarifa() {
+        return tarifas.getReglas();
+    }
+
+    /**
+     * Lee las reglas de tarifa del archivo tarifas.json del directorio de datos.
+     * Si no existe se quedan las reglas actuales; si alguna no es válida no se
+     * aplica ninguna.
+     * @return Número de reglas leídas (0 si no hay archivo)
+     */
+    public int cargarReglasTarifa() throws IOException {
+        if (!Files.exists(archivoTarifas)) {
+            return 0;
         }
-        System.out.println("\n=================================");
+        List<ReglaTarifa> reglas = ArchivoTarifas.leer(archivoTarifas);
+        tarifas.setReglas(reglas);
+        return reglas.size();
+    }
+
+    /**
+     * Cobros en cola, liquidados y rechazados
+     */
+    public ProcesadorPagos getPagos() {
+        return pagos;
+    }
+
+    /**
+     * Reservas completadas y caducadas automáticamente y vencimientos programados
+     */
+    public PlanificadorCicloVida getCicloVida() {
+        return cicloVida;
+    }
+
+    /**
+     * Anula el pago de la reserva si sigue en la versión leída
+     * @throws VersionObsoletaExcepcion Si la reserva ha cambiado desde que se leyó
+     */
+    public void anularPago(Reserva reserva, long versionLeida) throws EstadoReservaExcepcion, VersionObsoletaExcepcion {
+        reserva.anularPago(versionLeida);
+        comprobarCompactacion();
+    }
+
+    // ===== ESTADÍSTICAS =====
+
+    /**
+     * Ingresos y ocupación de las noches entre las dos fechas, en total, por habitación o por mes
+     * @param desde Primera noche del periodo
+     * @param hasta Día siguiente a la última noche del periodo
+     */
+    public InformeAnalitica analizar(LocalDate desde, LocalDate hasta, Agrupacion agrupacion) {
+        return MotorAnalitica.analizar(getReservas(), getHabitaciones(), desde, hasta, agrupacion);
+    }
+
+    /**
+     * @return Indicadores que se actualizan con cada cambio (consultarlos no recorre las reservas)
+     */
+    public IndicadoresEnVivo getIndicadores() {
+        return indicadores;
+    }
+
+    /**
+     * Comprueba los indicadores al día contra un recálculo completo
+     * @return Diferencias encontradas; vacía si cuadran
+     */
+    public List<String> verificarIndicadores() {
+        return indicadores.verificar(getReservas(), getHabitaciones());
     }
 
-    public void cambiarEstadoReserva() {
-        if (reservas.isEmpty()) {
-            System.out.println("No hay reservas registradas.");
-            return;
+    // ===== DATOS DE PRUEBA =====
+    
+    public String getNombreCasa() {
+        return casaRural.getNombre();
+    }
+    
+    /**
+     * Indica si hay algún dato en el sistema (casa rural, habitaciones, clientes o reservas)
+     */
+    public boolean hayDatos() {
+        synchronized (cerrojoDatos) {
+            return (casaRural.getNombre() != null && !casaRural.getNombre().isEmpty()) ||
+                   !casaRural.getHabitaciones().isEmpty() ||
+                   !clientes.isEmpty() ||
+                   !reservas.isEmpty();
         }
+    }
+    
+    /**
+     * Sustituye todos los datos por los de prueba: una casa rural con dos
+     * habitaciones, un cliente y una reserva confirmada con pago dentro de un mes.
+     * Los datos anteriores se pierden.
+     */
+    public void crearDatosPrueba() throws FechasInvalidasExcepcion, IOException {
+        // Crear habitaciones
+        Habitacion hab1 = new Habitacion("H001", "Habitación Doble Estándar", 2, Dinero.de("45.00"));
+        Habitacion hab2 = new Habitacion("H002", "Habitación Triple con Terraza", 3, Dinero.de("65.00"));
         
-        System.out.println("\n🔄 === CAMBIAR ESTADO DE RESERVA ===");
-        listarReservas();
-        
-        System.out.print("Número de la reserva: ");
-        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
-        
-        if (numReserva < 0 || numReserva >= reservas.size()) {
-            System.out.println("❌ Reserva no válida.");
-            return;
-        }
+        // Crear cliente
+        Cliente cliente = new Cliente("María García López", "12345678A", "maria.garcia@email.com", "611223344");
         
-        Reserva reserva = reservas.get(numReserva);
+        // Crear reserva (las fechas pasadas no se admiten: siempre dentro de un mes)
+        LocalDate entrada = LocalDate.now().plusMonths(1);
+        LocalDateTime fechaInicio = entrada.atTime(15, 0);
+        LocalDateTime fechaFin = entrada.plusDays(2).atTime(11, 0);
+        Dinero precioTotal = tarifas.cotizar(hab1, fechaInicio, fechaFin);
         
-        System.out.println("Estados disponibles:");
-        System.out.println("1. PENDIENTE");
-        System.out.println("2. CONFIRMADA");
-        System.out.println("3. CANCELADA");
-        System.out.println("4. COMPLETADA");
-        System.out.print("Seleccione nuevo estado: ");
+        Reserva reserva = new Reserva(cliente, hab1, fechaInicio, fechaFin, precioTotal, EstadoReserva.CONFIRMADA);
         
-        int opcionEstado = leerEntero("Nuevo estado (1=Pendiente, 2=Confirmada, 3=Cancelada): ");
-        EstadoReserva nuevoEstado = null;
+        // Asociar pago
+        Pago pago = new PagoTarjeta(precioTotal, "Tarjeta", "María García López", "4111111111111111", "123", "12/28");
+        reserva.setPago(pago);
         
-        switch (opcionEstado) {
-            case 1: nuevoEstado = EstadoReserva.PENDIENTE; break;
-            case 2: nuevoEstado = EstadoReserva.CONFIRMADA; break;
-            case 3: nuevoEstado = EstadoReserva.CANCELADA; break;
-            case 4: nuevoEstado = EstadoReserva.COMPLETADA; break;
-            default:
-                System.out.println("❌ Opción no válida.");
-                return;
+        synchronized (cerrojoDatos) {
+            // Configurar casa rural
+            casaRural = new CasaRural();
+            casaRural.setId(UUID.randomUUID());
+            casaRural.setNombre("Casa Rural Los Álamos");
+            casaRural.setDireccion("Calle Principal 123, Pueblo Viejo");
+            casaRural.setTelefono("912345678");
+            casaRural.agregarHabitacion(hab1);
+            casaRural.agregarHabitacion(hab2);
+            
+            clientes.clear();
+            clientes.add(cliente);
+            reservas.clear();
+            reservas.add(reserva);
+            reconstruirIndices();
         }
         
-        try {
-            reserva.cambiarEstado(nuevoEstado);
-            System.out.println("✅ Estado de la reserva actualizado a: " + nuevoEstado);
-        } catch (EstadoReservaExcepcion e) {
-            System.out.println("❌ Error al cambiar estado: " + e.getMessage());
-        }
+        // El diario no puede expresar el borrado completo: se guarda una instantánea nueva
+        compactar();
     }
 
-    // ===== GESTIÓN DE PAGOS =====
+    // ===== RECEPTORES DE CARGA =====
     
-    public void asociarPago() {
-        if (reservas.isEmpty()) {
-            System.out.println("No hay reservas registradas.");
-            return;
-        }
-        
-        System.out.println("\n💳 === ASOCIAR PAGO A RESERVA ===");
+    /**
+     * Acumula los registros leídos en estructuras nuevas (carga completa)
+     */
+    private static class CargaCompleta implements ReceptorDatos {
+        private CasaRural casaRural = new CasaRural();
+        private final List<Habitacion> habitaciones = new ArrayList<>();
+        private final List<Cliente> clientes = new ArrayList<>();
+        private final List<Reserva> reservas = new ArrayList<>();
+        private int version = PersistenciaJson.VERSION_FORMATO;
+        private long importesRedondeados;
+        // Archivo del que se han leído los datos (null si no se ha podido leer ninguno)
+        private Path origen;
+        // Primer error de lectura si no se ha podido leer ningún archivo
+        private IOException error;
         
-        // Mostrar solo reservas sin pago
-        List<Reserva> reservasSinPago = new ArrayList<>();
-        for (Reserva reserva : reservas) {
-            if (reserva.getPago() == null) {
-                reservasSinPago.add(reserva);
-            }
+        @Override
+        public void casaRural(CasaRural casaRural) {
+            this.casaRural = casaRural;
         }
         
-        if (reservasSinPago.isEmpty()) {
-            System.out.println("Todas las reservas ya tienen pago asociado.");
-            return;
+        @Override
+        public void habitacion(Habitacion habitacion) {
+            habitaciones.add(habitacion);
         }
         
-        System.out.println("Reservas pendientes de pago:");
-        for (int i = 0; i < reservasSinPago.size(); i++) {
-            Reserva reserva = reservasSinPago.get(i);
-            System.out.println((i + 1) + ". " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo() + " (" + reserva.getPrecioTotal() + "€)");
+        @Override
+        public void cliente(Cliente cliente) {
+            clientes.add(cliente);
         }
         
-        System.out.print("Número de la reserva: ");
-        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
-        
-        if (numReserva < 0 || numReserva >= reservasSinPago.size()) {
-            System.out.println("❌ Reserva no válida.");
-            return;
+        @Override
+        public void reserva(Reserva reserva) {
+            reservas.add(reserva);
         }
         
-        Reserva reserva = reservasSinPago.get(numReserva);
-        
-        System.out.println("Métodos de pago:");
-        System.out.println("1. Tarjeta");
-        System.out.println("2. Efectivo");
-        System.out.print("Seleccione método de pago: ");
-        
-        int metodoPago = leerEntero("Método de pago (1=Efectivo, 2=Tarjeta): ");
-        Pago pago = null;
+        @Override
+        public void version(int version) {
+            this.version = version;
+        }
         
-        try {
-            if (metodoPago == 1) {
-                // Pago con tarjeta
-                System.out.print("Titular de la tarjeta: ");
-                String titular = scanner.nextLine().trim();
-                
-                System.out.print("Número de tarjeta: ");
-                String numeroTarjeta = scanner.nextLine().trim();
-                
-                System.out.print("CVV: ");
-                String cvv = scanner.nextLine().trim();
-                
-                System.out.print("Fecha de vencimiento (MM/YY): ");
-                String fechaVencimiento = scanner.nextLine().trim();
-                
-                pago = new PagoTarjeta(reserva.getPrecioTotal(), "Tarjeta", titular, numeroTarjeta, cvv, fechaVencimiento);
-                
-            } else if (metodoPago == 2) {
-                // Pago en efectivo
-                System.out.print("Importe recibido en efectivo (€): ");
-                BigDecimal importeEfectivo = leerBigDecimal("Importe en efectivo (€): ");
-                
-                // Validar que el importe en efectivo sea suficiente
-                if (importeEfectivo.compareTo(reserva.getPrecioTotal()) < 0) {
-                    System.out.println("❌ Error: El importe en efectivo debe ser mayor o igual al precio total.");
-                    System.out.println("   Precio total: " + reserva.getPrecioTotal() + "€");
-                    System.out.println("   Importe recibido: " + importeEfectivo + "€");
-                    return;
-                }
-                
-                pago = new PagoEfectivo(reserva.getPrecioTotal(), "Efectivo", importeEfectivo);
-                
-            } else {
-                System.out.println("❌ Método de pago no válido.");
-                return;
-            }
-            
-            reserva.setPago(pago);
-            pago.procesarPago();
-            System.out.println("✅ Pago asociado correctamente a la reserva.");
-            
-        } catch (Exception e) {
-            System.out.println("❌ Error al procesar el pago: " + e.getMessage());
+        @Override
+        public void importesRedondeados(long cantidad) {
+            this.importesRedondeados = cantidad;
         }
     }
-
-    // ===== ANULAR PAGOS =====
-
-    public void anularPago() {
-        if (reservas.isEmpty()) {
-            System.out.println("No hay reservas registradas.");
-            return;
+    
+    /**
+     * Aplica las entradas del diario sobre los datos de una carga completa.
+     * Es idempotente: las entradas que ya estaban en la instantánea no cambian nada.
+     */
+    private static class ReproduccionDiario implements ReceptorMutaciones {
+        private final CargaCompleta carga;
+        private final Set<UUID> habitaciones = new HashSet<>();
+        private final Set<UUID> clientes = new HashSet<>();
+        private final Map<UUID, Reserva> reservas = new HashMap<>();
+        
+        ReproduccionDiario(CargaCompleta carga) {
+            this.carga = carga;
+            for (Habitacion habitacion : carga.habitaciones) {
+                habitaciones.add(habitacion.getId());
+            }
+            for (Cliente cliente : carga.clientes) {
+                clientes.add(cliente.getId());
+            }
+            for (Reserva reserva : carga.reservas) {
+                reservas.put(reserva.getId(), reserva);
+            }
         }
         
-        System.out.println("\n❌ === ANULAR PAGO DE RESERVA ===");
-        
-        // Mostrar solo reservas con pago
-        List<Reserva> reservasConPago = new ArrayList<>();
-        for (Reserva reserva : reservas) {
-            if (reserva.getPago() != null) {
-                reservasConPago.add(reserva);
+        @Override
+        public void habitacionCreada(Habitacion habitacion) {
+            if (habitaciones.add(habitacion.getId())) {
+                carga.habitaciones.add(habitacion);
             }
         }
         
-        if (reservasConPago.isEmpty()) {
-            System.out.println("No hay reservas con pago asociado.");
-            return;
+        @Override
+        public void clienteRegistrado(Cliente cliente) {
+            if (clientes.add(cliente.getId())) {
+                carga.clientes.add(cliente);
+            }
         }
         
-        System.out.println("Reservas con pago asociado:");
-        for (int i = 0; i < reservasConPago.size(); i++) {
-            Reserva reserva = reservasConPago.get(i);
-            Pago pago = reserva.getPago();
-            System.out.println((i + 1) + ". " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo() + 
-                            " (" + pago.getMetodoPago() + " - " + pago.getImporte() + "€)");
+        @Override
+        public void clienteEliminado(UUID clienteId) {
+            if (clientes.remove(clienteId)) {
+                carga.clientes.removeIf(cliente -> cliente.getId().equals(clienteId));
+            }
         }
         
-        System.out.print("Número de la reserva: ");
-        int numReserva = leerEnteroPositivo("Seleccione el número de la reserva: ") - 1;
-        
-        if (numReserva < 0 || numReserva >= reservasConPago.size()) {
-            System.out.println("❌ Reserva no válida.");
-            return;
+        @Override
+        public void reservaCreada(Reserva reserva) {
+            if (reservas.putIfAbsent(reserva.getId(), reserva) == null) {
+                carga.reservas.add(reserva);
+            }
         }
         
-        Reserva reserva = reservasConPago.get(numReserva);
-        
-        // Confirmar anulación
-        System.out.println("\n¿Está seguro de que desea anular el pago?");
-        System.out.println("Reserva: " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo());
-        System.out.println("Pago: " + reserva.getPago().getMetodoPago() + " - " + reserva.getPago().getImporte() + "€");
-        System.out.print("Confirmar (s/n): ");
-        
-        String confirmacion = scanner.nextLine().trim().toLowerCase();
-        
-        if (confirmacion.equals("s") || confirmacion.equals("si")) {
-            // Anular el pago
-            reserva.setPago(null);
-            
-            // Cambiar estado a PENDIENTE si estaba CONFIRMADA
-            if (reserva.getEstado() == EstadoReserva.CONFIRMADA) {
-                try {
-                    reserva.cambiarEstado(EstadoReserva.PENDIENTE);
-                } catch (EstadoReservaExcepcion e) {
-                    System.out.println("⚠️ No se pudo cambiar el estado automáticamente: " + e.getMessage());
-                }
+        @Override
+        public void estadoCambiado(UUID reservaId, EstadoReserva estado) {
+            Reserva reserva = reservas.get(reservaId);
+            if (reserva != null) {
+                reserva.setEstado(estado);
             }
-            
-            System.out.println("✅ Pago anulado correctamente.");
-            System.out.println("ℹ️ El estado de la reserva se cambió a PENDIENTE.");
-        } else {
-            System.out.println("ℹ️ Operación cancelada.");
         }
-    }
-
-    // ===== DATOS DE PRUEBA =====
-    
-    public void crearDatosPrueba() {
-        System.out.println("\n🧪 === CREANDO DATOS DE PRUEBA ===");
-        
-        // Verificar si ya existen datos en el sistema
-        boolean datosExistentes = (casaRural.getNombre() != null && !casaRural.getNombre().isEmpty()) || 
-                                 !casaRural.getHabitaciones().isEmpty() || 
-                                 !clientes.isEmpty() || 
-                                 !reservas.isEmpty();
-        
-        if (datosExistentes) {
-            System.out.println("⚠️  Ya existen datos en el sistema:");
-            if (!casaRural.getNombre().isEmpty()) {
-                System.out.println("   - Casa Rural: " + casaRural.getNombre());
-            }
-            System.out.println("   - " + casaRural.getHabitaciones().size() + " habitaciones");
-            System.out.println("   - " + clientes.size() + " clientes");
-            System.out.println("   - " + reservas.size() + " reservas");
-            
-            System.out.println("\n¿Desea recrear los datos de prueba? (Se perderán los datos actuales) [s/N]: ");
-            String respuesta = this.scanner.nextLine().trim().toLowerCase();
-            
-            if (!respuesta.equals("s") && !respuesta.equals("si")) {
-                System.out.println("ℹ️  Operación cancelada. Los datos existentes se mantendrán.");
-                return;
+        
+        @Override
+        public void pagoAsociado(UUID reservaId, Pago pago) {
+            Reserva reserva = reservas.get(reservaId);
+            if (reserva != null) {
+                reserva.setPago(pago);
             }
-            
-            // Limpiar datos existentes
-            casaRural = new CasaRural();
-            clientes.clear();
-            reservas.clear();
-            System.out.println("🗑️  Datos anteriores eliminados.");
         }
         
-        try {
-            // Configurar casa rural
-            casaRural.setId(UUID.randomUUID());
-            casaRural.setNombre("Casa Rural Los Álamos");
-            casaRural.setDireccion("Calle Principal 123, Pueblo Viejo");
-            casaRural.setTelefono("912345678");
-            
-            // Crear habitaciones
-            Habitacion hab1 = new Habitacion("H001", "Habitación Doble Estándar", 2, new BigDecimal("45.00"));
-            Habitacion hab2 = new Habitacion("H002", "Habitación Triple con Terraza", 3, new BigDecimal("65.00"));
-            
-            casaRural.agregarHabitacion(hab1);
-            casaRural.agregarHabitacion(hab2);
-            
-            // Crear cliente
-            Cliente cliente = new Cliente("María García López", "12345678A", "maria.garcia@email.com", "611223344");
-            clientes.add(cliente);
-            
-            // Crear reserva
-            LocalDateTime fechaInicio = LocalDateTime.of(2025, 12, 20, 15, 0);
-            LocalDateTime fechaFin = LocalDateTime.of(2025, 12, 22, 11, 0);
-            BigDecimal precioTotal = hab1.getPrecioNoche().multiply(BigDecimal.valueOf(2));
-            
-            Reserva reserva = new Reserva(cliente, hab1, fechaInicio, fechaFin, precioTotal, EstadoReserva.CONFIRMADA);
-            
-            // Asociar pago
-            Pago pago = new PagoTarjeta(precioTotal, "Tarjeta", "María García López", "4111111111111111", "123", "12/28");
-            reserva.setPago(pago);
-            
-            reservas.add(reserva);
-            
-            System.out.println("✅ Datos de prueba creados correctamente:");
-            System.out.println("   - Casa Rural: " + casaRural.getNombre());
-            System.out.println("   - 2 habitaciones");
-            System.out.println("   - 1 cliente registrado");
-            System.out.println("   - 1 reserva confirmada con pago");
-            
-        } catch (Exception e) {
-            System.out.println("❌ Error al crear datos de prueba: " + e.getMessage());
+        @Override
+        public void pagoAnulado(UUID reservaId) {
+            Reserva reserva = reservas.get(reservaId);
+            if (reserva != null) {
+                reserva.setPago(null);
+            }
         }
     }
-
-    // ===== CLASE INTERNA PARA DATOS DEL SISTEMA =====
     
-    private static class DatosSistema {
-        private CasaRural casaRural;
-        private List<Cliente> clientes;
-        private List<Reserva> reservas;
-        
-        public DatosSistema(CasaRural casaRural, List<Cliente> clientes, List<Reserva> reservas) {
-            this.casaRural = casaRural;
-            this.clientes = clientes;
-            this.reservas = reservas;
-        }
-    }
-
     /**
-     * Lee un entero de la entrada estándar de manera segura
-     * @param mensaje Mensaje a mostrar al usuario
-     * @return El entero leído o -1 si hay error
+     * Incorpora los registros leídos al estado actual omitiendo los duplicados
      */
-    private int leerEntero(String mensaje) {
-        while (true) {
-            try {
-                System.out.print(mensaje);
-                String input = scanner.nextLine().trim();
-                return Integer.parseInt(input);
-            } catch (NumberFormatException e) {
-                System.out.println("❌ Error: Debe introducir un número entero válido. Inténtelo de nuevo.");
+    private class CargaVerificada implements ReceptorDatos {
+        private int habitacionesAgregadas = 0;
+        private int habitacionesDuplicadas = 0;
+        private int clientesAgregados = 0;
+        private int clientesDuplicados = 0;
+        private int reservasAgregadas = 0;
+        private int reservasDuplicadas = 0;
+        private int reservasSolapadas = 0;
+        // Nombre de la casa rural si se han tomado sus datos del archivo
+        private String casaActualizada;
+        private final List<String> omitidos = new ArrayList<>();
+        
+        // Registros importados que ya existían: id importado -> instancia existente
+        private final Map<UUID, Habitacion> habitacionesExistentes = new HashMap<>();
+        private final Map<UUID, Cliente> clientesExistentes = new HashMap<>();
+        
+        private ResultadoImportacion resultado(Exception error) {
+            return new ResultadoImportacion(habitacionesAgregadas, habitacionesDuplicadas, clientesAgregados,
+                clientesDuplicados, reservasAgregadas, reservasDuplicadas, reservasSolapadas, casaActualizada,
+                List.copyOf(omitidos), error);
+        }
+        
+        @Override
+        public void casaRural(CasaRural datosCasa) {
+            // Actualizar información de la casa rural si no existe
+            if (casaRural.getNombre() == null || casaRural.getNombre().isEmpty()) {
+                casaRural.setId(datosCasa.getId());
+                casaRural.setNombre(datosCasa.getNombre());
+                casaRural.setDireccion(datosCasa.getDireccion());
+                casaRural.setTelefono(datosCasa.getTelefono());
+                casaActualizada = casaRural.getNombre();
             }
         }
-    }
-
-    /**
-     * Lee un entero positivo de la entrada estándar de manera segura
-     * @param mensaje Mensaje a mostrar al usuario
-     * @return El entero positivo leído
-     */
-    private int leerEnteroPositivo(String mensaje) {
-        while (true) {
-            int numero = leerEntero(mensaje);
-            if (numero > 0) {
-                return numero;
+        
+        @Override
+        public void habitacion(Habitacion hab) {
+            Habitacion existente = buscarHabitacion(hab.getCodigo());
+            if (existente != null) {
+                habitacionesExistentes.put(hab.getId(), existente);
+                habitacionesDuplicadas++;
+                omitidos.add("Habitación duplicada: " + hab.getCodigo());
             } else {
-                System.out.println("❌ Error: El número debe ser mayor que 0. Inténtelo de nuevo.");
+                incorporarHabitacion(hab);
+                habitacionesAgregadas++;
             }
         }
-    }
-
-    /**
-     * Lee un BigDecimal de la entrada estándar de manera segura
-     * @param mensaje Mensaje a mostrar al usuario
-     * @return El BigDecimal leído o null si hay error
-     */
-    private BigDecimal leerBigDecimal(String mensaje) {
-        while (true) {
+        
+        @Override
+        public void cliente(Cliente cliente) {
+            Cliente existente = buscarCliente(cliente.getNumeroDocumento());
+            if (existente != null) {
+                clientesExistentes.put(cliente.getId(), existente);
+                clientesDuplicados++;
+                omitidos.add("Cliente duplicado: " + cliente.getNombre() + " (" + cliente.getNumeroDocumento() + ")");
+            } else {
+                incorporarCliente(cliente);
+                clientesAgregados++;
+            }
+        }
+        
+        @Override
+        public void reserva(Reserva reserva) {
+            // Enlazar la reserva con las instancias que ya existían en el sistema
+            Cliente cliente = clientesExistentes.get(reserva.getCliente().getId());
+            if (cliente != null) {
+                reserva.setCliente(cliente);
+            }
+            Habitacion habitacion = habitacionesExistentes.get(reserva.getHabitacion().getId());
+            if (habitacion != null) {
+                reserva.setHabitacion(habitacion);
+            }
+            
+            if (existeReserva(reserva)) {
+                reservasDuplicadas++;
+                omitidos.add("Reserva duplicada: " + reserva.getCliente().getNombre() + " - " + reserva.getHabitacion().getCodigo());
+                return;
+            }
             try {
-                System.out.print(mensaje);
-                String input = scanner.nextLine().trim();
-                BigDecimal valor = new BigDecimal(input);
-                if (valor.compareTo(BigDecimal.ZERO) >= 0) {
-                    return valor;
-                } else {
-                    System.out.println("❌ Error: El precio debe ser mayor o igual a 0. Inténtelo de nuevo.");
-                }
-            } catch (NumberFormatException e) {
-                System.out.println("❌ Error: Debe introducir un número decimal válido (ej: 50.00). Inténtelo de nuevo.");
+                incorporarReserva(reserva);
+                reservasAgregadas++;
+            } catch (HabitacionNoDisponibleExcepcion e) {
+                reservasSolapadas++;
+                omitidos.add("Reserva solapada: " + reserva.getCliente().getNombre() + " - " + e.getMessage());
             }
         }
     }
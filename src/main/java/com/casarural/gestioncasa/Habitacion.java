@@ -1,16 +1,20 @@
 package com.casarural.gestioncasa;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
 
 public class Habitacion {
     private UUID id;
     private String codigo;
     private String descripcion;
     private int capacidad;
-    private BigDecimal precioNoche;
-    private boolean disponible;
+    private Dinero precioNoche;
+    private volatile boolean disponible;
+    // Aumenta con cada cambio. No se persiste: empieza en 0 al cargar
+    private volatile long version;
+    // No se persiste: lo asigna el servicio que gestiona la habitación
+    private transient ObservadorHabitacion observador;
 
     // Constructor
     public Habitacion() {
@@ -18,12 +22,12 @@ public class Habitacion {
         this.codigo = "H001";
         this.descripcion = "Habitacion 1";
         this.capacidad = 1;
-        this.precioNoche = BigDecimal.ZERO;
+        this.precioNoche = Dinero.CERO;
         this.disponible = true;
     }
 
     // Constructor con parámetros
-    public Habitacion(String codigo, String descripcion, int capacidad, BigDecimal precioNoche, boolean disponible) {
+    public Habitacion(String codigo, String descripcion, int capacidad, Dinero precioNoche, boolean disponible) {
         this.id = UUID.randomUUID(); // Genera ID automáticamente
         this.codigo = codigo;
         this.descripcion = descripcion;
@@ -33,10 +37,25 @@ public class Habitacion {
     }
 
     // Constructor con parámetros (sobrecargado, asume disponible = true)
-    public Habitacion(String codigo, String descripcion, int capacidad, BigDecimal precioNoche) {
+    public Habitacion(String codigo, String descripcion, int capacidad, Dinero precioNoche) {
         this(codigo, descripcion, capacidad, precioNoche, true);
     }
 
+    // Constructor de carga: asigna el id guardado sin generar uno nuevo
+    private Habitacion(UUID id, String codigo, String descripcion, int capacidad, Dinero precioNoche, boolean disponible) {
+        this.id = id;
+        this.codigo = codigo;
+        this.descripcion = descripcion;
+        this.capacidad = capacidad;
+        this.precioNoche = precioNoche;
+        this.disponible = disponible;
+    }
+
+    // Reconstruye una habitación ya existente a partir de los datos persistidos
+    public static Habitacion restaurar(UUID id, String codigo, String descripcion, int capacidad, Dinero precioNoche, boolean disponible) {
+        return new Habitacion(id, codigo, descripcion, capacidad, precioNoche, disponible);
+    }
+
     // Getters y setters (solo los necesarios)
     
     // ID - solo getter (se genera automáticamente, no debe modificarse)
@@ -49,8 +68,9 @@ public class Habitacion {
         return codigo;
     }
     
-    public void setCodigo(String codigo) {
+    public synchronized void setCodigo(String codigo) {
         this.codigo = codigo;
+        version++;
     }
     
     // Descripción
@@ -58,8 +78,9 @@ public class Habitacion {
         return descripcion;
     }
     
-    public void setDescripcion(String descripcion) {
+    public synchronized void setDescripcion(String descripcion) {
         this.descripcion = descripcion;
+        version++;
     }
     
     // Capacidad
@@ -67,24 +88,29 @@ public class Habitacion {
         return capacidad;
     }
     
-    public void setCapacidad(int capacidad) {
+    public synchronized void setCapacidad(int capacidad) {
         this.capacidad = capacidad;
+        version++;
     }
     
     // Precio por noche
-    public BigDecimal getPrecioNoche() {
+    public Dinero getPrecioNoche() {
         return precioNoche;
     }
     
     // Método setPrecioNoche con validación
-    public void setPrecioNoche(BigDecimal precioNoche) throws ImporteInvalidoExcepcion {
+    public synchronized void setPrecioNoche(Dinero precioNoche) throws ImporteInvalidoExcepcion {
         if (precioNoche == null) {
             throw new ImporteInvalidoExcepcion("El precio por noche no puede ser nulo");
         }
-        if (precioNoche.compareTo(BigDecimal.ZERO) <= 0) {
+        if (precioNoche.signo() <= 0) {
             throw new ImporteInvalidoExcepcion("El precio por noche debe ser mayor que cero: " + precioNoche);
         }
         this.precioNoche = precioNoche;
+        version++;
+        if (observador != null) {
+            observador.precioCambiado(this);
+        }
     }
     
     // Disponibilidad
@@ -92,7 +118,25 @@ public class Habitacion {
         return disponible;
     }
     
-    public void setDisponible(boolean disponible) {
+    public synchronized void setDisponible(boolean disponible) {
+        boolean anterior = this.disponible;
         this.disponible = disponible;
+        version++;
+        if (observador != null && anterior != disponible) {
+            observador.disponibilidadCambiada(this, disponible);
+        }
+    }
+
+    // Versión
+    public long getVersion() {
+        return version;
+    }
+
+    public ObservadorHabitacion getObservador() {
+        return observador;
+    }
+
+    public void setObservador(ObservadorHabitacion observador) {
+        this.observador = observador;
     }
 }
@@ -0,0 +1,12 @@
+package com.casarural.gestioncasa;
+
+/**
+ * Recibe los cambios de disponibilidad y de precio de una habitación,
+ * tanto si los hace el servicio como si se hacen sobre la propia habitación.
+ */
+public interface ObservadorHabitacion {
+
+    void disponibilidadCambiada(Habitacion habitacion, boolean disponible);
+
+    void precioCambiado(Habitacion habitacion);
+}
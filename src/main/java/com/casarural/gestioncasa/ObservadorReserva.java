@@ -0,0 +1,15 @@
+package com.casarural.gestioncasa;
+
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+/**
+ * Recibe los cambios que se producen en una reserva (estado y pago),
+ * tanto si los hace el servicio como si se hacen sobre la propia reserva.
+ */
+public interface ObservadorReserva {
+
+    void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo);
+
+    void pagoCambiado(Reserva reserva, Pago anterior, Pago nuevo);
+}
@@ -1,26 +1,39 @@
 package com.casarural.gestioncasa;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
+import com.casarural.gestioncasa.modelo.Dinero;
 import com.casarural.gestioncasa.modelo.EstadoReserva;
 import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.tarifas.MotorTarifas;
 import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
 import com.casarural.gestioncasa.excepciones.FechasInvalidasExcepcion;
 import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
 
 public class Reserva {
+    // Diferencia admitida entre el pago con tarjeta y el precio total
+    private static final long TOLERANCIA_TARJETA_CENTIMOS = 1;
+
     private UUID id;
     private Cliente cliente;
     private Habitacion habitacion;
     private LocalDateTime fechaInicio;
     private LocalDateTime fechaFin;
     private int noches;
-    private BigDecimal precioTotal;
-    private EstadoReserva estado;
-    private Pago pago;
+    private Dinero precioTotal;
+    // Volátiles: se leen sin cerrojo; los cambios se hacen con el monitor de la reserva tomado
+    private volatile EstadoReserva estado;
+    private volatile Pago pago;
+    // Hasta cuándo se puede pagar si está pendiente; null = el plazo general antes de la entrada.
+    // Se fija al crear la reserva (cuando se hace dentro del plazo) y se persiste con ella
+    private LocalDateTime limitePago;
+    // Aumenta con cada cambio de estado o de pago. No se persiste: empieza en 0 al cargar
+    private volatile long version;
+    // No se persiste: lo asigna el servicio que gestiona la reserva
+    private transient ObservadorReserva observador;
 
     // Constructor vacío
     public Reserva() {
@@ -30,13 +43,13 @@ public class Reserva {
         this.fechaInicio = LocalDateTime.now();
         this.fechaFin = LocalDateTime.now();
         this.noches = 0;
-        this.precioTotal = BigDecimal.ZERO;
+        this.precioTotal = Dinero.CERO;
         this.estado = EstadoReserva.PENDIENTE;
         this.pago = null;
     }
 
     // Constructor con parámetros
-    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, BigDecimal precioTotal) throws FechasInvalidasExcepcion {
+    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, Dinero precioTotal) throws FechasInvalidasExcepcion {
         // Validar fechas antes de crear la reserva
         validarFechas(fechaInicio, fechaFin);
         
@@ -52,7 +65,7 @@ public class Reserva {
     }
 
     // Constructor con parámetros (con estado personalizado)
-    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, BigDecimal precioTotal, EstadoReserva estado) throws FechasInvalidasExcepcion {
+    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, Dinero precioTotal, EstadoReserva estado) throws FechasInvalidasExcepcion {
         // Validar fechas antes de crear la reserva
         validarFechas(fechaInicio, fechaFin);
         
@@ -68,7 +81,7 @@ public class Reserva {
     }
 
     // Constructor con parámetros (con pago incluido)
-    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, BigDecimal precioTotal, EstadoReserva estado, Pago pago) throws FechasInvalidasExcepcion {
+    public Reserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, Dinero precioTotal, EstadoReserva estado, Pago pago) throws FechasInvalidasExcepcion {
         // Validar fechas antes de crear la reserva
         validarFechas(fechaInicio, fechaFin);
         
@@ -83,6 +96,25 @@ public class Reserva {
         this.pago = pago;
     }
     
+    // Constructor de carga: no genera id ni fechas, ni crea cliente y habitación vacíos
+    private Reserva(UUID id, Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, int noches, Dinero precioTotal, EstadoReserva estado, Pago pago) {
+        this.id = id;
+        this.cliente = cliente;
+        this.habitacion = habitacion;
+        this.fechaInicio = fechaInicio;
+        this.fechaFin = fechaFin;
+        this.noches = noches;
+        this.precioTotal = precioTotal;
+        this.estado = estado;
+        this.pago = pago;
+    }
+    
+    // Reconstruye una reserva ya existente a partir de los datos persistidos.
+    // No valida las fechas: una reserva guardada puede haber empezado ya.
+    public static Reserva restaurar(UUID id, Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin, int noches, Dinero precioTotal, EstadoReserva estado, Pago pago) {
+        return new Reserva(id, cliente, habitacion, fechaInicio, fechaFin, noches, precioTotal, estado, pago);
+    }
+    
     // Getters y setters
     public UUID getId() {
         return id;
@@ -102,7 +134,7 @@ public class Reserva {
     public int getNoches() {
         return noches;
     }
-    public BigDecimal getPrecioTotal() {
+    public Dinero getPrecioTotal() {
         return precioTotal;
     }
     public EstadoReserva getEstado() {
@@ -111,6 +143,15 @@ public class Reserva {
     public Pago getPago() {
         return pago;
     }
+    public long getVersion() {
+        return version;
+    }
+    public LocalDateTime getLimitePago() {
+        return limitePago;
+    }
+    public void setLimitePago(LocalDateTime limitePago) {
+        this.limitePago = limitePago;
+    }
     public void setId(UUID id) {
         this.id = id;
     }
@@ -131,24 +172,49 @@ public class Reserva {
     public void setNoches(int noches) {
         this.noches = noches;
     }
-    public void setPrecioTotal(BigDecimal precioTotal) throws ImporteInvalidoExcepcion {
+    public void setPrecioTotal(Dinero precioTotal) throws ImporteInvalidoExcepcion {
         if (precioTotal == null) {
             throw new ImporteInvalidoExcepcion("El precio total no puede ser nulo");
         }
-        if (precioTotal.compareTo(BigDecimal.ZERO) < 0) {
+        if (precioTotal.signo() < 0) {
             throw new ImporteInvalidoExcepcion("El precio total no puede ser negativo: " + precioTotal);
         }
         this.precioTotal = precioTotal;
     }
-    public void setEstado(EstadoReserva estado) {
+    public synchronized void setEstado(EstadoReserva estado) {
+        EstadoReserva anterior = this.estado;
         this.estado = estado;
+        version++;
+        notificarEstado(anterior);
     }
-    public void setPago(Pago pago) {
+    public synchronized void setPago(Pago pago) {
+        Pago anterior = this.pago;
         this.pago = pago;
+        version++;
+        notificarPago(anterior);
+    }
+    public ObservadorReserva getObservador() {
+        return observador;
+    }
+    public void setObservador(ObservadorReserva observador) {
+        this.observador = observador;
+    }
+
+    // Métodos auxiliares para avisar al observador de los cambios
+    private void notificarEstado(EstadoReserva anterior) {
+        if (observador != null && anterior != this.estado) {
+            observador.estadoCambiado(this, anterior, this.estado);
+        }
+    }
+
+    private void notificarPago(Pago anterior) {
+        if (observador != null && anterior != this.pago) {
+            observador.pagoCambiado(this, anterior, this.pago);
+        }
     }
 
     // Método para cancelar la reserva
-    public void cancelarReserva() throws EstadoReservaExcepcion {
+    public synchronized void cancelarReserva() throws EstadoReservaExcepcion {
         // Verificar que la reserva pueda ser cancelada
         if (this.estado == EstadoReserva.CANCELADA) {
             throw new EstadoReservaExcepcion("La reserva ya está cancelada");
@@ -159,20 +225,33 @@ public class Reserva {
         }
         
         // Cambiar el estado a CANCELADA
+        EstadoReserva estadoAnterior = this.estado;
         this.estado = EstadoReserva.CANCELADA;
+        version++;
+        notificarEstado(estadoAnterior);
         
-        // Si hay un pago asociado, procesar posible reembolso
-        if (this.pago != null) {
-            System.out.println("Procesando reembolso para la reserva cancelada...");
-            // Aquí se podría agregar lógica adicional para manejar el reembolso
-            // dependiendo del tipo de pago (efectivo, tarjeta, etc.)
-        }
-        
-        System.out.println("Reserva cancelada exitosamente. ID: " + this.id);
+        // Si hay un pago asociado, aquí se podría agregar la lógica del reembolso
+        // dependiendo del tipo de pago (efectivo, tarjeta, etc.)
     }
 
     // Método para asociar una reserva a un pago
-    public void asociarPago(Pago pago) throws EstadoReservaExcepcion, ImporteInvalidoExcepcion {
+    public synchronized void asociarPago(Pago pago) throws EstadoReservaExcepcion, ImporteInvalidoExcepcion {
+        comprobarPago(pago);
+        
+        // Asociar el pago
+        this.pago = pago;
+        version++;
+        notificarPago(null);
+        
+        // Si la reserva estaba PENDIENTE, cambiar a CONFIRMADA
+        if (this.estado == EstadoReserva.PENDIENTE) {
+            this.estado = EstadoReserva.CONFIRMADA;
+            notificarEstado(EstadoReserva.PENDIENTE);
+        }
+    }
+
+    // Comprueba que se puede asociar el pago a la reserva, sin asociarlo
+    public synchronized void comprobarPago(Pago pago) throws EstadoReservaExcepcion, ImporteInvalidoExcepcion {
         // Validar que el pago no sea null
         if (pago == null) {
             throw new EstadoReservaExcepcion("El pago no puede ser nulo");
@@ -194,17 +273,61 @@ public class Reserva {
         
         // Validación del importe según el tipo de pago
         validarImportePago(pago);
+    }
+
+    // Método para anular el pago de la reserva: si estaba CONFIRMADA vuelve a PENDIENTE
+    public synchronized void anularPago() throws EstadoReservaExcepcion {
+        if (this.pago == null) {
+            throw new EstadoReservaExcepcion("La reserva no tiene ningún pago asociado");
+        }
         
-        // Asociar el pago
-        this.pago = pago;
+        Pago pagoAnterior = this.pago;
+        this.pago = null;
+        version++;
+        notificarPago(pagoAnterior);
         
-        // Si la reserva estaba PENDIENTE, cambiar a CONFIRMADA
-        if (this.estado == EstadoReserva.PENDIENTE) {
-            this.estado = EstadoReserva.CONFIRMADA;
+        if (this.estado == EstadoReserva.CONFIRMADA) {
+            this.estado = EstadoReserva.PENDIENTE;
+            notificarEstado(EstadoReserva.CONFIRMADA);
+        }
+    }
+
+    // ===== CAMBIOS CON VERSIÓN =====
+    // Versiones de los cambios anteriores para quien ha leído la reserva antes de
+    // decidir: si otro la ha cambiado desde entonces, fallan sin tocar nada en lugar
+    // de pisar ese cambio. La comparación y el cambio se hacen con el monitor de la
+    // reserva tomado, así que solo uno de los que leyeron la misma versión lo consigue.
+
+    public synchronized void cambiarEstado(EstadoReserva nuevoEstado, long versionLeida) throws EstadoReservaExcepcion, VersionObsoletaExcepcion {
+        comprobarVersion(versionLeida);
+        cambiarEstado(nuevoEstado);
+    }
+
+    public synchronized void cancelarReserva(long versionLeida) throws EstadoReservaExcepcion, VersionObsoletaExcepcion {
+        comprobarVersion(versionLeida);
+        cancelarReserva();
+    }
+
+    public synchronized void asociarPago(Pago pago, long versionLeida) throws EstadoReservaExcepcion, ImporteInvalidoExcepcion, VersionObsoletaExcepcion {
+        comprobarVersion(versionLeida);
+        asociarPago(pago);
+    }
+
+    public synchronized void comprobarPago(Pago pago, long versionLeida) throws EstadoReservaExcepcion, ImporteInvalidoExcepcion, VersionObsoletaExcepcion {
+        comprobarVersion(versionLeida);
+        comprobarPago(pago);
+    }
+
+    public synchronized void anularPago(long versionLeida) throws EstadoReservaExcepcion, VersionObsoletaExcepcion {
+        comprobarVersion(versionLeida);
+        anularPago();
+    }
+
+    private void comprobarVersion(long versionLeida) throws VersionObsoletaExcepcion {
+        if (this.version != versionLeida) {
+            throw new VersionObsoletaExcepcion("La reserva ha cambiado desde que se consultó (versión " + versionLeida
+                + ", actual " + this.version + "). ID: " + this.id);
         }
-        
-        System.out.println("Pago asociado exitosamente a la reserva. ID: " + this.id);
-        System.out.println("Estado actualizado a: " + this.estado);
     }
 
     // Método auxiliar para validar el importe del pago según su tipo
@@ -221,8 +344,8 @@ public class Reserva {
             // Es válido que pague más (recibirá cambio)
         } else if (metodoPago.contains("tarjeta") || metodoPago.contains("credito") || metodoPago.contains("debito")) {
             // Para pagos con tarjeta: el importe debe coincidir exactamente (con pequeña tolerancia)
-            BigDecimal diferencia = pago.getImporte().subtract(this.precioTotal).abs();
-            if (diferencia.compareTo(new BigDecimal("0.01")) > 0) {
+            long diferencia = Math.abs(Math.subtractExact(pago.getImporte().centimos(), this.precioTotal.centimos()));
+            if (diferencia > TOLERANCIA_TARJETA_CENTIMOS) {
                 throw new ImporteInvalidoExcepcion(
                     "El importe del pago con tarjeta debe coincidir exactamente. Importe pagado: " + pago.getImporte() + "€, Precio total: " + this.precioTotal + "€"
                 );
@@ -238,7 +361,7 @@ public class Reserva {
     }
 
     // Método para calcular el precio total de la reserva
-    public BigDecimal calcularPrecioTotal() throws EstadoReservaExcepcion, FechasInvalidasExcepcion {
+    public Dinero calcularPrecioTotal() throws EstadoReservaExcepcion, FechasInvalidasExcepcion {
         // Validar que tengamos los datos necesarios
         if (this.habitacion == null) {
             throw new EstadoReservaExcepcion("No se puede calcular el precio: la habitación no está asignada");
@@ -248,7 +371,7 @@ public class Reserva {
             throw new EstadoReservaExcepcion("No se puede calcular el precio: las fechas no están definidas");
         }
         
-        if (this.habitacion.getPrecioNoche() == null || this.habitacion.getPrecioNoche().compareTo(BigDecimal.ZERO) <= 0) {
+        if (this.habitacion.getPrecioNoche() == null || this.habitacion.getPrecioNoche().signo() <= 0) {
             throw new EstadoReservaExcepcion("No se puede calcular el precio: el precio por noche de la habitación no es válido");
         }
         
@@ -262,10 +385,8 @@ public class Reserva {
             throw new FechasInvalidasExcepcion("El número de noches debe ser mayor a 0");
         }
         
-        // Calcular el precio total: precio por noche * número de noches
-        this.precioTotal = this.habitacion.getPrecioNoche().multiply(BigDecimal.valueOf(this.noches));
-        
-        System.out.println("Precio total calculado: " + this.precioTotal + "€ (" + this.noches + " noches x " + this.habitacion.getPrecioNoche() + "€/noche)");
+        // Calcular el precio total: precio por noche * número de noches (sin reglas de tarifa)
+        this.precioTotal = MotorTarifas.precioBase(this.habitacion.getPrecioNoche(), this.noches);
         
         return this.precioTotal;
     }
@@ -289,96 +410,10 @@ public class Reserva {
         }
     }
 
-    // Método para mostrar información completa de la reserva
-    public void mostrarInformacionCompleta() {
-        System.out.println("\n" + "=".repeat(60));
-        System.out.println("           INFORMACIÓN COMPLETA DE LA RESERVA");
-        System.out.println("=".repeat(60));
-        
-        // Información básica de la reserva
-        System.out.println("\n📋 DATOS DE LA RESERVA:");
-        System.out.println("   ID de Reserva: " + (this.id != null ? this.id.toString() : "No asignado"));
-        System.out.println("   Estado: " + (this.estado != null ? this.estado : "No definido"));
-        System.out.println("   Número de noches: " + this.noches);
-        
-        // Información del cliente
-        System.out.println("\n👤 INFORMACIÓN DEL CLIENTE:");
-        if (this.cliente != null) {
-            System.out.println("   Nombre: " + (this.cliente.getNombre() != null ? this.cliente.getNombre() : "No especificado"));
-            System.out.println("   Documento: " + (this.cliente.getNumeroDocumento() != null ? this.cliente.getNumeroDocumento() : "No especificado"));
-            System.out.println("   Email: " + (this.cliente.getEmail() != null ? this.cliente.getEmail() : "No especificado"));
-            System.out.println("   Teléfono: " + (this.cliente.getTelefono() != null ? this.cliente.getTelefono() : "No especificado"));
-        } else {
-            System.out.println("   ❌ No hay cliente asignado a esta reserva");
-        }
-        
-        // Información de la habitación
-        System.out.println("\n🏠 INFORMACIÓN DE LA HABITACIÓN:");
-        if (this.habitacion != null) {
-            System.out.println("   Código: " + (this.habitacion.getCodigo() != null ? this.habitacion.getCodigo() : "No especificado"));
-            System.out.println("   Descripción: " + (this.habitacion.getDescripcion() != null ? this.habitacion.getDescripcion() : "No especificada"));
-            System.out.println("   Capacidad: " + this.habitacion.getCapacidad() + " persona(s)");
-            System.out.println("   Precio por noche: " + (this.habitacion.getPrecioNoche() != null ? this.habitacion.getPrecioNoche() + "€" : "No definido"));
-            System.out.println("   Disponible: " + (this.habitacion.isDisponible() ? "✅ Sí" : "❌ No"));
-        } else {
-            System.out.println("   ❌ No hay habitación asignada a esta reserva");
-        }
-        
-        // Información de fechas
-        System.out.println("\n📅 FECHAS DE LA RESERVA:");
-        if (this.fechaInicio != null && this.fechaFin != null) {
-            System.out.println("   Check-in: " + this.fechaInicio.toLocalDate() + " a las " + this.fechaInicio.toLocalTime());
-            System.out.println("   Check-out: " + this.fechaFin.toLocalDate() + " a las " + this.fechaFin.toLocalTime());
-            System.out.println("   Duración: " + this.noches + " noche(s)");
-            
-            // Calcular días hasta check-in
-            long diasHastaCheckIn = java.time.temporal.ChronoUnit.DAYS.between(java.time.LocalDate.now(), this.fechaInicio.toLocalDate());
-            if (diasHastaCheckIn > 0) {
-                System.out.println("   ⏰ Días hasta check-in: " + diasHastaCheckIn);
-            } else if (diasHastaCheckIn == 0) {
-                System.out.println("   ⏰ ¡Check-in hoy!");
-            } else {
-                System.out.println("   ⏰ Reserva pasada");
-            }
-        } else {
-            System.out.println("   ❌ Fechas no definidas");
-        }
-        
-        // Información del pago
-        System.out.println("\n💳 INFORMACIÓN DEL PAGO:");
-        if (this.pago != null) {
-            System.out.println("   Método de pago: " + (this.pago.getMetodoPago() != null ? this.pago.getMetodoPago() : "No especificado"));
-            System.out.println("   Importe pagado: " + (this.pago.getImporte() != null ? this.pago.getImporte() + "€" : "No definido"));
-            System.out.println("   Fecha de pago: " + (this.pago.getFechaPago() != null ? this.pago.getFechaPago().toLocalDate() : "No definida"));
-            
-            // Calcular diferencia si hay pago
-            if (this.precioTotal != null && this.pago.getImporte() != null) {
-                java.math.BigDecimal diferencia = this.pago.getImporte().subtract(this.precioTotal);
-                if (diferencia.compareTo(java.math.BigDecimal.ZERO) > 0) {
-                    System.out.println("   💰 Cambio a devolver: " + diferencia + "€");
-                } else if (diferencia.compareTo(java.math.BigDecimal.ZERO) < 0) {
-                    System.out.println("   ⚠️ Pago pendiente: " + diferencia.abs() + "€");
-                } else {
-                    System.out.println("   ✅ Pago completo");
-                }
-            }
-        } else {
-            System.out.println("   ❌ No hay pago registrado");
-        }
-        
-        // Información financiera
-        System.out.println("\n💰 RESUMEN FINANCIERO:");
-        System.out.println("   Precio total calculado: " + (this.precioTotal != null ? this.precioTotal + "€" : "No calculado"));
-        if (this.habitacion != null && this.habitacion.getPrecioNoche() != null && this.noches > 0) {
-            System.out.println("   Desglose: " + this.noches + " noche(s) × " + this.habitacion.getPrecioNoche() + "€ = " + 
-                              this.habitacion.getPrecioNoche().multiply(java.math.BigDecimal.valueOf(this.noches)) + "€");
-        }
-        
-        System.out.println("=".repeat(60));
-    }
-
-    // Método para cambiar el estado de la reserva de manera controlada
-    public void cambiarEstado(EstadoReserva nuevoEstado) throws EstadoReservaExcepcion {
+    // Método para cambiar el estado de la reserva de manera controlada.
+    // Los cambios de estado y de pago se sincronizan sobre la reserva: cada uno
+    // comprueba y cambia el estado sin que otro hilo pueda intercalarse
+    public synchronized void cambiarEstado(EstadoReserva nuevoEstado) throws EstadoReservaExcepcion {
         // Validar que el nuevo estado no sea null
         if (nuevoEstado == null) {
             throw new EstadoReservaExcepcion("El nuevo estado no puede ser nulo");
@@ -401,7 +436,7 @@ public class Reserva {
         // Cambiar el estado
         EstadoReserva estadoAnterior = this.estado;
         this.estado = nuevoEstado;
-        
-        System.out.println("Estado de la reserva cambiado de " + estadoAnterior + " a " + nuevoEstado);
+        version++;
+        notificarEstado(estadoAnterior);
     }
 }
\ No newline at end of file
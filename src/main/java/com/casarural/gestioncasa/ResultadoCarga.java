@@ -0,0 +1,23 @@
+package com.casarural.gestioncasa;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Resultado de cargar los datos al arrancar
+ *
+ * @param origen             Archivo del que se han leído los datos (null si no se ha podido leer ninguno)
+ * @param copiaAnterior      Si los datos vienen de una copia anterior (pueden faltar los últimos cambios)
+ * @param error              Primer error de lectura cuando no se ha podido leer ningún archivo
+ * @param cambiosRecuperados Cambios del diario reproducidos sobre la instantánea
+ * @param errorDiario        Error al reproducir el diario (los cambios anteriores al error se conservan)
+ * @param copiaMigracion     Copia del archivo original si se ha migrado desde el formato anterior
+ * @param convertido         Si los datos se han reescrito en el formato configurado (JSON o binario)
+ * @param errorConversion    Error al migrar o convertir el archivo (los datos están cargados igualmente)
+ * @param importesRedondeados Importes guardados con más de dos decimales (archivos anteriores a Dinero)
+ *                            que se han redondeado al céntimo, la mitad hacia arriba
+ */
+public record ResultadoCarga(Path origen, boolean copiaAnterior, IOException error, int cambiosRecuperados,
+                             IOException errorDiario, Path copiaMigracion, boolean convertido,
+                             IOException errorConversion, long importesRedondeados) {
+}
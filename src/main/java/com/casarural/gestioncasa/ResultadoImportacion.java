@@ -0,0 +1,24 @@
+package com.casarural.gestioncasa;
+
+import java.util.List;
+
+/**
+ * Resultado de cargar el archivo de datos verificando duplicados
+ *
+ * @param casaActualizada Nombre de la casa rural si se han tomado sus datos del archivo (null si no)
+ * @param omitidos        Descripción de cada registro omitido por duplicado o por solaparse con otra reserva
+ * @param error           Error de lectura o al guardar; los registros incorporados antes del error se conservan
+ */
+public record ResultadoImportacion(int habitacionesAgregadas, int habitacionesDuplicadas,
+                                   int clientesAgregados, int clientesDuplicados,
+                                   int reservasAgregadas, int reservasDuplicadas, int reservasSolapadas,
+                                   String casaActualizada, List<String> omitidos, Exception error) {
+
+    public int totalAgregados() {
+        return habitacionesAgregadas + clientesAgregados + reservasAgregadas;
+    }
+
+    public int totalOmitidos() {
+        return habitacionesDuplicadas + clientesDuplicados + reservasDuplicadas + reservasSolapadas;
+    }
+}
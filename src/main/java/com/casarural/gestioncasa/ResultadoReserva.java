@@ -0,0 +1,14 @@
+package com.casarural.gestioncasa;
+
+/**
+ * Resultado de una solicitud de un lote de reservas
+ *
+ * @param reserva La reserva creada (null si se ha rechazado)
+ * @param motivo  Por qué se ha rechazado (null si se ha aceptado)
+ */
+public record ResultadoReserva(SolicitudReserva solicitud, Reserva reserva, String motivo) {
+
+    public boolean aceptada() {
+        return reserva != null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.casarural.gestioncasa;
+
+import java.time.LocalDateTime;
+
+/**
+ * Petición de reserva de un lote (por ejemplo, importada de un gestor de canales)
+ */
+public record SolicitudReserva(Cliente cliente, Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+}
@@ -0,0 +1,13 @@
+package com.casarural.gestioncasa.analitica;
+
+/**
+ * Cómo se reparten los indicadores de un informe
+ */
+public enum Agrupacion {
+    // Un solo grupo con todo el periodo
+    TOTAL,
+    // Un grupo por habitación
+    HABITACION,
+    // Un grupo por mes natural
+    MES
+}
@@ -0,0 +1,61 @@
+package com.casarural.gestioncasa.analitica;
+
+import com.casarural.gestioncasa.modelo.Dinero;
+
+/**
+ * Indicadores de ingresos y ocupación de un grupo (una habitación, un mes o el total).
+ *
+ * Las noches vendidas y los ingresos son los de las noches que caen dentro del
+ * periodo (el precio de una estancia se reparte a partes iguales entre sus
+ * noches). Las reservas, las cancelaciones y la estancia media cuentan las
+ * reservas que entran dentro del periodo, y lo cobrado, los pagos con fecha
+ * dentro del periodo.
+ *
+ * @param grupo Código de la habitación, mes (AAAA-MM) o "Total"
+ * @param reservas Reservas con entrada en el periodo, canceladas incluidas
+ * @param canceladas De ellas, las canceladas
+ * @param nochesEstancia Noches de las reservas no canceladas con entrada en el periodo (completas)
+ * @param nochesVendidas Noches ocupadas dentro del periodo
+ * @param nochesDisponibles Noches que se podían vender (habitaciones por días del periodo)
+ * @param ingresos Parte del precio de las reservas no canceladas que corresponde a las noches vendidas
+ * @param cobrado Importe de los pagos de las reservas no canceladas con fecha en el periodo
+ */
+public record Indicadores(String grupo, long reservas, long canceladas, long nochesEstancia, long nochesVendidas,
+                          long nochesDisponibles, Dinero ingresos, Dinero cobrado) {
+
+    /**
+     * @return Porcentaje de noches disponibles que se vendieron
+     */
+    public double ocupacion() {
+        return nochesDisponibles == 0 ? 0 : 100.0 * nochesVendidas / nochesDisponibles;
+    }
+
+    /**
+     * @return Precio medio por noche vendida (ADR)
+     */
+    public Dinero precioMedioNoche() {
+        return nochesVendidas == 0 ? Dinero.CERO : ingresos.dividir(nochesVendidas);
+    }
+
+    /**
+     * @return Ingresos por noche disponible (RevPAR)
+     */
+    public Dinero ingresosPorNocheDisponible() {
+        return nochesDisponibles == 0 ? Dinero.CERO : ingresos.dividir(nochesDisponibles);
+    }
+
+    /**
+     * @return Noches por reserva no cancelada
+     */
+    public double estanciaMedia() {
+        long noCanceladas = reservas - canceladas;
+        return noCanceladas == 0 ? 0 : (double) nochesEstancia / noCanceladas;
+    }
+
+    /**
+     * @return Porcentaje de reservas canceladas
+     */
+    public double tasaCancelacion() {
+        return reservas == 0 ? 0 : 100.0 * canceladas / reservas;
+    }
+}
@@ -0,0 +1,309 @@
+package com.casarural.gestioncasa.analitica;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Indicadores que se mantienen al día con cada cambio en lugar de recalcularse
+ * en cada consulta: ingresos por mes y por habitación, cobrado por método de
+ * pago, noches reservadas por habitación y mes y reservas por estado.
+ *
+ * Cada valor es un LongAdder, que reparte las sumas de hilos distintos en
+ * celdas separadas, así que las reservas que cambian a la vez no compiten por
+ * el mismo contador. Crear una reserva, cambiar su estado o su pago suma o
+ * resta en unos pocos contadores (uno por mes de la estancia) y consultar un
+ * valor solo suma las celdas de su contador.
+ *
+ * Los ingresos y las noches son los de las reservas no canceladas, con el
+ * precio repartido entre los meses por noches como en MotorAnalitica; lo
+ * cobrado, los pagos de las reservas no canceladas.
+ */
+public class IndicadoresEnVivo {
+    private static final String SIN_METODO = "Sin especificar";
+
+    // Se sustituyen enteras al reconstruir, sin parar a quien está actualizando
+    private volatile Tablas tablas = new Tablas();
+
+    /**
+     * Clave de las noches reservadas de una habitación en un mes
+     */
+    public record HabitacionMes(UUID habitacion, YearMonth mes) {
+    }
+
+    private static final class Tablas {
+        // En céntimos
+        private final Map<YearMonth, LongAdder> ingresosPorMes = new ConcurrentHashMap<>();
+        private final Map<UUID, LongAdder> ingresosPorHabitacion = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> cobradoPorMetodo = new ConcurrentHashMap<>();
+        private final Map<HabitacionMes, LongAdder> nochesPorHabitacionYMes = new ConcurrentHashMap<>();
+        // Todos los estados desde el principio: no cambia después de construirse
+        private final Map<EstadoReserva, LongAdder> reservasPorEstado = new EnumMap<>(EstadoReserva.class);
+
+        private Tablas() {
+            for (EstadoReserva estado : EstadoReserva.values()) {
+                reservasPorEstado.put(estado, new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Vuelve a calcular todos los indicadores a partir de las reservas
+     */
+    public void reconstruir(Collection<Reserva> reservas) {
+        Tablas nuevas = new Tablas();
+        for (Reserva reserva : reservas) {
+            agregar(nuevas, reserva);
+        }
+        tablas = nuevas;
+    }
+
+    // ===== ACTUALIZACIÓN =====
+
+    public void agregar(Reserva reserva) {
+        agregar(tablas, reserva);
+    }
+
+    /**
+     * Se llama con el monitor de la reserva tomado, así que el pago que se lee es el que acompaña al cambio
+     */
+    public void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) {
+        Tablas tablas = this.tablas;
+        contar(tablas, anterior, -1);
+        contar(tablas, nuevo, 1);
+        // Solo cambian los importes al entrar en CANCELADA o al salir de ella
+        if (activa(anterior) != activa(nuevo)) {
+            int signo = activa(nuevo) ? 1 : -1;
+            aportar(tablas, reserva, signo);
+            cobrar(tablas, reserva.getPago(), signo);
+        }
+    }
+
+    public void pagoCambiado(Reserva reserva, Pago anterior, Pago nuevo) {
+        if (activa(reserva.getEstado())) {
+            Tablas tablas = this.tablas;
+            cobrar(tablas, anterior, -1);
+            cobrar(tablas, nuevo, 1);
+        }
+    }
+
+    private static void agregar(Tablas tablas, Reserva reserva) {
+        contar(tablas, reserva.getEstado(), 1);
+        if (activa(reserva.getEstado())) {
+            aportar(tablas, reserva, 1);
+            cobrar(tablas, reserva.getPago(), 1);
+        }
+    }
+
+    private static boolean activa(EstadoReserva estado) {
+        return estado != EstadoReserva.CANCELADA;
+    }
+
+    private static void contar(Tablas tablas, EstadoReserva estado, int signo) {
+        if (estado != null) {
+            tablas.reservasPorEstado.get(estado).add(signo);
+        }
+    }
+
+    // Suma (o resta) el precio y las noches de la estancia, repartidos por meses
+    private static void aportar(Tablas tablas, Reserva reserva, int signo) {
+        LocalDateTime fechaInicio = reserva.getFechaInicio();
+        LocalDateTime fechaFin = reserva.getFechaFin();
+        if (fechaInicio == null || fechaFin == null) {
+            return;
+        }
+        long entrada = fechaInicio.toLocalDate().toEpochDay();
+        long salida = fechaFin.toLocalDate().toEpochDay();
+        long noches = salida - entrada;
+        if (noches <= 0) {
+            return;
+        }
+        long precio = reserva.getPrecioTotal() != null ? reserva.getPrecioTotal().centimos() : 0;
+        UUID habitacion = reserva.getHabitacion() != null ? reserva.getHabitacion().getId() : null;
+        if (habitacion != null) {
+            sumar(tablas.ingresosPorHabitacion, habitacion, signo * precio);
+        }
+        long dia = entrada;
+        while (dia < salida) {
+            YearMonth mes = YearMonth.from(LocalDate.ofEpochDay(dia));
+            long finTramo = Math.min(salida, mes.plusMonths(1).atDay(1).toEpochDay());
+            sumar(tablas.ingresosPorMes, mes, signo * MotorAnalitica.parte(precio, dia - entrada, finTramo - entrada, noches));
+            if (habitacion != null) {
+                sumar(tablas.nochesPorHabitacionYMes, new HabitacionMes(habitacion, mes), signo * (finTramo - dia));
+            }
+            dia = finTramo;
+        }
+    }
+
+    private static void cobrar(Tablas tablas, Pago pago, int signo) {
+        if (pago != null && pago.getImporte() != null) {
+            sumar(tablas.cobradoPorMetodo, metodo(pago.getMetodoPago()), signo * pago.getImporte().centimos());
+        }
+    }
+
+    private static String metodo(String metodoPago) {
+        return metodoPago != null && !metodoPago.isBlank() ? metodoPago.trim() : SIN_METODO;
+    }
+
+    private static <K> void sumar(Map<K, LongAdder> contadores, K clave, long valor) {
+        contadores.computeIfAbsent(clave, k -> new LongAdder()).add(valor);
+    }
+
+    // ===== CONSULTAS =====
+
+    public Dinero getIngresos(YearMonth mes) {
+        return Dinero.deCentimos(valor(tablas.ingresosPorMes, mes));
+    }
+
+    public Dinero getIngresos(Habitacion habitacion) {
+        return Dinero.deCentimos(valor(tablas.ingresosPorHabitacion, habitacion.getId()));
+    }
+
+    /**
+     * @param metodoPago Método tal como figura en el pago (por ejemplo "Tarjeta")
+     */
+    public Dinero getCobrado(String metodoPago) {
+        return Dinero.deCentimos(valor(tablas.cobradoPorMetodo, metodo(metodoPago)));
+    }
+
+    public long getNochesReservadas(Habitacion habitacion, YearMonth mes) {
+        return valor(tablas.nochesPorHabitacionYMes, new HabitacionMes(habitacion.getId(), mes));
+    }
+
+    public long getReservas(EstadoReserva estado) {
+        return tablas.reservasPorEstado.get(estado).sum();
+    }
+
+    /**
+     * @return Copia de los ingresos de cada mes con alguna noche reservada, en orden
+     */
+    public SortedMap<YearMonth, Dinero> getIngresosPorMes() {
+        return new TreeMap<>(copia(tablas.ingresosPorMes, Dinero::deCentimos));
+    }
+
+    /**
+     * @return Copia de los ingresos de cada habitación (por id) con alguna reserva
+     */
+    public Map<UUID, Dinero> getIngresosPorHabitacion() {
+        return copia(tablas.ingresosPorHabitacion, Dinero::deCentimos);
+    }
+
+    public Map<String, Dinero> getCobradoPorMetodo() {
+        return copia(tablas.cobradoPorMetodo, Dinero::deCentimos);
+    }
+
+    public Map<HabitacionMes, Long> getNochesPorHabitacionYMes() {
+        return copia(tablas.nochesPorHabitacionYMes, Long::valueOf);
+    }
+
+    public Map<EstadoReserva, Long> getReservasPorEstado() {
+        Map<EstadoReserva, Long> copia = new EnumMap<>(EstadoReserva.class);
+        tablas.reservasPorEstado.forEach((estado, contador) -> copia.put(estado, contador.sum()));
+        return copia;
+    }
+
+    private static <K> long valor(Map<K, LongAdder> contadores, K clave) {
+        LongAdder contador = contadores.get(clave);
+        return contador != null ? contador.sum() : 0;
+    }
+
+    // Los contadores que han vuelto a cero (p. ej. tras cancelar la única reserva del mes) no se copian
+    private static <K, V> Map<K, V> copia(Map<K, LongAdder> contadores, LongFunction<V> conversion) {
+        Map<K, V> copia = new HashMap<>();
+        contadores.forEach((clave, contador) -> {
+            long suma = contador.sum();
+            if (suma != 0) {
+                copia.put(clave, conversion.apply(suma));
+            }
+        });
+        return copia;
+    }
+
+    // ===== VERIFICACIÓN =====
+
+    /**
+     * Compara los indicadores con los que salen de recalcularlo todo desde las
+     * reservas, y los ingresos por mes y por habitación con los de MotorAnalitica.
+     * Si hay cambios en curso mientras se verifica puede dar diferencias pasajeras.
+     *
+     * @return Descripción de cada diferencia; vacía si todo cuadra
+     */
+    public List<String> verificar(Collection<Reserva> reservas, List<Habitacion> habitaciones) {
+        Tablas recalculadas = new Tablas();
+        for (Reserva reserva : reservas) {
+            agregar(recalculadas, reserva);
+        }
+        IndicadoresEnVivo esperado = new IndicadoresEnVivo();
+        esperado.tablas = recalculadas;
+
+        List<String> diferencias = new ArrayList<>();
+        comparar("Reservas", getReservasPorEstado(), esperado.getReservasPorEstado(), diferencias);
+        comparar("Ingresos", getIngresosPorMes(), esperado.getIngresosPorMes(), diferencias);
+        comparar("Ingresos de la habitación", getIngresosPorHabitacion(), esperado.getIngresosPorHabitacion(), diferencias);
+        comparar("Cobrado", getCobradoPorMetodo(), esperado.getCobradoPorMetodo(), diferencias);
+        comparar("Noches", getNochesPorHabitacionYMes(), esperado.getNochesPorHabitacionYMes(), diferencias);
+
+        // Los mismos importes calculados de otra forma: por periodos, con todas las reservas de cada mes
+        SortedMap<YearMonth, Dinero> porMes = esperado.getIngresosPorMes();
+        if (!porMes.isEmpty()) {
+            List<Reserva> lista = List.copyOf(reservas);
+            LocalDate desde = porMes.firstKey().atDay(1);
+            LocalDate hasta = porMes.lastKey().plusMonths(1).atDay(1);
+            Map<YearMonth, Dinero> motorPorMes = new HashMap<>();
+            for (Indicadores mes : MotorAnalitica.analizar(lista, habitaciones, desde, hasta, Agrupacion.MES).grupos()) {
+                if (mes.ingresos().signo() != 0) {
+                    motorPorMes.put(YearMonth.parse(mes.grupo()), mes.ingresos());
+                }
+            }
+            comparar("Ingresos (MotorAnalitica)", getIngresosPorMes(), motorPorMes, diferencias);
+
+            Map<String, UUID> idPorCodigo = new HashMap<>();
+            for (Habitacion habitacion : habitaciones) {
+                idPorCodigo.put(habitacion.getCodigo(), habitacion.getId());
+            }
+            Map<UUID, Dinero> actualPorHabitacion = new HashMap<>(getIngresosPorHabitacion());
+            actualPorHabitacion.keySet().retainAll(new HashSet<>(idPorCodigo.values()));
+            Map<UUID, Dinero> motorPorHabitacion = new HashMap<>();
+            for (Indicadores habitacion : MotorAnalitica.analizar(lista, habitaciones, desde, hasta, Agrupacion.HABITACION).grupos()) {
+                UUID id = idPorCodigo.get(habitacion.grupo());
+                if (id != null && habitacion.ingresos().signo() != 0) {
+                    motorPorHabitacion.put(id, habitacion.ingresos());
+                }
+            }
+            comparar("Ingresos de la habitación (MotorAnalitica)", actualPorHabitacion, motorPorHabitacion, diferencias);
+        }
+        return diferencias;
+    }
+
+    private static <K, V> void comparar(String indicador, Map<K, V> actual, Map<K, V> esperado, List<String> diferencias) {
+        Set<K> claves = new HashSet<>(actual.keySet());
+        claves.addAll(esperado.keySet());
+        for (K clave : claves) {
+            if (!Objects.equals(actual.get(clave), esperado.get(clave))) {
+                diferencias.add(indicador + " " + clave + ": " + actual.get(clave) + " al día, "
+                    + esperado.get(clave) + " recalculado");
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.casarural.gestioncasa.analitica;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Resultado de un análisis: los indicadores del periodo completo y los de cada grupo
+ *
+ * @param desde Primera noche del periodo
+ * @param hasta Día siguiente a la última noche del periodo
+ * @param grupos Por habitación (en el orden de la casa) o por mes; vacío si se agrupa en TOTAL
+ * @param reservasAnalizadas Reservas recorridas
+ */
+public record InformeAnalitica(LocalDate desde, LocalDate hasta, Agrupacion agrupacion, Indicadores total,
+                               List<Indicadores> grupos, int reservasAnalizadas) {
+}
@@ -0,0 +1,284 @@
+package com.casarural.gestioncasa.analitica;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Calcula los indicadores de ingresos y ocupación (ingresos, ocupación, precio
+ * medio por noche, ingresos por noche disponible, estancia media y tasa de
+ * cancelación) de un periodo, en total, por habitación o por mes.
+ *
+ * Las reservas se recorren una sola vez con un flujo paralelo: cada hilo suma
+ * en sus propios contadores (un long por grupo e indicador, los importes en
+ * céntimos) y al final se combinan, así que no hay cerrojos ni objetos por
+ * reserva. Las estancias que cruzan un cambio de mes o los límites del periodo
+ * se reparten por noches; el precio se reparte de forma que la suma de las
+ * partes es exactamente el precio de la estancia.
+ */
+public final class MotorAnalitica {
+    // Por debajo de este número de reservas no compensa repartir el trabajo entre hilos
+    private static final int MINIMO_PARALELO = 10_000;
+    private static final String TOTAL = "Total";
+    // Reservas de habitaciones que ya no están en la casa (al agrupar por habitación)
+    private static final String OTRAS = "(otras)";
+
+    private MotorAnalitica() {
+    }
+
+    /**
+     * @param reservas Reservas que se analizan (se pueden modificar entretanto: cada una se lee tal como esté)
+     * @param habitaciones Habitaciones que se ofrecen, para las noches disponibles
+     * @param desde Primera noche del periodo
+     * @param hasta Día siguiente a la última noche del periodo
+     */
+    public static InformeAnalitica analizar(List<Reserva> reservas, List<Habitacion> habitaciones, LocalDate desde,
+                                            LocalDate hasta, Agrupacion agrupacion) {
+        if (!hasta.isAfter(desde)) {
+            throw new IllegalArgumentException("El final del periodo debe ser posterior al inicio");
+        }
+        Grupos grupos = new Grupos(habitaciones, desde, hasta, agrupacion);
+        Stream<Reserva> flujo = reservas.size() >= MINIMO_PARALELO ? reservas.parallelStream() : reservas.stream();
+        Acumulador acumulado = flujo.collect(() -> new Acumulador(grupos), Acumulador::agregar, Acumulador::combinar);
+
+        List<Indicadores> porGrupo = new ArrayList<>(grupos.nombres.length);
+        for (int g = 0; g < grupos.nombres.length; g++) {
+            Indicadores indicadores = acumulado.indicadores(g, grupos.nombres[g], grupos.nochesDisponibles[g]);
+            // El grupo de otras habitaciones solo aparece si tiene algo
+            if (!grupos.esOtras(g) || indicadores.reservas() > 0 || indicadores.nochesVendidas() > 0
+                    || indicadores.cobrado().signo() != 0) {
+                porGrupo.add(indicadores);
+            }
+        }
+        Indicadores total = sumar(porGrupo);
+        return new InformeAnalitica(desde, hasta, agrupacion, total,
+            agrupacion == Agrupacion.TOTAL ? List.of() : porGrupo, reservas.size());
+    }
+
+    private static Indicadores sumar(List<Indicadores> grupos) {
+        long reservas = 0;
+        long canceladas = 0;
+        long nochesEstancia = 0;
+        long nochesVendidas = 0;
+        long nochesDisponibles = 0;
+        long ingresos = 0;
+        long cobrado = 0;
+        for (Indicadores grupo : grupos) {
+            reservas += grupo.reservas();
+            canceladas += grupo.canceladas();
+            nochesEstancia += grupo.nochesEstancia();
+            nochesVendidas += grupo.nochesVendidas();
+            nochesDisponibles += grupo.nochesDisponibles();
+            ingresos = grupo.ingresos().sumarA(ingresos);
+            cobrado = grupo.cobrado().sumarA(cobrado);
+        }
+        return new Indicadores(TOTAL, reservas, canceladas, nochesEstancia, nochesVendidas, nochesDisponibles,
+            Dinero.deCentimos(ingresos), Dinero.deCentimos(cobrado));
+    }
+
+    // Parte del precio que corresponde a las noches [desde, hasta) de una estancia de n noches
+    static long parte(long precio, long desde, long hasta, long noches) {
+        return Math.floorDiv(Math.multiplyExact(precio, hasta), noches) - Math.floorDiv(Math.multiplyExact(precio, desde), noches);
+    }
+
+    // ===== GRUPOS =====
+
+    // Reparto del periodo en grupos, común a todos los hilos (solo lectura)
+    private static final class Grupos {
+        private final Agrupacion agrupacion;
+        private final long primerDia;
+        private final long finPeriodo;
+        // Primer día de cada mes dentro del periodo y mes de cada día (al agrupar por mes)
+        private final long[] iniciosMes;
+        private final int[] mesDelDia;
+        private final Map<UUID, Integer> indiceHabitacion = new HashMap<>();
+        private final String[] nombres;
+        private final long[] nochesDisponibles;
+
+        private Grupos(List<Habitacion> habitaciones, LocalDate desde, LocalDate hasta, Agrupacion agrupacion) {
+            this.agrupacion = agrupacion;
+            this.primerDia = desde.toEpochDay();
+            this.finPeriodo = hasta.toEpochDay();
+            long dias = finPeriodo - primerDia;
+            switch (agrupacion) {
+                case TOTAL -> {
+                    iniciosMes = null;
+                    mesDelDia = null;
+                    nombres = new String[] {TOTAL};
+                    nochesDisponibles = new long[] {habitaciones.size() * dias};
+                }
+                case HABITACION -> {
+                    iniciosMes = null;
+                    mesDelDia = null;
+                    nombres = new String[habitaciones.size() + 1];
+                    nochesDisponibles = new long[nombres.length];
+                    for (int i = 0; i < habitaciones.size(); i++) {
+                        indiceHabitacion.put(habitaciones.get(i).getId(), i);
+                        nombres[i] = habitaciones.get(i).getCodigo();
+                        nochesDisponibles[i] = dias;
+                    }
+                    nombres[habitaciones.size()] = OTRAS;
+                }
+                case MES -> {
+                    List<YearMonth> meses = new ArrayList<>();
+                    for (YearMonth mes = YearMonth.from(desde); mes.atDay(1).isBefore(hasta); mes = mes.plusMonths(1)) {
+                        meses.add(mes);
+                    }
+                    iniciosMes = new long[meses.size()];
+                    mesDelDia = new int[Math.toIntExact(dias)];
+                    nombres = new String[meses.size()];
+                    nochesDisponibles = new long[meses.size()];
+                    for (int i = 0; i < meses.size(); i++) {
+                        iniciosMes[i] = Math.max(primerDia, meses.get(i).atDay(1).toEpochDay());
+                        nombres[i] = meses.get(i).toString();
+                    }
+                    for (int i = 0; i < meses.size(); i++) {
+                        nochesDisponibles[i] = habitaciones.size() * (finMes(i) - iniciosMes[i]);
+                        Arrays.fill(mesDelDia, (int) (iniciosMes[i] - primerDia), (int) (finMes(i) - primerDia), i);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Agrupación no válida: " + agrupacion);
+            }
+        }
+
+        private boolean esOtras(int grupo) {
+            return agrupacion == Agrupacion.HABITACION && grupo == nombres.length - 1;
+        }
+
+        private boolean enPeriodo(long dia) {
+            return dia >= primerDia && dia < finPeriodo;
+        }
+
+        // Grupo de la habitación de la reserva (solo se usa al agrupar por habitación)
+        private int habitacion(Reserva reserva) {
+            if (agrupacion != Agrupacion.HABITACION) {
+                return 0;
+            }
+            Habitacion habitacion = reserva.getHabitacion();
+            Integer indice = habitacion != null ? indiceHabitacion.get(habitacion.getId()) : null;
+            return indice != null ? indice : nombres.length - 1;
+        }
+
+        // Grupo de un día del periodo para una reserva de la habitación indicada
+        private int grupo(long dia, int habitacion) {
+            return switch (agrupacion) {
+                case TOTAL -> 0;
+                case HABITACION -> habitacion;
+                case MES -> mesDelDia[(int) (dia - primerDia)];
+            };
+        }
+
+        // Día siguiente al último del mes indicado dentro del periodo
+        private long finMes(int mes) {
+            return mes + 1 < iniciosMes.length ? iniciosMes[mes + 1] : finPeriodo;
+        }
+
+        // Día siguiente al último del grupo dentro del periodo (para repartir las estancias)
+        private long finGrupo(int grupo) {
+            return agrupacion == Agrupacion.MES ? finMes(grupo) : finPeriodo;
+        }
+    }
+
+    // ===== ACUMULACIÓN =====
+
+    // Contadores de un hilo: uno por grupo e indicador
+    private static final class Acumulador {
+        private final Grupos grupos;
+        private final long[] reservas;
+        private final long[] canceladas;
+        private final long[] nochesEstancia;
+        private final long[] nochesVendidas;
+        // En céntimos
+        private final long[] ingresos;
+        private final long[] cobrado;
+
+        private Acumulador(Grupos grupos) {
+            int numero = grupos.nombres.length;
+            this.grupos = grupos;
+            this.reservas = new long[numero];
+            this.canceladas = new long[numero];
+            this.nochesEstancia = new long[numero];
+            this.nochesVendidas = new long[numero];
+            this.ingresos = new long[numero];
+            this.cobrado = new long[numero];
+        }
+
+        private void agregar(Reserva reserva) {
+            LocalDateTime fechaInicio = reserva.getFechaInicio();
+            LocalDateTime fechaFin = reserva.getFechaFin();
+            if (fechaInicio == null || fechaFin == null) {
+                return;
+            }
+            long entrada = fechaInicio.toLocalDate().toEpochDay();
+            long salida = fechaFin.toLocalDate().toEpochDay();
+            long noches = salida - entrada;
+            if (noches <= 0) {
+                return;
+            }
+            boolean cancelada = reserva.getEstado() == EstadoReserva.CANCELADA;
+            int habitacion = grupos.habitacion(reserva);
+
+            if (grupos.enPeriodo(entrada)) {
+                int grupo = grupos.grupo(entrada, habitacion);
+                reservas[grupo]++;
+                if (cancelada) {
+                    canceladas[grupo]++;
+                } else {
+                    nochesEstancia[grupo] += noches;
+                }
+            }
+            if (cancelada) {
+                return;
+            }
+
+            Pago pago = reserva.getPago();
+            if (pago != null && pago.getFechaPago() != null && pago.getImporte() != null) {
+                long diaPago = pago.getFechaPago().toLocalDate().toEpochDay();
+                if (grupos.enPeriodo(diaPago)) {
+                    int grupo = grupos.grupo(diaPago, habitacion);
+                    cobrado[grupo] = pago.getImporte().sumarA(cobrado[grupo]);
+                }
+            }
+
+            long precio = reserva.getPrecioTotal() != null ? reserva.getPrecioTotal().centimos() : 0;
+            long dia = Math.max(entrada, grupos.primerDia);
+            long ultimo = Math.min(salida, grupos.finPeriodo);
+            while (dia < ultimo) {
+                int grupo = grupos.grupo(dia, habitacion);
+                long finTramo = Math.min(ultimo, grupos.finGrupo(grupo));
+                nochesVendidas[grupo] += finTramo - dia;
+                ingresos[grupo] = Math.addExact(ingresos[grupo], parte(precio, dia - entrada, finTramo - entrada, noches));
+                dia = finTramo;
+            }
+        }
+
+        private void combinar(Acumulador otro) {
+            for (int g = 0; g < reservas.length; g++) {
+                reservas[g] += otro.reservas[g];
+                canceladas[g] += otro.canceladas[g];
+                nochesEstancia[g] += otro.nochesEstancia[g];
+                nochesVendidas[g] += otro.nochesVendidas[g];
+                ingresos[g] = Math.addExact(ingresos[g], otro.ingresos[g]);
+                cobrado[g] = Math.addExact(cobrado[g], otro.cobrado[g]);
+            }
+        }
+
+        private Indicadores indicadores(int g, String nombre, long disponibles) {
+            return new Indicadores(nombre, reservas[g], canceladas[g], nochesEstancia[g], nochesVendidas[g], disponibles,
+                Dinero.deCentimos(ingresos[g]), Dinero.deCentimos(cobrado[g]));
+        }
+    }
+}
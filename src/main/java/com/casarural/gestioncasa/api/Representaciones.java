@@ -0,0 +1,216 @@
+package com.casarural.gestioncasa.api;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.analitica.Indicadores;
+import com.casarural.gestioncasa.analitica.IndicadoresEnVivo;
+import com.casarural.gestioncasa.analitica.InformeAnalitica;
+import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+import com.casarural.gestioncasa.pago.ResultadoCobro;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cuerpos JSON de las peticiones y respuestas de la API.
+ *
+ * Las respuestas nunca exponen las entidades directamente: se copian los
+ * datos públicos (sin CVV ni número de tarjeta completo) junto con la versión,
+ * que el cliente devuelve al modificar una reserva.
+ */
+final class Representaciones {
+
+    private Representaciones() {
+    }
+
+    // ===== RESPUESTAS =====
+
+    record HabitacionJson(UUID id, String codigo, String descripcion, int capacidad, Dinero precioNoche,
+                          boolean disponible, long version) {
+
+        static HabitacionJson de(Habitacion habitacion) {
+            return new HabitacionJson(habitacion.getId(), habitacion.getCodigo(), habitacion.getDescripcion(),
+                habitacion.getCapacidad(), habitacion.getPrecioNoche(), habitacion.isDisponible(), habitacion.getVersion());
+        }
+    }
+
+    /**
+     * Habitación libre en unas fechas, con el precio de la estancia según las reglas de tarifa
+     */
+    record HabitacionLibreJson(UUID id, String codigo, String descripcion, int capacidad, Dinero precioNoche,
+                               boolean disponible, long version, Dinero precioEstancia) {
+
+        static HabitacionLibreJson de(Habitacion habitacion, Dinero precioEstancia) {
+            return new HabitacionLibreJson(habitacion.getId(), habitacion.getCodigo(), habitacion.getDescripcion(),
+                habitacion.getCapacidad(), habitacion.getPrecioNoche(), habitacion.isDisponible(), habitacion.getVersion(),
+                precioEstancia);
+        }
+    }
+
+    record ClienteJson(UUID id, String nombre, String numeroDocumento, String email, String telefono, long version) {
+
+        static ClienteJson de(Cliente cliente) {
+            return new ClienteJson(cliente.getId(), cliente.getNombre(), cliente.getNumeroDocumento(),
+                cliente.getEmail(), cliente.getTelefono(), cliente.getVersion());
+        }
+    }
+
+    record PagoJson(UUID id, String metodoPago, Dinero importe, LocalDateTime fechaPago, String tarjeta) {
+
+        static PagoJson de(Pago pago) {
+            if (pago == null) {
+                return null;
+            }
+            String tarjeta = pago instanceof PagoTarjeta pagoTarjeta ? "**** " + pagoTarjeta.getUltimos4Digitos() : null;
+            return new PagoJson(pago.getId(), pago.getMetodoPago(), pago.getImporte(), pago.getFechaPago(), tarjeta);
+        }
+    }
+
+    record ReservaJson(UUID id, String cliente, String habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                       int noches, Dinero precioTotal, EstadoReserva estado, PagoJson pago, long version) {
+
+        static ReservaJson de(Reserva reserva) {
+            // Versión, estado y pago se leen con el monitor de la reserva: corresponden al mismo cambio
+            long version;
+            EstadoReserva estado;
+            Pago pago;
+            synchronized (reserva) {
+                version = reserva.getVersion();
+                estado = reserva.getEstado();
+                pago = reserva.getPago();
+            }
+            return new ReservaJson(reserva.getId(),
+                reserva.getCliente() != null ? reserva.getCliente().getNumeroDocumento() : null,
+                reserva.getHabitacion() != null ? reserva.getHabitacion().getCodigo() : null,
+                reserva.getFechaInicio(), reserva.getFechaFin(), reserva.getNoches(), reserva.getPrecioTotal(),
+                estado, PagoJson.de(pago), version);
+        }
+    }
+
+    /**
+     * Estado de un cobro con tarjeta: EN_CURSO, LIQUIDADO o RECHAZADO
+     */
+    record CobroJson(String clave, String estado, String referencia, String motivo, ReservaJson reserva) {
+
+        static CobroJson de(String clave, CompletableFuture<ResultadoCobro> cobro, Reserva reserva) {
+            ResultadoCobro resultado = cobro.getNow(null);
+            if (resultado == null) {
+                return new CobroJson(clave, "EN_CURSO", null, null, ReservaJson.de(reserva));
+            }
+            return new CobroJson(clave, resultado.aceptado() ? "LIQUIDADO" : "RECHAZADO",
+                resultado.referencia(), resultado.motivo(), ReservaJson.de(reserva));
+        }
+    }
+
+    /**
+     * Indicadores de un grupo con los valores derivados ya calculados (porcentajes con un decimal)
+     */
+    record IndicadoresJson(String grupo, long reservas, long canceladas, long nochesVendidas, long nochesDisponibles,
+                           Dinero ingresos, Dinero cobrado, double ocupacion, Dinero precioMedioNoche,
+                           Dinero ingresosPorNocheDisponible, double estanciaMedia, double tasaCancelacion) {
+
+        static IndicadoresJson de(Indicadores indicadores) {
+            return new IndicadoresJson(indicadores.grupo(), indicadores.reservas(), indicadores.canceladas(),
+                indicadores.nochesVendidas(), indicadores.nochesDisponibles(), indicadores.ingresos(),
+                indicadores.cobrado(), redondear(indicadores.ocupacion(), 10), indicadores.precioMedioNoche(),
+                indicadores.ingresosPorNocheDisponible(), redondear(indicadores.estanciaMedia(), 100),
+                redondear(indicadores.tasaCancelacion(), 10));
+        }
+
+        private static double redondear(double valor, int escala) {
+            return Math.round(valor * escala) / (double) escala;
+        }
+    }
+
+    record InformeJson(String desde, String hasta, Agrupacion agrupacion, int reservasAnalizadas, IndicadoresJson total,
+                       List<IndicadoresJson> grupos) {
+
+        static InformeJson de(InformeAnalitica informe) {
+            return new InformeJson(informe.desde().toString(), informe.hasta().toString(), informe.agrupacion(),
+                informe.reservasAnalizadas(), IndicadoresJson.de(informe.total()),
+                informe.grupos().stream().map(IndicadoresJson::de).toList());
+        }
+    }
+
+    /**
+     * Indicadores al día: habitaciones por código y meses como AAAA-MM
+     */
+    record ResumenJson(Map<EstadoReserva, Long> reservasPorEstado, Map<String, Dinero> ingresosPorMes,
+                       Map<String, Dinero> ingresosPorHabitacion, Map<String, Dinero> cobradoPorMetodo,
+                       Map<String, Map<String, Long>> nochesPorHabitacionYMes) {
+
+        static ResumenJson de(IndicadoresEnVivo indicadores, List<Habitacion> habitaciones) {
+            Map<UUID, String> codigos = new HashMap<>();
+            for (Habitacion habitacion : habitaciones) {
+                codigos.put(habitacion.getId(), habitacion.getCodigo());
+            }
+            Map<String, Dinero> ingresosPorMes = new LinkedHashMap<>();
+            indicadores.getIngresosPorMes().forEach((mes, importe) -> ingresosPorMes.put(mes.toString(), importe));
+            Map<String, Dinero> ingresosPorHabitacion = new TreeMap<>();
+            indicadores.getIngresosPorHabitacion().forEach((id, importe) ->
+                ingresosPorHabitacion.put(codigos.getOrDefault(id, id.toString()), importe));
+            Map<String, Map<String, Long>> noches = new TreeMap<>();
+            indicadores.getNochesPorHabitacionYMes().forEach((clave, total) ->
+                noches.computeIfAbsent(codigos.getOrDefault(clave.habitacion(), clave.habitacion().toString()), codigo -> new TreeMap<>())
+                    .put(clave.mes().toString(), total));
+            return new ResumenJson(indicadores.getReservasPorEstado(), ingresosPorMes, ingresosPorHabitacion,
+                new TreeMap<>(indicadores.getCobradoPorMetodo()), noches);
+        }
+    }
+
+    record ErrorJson(int estado, String error) {
+    }
+
+    // ===== PETICIONES =====
+
+    record NuevaHabitacion(String codigo, String descripcion, Integer capacidad, Dinero precioNoche) {
+    }
+
+    record NuevoCliente(String nombre, String numeroDocumento, String email, String telefono) {
+    }
+
+    /**
+     * @param cliente    Número de documento del cliente
+     * @param habitacion Código de la habitación
+     */
+    record NuevaReserva(String cliente, String habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+    }
+
+    /**
+     * @param version Versión leída de la reserva (o en la cabecera If-Match)
+     */
+    record CambioEstado(EstadoReserva estado, Long version) {
+    }
+
+    /**
+     * @param metodo  "efectivo" o "tarjeta"
+     * @param importe Importe entregado en efectivo (por defecto, el precio total)
+     * @param version Versión leída de la reserva (o en la cabecera If-Match)
+     */
+    record NuevoPago(String metodo, Dinero importe, String titular, String numeroTarjeta, String cvv,
+                     String fechaVencimiento, Long version) {
+
+        Pago crear(Dinero precioTotal) throws ImporteInvalidoExcepcion {
+            if ("efectivo".equalsIgnoreCase(metodo)) {
+                return new PagoEfectivo(precioTotal, "Efectivo", importe != null ? importe : precioTotal);
+            }
+            if ("tarjeta".equalsIgnoreCase(metodo)) {
+                return new PagoTarjeta(precioTotal, "Tarjeta", titular, numeroTarjeta, cvv, fechaVencimiento);
+            }
+            throw new IllegalArgumentException("Método de pago no válido: " + metodo + " (efectivo o tarjeta)");
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.casarural.gestioncasa.api;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.analitica.Agrupacion;
+import com.casarural.gestioncasa.api.Representaciones.CambioEstado;
+import com.casarural.gestioncasa.api.Representaciones.ClienteJson;
+import com.casarural.gestioncasa.api.Representaciones.CobroJson;
+import com.casarural.gestioncasa.api.Representaciones.ErrorJson;
+import com.casarural.gestioncasa.api.Representaciones.HabitacionJson;
+import com.casarural.gestioncasa.api.Representaciones.HabitacionLibreJson;
+import com.casarural.gestioncasa.api.Representaciones.InformeJson;
+import com.casarural.gestioncasa.api.Representaciones.NuevaHabitacion;
+import com.casarural.gestioncasa.api.Representaciones.NuevaReserva;
+import com.casarural.gestioncasa.api.Representaciones.NuevoCliente;
+import com.casarural.gestioncasa.api.Representaciones.NuevoPago;
+import com.casarural.gestioncasa.api.Representaciones.ReservaJson;
+import com.casarural.gestioncasa.api.Representaciones.ResumenJson;
+import com.casarural.gestioncasa.excepciones.ClaveIdempotenciaExcepcion;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.FechasInvalidasExcepcion;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.excepciones.RegistroDuplicadoExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+import com.casarural.gestioncasa.pago.ResultadoCobro;
+import com.casarural.gestioncasa.persistencia.DineroAdapter;
+import com.casarural.gestioncasa.persistencia.LocalDateTimeAdapter;
+import com.casarural.gestioncasa.tarifas.MotorTarifas;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * API JSON sobre HTTP para que otros sistemas (la web, el gestor de canales)
+ * trabajen con la casa rural sin pasar por la consola.
+ *
+ * Usa el servidor HTTP del JDK y atiende cada petición en su propio hilo
+ * virtual, así que una petición que espera (al disco del diario, al cerrojo
+ * de una habitación) no bloquea a las demás. Todas las operaciones van al
+ * núcleo del servicio, que ya es seguro para varios hilos. Por defecto solo
+ * escucha en la interfaz local, y los errores internos se responden con un 500
+ * genérico (el detalle queda en la salida de errores del servidor).
+ *
+ * Recursos:
+ * <pre>
+ *   GET    /habitaciones                     POST /habitaciones
+ *   GET    /habitaciones/{codigo}
+ *   GET    /clientes                         POST /clientes
+ *   GET    /clientes/{documento}             GET  /clientes/{documento}/reservas
+ *   GET    /reservas[?estado=PENDIENTE]      POST /reservas
+ *   GET    /reservas/{id}                    PUT  /reservas/{id}/estado
+ *   POST   /reservas/{id}/pago               DELETE /reservas/{id}/pago?version=N
+ *   GET    /disponibilidad?desde=AAAA-MM-DD&amp;hasta=AAAA-MM-DD
+ *   GET    /estadisticas?desde=AAAA-MM-DD&amp;hasta=AAAA-MM-DD[&amp;agrupacion=TOTAL|HABITACION|MES]
+ *   GET    /estadisticas/resumen
+ * </pre>
+ * Las fechas van en ISO (2026-01-01T14:00). Las modificaciones de una reserva
+ * (PUT estado, POST y DELETE pago) exigen la versión leída, en el cuerpo, en
+ * ?version=N o en la cabecera If-Match; sin ella responden 428, y 412 si la
+ * reserva ha cambiado desde entonces.
+ *
+ * Los pagos con tarjeta se cobran en segundo plano: el POST responde 202 con el
+ * estado del cobro sin esperar a la pasarela. Llevan obligatoriamente la cabecera
+ * Idempotency-Key (400 si falta): repetir el POST con la misma clave no vuelve a
+ * cobrar y devuelve el estado del cobro (200 cuando ha terminado).
+ */
+public class ServidorApi implements AutoCloseable {
+    // Hora de entrada y de salida cuando la disponibilidad se consulta por días
+    private static final int HORA_ENTRADA = 14;
+    private static final int HORA_SALIDA = 12;
+
+    private final GestionCasaRuralService servicio;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final Gson gson;
+
+    /**
+     * Escucha solo en la interfaz local (loopback)
+     * @param puerto Puerto de escucha (0 para uno libre cualquiera)
+     */
+    public ServidorApi(GestionCasaRuralService servicio, int puerto) throws IOException {
+        this(servicio, new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto));
+    }
+
+    /**
+     * @param direccion Interfaz y puerto de escucha; la API no tiene autenticación,
+     *                  así que solo debe abrirse a redes de confianza
+     */
+    public ServidorApi(GestionCasaRuralService servicio, InetSocketAddress direccion) throws IOException {
+        this.servicio = servicio;
+        this.gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Dinero.class, new DineroAdapter())
+            .serializeNulls()
+            .create();
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        this.servidor = HttpServer.create(direccion, 0);
+        this.servidor.setExecutor(hilos);
+        this.servidor.createContext("/habitaciones", exchange -> atender(exchange, this::habitaciones));
+        this.servidor.createContext("/clientes", exchange -> atender(exchange, this::clientes));
+        this.servidor.createContext("/reservas", exchange -> atender(exchange, this::reservas));
+        this.servidor.createContext("/disponibilidad", exchange -> atender(exchange, this::disponibilidad));
+        this.servidor.createContext("/estadisticas", exchange -> atender(exchange, this::estadisticas));
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * @return Puerto en el que escucha el servidor
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera hasta un segundo a que terminen las que están en curso
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        hilos.close();
+    }
+
+    // ===== ENRUTADO Y RESPUESTAS =====
+
+    private record Respuesta(int estado, Object cuerpo) {
+    }
+
+    private interface Recurso {
+        Respuesta atender(Peticion peticion) throws Exception;
+    }
+
+    /**
+     * Petición ya troceada: método, segmentos de la ruta tras el recurso y parámetros
+     */
+    private final class Peticion {
+        private final HttpExchange exchange;
+        private final String metodo;
+        private final List<String> ruta;
+        private final Map<String, String> parametros;
+
+        private Peticion(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.metodo = exchange.getRequestMethod();
+            String base = exchange.getHttpContext().getPath();
+            String resto = exchange.getRequestURI().getPath().substring(base.length());
+            this.ruta = resto.isEmpty() || resto.equals("/")
+                ? List.of()
+                : List.of(resto.replaceAll("^/|/$", "").split("/"));
+            this.parametros = parametros(exchange.getRequestURI().getRawQuery());
+        }
+
+        boolean es(String metodo, int segmentos) {
+            return this.metodo.equals(metodo) && ruta.size() == segmentos;
+        }
+
+        String segmento(int posicion) {
+            return URLDecoder.decode(ruta.get(posicion), StandardCharsets.UTF_8);
+        }
+
+        String parametro(String nombre) {
+            return parametros.get(nombre);
+        }
+
+        String cabecera(String nombre) {
+            return exchange.getRequestHeaders().getFirst(nombre);
+        }
+
+        <T> T cuerpo(Class<T> tipo) throws IOException {
+            try (Reader lector = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                T cuerpo = gson.fromJson(lector, tipo);
+                if (cuerpo == null) {
+                    throw new IllegalArgumentException("Falta el cuerpo JSON de la petición");
+                }
+                return cuerpo;
+            }
+        }
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    // Traduce las excepciones del núcleo a códigos HTTP
+    private void atender(HttpExchange exchange, Recurso recurso) throws IOException {
+        Respuesta respuesta;
+        try {
+            respuesta = recurso.atender(new Peticion(exchange));
+        } catch (RegistroDuplicadoExcepcion | HabitacionNoDisponibleExcepcion | EstadoReservaExcepcion e) {
+            respuesta = error(409, e.getMessage());
+        } catch (VersionObsoletaExcepcion e) {
+            respuesta = error(412, e.getMessage());
+        } catch (ClaveIdempotenciaExcepcion e) {
+            respuesta = error(422, e.getMessage());
+        } catch (FechasInvalidasExcepcion | ImporteInvalidoExcepcion | IllegalArgumentException
+                 | JsonParseException | DateTimeParseException e) {
+            respuesta = error(400, e.getMessage());
+        } catch (Exception e) {
+            // El detalle solo en el registro del servidor: puede incluir rutas, datos o clases internas
+            System.err.println("❌ Error atendiendo " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + ": " + e);
+            respuesta = error(500, "Error interno del servidor");
+        }
+        responder(exchange, respuesta);
+    }
+
+    private void responder(HttpExchange exchange, Respuesta respuesta) throws IOException {
+        try (exchange) {
+            if (respuesta.cuerpo() == null) {
+                exchange.sendResponseHeaders(respuesta.estado(), -1);
+                return;
+            }
+            byte[] json = gson.toJson(respuesta.cuerpo()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(respuesta.estado(), json.length);
+            try (OutputStream salida = exchange.getResponseBody()) {
+                salida.write(json);
+            }
+        }
+    }
+
+    private static Respuesta ok(Object cuerpo) {
+        return new Respuesta(200, cuerpo);
+    }
+
+    private static Respuesta creado(Object cuerpo) {
+        return new Respuesta(201, cuerpo);
+    }
+
+    private static Respuesta error(int estado, String mensaje) {
+        return new Respuesta(estado, new ErrorJson(estado, mensaje));
+    }
+
+    private static Respuesta noEncontrado(String que) {
+        return error(404, que + " no existe");
+    }
+
+    private static Respuesta rutaNoValida(Peticion peticion) {
+        return error(404, "Ruta no válida: " + peticion.metodo + " " + peticion.exchange.getRequestURI().getPath());
+    }
+
+    // ===== HABITACIONES =====
+
+    private Respuesta habitaciones(Peticion peticion) throws Exception {
+        if (peticion.es("GET", 0)) {
+            return ok(servicio.getHabitaciones().stream().map(HabitacionJson::de).toList());
+        }
+        if (peticion.es("GET", 1)) {
+            Habitacion habitacion = servicio.buscarHabitacion(peticion.segmento(0));
+            return habitacion != null ? ok(HabitacionJson.de(habitacion)) : noEncontrado("La habitación");
+        }
+        if (peticion.es("POST", 0)) {
+            NuevaHabitacion nueva = peticion.cuerpo(NuevaHabitacion.class);
+            if (nueva.codigo() == null || nueva.codigo().isBlank()) {
+                throw new IllegalArgumentException("Falta el código de la habitación");
+            }
+            if (nueva.capacidad() == null || nueva.capacidad() <= 0) {
+                throw new IllegalArgumentException("La capacidad debe ser mayor que cero");
+            }
+            Habitacion habitacion = servicio.darAltaHabitacion(nueva.codigo().trim(), nueva.descripcion(),
+                nueva.capacidad(), nueva.precioNoche());
+            return creado(HabitacionJson.de(habitacion));
+        }
+        return rutaNoValida(peticion);
+    }
+
+    // ===== CLIENTES =====
+
+    private Respuesta clientes(Peticion peticion) throws Exception {
+        if (peticion.es("GET", 0)) {
+            return ok(servicio.getClientes().stream().map(ClienteJson::de).toList());
+        }
+        if (peticion.es("GET", 1) || peticion.es("GET", 2)) {
+            Cliente cliente = servicio.buscarCliente(peticion.segmento(0));
+            if (cliente == null) {
+                return noEncontrado("El cliente");
+            }
+            if (peticion.ruta.size() == 1) {
+                return ok(ClienteJson.de(cliente));
+            }
+            if (peticion.segmento(1).equals("reservas")) {
+                return ok(servicio.getReservasCliente(cliente).stream().map(ReservaJson::de).toList());
+            }
+            return rutaNoValida(peticion);
+        }
+        if (peticion.es("POST", 0)) {
+            NuevoCliente nuevo = peticion.cuerpo(NuevoCliente.class);
+            // Las mismas reglas que al registrar un cliente por consola
+            if (nuevo.nombre() == null || !nuevo.nombre().trim().matches("^[a-zA-ZÀ-ÿ\\s]+$")) {
+                throw new IllegalArgumentException("El nombre solo puede contener letras y espacios");
+            }
+            if (nuevo.telefono() == null || !nuevo.telefono().trim().matches("^\\d+$")) {
+                throw new IllegalArgumentException("El teléfono solo puede contener números");
+            }
+            if (nuevo.numeroDocumento() == null || nuevo.numeroDocumento().isBlank()) {
+                throw new IllegalArgumentException("Falta el número de documento");
+            }
+            Cliente cliente = servicio.registrarCliente(nuevo.nombre().trim(), nuevo.numeroDocumento().trim(),
+                nuevo.email(), nuevo.telefono().trim());
+            return creado(ClienteJson.de(cliente));
+        }
+        return rutaNoValida(peticion);
+    }
+
+    // ===== RESERVAS Y PAGOS =====
+
+    private Respuesta reservas(Peticion peticion) throws Exception {
+        if (peticion.es("GET", 0)) {
+            String estado = peticion.parametro("estado");
+            List<Reserva> reservas = estado == null
+                ? servicio.getReservas()
+                : List.copyOf(servicio.getReservasPorEstado(EstadoReserva.valueOf(estado.toUpperCase())));
+            return ok(reservas.stream().map(ReservaJson::de).toList());
+        }
+        if (peticion.es("POST", 0)) {
+            NuevaReserva nueva = peticion.cuerpo(NuevaReserva.class);
+            Cliente cliente = servicio.buscarCliente(nueva.cliente());
+            if (cliente == null) {
+                return noEncontrado("El cliente " + nueva.cliente());
+            }
+            Habitacion habitacion = servicio.buscarHabitacion(nueva.habitacion());
+            if (habitacion == null) {
+                return noEncontrado("La habitación " + nueva.habitacion());
+            }
+            if (!habitacion.isDisponible()) {
+                return error(409, "La habitación " + habitacion.getCodigo() + " no está disponible");
+            }
+            if (nueva.fechaInicio() == null || nueva.fechaFin() == null) {
+                throw new IllegalArgumentException("Faltan las fechas de la reserva");
+            }
+            Reserva reserva = servicio.reservar(cliente, habitacion, nueva.fechaInicio(), nueva.fechaFin());
+            return creado(ReservaJson.de(reserva));
+        }
+        if (peticion.ruta.isEmpty()) {
+            return rutaNoValida(peticion);
+        }
+
+        Reserva reserva = servicio.buscarReserva(id(peticion.segmento(0)));
+        if (reserva == null) {
+            return noEncontrado("La reserva");
+        }
+        if (peticion.es("GET", 1)) {
+            return ok(ReservaJson.de(reserva));
+        }
+        if (peticion.es("PUT", 2) && peticion.segmento(1).equals("estado")) {
+            CambioEstado cambio = peticion.cuerpo(CambioEstado.class);
+            if (cambio.estado() == null) {
+                throw new IllegalArgumentException("Falta el nuevo estado");
+            }
+            Long version = version(peticion, cambio.version());
+            if (version == null) {
+                return versionRequerida();
+            }
+            servicio.cambiarEstado(reserva, cambio.estado(), version);
+            return ok(ReservaJson.de(reserva));
+        }
+        if (peticion.es("POST", 2) && peticion.segmento(1).equals("pago")) {
+            NuevoPago nuevo = peticion.cuerpo(NuevoPago.class);
+            Long version = version(peticion, nuevo.version());
+            if (version == null) {
+                return versionRequerida();
+            }
+            Pago pago = nuevo.crear(reserva.getPrecioTotal());
+            if (pago instanceof PagoTarjeta) {
+                // Sin clave, un reintento del cliente tras perder la respuesta cobraría dos veces
+                String clave = peticion.cabecera("Idempotency-Key");
+                if (clave == null || clave.isBlank()) {
+                    throw new IllegalArgumentException("Los pagos con tarjeta necesitan la cabecera Idempotency-Key"
+                        + " (la misma en cada reintento)");
+                }
+                CompletableFuture<ResultadoCobro> cobro = servicio.enviarPago(reserva, pago, version, clave);
+                CobroJson estado = CobroJson.de(clave, cobro, reserva);
+                return new Respuesta(estado.estado().equals("EN_CURSO") ? 202 : 200, estado);
+            }
+            servicio.asociarPago(reserva, pago, version);
+            return ok(ReservaJson.de(reserva));
+        }
+        if (peticion.es("DELETE", 2) && peticion.segmento(1).equals("pago")) {
+            String parametro = peticion.parametro("version");
+            Long version = version(peticion, parametro != null ? numeroVersion(parametro) : null);
+            if (version == null) {
+                return versionRequerida();
+            }
+            servicio.anularPago(reserva, version);
+            return ok(ReservaJson.de(reserva));
+        }
+        return rutaNoValida(peticion);
+    }
+
+    private static UUID id(String texto) {
+        try {
+            return UUID.fromString(texto);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Id de reserva no válido: " + texto);
+        }
+    }
+
+    // Versión leída por el cliente: la de la petición o, si no la trae, la de If-Match.
+    // No se supone nunca la actual, que pisaría los cambios que el cliente no ha visto
+    private static Long version(Peticion peticion, Long leida) {
+        if (leida != null) {
+            return leida;
+        }
+        String etiqueta = peticion.cabecera("If-Match");
+        if (etiqueta == null || etiqueta.isBlank()) {
+            return null;
+        }
+        etiqueta = etiqueta.trim();
+        if (etiqueta.startsWith("W/")) {
+            etiqueta = etiqueta.substring(2);
+        }
+        if (etiqueta.length() >= 2 && etiqueta.startsWith("\"") && etiqueta.endsWith("\"")) {
+            etiqueta = etiqueta.substring(1, etiqueta.length() - 1);
+        }
+        return numeroVersion(etiqueta);
+    }
+
+    private static long numeroVersion(String texto) {
+        try {
+            return Long.parseLong(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Versión no válida: " + texto);
+        }
+    }
+
+    private static Respuesta versionRequerida() {
+        return error(428, "Indique la versión leída de la reserva (campo version, ?version=N o cabecera If-Match)");
+    }
+
+    // ===== DISPONIBILIDAD =====
+
+    private Respuesta disponibilidad(Peticion peticion) {
+        if (!peticion.es("GET", 0)) {
+            return rutaNoValida(peticion);
+        }
+        String desde = peticion.parametro("desde");
+        String hasta = peticion.parametro("hasta");
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Indique las fechas: ?desde=AAAA-MM-DD&hasta=AAAA-MM-DD");
+        }
+        LocalDateTime inicio = LocalDate.parse(desde).atTime(HORA_ENTRADA, 0);
+        LocalDateTime fin = LocalDate.parse(hasta).atTime(HORA_SALIDA, 0);
+        if (!fin.isAfter(inicio)) {
+            throw new IllegalArgumentException("La fecha de salida debe ser posterior a la de entrada");
+        }
+        if (ChronoUnit.DAYS.between(inicio.toLocalDate(), fin.toLocalDate()) > MotorTarifas.ESTANCIA_MAXIMA) {
+            throw new IllegalArgumentException("La estancia no puede pasar de " + MotorTarifas.ESTANCIA_MAXIMA + " noches");
+        }
+        return ok(servicio.getHabitacionesLibres(inicio, fin).stream()
+            .map(habitacion -> HabitacionLibreJson.de(habitacion, servicio.cotizar(habitacion, inicio, fin)))
+            .toList());
+    }
+
+    // ===== ESTADÍSTICAS =====
+
+    // Ingresos y ocupación de las noches desde "desde" hasta el día anterior a "hasta",
+    // o los indicadores al día (resumen), que no recorren las reservas
+    private Respuesta estadisticas(Peticion peticion) {
+        if (peticion.es("GET", 1) && peticion.segmento(0).equals("resumen")) {
+            return ok(ResumenJson.de(servicio.getIndicadores(), servicio.getHabitaciones()));
+        }
+        if (!peticion.es("GET", 0)) {
+            return rutaNoValida(peticion);
+        }
+        String desde = peticion.parametro("desde");
+        String hasta = peticion.parametro("hasta");
+        if (desde == null || hasta == null) {
+            throw new IllegalArgumentException("Indique el periodo: ?desde=AAAA-MM-DD&hasta=AAAA-MM-DD");
+        }
+        return ok(InformeJson.de(servicio.analizar(LocalDate.parse(desde), LocalDate.parse(hasta),
+            agrupacion(peticion.parametro("agrupacion")))));
+    }
+
+    private static Agrupacion agrupacion(String nombre) {
+        if (nombre == null) {
+            return Agrupacion.TOTAL;
+        }
+        try {
+            return Agrupacion.valueOf(nombre.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Agrupación no válida: " + nombre + " (TOTAL, HABITACION o MES)");
+        }
+    }
+}
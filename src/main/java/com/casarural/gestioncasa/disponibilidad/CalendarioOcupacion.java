@@ -0,0 +1,193 @@
+package com.casarural.gestioncasa.disponibilidad;
+
+import com.casarural.gestioncasa.Habitacion;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendario de ocupación por noches: un BitSet por habitación indexado por
+ * día (bit encendido = noche ocupada).
+ *
+ * Una reserva ocupa las noches desde el día de entrada (incluido) hasta el de
+ * salida (excluido), igual que se calculan sus noches. Las consultas se
+ * resuelven con operaciones sobre palabras de 64 noches y las que abarcan
+ * toda la casa se reparten entre habitaciones en paralelo.
+ *
+ * Lo mantiene al día el MotorDisponibilidad. Cada BitSet se protege con su
+ * propio monitor, de modo que las consultas en paralelo no bloquean las
+ * reservas de las habitaciones que no están leyendo.
+ */
+public class CalendarioOcupacion {
+
+    /**
+     * Primer día representable: las noches anteriores no se registran
+     */
+    public static final LocalDate ORIGEN = LocalDate.of(2000, 1, 1);
+
+    /**
+     * Periodo de noches libres consecutivas entre desde (incluido) y hasta (excluido)
+     */
+    public record HuecoLibre(LocalDate desde, LocalDate hasta) {
+        public int noches() {
+            return (int) (hasta.toEpochDay() - desde.toEpochDay());
+        }
+    }
+
+    private final Map<UUID, BitSet> noches = new ConcurrentHashMap<>();
+
+    // ===== ACTUALIZACIÓN =====
+
+    void ocupar(UUID habitacion, LocalDate entrada, LocalDate salida) {
+        int desde = indice(entrada);
+        int hasta = indice(salida);
+        if (desde < hasta) {
+            BitSet ocupadas = noches.computeIfAbsent(habitacion, id -> new BitSet());
+            synchronized (ocupadas) {
+                ocupadas.set(desde, hasta);
+            }
+        }
+    }
+
+    void liberar(UUID habitacion, LocalDate entrada, LocalDate salida) {
+        BitSet ocupadas = noches.get(habitacion);
+        int desde = indice(entrada);
+        int hasta = indice(salida);
+        if (ocupadas != null && desde < hasta) {
+            synchronized (ocupadas) {
+                ocupadas.clear(desde, hasta);
+            }
+        }
+    }
+
+    void limpiar() {
+        noches.clear();
+    }
+
+    // ===== CONSULTAS POR HABITACIÓN =====
+
+    /**
+     * @return true si la habitación no tiene ninguna noche ocupada entre desde (incluido) y hasta (excluido)
+     */
+    public boolean estaLibre(Habitacion habitacion, LocalDate desde, LocalDate hasta) {
+        return libre(habitacion, indice(desde), indice(hasta));
+    }
+
+    /**
+     * @return Número de noches ocupadas de la habitación entre desde (incluido) y hasta (excluido)
+     */
+    public int nochesOcupadas(Habitacion habitacion, LocalDate desde, LocalDate hasta) {
+        return tramo(habitacion, indice(desde), indice(hasta)).cardinality();
+    }
+
+    /**
+     * @return El periodo libre más largo de la habitación entre desde y hasta, o null si está completa
+     */
+    public HuecoLibre huecoLibreMasLargo(Habitacion habitacion, LocalDate desde, LocalDate hasta) {
+        BitSet ocupadas = tramo(habitacion, indice(desde), indice(hasta));
+        int total = indice(hasta) - indice(desde);
+        int mejorInicio = -1;
+        int mejorLongitud = 0;
+        int libre = ocupadas.nextClearBit(0);
+        while (libre < total) {
+            int ocupada = ocupadas.nextSetBit(libre);
+            int fin = ocupada < 0 || ocupada > total ? total : ocupada;
+            if (fin - libre > mejorLongitud) {
+                mejorInicio = libre;
+                mejorLongitud = fin - libre;
+            }
+            if (fin == total) {
+                break;
+            }
+            libre = ocupadas.nextClearBit(fin);
+        }
+        if (mejorInicio < 0) {
+            return null;
+        }
+        LocalDate inicio = fecha(indice(desde) + mejorInicio);
+        return new HuecoLibre(inicio, inicio.plusDays(mejorLongitud));
+    }
+
+    // ===== CONSULTAS DE TODA LA CASA =====
+
+    /**
+     * @return Las habitaciones de la lista libres todas las noches entre desde y hasta
+     */
+    public List<Habitacion> habitacionesLibres(Collection<Habitacion> habitaciones, LocalDate desde, LocalDate hasta) {
+        int inicio = indice(desde);
+        int fin = indice(hasta);
+        return habitaciones.parallelStream()
+            .filter(habitacion -> libre(habitacion, inicio, fin))
+            .toList();
+    }
+
+    /**
+     * @return Número de habitaciones ocupadas cada noche entre desde (posición 0) y hasta (excluido)
+     */
+    public int[] ocupacionPorNoche(Collection<Habitacion> habitaciones, LocalDate desde, LocalDate hasta) {
+        int inicio = indice(desde);
+        int total = Math.max(0, indice(hasta) - inicio);
+        return habitaciones.parallelStream()
+            .map(habitacion -> tramo(habitacion, inicio, inicio + total))
+            .collect(() -> new int[total],
+                (cuenta, ocupadas) -> ocupadas.stream().forEach(noche -> cuenta[noche]++),
+                (cuenta, otra) -> {
+                    for (int i = 0; i < total; i++) {
+                        cuenta[i] += otra[i];
+                    }
+                });
+    }
+
+    /**
+     * @return Fracción (0 a 1) de noches ocupadas de las habitaciones entre desde y hasta
+     */
+    public double tasaOcupacion(Collection<Habitacion> habitaciones, LocalDate desde, LocalDate hasta) {
+        int inicio = indice(desde);
+        int fin = indice(hasta);
+        long posibles = (long) habitaciones.size() * Math.max(0, fin - inicio);
+        if (posibles == 0) {
+            return 0;
+        }
+        long ocupadas = habitaciones.parallelStream()
+            .mapToLong(habitacion -> tramo(habitacion, inicio, fin).cardinality())
+            .sum();
+        return (double) ocupadas / posibles;
+    }
+
+    private boolean libre(Habitacion habitacion, int desde, int hasta) {
+        BitSet ocupadas = noches.get(habitacion.getId());
+        if (ocupadas == null) {
+            return true;
+        }
+        int siguiente;
+        synchronized (ocupadas) {
+            siguiente = ocupadas.nextSetBit(desde);
+        }
+        return siguiente < 0 || siguiente >= hasta;
+    }
+
+    // Copia de las noches [desde, hasta) de la habitación, desplazadas a la posición 0
+    private BitSet tramo(Habitacion habitacion, int desde, int hasta) {
+        BitSet ocupadas = noches.get(habitacion.getId());
+        if (ocupadas == null || desde >= hasta) {
+            return new BitSet();
+        }
+        synchronized (ocupadas) {
+            return ocupadas.get(desde, hasta);
+        }
+    }
+
+    private static int indice(LocalDate fecha) {
+        long dias = fecha.toEpochDay() - ORIGEN.toEpochDay();
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE - 1, dias));
+    }
+
+    private static LocalDate fecha(int indice) {
+        return ORIGEN.plusDays(indice);
+    }
+}
@@ -0,0 +1,47 @@
+package com.casarural.gestioncasa.disponibilidad;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cerrojos por franjas: cada habitación se asigna por su id a uno de un
+ * número fijo de cerrojos, de modo que las operaciones sobre habitaciones
+ * distintas rara vez compiten entre sí y no hace falta un cerrojo por
+ * habitación.
+ */
+class CerrojosHabitacion {
+    private final ReentrantLock[] franjas;
+
+    /**
+     * @param numero Número de franjas (se redondea a potencia de dos)
+     */
+    CerrojosHabitacion(int numero) {
+        int tamano = Integer.highestOneBit(Math.max(1, numero - 1)) << 1;
+        this.franjas = new ReentrantLock[tamano];
+        for (int i = 0; i < tamano; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock de(UUID habitacion) {
+        int hash = habitacion.hashCode();
+        // Mezclar los bits altos: los UUID aleatorios no reparten bien los bajos del hashCode
+        hash ^= (hash >>> 16);
+        return franjas[hash & (franjas.length - 1)];
+    }
+
+    /**
+     * Toma todas las franjas en orden (para reconstruir la ocupación completa)
+     */
+    void bloquearTodas() {
+        for (ReentrantLock franja : franjas) {
+            franja.lock();
+        }
+    }
+
+    void desbloquearTodas() {
+        for (int i = franjas.length - 1; i >= 0; i--) {
+            franjas[i].unlock();
+        }
+    }
+}
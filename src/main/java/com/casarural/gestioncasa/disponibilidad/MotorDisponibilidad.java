@@ -0,0 +1,279 @@
+package com.casarural.gestioncasa.disponibilidad;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Disponibilidad de las habitaciones por fechas.
+ *
+ * Mantiene, para cada habitación, sus reservas no canceladas ordenadas por
+ * fecha de inicio, de modo que saber si una habitación está libre entre dos
+ * fechas cuesta una búsqueda logarítmica. El servicio lo alimenta al crear
+ * reservas y al cambiar su estado (las canceladas dejan la habitación libre).
+ * Con cada cambio actualiza también el calendario de ocupación por noches.
+ *
+ * Es seguro para varios hilos: cada habitación se protege con su cerrojo
+ * (por franjas), así que las reservas de habitaciones distintas avanzan en
+ * paralelo y comprobar y ocupar unas fechas es una sola operación atómica.
+ */
+public class MotorDisponibilidad {
+    private static final int FRANJAS = 64;
+
+    private final Map<UUID, OcupacionHabitacion> ocupaciones = new ConcurrentHashMap<>();
+    private final CerrojosHabitacion cerrojos = new CerrojosHabitacion(FRANJAS);
+    private final CalendarioOcupacion calendario = new CalendarioOcupacion();
+
+    /**
+     * Calendario de noches ocupadas, para informes de ocupación de toda la casa
+     */
+    public CalendarioOcupacion getCalendario() {
+        return calendario;
+    }
+
+    /**
+     * Vuelve a construir la ocupación a partir de todas las reservas.
+     * Las reservas que ya se solapaban al guardarse se conservan tal cual.
+     */
+    public void reconstruir(Collection<Reserva> reservas) {
+        cerrojos.bloquearTodas();
+        try {
+            ocupaciones.clear();
+            calendario.limpiar();
+            for (Reserva reserva : reservas) {
+                registrar(reserva);
+            }
+        } finally {
+            cerrojos.desbloquearTodas();
+        }
+    }
+
+    // ===== ALTAS Y BAJAS =====
+
+    /**
+     * Ocupa las fechas de una reserva nueva si la habitación está libre.
+     * La comprobación y la ocupación se hacen bajo el cerrojo de la habitación.
+     * Las reservas canceladas no ocupan la habitación.
+     * @throws HabitacionNoDisponibleExcepcion Si otra reserva ocupa alguna de las fechas
+     */
+    public void reservar(Reserva reserva) throws HabitacionNoDisponibleExcepcion {
+        if (!ocupa(reserva)) {
+            return;
+        }
+        ReentrantLock cerrojo = cerrojos.de(reserva.getHabitacion().getId());
+        cerrojo.lock();
+        try {
+            OcupacionHabitacion ocupacion = ocupaciones.get(reserva.getHabitacion().getId());
+            Reserva conflicto = ocupacion != null
+                ? ocupacion.primerSolape(reserva.getFechaInicio(), reserva.getFechaFin(), reserva)
+                : null;
+            if (conflicto != null) {
+                throw new HabitacionNoDisponibleExcepcion("La habitación " + reserva.getHabitacion().getCodigo()
+                    + " ya está reservada del " + conflicto.getFechaInicio().toLocalDate()
+                    + " al " + conflicto.getFechaFin().toLocalDate());
+            }
+            registrar(reserva);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Ocupa las fechas de un lote de reservas nuevas. Las reservas se agrupan
+     * por habitación y se ordenan por fecha de inicio; cada habitación se
+     * recorre una sola vez, con su cerrojo tomado, comparando a la vez con sus
+     * reservas existentes y con las del lote ya aceptadas. Una reserva se
+     * rechaza si se solapa con cualquiera de ellas.
+     * @return Las reservas rechazadas, cada una con la reserva que ocupa sus fechas
+     */
+    public Map<Reserva, Reserva> reservarLote(Collection<Reserva> reservas) {
+        Map<UUID, List<Reserva>> porHabitacion = new HashMap<>();
+        for (Reserva reserva : reservas) {
+            if (ocupa(reserva)) {
+                porHabitacion.computeIfAbsent(reserva.getHabitacion().getId(), id -> new ArrayList<>()).add(reserva);
+            }
+        }
+
+        Map<Reserva, Reserva> rechazadas = new HashMap<>();
+        for (Map.Entry<UUID, List<Reserva>> grupo : porHabitacion.entrySet()) {
+            List<Reserva> lote = grupo.getValue();
+            lote.sort(Comparator.comparing(Reserva::getFechaInicio));
+            ReentrantLock cerrojo = cerrojos.de(grupo.getKey());
+            cerrojo.lock();
+            try {
+                barrer(grupo.getKey(), lote, rechazadas);
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+        return rechazadas;
+    }
+
+    // Recorre a la vez el lote (ordenado) y las reservas existentes en las fechas del lote.
+    // "ocupante" es, de lo ya visto que empieza antes, lo que termina más tarde: si acaba
+    // después de la entrada de la reserva, se solapan; si no, solo puede solaparse la
+    // siguiente existente, cuando empieza antes de la salida.
+    private void barrer(UUID habitacion, List<Reserva> lote, Map<Reserva, Reserva> rechazadas) {
+        LocalDateTime desde = lote.get(0).getFechaInicio();
+        LocalDateTime hasta = desde;
+        for (Reserva reserva : lote) {
+            if (reserva.getFechaFin().isAfter(hasta)) {
+                hasta = reserva.getFechaFin();
+            }
+        }
+        OcupacionHabitacion ocupacion = ocupaciones.get(habitacion);
+        List<Reserva> existentes = ocupacion != null ? ocupacion.solapes(desde, hasta) : List.of();
+
+        int siguiente = 0;
+        Reserva ocupante = null;
+        for (Reserva reserva : lote) {
+            while (siguiente < existentes.size() && !existentes.get(siguiente).getFechaInicio().isAfter(reserva.getFechaInicio())) {
+                ocupante = terminaDespues(existentes.get(siguiente++), ocupante);
+            }
+            Reserva conflicto = null;
+            if (ocupante != null && ocupante.getFechaFin().isAfter(reserva.getFechaInicio())) {
+                conflicto = ocupante;
+            } else if (siguiente < existentes.size() && existentes.get(siguiente).getFechaInicio().isBefore(reserva.getFechaFin())) {
+                conflicto = existentes.get(siguiente);
+            }
+            if (conflicto != null) {
+                rechazadas.put(reserva, conflicto);
+            } else {
+                registrar(reserva);
+                ocupante = terminaDespues(reserva, ocupante);
+            }
+        }
+    }
+
+    private static Reserva terminaDespues(Reserva reserva, Reserva otra) {
+        return otra == null || reserva.getFechaFin().isAfter(otra.getFechaFin()) ? reserva : otra;
+    }
+
+    /**
+     * Libera las fechas de una reserva (por ejemplo, al cancelarla o eliminarla)
+     */
+    public void liberar(Reserva reserva) {
+        if (reserva.getHabitacion() == null || reserva.getHabitacion().getId() == null || reserva.getFechaInicio() == null) {
+            return;
+        }
+        ReentrantLock cerrojo = cerrojos.de(reserva.getHabitacion().getId());
+        cerrojo.lock();
+        try {
+            quitar(reserva);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Actualiza la ocupación tras un cambio de estado: cancelar libera las
+     * fechas y reactivar una reserva cancelada las vuelve a ocupar.
+     */
+    public void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) {
+        if (reserva.getHabitacion() == null || reserva.getHabitacion().getId() == null) {
+            return;
+        }
+        ReentrantLock cerrojo = cerrojos.de(reserva.getHabitacion().getId());
+        cerrojo.lock();
+        try {
+            if (nuevo == EstadoReserva.CANCELADA && anterior != EstadoReserva.CANCELADA) {
+                quitar(reserva);
+            } else if (anterior == EstadoReserva.CANCELADA && nuevo != EstadoReserva.CANCELADA) {
+                // El cambio ya está hecho: se registra aunque se solape con otra reserva
+                registrar(reserva);
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    // Los métodos siguientes se llaman con el cerrojo de la habitación tomado
+
+    // Registra la reserva sin comprobar solapes
+    private void registrar(Reserva reserva) {
+        if (ocupa(reserva)) {
+            UUID habitacion = reserva.getHabitacion().getId();
+            ocupaciones.computeIfAbsent(habitacion, id -> new OcupacionHabitacion()).agregar(reserva);
+            calendario.ocupar(habitacion, reserva.getFechaInicio().toLocalDate(), reserva.getFechaFin().toLocalDate());
+        }
+    }
+
+    private void quitar(Reserva reserva) {
+        UUID habitacion = reserva.getHabitacion().getId();
+        OcupacionHabitacion ocupacion = ocupaciones.get(habitacion);
+        if (ocupacion == null || !ocupacion.quitar(reserva)) {
+            return;
+        }
+        calendario.liberar(habitacion, reserva.getFechaInicio().toLocalDate(), reserva.getFechaFin().toLocalDate());
+        // Las reservas que ya se solapaban con ella siguen ocupando sus noches
+        for (Reserva solapada : ocupacion.solapes(reserva.getFechaInicio(), reserva.getFechaFin())) {
+            calendario.ocupar(habitacion, solapada.getFechaInicio().toLocalDate(), solapada.getFechaFin().toLocalDate());
+        }
+        if (ocupacion.isEmpty()) {
+            ocupaciones.remove(habitacion);
+        }
+    }
+
+    // Solo las reservas completas y no canceladas ocupan la habitación
+    private static boolean ocupa(Reserva reserva) {
+        return reserva.getEstado() != EstadoReserva.CANCELADA
+            && reserva.getHabitacion() != null && reserva.getHabitacion().getId() != null
+            && reserva.getFechaInicio() != null && reserva.getFechaFin() != null
+            && reserva.getFechaFin().isAfter(reserva.getFechaInicio());
+    }
+
+    // ===== CONSULTAS =====
+
+    /**
+     * @return true si ninguna reserva ocupa la habitación entre inicio (incluido) y fin (excluido)
+     */
+    public boolean estaLibre(Habitacion habitacion, LocalDateTime inicio, LocalDateTime fin) {
+        ReentrantLock cerrojo = cerrojos.de(habitacion.getId());
+        cerrojo.lock();
+        try {
+            OcupacionHabitacion ocupacion = ocupaciones.get(habitacion.getId());
+            return ocupacion == null || ocupacion.primerSolape(inicio, fin, null) == null;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * @return Las habitaciones de la lista que están libres entre inicio y fin
+     */
+    public List<Habitacion> habitacionesLibres(Collection<Habitacion> habitaciones, LocalDateTime inicio, LocalDateTime fin) {
+        List<Habitacion> libres = new ArrayList<>();
+        for (Habitacion habitacion : habitaciones) {
+            if (estaLibre(habitacion, inicio, fin)) {
+                libres.add(habitacion);
+            }
+        }
+        return libres;
+    }
+
+    /**
+     * @return Las reservas que ocupan la habitación entre inicio y fin, por fecha de inicio
+     */
+    public List<Reserva> reservasEntre(Habitacion habitacion, LocalDateTime inicio, LocalDateTime fin) {
+        ReentrantLock cerrojo = cerrojos.de(habitacion.getId());
+        cerrojo.lock();
+        try {
+            OcupacionHabitacion ocupacion = ocupaciones.get(habitacion.getId());
+            return ocupacion != null ? ocupacion.solapes(inicio, fin) : List.of();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+}
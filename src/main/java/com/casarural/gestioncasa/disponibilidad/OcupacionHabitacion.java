@@ -0,0 +1,92 @@
+package com.casarural.gestioncasa.disponibilidad;
+
+import com.casarural.gestioncasa.Reserva;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Reservas no canceladas de una habitación ordenadas por fecha de inicio.
+ *
+ * Cada reserva ocupa el intervalo [fechaInicio, fechaFin): la salida de una
+ * reserva y la entrada de la siguiente pueden coincidir. Para encontrar los
+ * solapes con [inicio, fin) basta con recorrer las reservas que empiezan
+ * entre (inicio - duración máxima) y fin, lo que con reservas sin solapes
+ * entre sí es una búsqueda logarítmica más unas pocas comparaciones.
+ */
+class OcupacionHabitacion {
+
+    /**
+     * Clave de orden: fecha de inicio y, para las que empiezan a la vez, el id
+     */
+    private record Tramo(LocalDateTime inicio, UUID id) implements Comparable<Tramo> {
+        private static final Comparator<Tramo> ORDEN = Comparator.comparing(Tramo::inicio)
+            .thenComparing(Tramo::id, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        @Override
+        public int compareTo(Tramo otro) {
+            return ORDEN.compare(this, otro);
+        }
+    }
+
+    private final TreeMap<Tramo, Reserva> tramos = new TreeMap<>();
+    // Duración de la reserva más larga registrada (no se reduce al quitar reservas)
+    private Duration duracionMaxima = Duration.ZERO;
+
+    void agregar(Reserva reserva) {
+        tramos.put(new Tramo(reserva.getFechaInicio(), reserva.getId()), reserva);
+        Duration duracion = Duration.between(reserva.getFechaInicio(), reserva.getFechaFin());
+        if (duracion.compareTo(duracionMaxima) > 0) {
+            duracionMaxima = duracion;
+        }
+    }
+
+    boolean quitar(Reserva reserva) {
+        return tramos.remove(new Tramo(reserva.getFechaInicio(), reserva.getId()), reserva);
+    }
+
+    boolean isEmpty() {
+        return tramos.isEmpty();
+    }
+
+    /**
+     * @param ignorar Reserva que no se tiene en cuenta (puede ser null)
+     * @return La primera reserva que se solapa con [inicio, fin) o null si no hay ninguna
+     */
+    Reserva primerSolape(LocalDateTime inicio, LocalDateTime fin, Reserva ignorar) {
+        for (Reserva reserva : candidatas(inicio, fin)) {
+            if (reserva != ignorar && reserva.getFechaFin().isAfter(inicio)) {
+                return reserva;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Las reservas que se solapan con [inicio, fin), por fecha de inicio
+     */
+    List<Reserva> solapes(LocalDateTime inicio, LocalDateTime fin) {
+        List<Reserva> resultado = new ArrayList<>();
+        for (Reserva reserva : candidatas(inicio, fin)) {
+            if (reserva.getFechaFin().isAfter(inicio)) {
+                resultado.add(reserva);
+            }
+        }
+        return resultado;
+    }
+
+    // Reservas que empiezan en [inicio - duración máxima, fin): las únicas que pueden solaparse
+    private Iterable<Reserva> candidatas(LocalDateTime inicio, LocalDateTime fin) {
+        if (!fin.isAfter(inicio)) {
+            return List.of();
+        }
+        Tramo desde = new Tramo(inicio.minus(duracionMaxima), null);
+        Tramo hasta = new Tramo(fin, null);
+        return tramos.subMap(desde, true, hasta, false).values();
+    }
+}
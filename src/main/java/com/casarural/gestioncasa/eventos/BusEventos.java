@@ -0,0 +1,242 @@
+package com.casarural.gestioncasa.eventos;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bus de eventos del dominio sobre un búfer circular de tamaño fijo.
+ *
+ * Publicar no toma cerrojos ni espera nunca: cada publicación reserva su
+ * número de secuencia con un incremento atómico y escribe el evento en la
+ * celda que le corresponde. Cada suscriptor lee a su ritmo desde su propio
+ * hilo y recibe los eventos por lotes (todos los disponibles, hasta un
+ * máximo), así que un suscriptor lento acumula lotes más grandes en lugar de
+ * frenar a quien publica.
+ *
+ * Si un suscriptor se retrasa más que la capacidad del búfer, los eventos más
+ * antiguos se sobrescriben: al detectarlo, el suscriptor salta a los más
+ * recientes y se le avisa de cuántos ha perdido para que se resincronice.
+ */
+public class BusEventos implements Closeable {
+    private static final int MAXIMO_LOTE = 256;
+    // Espera máxima de un suscriptor sin eventos antes de volver a mirar (por si se pierde un aviso)
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // Evento junto con su secuencia: se escriben juntos para que el lector
+    // nunca vea el evento de una vuelta con la secuencia de otra
+    private record Celda(long secuencia, EventoDominio evento) {
+    }
+
+    private final AtomicReferenceArray<Celda> celdas;
+    private final int mascara;
+    // Siguiente secuencia que se reservará al publicar
+    private final AtomicLong cursor = new AtomicLong();
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param capacidad Eventos que caben en el búfer (se redondea a potencia de dos)
+     */
+    public BusEventos(int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad) - 1) << 1;
+        this.celdas = new AtomicReferenceArray<>(tamano);
+        this.mascara = tamano - 1;
+    }
+
+    public int getCapacidad() {
+        return celdas.length();
+    }
+
+    /**
+     * @return Número de eventos publicados desde que se creó el bus
+     */
+    public long getPublicados() {
+        return cursor.get();
+    }
+
+    // ===== PUBLICACIÓN =====
+
+    /**
+     * Publica el evento sin esperar a ningún suscriptor
+     */
+    public void publicar(EventoDominio evento) {
+        long secuencia = cursor.getAndIncrement();
+        int indice = (int) (secuencia & mascara);
+        Celda celda = new Celda(secuencia, evento);
+        // Un publicador muy retrasado no debe pisar el evento de una vuelta posterior
+        Celda actual;
+        do {
+            actual = celdas.get(indice);
+            if (actual != null && actual.secuencia() > secuencia) {
+                return;
+            }
+        } while (!celdas.compareAndSet(indice, actual, celda));
+
+        for (Suscripcion suscripcion : suscripciones) {
+            suscripcion.despertar();
+        }
+    }
+
+    // ===== SUSCRIPCIONES =====
+
+    /**
+     * Registra un suscriptor, que recibirá los eventos publicados a partir de
+     * ahora en su propio hilo
+     */
+    public Suscripcion suscribir(String nombre, SuscriptorEventos suscriptor) {
+        Suscripcion suscripcion = new Suscripcion(nombre, suscriptor, cursor.get());
+        suscripciones.add(suscripcion);
+        suscripcion.hilo.start();
+        return suscripcion;
+    }
+
+    /**
+     * Detiene todas las suscripciones. Cada una entrega antes los eventos que ya tenía disponibles.
+     */
+    @Override
+    public void close() {
+        for (Suscripcion suscripcion : suscripciones) {
+            suscripcion.close();
+        }
+    }
+
+    /**
+     * Lector de un suscriptor: lleva su propia posición en el búfer
+     */
+    public class Suscripcion implements Closeable {
+        private final SuscriptorEventos suscriptor;
+        private final Thread hilo;
+        // Siguiente secuencia por leer (solo la escribe el hilo de la suscripción)
+        private volatile long siguiente;
+        private volatile boolean esperando;
+        private volatile boolean activa = true;
+        private final AtomicLong perdidos = new AtomicLong();
+        private volatile RuntimeException ultimoError;
+
+        private Suscripcion(String nombre, SuscriptorEventos suscriptor, long desde) {
+            this.suscriptor = suscriptor;
+            this.siguiente = desde;
+            this.hilo = Thread.ofPlatform().name("eventos-" + nombre).daemon().unstarted(this::consumir);
+        }
+
+        /**
+         * @return Eventos publicados que el suscriptor todavía no ha procesado
+         */
+        public long getPendientes() {
+            return Math.max(0, cursor.get() - siguiente);
+        }
+
+        /**
+         * @return Eventos que se sobrescribieron antes de que el suscriptor los leyera
+         */
+        public long getPerdidos() {
+            return perdidos.get();
+        }
+
+        /**
+         * @return Última excepción lanzada por el suscriptor o null si no ha fallado nunca
+         */
+        public RuntimeException getUltimoError() {
+            return ultimoError;
+        }
+
+        private void despertar() {
+            if (esperando) {
+                esperando = false;
+                LockSupport.unpark(hilo);
+            }
+        }
+
+        private void consumir() {
+            List<EventoDominio> lote = new ArrayList<>(MAXIMO_LOTE);
+            long posicion = siguiente;
+            while (true) {
+                long saltados = 0;
+                while (lote.size() < MAXIMO_LOTE) {
+                    Celda celda = celdas.get((int) (posicion & mascara));
+                    if (celda != null && celda.secuencia() == posicion) {
+                        lote.add(celda.evento());
+                        posicion++;
+                    } else if (celda != null && celda.secuencia() > posicion) {
+                        // Sobrescrito: continuar por el evento más antiguo que aún está en el búfer
+                        long reanudar = Math.max(posicion + 1, cursor.get() - celdas.length());
+                        saltados = reanudar - posicion;
+                        posicion = reanudar;
+                        break;
+                    } else {
+                        break;
+                    }
+                }
+
+                if (!lote.isEmpty()) {
+                    entregar(lote);
+                    lote.clear();
+                }
+                siguiente = posicion;
+                if (saltados > 0) {
+                    perdidos.addAndGet(saltados);
+                    avisarPerdidos(saltados);
+                    continue;
+                }
+                if (hayDisponible(posicion)) {
+                    continue;
+                }
+                if (!activa) {
+                    return;
+                }
+                // Sin eventos: esperar a la próxima publicación volviendo a mirar
+                // después de anunciarlo, para no perder un aviso intermedio
+                esperando = true;
+                if (!hayDisponible(posicion) && activa) {
+                    LockSupport.parkNanos(this, ESPERA_NANOS);
+                }
+                esperando = false;
+            }
+        }
+
+        private boolean hayDisponible(long posicion) {
+            Celda celda = celdas.get((int) (posicion & mascara));
+            return celda != null && celda.secuencia() >= posicion;
+        }
+
+        private void entregar(List<EventoDominio> lote) {
+            try {
+                suscriptor.procesar(lote);
+            } catch (RuntimeException e) {
+                // Un fallo del suscriptor no detiene su hilo: se sigue con el siguiente lote
+                ultimoError = e;
+            }
+        }
+
+        private void avisarPerdidos(long saltados) {
+            try {
+                suscriptor.eventosPerdidos(saltados);
+            } catch (RuntimeException e) {
+                ultimoError = e;
+            }
+        }
+
+        /**
+         * Deja de recibir eventos después de entregar los que ya estaban disponibles
+         */
+        @Override
+        public void close() {
+            activa = false;
+            suscripciones.remove(this);
+            LockSupport.unpark(hilo);
+            if (Thread.currentThread() == hilo) {
+                return;
+            }
+            try {
+                hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.casarural.gestioncasa.eventos;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+/**
+ * Cambios del dominio que publica el servicio en el bus de eventos.
+ * Cada evento se crea después de aplicar el cambio y no se modifica.
+ */
+public sealed interface EventoDominio {
+
+    record ReservaCreada(Reserva reserva) implements EventoDominio {
+    }
+
+    record EstadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) implements EventoDominio {
+    }
+
+    record PagoAsociado(Reserva reserva, Pago pago) implements EventoDominio {
+    }
+
+    /**
+     * @param pago El pago que tenía la reserva
+     */
+    record PagoAnulado(Reserva reserva, Pago pago) implements EventoDominio {
+    }
+
+    record ClienteEliminado(Cliente cliente) implements EventoDominio {
+    }
+
+    record HabitacionCreada(Habitacion habitacion) implements EventoDominio {
+    }
+}
@@ -0,0 +1,24 @@
+package com.casarural.gestioncasa.eventos;
+
+import java.util.List;
+
+/**
+ * Consumidor de eventos del bus. Se invoca siempre desde el hilo de su
+ * suscripción, nunca desde el hilo que hizo el cambio.
+ */
+public interface SuscriptorEventos {
+
+    /**
+     * Recibe, en orden de publicación, todos los eventos disponibles (hasta un máximo por lote).
+     * La lista solo es válida durante la llamada.
+     */
+    void procesar(List<EventoDominio> lote);
+
+    /**
+     * El suscriptor se ha quedado tan atrás que los eventos indicados se han
+     * sobrescrito antes de leerlos. Quien mantenga datos derivados de los
+     * eventos debe reconstruirlos a partir del estado actual del servicio.
+     */
+    default void eventosPerdidos(long perdidos) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.casarural.gestioncasa.excepciones;
+
+/**
+ * Se reutiliza una clave de idempotencia para un pago distinto (otra reserva u otro importe)
+ */
+public class ClaveIdempotenciaExcepcion extends Exception {
+    
+    public ClaveIdempotenciaExcepcion(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,12 @@
+package com.casarural.gestioncasa.excepciones;
+
+public class HabitacionNoDisponibleExcepcion extends Exception {
+    
+    public HabitacionNoDisponibleExcepcion(String mensaje) {
+        super(mensaje);
+    }
+    
+    public HabitacionNoDisponibleExcepcion(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,12 @@
+package com.casarural.gestioncasa.excepciones;
+
+public class RegistroDuplicadoExcepcion extends Exception {
+    
+    public RegistroDuplicadoExcepcion(String mensaje) {
+        super(mensaje);
+    }
+    
+    public RegistroDuplicadoExcepcion(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
@@ -0,0 +1,12 @@
+package com.casarural.gestioncasa.excepciones;
+
+public class VersionObsoletaExcepcion extends Exception {
+    
+    public VersionObsoletaExcepcion(String mensaje) {
+        super(mensaje);
+    }
+    
+    public VersionObsoletaExcepcion(String mensaje, Throwable causa) {
+        super(mensaje, causa);
+    }
+}
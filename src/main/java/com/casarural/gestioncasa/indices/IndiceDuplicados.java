@@ -0,0 +1,143 @@
+package com.casarural.gestioncasa.indices;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índices hash para detectar duplicados en tiempo constante:
+ * habitaciones por código, clientes por número de documento y reservas por
+ * (cliente, habitación, fecha de inicio, fecha de fin). Las reservas se
+ * indexan también por id, para localizarlas desde la API.
+ *
+ * El servicio lo mantiene al día en cada alta y baja, de modo que comprobar un
+ * registro importado no requiere recorrer las listas.
+ */
+public class IndiceDuplicados {
+    private final Map<String, Habitacion> habitacionesPorCodigo = new ConcurrentHashMap<>();
+    private final Map<String, Cliente> clientesPorDocumento = new ConcurrentHashMap<>();
+    private final Set<ClaveReserva> reservas = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Reserva> reservasPorId = new ConcurrentHashMap<>();
+
+    /**
+     * Clave de duplicado de una reserva: mismo cliente, habitación y fechas
+     */
+    private record ClaveReserva(UUID clienteId, UUID habitacionId, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+
+        // null si a la reserva le falta algún dato (nunca se considera duplicada)
+        static ClaveReserva de(Reserva reserva) {
+            if (reserva == null || reserva.getCliente() == null || reserva.getHabitacion() == null
+                || reserva.getCliente().getId() == null || reserva.getHabitacion().getId() == null
+                || reserva.getFechaInicio() == null || reserva.getFechaFin() == null) {
+                return null;
+            }
+            return new ClaveReserva(reserva.getCliente().getId(), reserva.getHabitacion().getId(),
+                reserva.getFechaInicio(), reserva.getFechaFin());
+        }
+    }
+
+    /**
+     * Vuelve a construir los índices a partir de las listas completas
+     */
+    public void reconstruir(Collection<Habitacion> habitaciones, Collection<Cliente> clientes, Collection<Reserva> reservas) {
+        habitacionesPorCodigo.clear();
+        clientesPorDocumento.clear();
+        this.reservas.clear();
+        reservasPorId.clear();
+        for (Habitacion habitacion : habitaciones) {
+            agregar(habitacion);
+        }
+        for (Cliente cliente : clientes) {
+            agregar(cliente);
+        }
+        for (Reserva reserva : reservas) {
+            agregar(reserva);
+        }
+    }
+
+    // ===== HABITACIONES =====
+
+    public void agregar(Habitacion habitacion) {
+        if (habitacion.getCodigo() != null) {
+            habitacionesPorCodigo.putIfAbsent(habitacion.getCodigo(), habitacion);
+        }
+    }
+
+    public void quitar(Habitacion habitacion) {
+        if (habitacion.getCodigo() != null) {
+            habitacionesPorCodigo.remove(habitacion.getCodigo(), habitacion);
+        }
+    }
+
+    /**
+     * @return La habitación con el código indicado o null si no existe
+     */
+    public Habitacion habitacion(String codigo) {
+        return codigo != null ? habitacionesPorCodigo.get(codigo) : null;
+    }
+
+    // ===== CLIENTES =====
+
+    public void agregar(Cliente cliente) {
+        if (cliente.getNumeroDocumento() != null) {
+            clientesPorDocumento.putIfAbsent(cliente.getNumeroDocumento(), cliente);
+        }
+    }
+
+    public void quitar(Cliente cliente) {
+        if (cliente.getNumeroDocumento() != null) {
+            clientesPorDocumento.remove(cliente.getNumeroDocumento(), cliente);
+        }
+    }
+
+    /**
+     * @return El cliente con el número de documento indicado o null si no existe
+     */
+    public Cliente cliente(String numeroDocumento) {
+        return numeroDocumento != null ? clientesPorDocumento.get(numeroDocumento) : null;
+    }
+
+    // ===== RESERVAS =====
+
+    public void agregar(Reserva reserva) {
+        ClaveReserva clave = ClaveReserva.de(reserva);
+        if (clave != null) {
+            reservas.add(clave);
+        }
+        if (reserva.getId() != null) {
+            reservasPorId.putIfAbsent(reserva.getId(), reserva);
+        }
+    }
+
+    public void quitar(Reserva reserva) {
+        ClaveReserva clave = ClaveReserva.de(reserva);
+        if (clave != null) {
+            reservas.remove(clave);
+        }
+        if (reserva.getId() != null) {
+            reservasPorId.remove(reserva.getId(), reserva);
+        }
+    }
+
+    /**
+     * @return true si ya hay una reserva del mismo cliente, habitación y fechas
+     */
+    public boolean contiene(Reserva reserva) {
+        ClaveReserva clave = ClaveReserva.de(reserva);
+        return clave != null && reservas.contains(clave);
+    }
+
+    /**
+     * @return La reserva con el id indicado o null si no existe
+     */
+    public Reserva reserva(UUID id) {
+        return id != null ? reservasPorId.get(id) : null;
+    }
+}
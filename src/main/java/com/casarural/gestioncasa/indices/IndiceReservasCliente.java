@@ -0,0 +1,151 @@
+package com.casarural.gestioncasa.indices;
+
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reservas de cada cliente agrupadas por estado.
+ *
+ * Permite comprobar si un cliente tiene reservas activas, listar su historial
+ * o calcular su gasto recorriendo solo sus reservas. El servicio lo mantiene
+ * al día al crear reservas, al cambiar su estado y al eliminarlas.
+ */
+public class IndiceReservasCliente {
+    private final Map<UUID, EnumMap<EstadoReserva, Set<Reserva>>> porCliente = new HashMap<>();
+
+    /**
+     * Vuelve a construir el índice a partir de todas las reservas
+     */
+    public synchronized void reconstruir(Collection<Reserva> reservas) {
+        porCliente.clear();
+        for (Reserva reserva : reservas) {
+            agregar(reserva);
+        }
+    }
+
+    // ===== ACTUALIZACIÓN =====
+
+    public synchronized void agregar(Reserva reserva) {
+        UUID cliente = clienteDe(reserva);
+        if (cliente != null && reserva.getEstado() != null) {
+            porCliente.computeIfAbsent(cliente, id -> new EnumMap<>(EstadoReserva.class))
+                .computeIfAbsent(reserva.getEstado(), estado -> new LinkedHashSet<>())
+                .add(reserva);
+        }
+    }
+
+    public synchronized void quitar(Reserva reserva) {
+        quitar(reserva, reserva.getEstado());
+    }
+
+    /**
+     * Mueve la reserva al grupo de su nuevo estado
+     */
+    public synchronized void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) {
+        quitar(reserva, anterior);
+        agregar(reserva);
+    }
+
+    private void quitar(Reserva reserva, EstadoReserva estado) {
+        UUID cliente = clienteDe(reserva);
+        EnumMap<EstadoReserva, Set<Reserva>> grupos = cliente != null ? porCliente.get(cliente) : null;
+        if (grupos == null || estado == null) {
+            return;
+        }
+        Set<Reserva> grupo = grupos.get(estado);
+        if (grupo != null && grupo.remove(reserva) && grupo.isEmpty()) {
+            grupos.remove(estado);
+            if (grupos.isEmpty()) {
+                porCliente.remove(cliente);
+            }
+        }
+    }
+
+    private static UUID clienteDe(Reserva reserva) {
+        return reserva.getCliente() != null ? reserva.getCliente().getId() : null;
+    }
+
+    // ===== CONSULTAS =====
+
+    /**
+     * @return true si el cliente tiene alguna reserva en alguno de los estados indicados
+     */
+    public synchronized boolean tieneReservas(UUID cliente, EstadoReserva... estados) {
+        EnumMap<EstadoReserva, Set<Reserva>> grupos = porCliente.get(cliente);
+        if (grupos == null) {
+            return false;
+        }
+        for (EstadoReserva estado : estados) {
+            if (grupos.containsKey(estado)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Reservas del cliente en los estados indicados (todas si no se indica ninguno)
+     */
+    public synchronized List<Reserva> reservas(UUID cliente, EstadoReserva... estados) {
+        EnumMap<EstadoReserva, Set<Reserva>> grupos = porCliente.get(cliente);
+        List<Reserva> resultado = new ArrayList<>();
+        if (grupos == null) {
+            return resultado;
+        }
+        if (estados.length == 0) {
+            for (Set<Reserva> grupo : grupos.values()) {
+                resultado.addAll(grupo);
+            }
+        } else {
+            for (EstadoReserva estado : estados) {
+                resultado.addAll(grupos.getOrDefault(estado, Set.of()));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * @return Número de reservas del cliente por estado
+     */
+    public synchronized Map<EstadoReserva, Integer> recuento(UUID cliente) {
+        Map<EstadoReserva, Integer> recuento = new EnumMap<>(EstadoReserva.class);
+        EnumMap<EstadoReserva, Set<Reserva>> grupos = porCliente.get(cliente);
+        if (grupos != null) {
+            grupos.forEach((estado, grupo) -> recuento.put(estado, grupo.size()));
+        }
+        return recuento;
+    }
+
+    /**
+     * @return Suma del precio total de las reservas no canceladas del cliente
+     */
+    public synchronized Dinero gastoTotal(UUID cliente) {
+        EnumMap<EstadoReserva, Set<Reserva>> grupos = porCliente.get(cliente);
+        if (grupos == null) {
+            return Dinero.CERO;
+        }
+        long centimos = 0;
+        for (Map.Entry<EstadoReserva, Set<Reserva>> grupo : grupos.entrySet()) {
+            if (grupo.getKey() == EstadoReserva.CANCELADA) {
+                continue;
+            }
+            for (Reserva reserva : grupo.getValue()) {
+                if (reserva.getPrecioTotal() != null) {
+                    centimos = reserva.getPrecioTotal().sumarA(centimos);
+                }
+            }
+        }
+        return Dinero.deCentimos(centimos);
+    }
+}
@@ -0,0 +1,126 @@
+package com.casarural.gestioncasa.indices;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Vistas de las reservas y habitaciones que se mantienen al día con cada
+ * cambio en lugar de filtrar las listas en cada consulta: reservas sin pago,
+ * reservas con pago, reservas por estado y habitaciones disponibles.
+ *
+ * Las vistas que se devuelven son de solo lectura y reflejan los cambios
+ * posteriores sin copiarse. Las reservas se ordenan por fecha de inicio y
+ * las habitaciones por código. Se pueden recorrer mientras otros hilos las
+ * modifican (sin ConcurrentModificationException).
+ */
+public class VistasEnVivo {
+    private static final Comparator<Reserva> ORDEN_RESERVAS = Comparator
+        .comparing(Reserva::getFechaInicio, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(Reserva::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    private static final Comparator<Habitacion> ORDEN_HABITACIONES = Comparator
+        .comparing(Habitacion::getCodigo, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(Habitacion::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Set<Reserva> sinPago = new ConcurrentSkipListSet<>(ORDEN_RESERVAS);
+    private final Set<Reserva> conPago = new ConcurrentSkipListSet<>(ORDEN_RESERVAS);
+    private final Map<EstadoReserva, Set<Reserva>> porEstado = new EnumMap<>(EstadoReserva.class);
+    private final Set<Habitacion> disponibles = new ConcurrentSkipListSet<>(ORDEN_HABITACIONES);
+
+    private final Set<Reserva> vistaSinPago = Collections.unmodifiableSet(sinPago);
+    private final Set<Reserva> vistaConPago = Collections.unmodifiableSet(conPago);
+    private final Map<EstadoReserva, Set<Reserva>> vistasPorEstado = new EnumMap<>(EstadoReserva.class);
+    private final Set<Habitacion> vistaDisponibles = Collections.unmodifiableSet(disponibles);
+
+    public VistasEnVivo() {
+        for (EstadoReserva estado : EstadoReserva.values()) {
+            Set<Reserva> grupo = new ConcurrentSkipListSet<>(ORDEN_RESERVAS);
+            porEstado.put(estado, grupo);
+            vistasPorEstado.put(estado, Collections.unmodifiableSet(grupo));
+        }
+    }
+
+    /**
+     * Vuelve a construir las vistas a partir de las listas completas
+     */
+    public synchronized void reconstruir(Collection<Habitacion> habitaciones, Collection<Reserva> reservas) {
+        sinPago.clear();
+        conPago.clear();
+        porEstado.values().forEach(Set::clear);
+        disponibles.clear();
+        for (Habitacion habitacion : habitaciones) {
+            agregar(habitacion);
+        }
+        for (Reserva reserva : reservas) {
+            agregar(reserva);
+        }
+    }
+
+    // ===== ACTUALIZACIÓN =====
+
+    public synchronized void agregar(Reserva reserva) {
+        (reserva.getPago() != null ? conPago : sinPago).add(reserva);
+        if (reserva.getEstado() != null) {
+            porEstado.get(reserva.getEstado()).add(reserva);
+        }
+    }
+
+    public synchronized void agregar(Habitacion habitacion) {
+        if (habitacion.isDisponible()) {
+            disponibles.add(habitacion);
+        }
+    }
+
+    public synchronized void pagoCambiado(Reserva reserva) {
+        if (reserva.getPago() != null) {
+            sinPago.remove(reserva);
+            conPago.add(reserva);
+        } else {
+            conPago.remove(reserva);
+            sinPago.add(reserva);
+        }
+    }
+
+    public synchronized void estadoCambiado(Reserva reserva, EstadoReserva anterior, EstadoReserva nuevo) {
+        if (anterior != null) {
+            porEstado.get(anterior).remove(reserva);
+        }
+        if (nuevo != null) {
+            porEstado.get(nuevo).add(reserva);
+        }
+    }
+
+    public synchronized void disponibilidadCambiada(Habitacion habitacion) {
+        if (habitacion.isDisponible()) {
+            disponibles.add(habitacion);
+        } else {
+            disponibles.remove(habitacion);
+        }
+    }
+
+    // ===== VISTAS =====
+
+    public Set<Reserva> getReservasSinPago() {
+        return vistaSinPago;
+    }
+
+    public Set<Reserva> getReservasConPago() {
+        return vistaConPago;
+    }
+
+    public Set<Reserva> getReservas(EstadoReserva estado) {
+        return vistasPorEstado.get(estado);
+    }
+
+    public Set<Habitacion> getHabitacionesDisponibles() {
+        return vistaDisponibles;
+    }
+}
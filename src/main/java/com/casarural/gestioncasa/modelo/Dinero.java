@@ -0,0 +1,115 @@
+package com.casarural.gestioncasa.modelo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en euros guardado como un número entero de céntimos.
+ *
+ * Las operaciones son aritmética de long, exacta mientras el importe tenga como
+ * mucho dos decimales (lo que se comprueba al crearlo), y lanzan
+ * ArithmeticException si el resultado se desborda en lugar de dar un importe
+ * falso. Las sumas de muchos importes se hacen acumulando los céntimos en un
+ * long, sin crear un objeto por cada suma.
+ */
+public record Dinero(long centimos) implements Comparable<Dinero> {
+    public static final Dinero CERO = new Dinero(0);
+
+    private static final int DECIMALES = 2;
+
+    public static Dinero deCentimos(long centimos) {
+        return centimos == 0 ? CERO : new Dinero(centimos);
+    }
+
+    /**
+     * @throws IllegalArgumentException Si el importe tiene más de dos decimales o no cabe en céntimos
+     */
+    public static Dinero de(BigDecimal importe) {
+        try {
+            return deCentimos(importe.movePointRight(DECIMALES).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Importe no válido (más de dos decimales o demasiado grande): "
+                + importe.toPlainString());
+        }
+    }
+
+    /**
+     * Importe redondeado al céntimo, la mitad hacia arriba (RoundingMode.HALF_UP,
+     * como dividir). Solo para leer archivos guardados cuando los importes
+     * admitían cualquier número de decimales; lo demás usa de(), que los rechaza.
+     * @throws IllegalArgumentException Si el importe no cabe en céntimos
+     */
+    public static Dinero redondear(BigDecimal importe) {
+        return de(importe.setScale(DECIMALES, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * @throws IllegalArgumentException Si el texto no es un importe o tiene más de dos decimales
+     */
+    public static Dinero de(String importe) {
+        return de(new BigDecimal(importe.trim()));
+    }
+
+    // ===== OPERACIONES =====
+
+    public Dinero sumar(Dinero otro) {
+        return deCentimos(Math.addExact(centimos, otro.centimos));
+    }
+
+    public Dinero restar(Dinero otro) {
+        return deCentimos(Math.subtractExact(centimos, otro.centimos));
+    }
+
+    public Dinero multiplicar(long veces) {
+        return deCentimos(Math.multiplyExact(centimos, veces));
+    }
+
+    /**
+     * Reparte el importe en partes iguales redondeando al céntimo (la mitad hacia arriba, como HALF_UP)
+     */
+    public Dinero dividir(long partes) {
+        long cociente = centimos / partes;
+        long resto = Math.abs(centimos % partes);
+        if (resto >= Math.abs(partes) - resto) {
+            cociente += Long.signum(centimos) * Long.signum(partes);
+        }
+        return deCentimos(cociente);
+    }
+
+    public Dinero abs() {
+        return centimos >= 0 ? this : deCentimos(Math.negateExact(centimos));
+    }
+
+    /**
+     * @return -1, 0 o 1 según el importe sea negativo, cero o positivo
+     */
+    public int signo() {
+        return Long.signum(centimos);
+    }
+
+    /**
+     * Acumula el importe en una suma de céntimos (para sumar muchos importes sin crear objetos)
+     */
+    public long sumarA(long acumulado) {
+        return Math.addExact(acumulado, centimos);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centimos, otro.centimos);
+    }
+
+    // ===== CONVERSIONES =====
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centimos, DECIMALES);
+    }
+
+    /**
+     * Importe con dos decimales (por ejemplo "45.00"), como se muestra y se guarda
+     */
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.casarural.gestioncasa.pago;
+
+import java.util.UUID;
+
+/**
+ * Cobro que se envía a la pasarela
+ * @param claveIdempotencia Identifica el cobro: la pasarela no cobra dos veces la misma clave
+ * @param reserva Id de la reserva que se paga
+ * @param pago Datos del pago (importe, tarjeta...)
+ */
+public record OrdenCobro(String claveIdempotencia, UUID reserva, Pago pago) {
+}
@@ -1,37 +1,45 @@
 package com.casarural.gestioncasa.pago;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
 
 public abstract class Pago {
     private UUID id;
-    private BigDecimal importe;
+    private Dinero importe;
     private LocalDateTime fechaPago;
     private String metodoPago;
 
     // Constructor
     public Pago() {
         this.id = UUID.randomUUID();
-        this.importe = BigDecimal.ZERO;
+        this.importe = Dinero.CERO;
         this.fechaPago = LocalDateTime.now();
         this.metodoPago = "Sin metodo de pago";
     }
     
     // Constructor con parámetros (sin fechaPago)
-    public Pago(BigDecimal importe, String metodoPago) {
+    public Pago(Dinero importe, String metodoPago) {
         this.id = UUID.randomUUID();
         this.importe = importe;
         this.fechaPago = LocalDateTime.now();  // Fecha automática
         this.metodoPago = metodoPago;
     }
     
+    // Constructor de carga: datos comunes de un pago ya existente, sin generar id ni fecha
+    protected Pago(UUID id, Dinero importe, LocalDateTime fechaPago, String metodoPago) {
+        this.id = id;
+        this.importe = importe;
+        this.fechaPago = fechaPago;
+        this.metodoPago = metodoPago;
+    }
+    
     // Getters y setters
     public UUID getId() {
         return id;
     }
-    public BigDecimal getImporte() {
+    public Dinero getImporte() {
         return importe;
     }
     public LocalDateTime getFechaPago() {
@@ -40,11 +48,11 @@ public abstract class Pago {
     public String getMetodoPago() {
         return metodoPago;
     }
-    public void setImporte(BigDecimal importe) throws ImporteInvalidoExcepcion {
+    public void setImporte(Dinero importe) throws ImporteInvalidoExcepcion {
         if (importe == null) {
             throw new ImporteInvalidoExcepcion("El importe no puede ser nulo");
         }
-        if (importe.compareTo(BigDecimal.ZERO) < 0) {
+        if (importe.signo() < 0) {
             throw new ImporteInvalidoExcepcion("El importe no puede ser negativo: " + importe);
         }
         this.importe = importe;
@@ -57,6 +65,6 @@ public abstract class Pago {
         this.metodoPago = metodoPago;
     }
 
-    // Metodo abstracto para procesar el pago
-    public abstract void procesarPago();
+    // Metodo abstracto para procesar el pago: devuelve el justificante, que muestra quien lo procesa
+    public abstract String procesarPago();
 }
@@ -1,27 +1,29 @@
 package com.casarural.gestioncasa.pago;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
 import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
 
 public class PagoEfectivo extends Pago {
-    private BigDecimal importeEfectivo;
-    private BigDecimal importeDevuelto;
+    private Dinero importeEfectivo;
+    private Dinero importeDevuelto;
 
     // Constructor
     public PagoEfectivo() {
         super();
-        this.importeEfectivo = BigDecimal.ZERO;
-        this.importeDevuelto = BigDecimal.ZERO;
+        this.importeEfectivo = Dinero.CERO;
+        this.importeDevuelto = Dinero.CERO;
     }
     
     // Constructor con validación
-    public PagoEfectivo(BigDecimal importe, String metodoPago, BigDecimal importeEfectivo) throws ImporteInvalidoExcepcion {
+    public PagoEfectivo(Dinero importe, String metodoPago, Dinero importeEfectivo) throws ImporteInvalidoExcepcion {
         super(importe, metodoPago);
         
         if (importeEfectivo == null) {
             throw new ImporteInvalidoExcepcion("El importe en efectivo no puede ser nulo");
         }
-        if (importeEfectivo.compareTo(BigDecimal.ZERO) < 0) {
+        if (importeEfectivo.signo() < 0) {
             throw new ImporteInvalidoExcepcion("El importe en efectivo no puede ser negativo: " + importeEfectivo);
         }
         
@@ -29,33 +31,45 @@ public class PagoEfectivo extends Pago {
         this.importeDevuelto = calcularImporteDevuelto(importeEfectivo, importe);
     }
 
+    // Constructor de carga (sin validación ni valores generados)
+    private PagoEfectivo(UUID id, Dinero importe, LocalDateTime fechaPago, String metodoPago, Dinero importeEfectivo, Dinero importeDevuelto) {
+        super(id, importe, fechaPago, metodoPago);
+        this.importeEfectivo = importeEfectivo;
+        this.importeDevuelto = importeDevuelto;
+    }
+
+    // Reconstruye un pago en efectivo ya existente a partir de los datos persistidos
+    public static PagoEfectivo restaurar(UUID id, Dinero importe, LocalDateTime fechaPago, String metodoPago, Dinero importeEfectivo, Dinero importeDevuelto) {
+        return new PagoEfectivo(id, importe, fechaPago, metodoPago, importeEfectivo, importeDevuelto);
+    }
+
     // Método para calcular el importe devuelto
-    private BigDecimal calcularImporteDevuelto(BigDecimal importeEfectivo, BigDecimal importe) {
+    private Dinero calcularImporteDevuelto(Dinero importeEfectivo, Dinero importe) {
         if (importeEfectivo == null || importe == null) {
-            return BigDecimal.ZERO;
+            return Dinero.CERO;
         }
-        return importeEfectivo.subtract(importe);
+        return importeEfectivo.restar(importe);
     }
 
     // Getters y setters
-    public BigDecimal getImporteEfectivo() {
+    public Dinero getImporteEfectivo() {
         return importeEfectivo;
     }
 
-    public BigDecimal getImporteDevuelto() {
+    public Dinero getImporteDevuelto() {
         return importeDevuelto;
     }
 
-    public void setImporteEfectivo(BigDecimal importeEfectivo) {
+    public void setImporteEfectivo(Dinero importeEfectivo) {
         this.importeEfectivo = importeEfectivo;
         this.importeDevuelto = calcularImporteDevuelto(importeEfectivo, getImporte());
     }
 
     // Método para procesar el pago
-    public void procesarPago() {
-        System.out.println("Pago procesado en efectivo");
-        System.out.println("Importe recibido: " + importeEfectivo + " €");
-        System.out.println("Importe a pagar: " + getImporte() + " €");
-        System.out.println("Importe devuelto: " + importeDevuelto + " €");
+    public String procesarPago() {
+        return "Pago procesado en efectivo"
+            + "\nImporte recibido: " + importeEfectivo + " €"
+            + "\nImporte a pagar: " + getImporte() + " €"
+            + "\nImporte devuelto: " + importeDevuelto + " €";
     }
 }
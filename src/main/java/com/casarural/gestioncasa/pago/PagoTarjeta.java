@@ -1,6 +1,9 @@
 package com.casarural.gestioncasa.pago;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.casarural.gestioncasa.modelo.Dinero;
 
 public class PagoTarjeta extends Pago {
     private String titular;
@@ -20,7 +23,7 @@ public class PagoTarjeta extends Pago {
     }
 
     // Constructor con parámetros (modificado)
-    public PagoTarjeta(BigDecimal importe, String metodoPago, String titular, String numeroTarjeta, String cvv, String fechaVencimiento) {
+    public PagoTarjeta(Dinero importe, String metodoPago, String titular, String numeroTarjeta, String cvv, String fechaVencimiento) {
         super(importe, metodoPago);
         this.titular = titular;
         this.numeroTarjeta = numeroTarjeta;
@@ -29,6 +32,23 @@ public class PagoTarjeta extends Pago {
         this.fechaVencimiento = fechaVencimiento;
     }
 
+    // Constructor de carga (sin valores generados)
+    private PagoTarjeta(UUID id, Dinero importe, LocalDateTime fechaPago, String metodoPago, String titular,
+                        String numeroTarjeta, String ultimos4Digitos, String cvv, String fechaVencimiento) {
+        super(id, importe, fechaPago, metodoPago);
+        this.titular = titular;
+        this.numeroTarjeta = numeroTarjeta;
+        this.ultimos4Digitos = ultimos4Digitos;
+        this.cvv = cvv;
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    // Reconstruye un pago con tarjeta ya existente a partir de los datos persistidos
+    public static PagoTarjeta restaurar(UUID id, Dinero importe, LocalDateTime fechaPago, String metodoPago, String titular,
+                                        String numeroTarjeta, String ultimos4Digitos, String cvv, String fechaVencimiento) {
+        return new PagoTarjeta(id, importe, fechaPago, metodoPago, titular, numeroTarjeta, ultimos4Digitos, cvv, fechaVencimiento);
+    }
+
     // Método privado para calcular los últimos 4 dígitos
     private String calcularUltimos4Digitos(String numeroTarjeta) {
         if (numeroTarjeta == null || numeroTarjeta.length() < 4) {
@@ -70,7 +90,7 @@ public class PagoTarjeta extends Pago {
     }
 
     // Metodo abstracto para procesar el pago
-    public void procesarPago() {
-        System.out.println("Pago procesado con tarjeta terminada en " + ultimos4Digitos);
+    public String procesarPago() {
+        return "Pago procesado con tarjeta terminada en " + ultimos4Digitos;
     }
 }
@@ -0,0 +1,26 @@
+package com.casarural.gestioncasa.pago;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Pasarela que liquida los cobros (un banco, un TPV virtual o una simulación).
+ *
+ * Cada orden lleva una clave de idempotencia: si una orden se repite con la misma
+ * clave (por ejemplo, al reintentar tras un fallo de red), la pasarela devuelve el
+ * resultado del primer intento sin volver a cobrar.
+ */
+public interface PasarelaPago {
+
+    /**
+     * Cobra un lote de órdenes
+     * @return Un resultado por orden, en el mismo orden que el lote
+     * @throws IOException Si no se obtiene respuesta (los cobros pueden haberse hecho o no)
+     */
+    List<ResultadoCobro> cobrar(List<OrdenCobro> lote) throws IOException;
+
+    /**
+     * Devuelve un cobro ya liquidado. Devolver dos veces la misma orden no tiene efecto.
+     */
+    void reembolsar(OrdenCobro orden) throws IOException;
+}
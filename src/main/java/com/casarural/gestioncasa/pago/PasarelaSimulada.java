@@ -0,0 +1,100 @@
+package com.casarural.gestioncasa.pago;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pasarela local para desarrollo y pruebas de rendimiento: no cobra nada, pero
+ * tarda lo configurado en responder a cada lote y puede perder respuestas.
+ *
+ * Recuerda el resultado de cada clave de idempotencia, así que los reintentos
+ * devuelven el cobro original; {@link #getCargos()} cuenta los cobros hechos de
+ * verdad para comprobar que ninguno se ha repetido.
+ */
+public class PasarelaSimulada implements PasarelaPago {
+    // Longitud mínima de un número de tarjeta que se acepta
+    private static final int DIGITOS_MINIMOS = 13;
+
+    private final Duration latencia;
+    private final double probabilidadFallo;
+    private final Map<String, ResultadoCobro> cobros = new ConcurrentHashMap<>();
+    private final AtomicLong cargos = new AtomicLong();
+    private final AtomicLong reembolsos = new AtomicLong();
+
+    public PasarelaSimulada(Duration latencia) {
+        this(latencia, 0);
+    }
+
+    /**
+     * @param latencia Tiempo que tarda en responder a cada lote
+     * @param probabilidadFallo Probabilidad (0 a 1) de que, hecho el cobro, la respuesta no llegue
+     */
+    public PasarelaSimulada(Duration latencia, double probabilidadFallo) {
+        this.latencia = latencia;
+        this.probabilidadFallo = probabilidadFallo;
+    }
+
+    @Override
+    public List<ResultadoCobro> cobrar(List<OrdenCobro> lote) throws IOException {
+        esperar();
+        List<ResultadoCobro> resultados = new ArrayList<>(lote.size());
+        for (OrdenCobro orden : lote) {
+            resultados.add(cobros.computeIfAbsent(orden.claveIdempotencia(), clave -> cargar(orden)));
+        }
+        if (probabilidadFallo > 0 && ThreadLocalRandom.current().nextDouble() < probabilidadFallo) {
+            throw new IOException("La pasarela no ha respondido (simulado)");
+        }
+        return resultados;
+    }
+
+    @Override
+    public void reembolsar(OrdenCobro orden) throws IOException {
+        esperar();
+        cobros.computeIfPresent(orden.claveIdempotencia(), (clave, cobro) -> {
+            if (!cobro.aceptado()) {
+                return cobro;
+            }
+            reembolsos.incrementAndGet();
+            return ResultadoCobro.rechazado(clave, "Cobro reembolsado (" + cobro.referencia() + ")");
+        });
+    }
+
+    private ResultadoCobro cargar(OrdenCobro orden) {
+        if (orden.pago() instanceof PagoTarjeta tarjeta) {
+            String numero = tarjeta.getNumeroTarjeta() != null ? tarjeta.getNumeroTarjeta().replaceAll("[\\s-]", "") : "";
+            if (numero.length() < DIGITOS_MINIMOS || !numero.chars().allMatch(Character::isDigit)) {
+                return ResultadoCobro.rechazado(orden.claveIdempotencia(), "Número de tarjeta no válido");
+            }
+        }
+        return ResultadoCobro.aceptado(orden.claveIdempotencia(), "SIM-" + cargos.incrementAndGet());
+    }
+
+    private void esperar() throws IOException {
+        if (latencia.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latencia);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Espera de la pasarela interrumpida", e);
+        }
+    }
+
+    /**
+     * @return Cobros hechos (sin contar los reintentos de una misma clave)
+     */
+    public long getCargos() {
+        return cargos.get();
+    }
+
+    public long getReembolsos() {
+        return reembolsos.get();
+    }
+}
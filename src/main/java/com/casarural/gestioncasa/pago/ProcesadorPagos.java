@@ -0,0 +1,336 @@
+package com.casarural.gestioncasa.pago;
+
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.excepciones.ClaveIdempotenciaExcepcion;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.ImporteInvalidoExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cobra los pagos en segundo plano a través de una pasarela.
+ *
+ * Enviar un pago solo lo comprueba y lo pone en cola: el cobro lo hace uno de
+ * los carriles de trabajo, que envía a la pasarela todos los pagos que tenga
+ * en cola de una vez (hasta un máximo). Los pagos de una misma reserva van
+ * siempre al mismo carril, así que se liquidan en el orden en que se enviaron.
+ * Solo cuando la pasarela confirma el cobro se asocia el pago a la reserva
+ * (que pasa de PENDIENTE a CONFIRMADA).
+ *
+ * Cada pago lleva una clave de idempotencia. Volver a enviar la misma clave
+ * (para la misma reserva y el mismo importe) devuelve el resultado del primer
+ * envío sin cobrar otra vez; con otra reserva u otro importe se rechaza. Los reintentos
+ * a la pasarela tras un fallo de red usan la misma clave. El resultado de un
+ * cobro terminado se recuerda durante un tiempo (un día por defecto); pasado
+ * ese tiempo, un reenvío con la misma clave llega a la pasarela, que también
+ * es idempotente por clave.
+ */
+public class ProcesadorPagos implements Closeable {
+    private static final int MAXIMO_LOTE = 64;
+    private static final int REINTENTOS = 3;
+    private static final long ESPERA_REINTENTO_MS = 100;
+    private static final Duration RETENCION_CLAVES = Duration.ofHours(24);
+
+    private record Solicitud(OrdenCobro orden, Reserva reserva, CompletableFuture<ResultadoCobro> resultado) {
+    }
+
+    // Orden enviada con una clave y su resultado (en curso o final)
+    private record Envio(OrdenCobro orden, CompletableFuture<ResultadoCobro> resultado) {
+    }
+
+    private record Terminado(Envio envio, Instant instante) {
+    }
+
+    // Marca de fin para los carriles
+    private static final Solicitud FIN = new Solicitud(null, null, null);
+
+    private final PasarelaPago pasarela;
+    private final Carril[] carriles;
+    // Orden y resultado de cada clave de idempotencia recibida
+    private final Map<String, Envio> porClave = new ConcurrentHashMap<>();
+    // Claves de los cobros terminados, en el orden en que terminaron, para olvidarlas pasada la retención
+    private final Queue<Terminado> terminados = new ConcurrentLinkedQueue<>();
+    private final Duration retencionClaves;
+    // Hora de los cobros terminados y de los pagos liquidados
+    private final Clock reloj;
+    // Clave del pago en curso de cada reserva: una reserva no puede tener dos cobros a la vez
+    private final Map<UUID, String> enCurso = new ConcurrentHashMap<>();
+    private final AtomicLong liquidados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private volatile boolean cerrado;
+
+    /**
+     * @param pasarela Pasarela que hace los cobros
+     * @param numeroCarriles Hilos que cobran en paralelo (cada uno con su cola)
+     */
+    public ProcesadorPagos(PasarelaPago pasarela, int numeroCarriles) {
+        this(pasarela, numeroCarriles, RETENCION_CLAVES, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param pasarela Pasarela que hace los cobros
+     * @param numeroCarriles Hilos que cobran en paralelo (cada uno con su cola)
+     * @param retencionClaves Tiempo que se recuerda el resultado de un cobro terminado
+     * @param reloj Reloj con el que se mide la retención y se fecha el pago
+     */
+    public ProcesadorPagos(PasarelaPago pasarela, int numeroCarriles, Duration retencionClaves, Clock reloj) {
+        this.pasarela = pasarela;
+        this.retencionClaves = retencionClaves;
+        this.reloj = reloj;
+        this.carriles = new Carril[numeroCarriles];
+        for (int i = 0; i < numeroCarriles; i++) {
+            carriles[i] = new Carril(i);
+        }
+    }
+
+    // ===== ENVÍO =====
+
+    /**
+     * Comprueba el pago y lo pone en cola para cobrarlo, sin esperar a la pasarela.
+     * Si la clave ya se había enviado para la misma reserva y el mismo importe
+     * devuelve el resultado de aquel envío.
+     * @return Resultado del cobro, que se completa cuando el pago se ha liquidado (y
+     *         asociado a la reserva) o se ha rechazado
+     * @throws VersionObsoletaExcepcion Si la reserva ha cambiado desde que se leyó
+     * @throws EstadoReservaExcepcion Si la reserva no admite el pago o ya tiene otro en curso
+     * @throws ClaveIdempotenciaExcepcion Si la clave ya se usó para otra reserva u otro importe
+     */
+    public CompletableFuture<ResultadoCobro> enviar(Reserva reserva, Pago pago, long versionLeida, String claveIdempotencia)
+            throws EstadoReservaExcepcion, ImporteInvalidoExcepcion, VersionObsoletaExcepcion, ClaveIdempotenciaExcepcion {
+        if (claveIdempotencia == null || claveIdempotencia.isBlank()) {
+            throw new IllegalArgumentException("Falta la clave de idempotencia del pago");
+        }
+        olvidarCaducadas();
+        OrdenCobro orden = new OrdenCobro(claveIdempotencia, reserva.getId(), pago);
+        CompletableFuture<ResultadoCobro> resultado = new CompletableFuture<>();
+        Envio envio = new Envio(orden, resultado);
+        Envio anterior = porClave.putIfAbsent(claveIdempotencia, envio);
+        if (anterior != null) {
+            // Un reintento del mismo pago; la misma clave con otro pago es un error del cliente
+            OrdenCobro original = anterior.orden();
+            if (!original.reserva().equals(reserva.getId())
+                    || !original.pago().getImporte().equals(pago.getImporte())) {
+                throw new ClaveIdempotenciaExcepcion("La clave de idempotencia " + claveIdempotencia
+                    + " ya se usó para otro pago (reserva " + original.reserva() + ", " + original.pago().getImporte() + "€)");
+            }
+            return anterior.resultado();
+        }
+        try {
+            if (cerrado) {
+                throw new IllegalStateException("El procesador de pagos está cerrado");
+            }
+            reserva.comprobarPago(pago, versionLeida);
+            if (enCurso.putIfAbsent(reserva.getId(), claveIdempotencia) != null) {
+                throw new EstadoReservaExcepcion("La reserva ya tiene un pago en curso");
+            }
+        } catch (EstadoReservaExcepcion | ImporteInvalidoExcepcion | VersionObsoletaExcepcion | RuntimeException e) {
+            // Sin cobro: la clave queda libre para enviar el pago corregido
+            porClave.remove(claveIdempotencia, envio);
+            resultado.completeExceptionally(e);
+            throw e;
+        }
+
+        Solicitud solicitud = new Solicitud(orden, reserva, resultado);
+        Carril carril = carriles[Math.floorMod(reserva.getId().hashCode(), carriles.length)];
+        carril.cola.add(solicitud);
+        // Si el cierre ha empezado mientras tanto, el carril puede haber vaciado ya su cola:
+        // la solicitud la termina quien la saque de la cola, el carril o este hilo
+        if (cerrado && carril.cola.remove(solicitud)) {
+            rechazarPorCierre(solicitud);
+        }
+        return resultado;
+    }
+
+    // Olvida las claves de los cobros terminados hace más de la retención
+    private void olvidarCaducadas() {
+        Instant limite = reloj.instant().minus(retencionClaves);
+        synchronized (terminados) {
+            Terminado primero;
+            while ((primero = terminados.peek()) != null && primero.instante().isBefore(limite)) {
+                terminados.poll();
+                porClave.remove(primero.envio().orden().claveIdempotencia(), primero.envio());
+            }
+        }
+    }
+
+    /**
+     * @return Claves de idempotencia cuyo resultado se recuerda (cobros en curso y terminados
+     *         dentro de la retención)
+     */
+    public int getClavesRecordadas() {
+        olvidarCaducadas();
+        return porClave.size();
+    }
+
+    /**
+     * @return Pagos en cola, todavía sin enviar a la pasarela
+     */
+    public int getPendientes() {
+        int pendientes = 0;
+        for (Carril carril : carriles) {
+            pendientes += carril.cola.size();
+        }
+        return pendientes;
+    }
+
+    public long getLiquidados() {
+        return liquidados.get();
+    }
+
+    public long getRechazados() {
+        return rechazados.get();
+    }
+
+    /**
+     * Deja de aceptar pagos y espera a que se liquiden los que ya estaban en cola
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        for (Carril carril : carriles) {
+            carril.cola.add(FIN);
+        }
+        for (Carril carril : carriles) {
+            try {
+                carril.hilo.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // ===== CARRILES =====
+
+    private final class Carril {
+        private final BlockingQueue<Solicitud> cola = new LinkedBlockingQueue<>();
+        private final Thread hilo;
+
+        private Carril(int numero) {
+            this.hilo = Thread.ofPlatform().name("pagos-" + numero).daemon().start(this::procesar);
+        }
+
+        private void procesar() {
+            List<Solicitud> lote = new ArrayList<>(MAXIMO_LOTE);
+            boolean terminar = false;
+            while (!terminar) {
+                try {
+                    lote.add(cola.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                cola.drainTo(lote, MAXIMO_LOTE - 1);
+                terminar = lote.removeIf(solicitud -> solicitud == FIN);
+                if (!lote.isEmpty()) {
+                    liquidar(lote);
+                    lote.clear();
+                }
+            }
+            // Lo que llegó a la cola después del cierre ya no se cobra
+            Solicitud solicitud;
+            while ((solicitud = cola.poll()) != null) {
+                if (solicitud != FIN) {
+                    rechazarPorCierre(solicitud);
+                }
+            }
+        }
+    }
+
+    private void rechazarPorCierre(Solicitud solicitud) {
+        terminar(solicitud, ResultadoCobro.rechazado(solicitud.orden().claveIdempotencia(),
+            "El procesador de pagos se ha cerrado"));
+    }
+
+    private void liquidar(List<Solicitud> lote) {
+        List<OrdenCobro> ordenes = new ArrayList<>(lote.size());
+        for (Solicitud solicitud : lote) {
+            ordenes.add(solicitud.orden());
+        }
+
+        List<ResultadoCobro> resultados;
+        try {
+            resultados = cobrarConReintentos(ordenes);
+        } catch (IOException e) {
+            // No se sabe si se cobró: la clave queda libre para que un reintento
+            // pregunte a la pasarela, que devolverá el resultado original
+            for (Solicitud solicitud : lote) {
+                porClave.remove(solicitud.orden().claveIdempotencia(), new Envio(solicitud.orden(), solicitud.resultado()));
+                terminar(solicitud, ResultadoCobro.rechazado(solicitud.orden().claveIdempotencia(),
+                    "La pasarela no responde: " + e.getMessage()));
+            }
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            aplicar(lote.get(i), resultados.get(i));
+        }
+    }
+
+    private List<ResultadoCobro> cobrarConReintentos(List<OrdenCobro> ordenes) throws IOException {
+        long espera = ESPERA_REINTENTO_MS;
+        for (int intento = 1; ; intento++) {
+            try {
+                return pasarela.cobrar(ordenes);
+            } catch (IOException e) {
+                if (intento == REINTENTOS) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reintento de cobro interrumpido", e);
+            }
+            espera *= 2;
+        }
+    }
+
+    // Asocia el pago cobrado a la reserva; si la reserva ya no lo admite, se devuelve el cobro
+    private void aplicar(Solicitud solicitud, ResultadoCobro cobro) {
+        if (!cobro.aceptado()) {
+            terminar(solicitud, cobro);
+            return;
+        }
+        Pago pago = solicitud.orden().pago();
+        try {
+            pago.setFechaPago(LocalDateTime.now(reloj));
+            solicitud.reserva().asociarPago(pago);
+            terminar(solicitud, cobro);
+        } catch (EstadoReservaExcepcion | ImporteInvalidoExcepcion e) {
+            String motivo = "La reserva ha cambiado durante el cobro (" + e.getMessage() + ")";
+            try {
+                pasarela.reembolsar(solicitud.orden());
+                motivo += "; cobro reembolsado";
+            } catch (IOException io) {
+                motivo += "; no se pudo reembolsar el cobro " + cobro.referencia() + ": " + io.getMessage();
+            }
+            terminar(solicitud, ResultadoCobro.rechazado(cobro.claveIdempotencia(), motivo));
+        }
+    }
+
+    private void terminar(Solicitud solicitud, ResultadoCobro resultado) {
+        enCurso.remove(solicitud.orden().reserva(), solicitud.orden().claveIdempotencia());
+        (resultado.aceptado() ? liquidados : rechazados).incrementAndGet();
+        // Antes de completar: quien espera el resultado ya ve contada la retención desde ahora
+        terminados.add(new Terminado(new Envio(solicitud.orden(), solicitud.resultado()), reloj.instant()));
+        solicitud.resultado().complete(resultado);
+    }
+}
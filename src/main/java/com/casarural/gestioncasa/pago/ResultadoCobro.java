@@ -0,0 +1,19 @@
+package com.casarural.gestioncasa.pago;
+
+/**
+ * Resultado de un cobro
+ * @param claveIdempotencia Clave de la orden de cobro
+ * @param aceptado Si el cobro se ha liquidado
+ * @param referencia Referencia de la pasarela para el cobro liquidado (null si no se aceptó)
+ * @param motivo Motivo del rechazo (null si se aceptó)
+ */
+public record ResultadoCobro(String claveIdempotencia, boolean aceptado, String referencia, String motivo) {
+
+    public static ResultadoCobro aceptado(String claveIdempotencia, String referencia) {
+        return new ResultadoCobro(claveIdempotencia, true, referencia, null);
+    }
+
+    public static ResultadoCobro rechazado(String claveIdempotencia, String motivo) {
+        return new ResultadoCobro(claveIdempotencia, false, null, motivo);
+    }
+}
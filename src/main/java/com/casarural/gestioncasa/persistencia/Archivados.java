@@ -0,0 +1,49 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Clientes y habitaciones referenciados por reservas pero que ya no están
+ * registrados (por ejemplo, un cliente eliminado con historial de reservas).
+ * Se guardan aparte para poder resolver las referencias al cargar.
+ */
+final class Archivados {
+    final Map<UUID, Cliente> clientes = new LinkedHashMap<>();
+    final Map<UUID, Habitacion> habitaciones = new LinkedHashMap<>();
+
+    static Archivados de(CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas) {
+        Set<UUID> idsClientes = new HashSet<>();
+        for (Cliente cliente : clientes) {
+            idsClientes.add(cliente.getId());
+        }
+        Set<UUID> idsHabitaciones = new HashSet<>();
+        if (casaRural != null) {
+            for (Habitacion habitacion : casaRural.getHabitaciones()) {
+                idsHabitaciones.add(habitacion.getId());
+            }
+        }
+
+        Archivados archivados = new Archivados();
+        for (Reserva reserva : reservas) {
+            Cliente cliente = reserva.getCliente();
+            if (cliente != null && !idsClientes.contains(cliente.getId())) {
+                archivados.clientes.putIfAbsent(cliente.getId(), cliente);
+            }
+            Habitacion habitacion = reserva.getHabitacion();
+            if (habitacion != null && !idsHabitaciones.contains(habitacion.getId())) {
+                archivados.habitaciones.putIfAbsent(habitacion.getId(), habitacion);
+            }
+        }
+        return archivados;
+    }
+}
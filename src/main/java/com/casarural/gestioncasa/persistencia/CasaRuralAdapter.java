@@ -0,0 +1,77 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Habitacion;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Adaptador GSON en streaming para la casa rural y su lista de habitaciones
+ */
+public class CasaRuralAdapter extends TypeAdapter<CasaRural> {
+    private final HabitacionAdapter habitaciones;
+
+    public CasaRuralAdapter(HabitacionAdapter habitaciones) {
+        this.habitaciones = habitaciones;
+    }
+
+    @Override
+    public void write(JsonWriter out, CasaRural casaRural) throws IOException {
+        if (casaRural == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(casaRural.getId() != null ? casaRural.getId().toString() : null);
+        out.name("nombre").value(casaRural.getNombre());
+        out.name("direccion").value(casaRural.getDireccion());
+        out.name("telefono").value(casaRural.getTelefono());
+        out.name("habitaciones").beginArray();
+        for (Habitacion habitacion : casaRural.getHabitaciones()) {
+            habitaciones.write(out, habitacion);
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    @Override
+    public CasaRural read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        CasaRural casaRural = new CasaRural();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String campo = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> casaRural.setId(UUID.fromString(in.nextString()));
+                case "nombre" -> casaRural.setNombre(in.nextString());
+                case "direccion" -> casaRural.setDireccion(in.nextString());
+                case "telefono" -> casaRural.setTelefono(in.nextString());
+                case "habitaciones" -> {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        casaRural.agregarHabitacion(habitaciones.read(in));
+                    }
+                    in.endArray();
+                }
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return casaRural;
+    }
+}
@@ -0,0 +1,65 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Adaptador GSON en streaming para clientes
+ */
+public class ClienteAdapter extends TypeAdapter<Cliente> {
+
+    @Override
+    public void write(JsonWriter out, Cliente cliente) throws IOException {
+        if (cliente == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(cliente.getId() != null ? cliente.getId().toString() : null);
+        out.name("nombre").value(cliente.getNombre());
+        out.name("numeroDocumento").value(cliente.getNumeroDocumento());
+        out.name("email").value(cliente.getEmail());
+        out.name("telefono").value(cliente.getTelefono());
+        out.endObject();
+    }
+
+    @Override
+    public Cliente read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UUID id = null;
+        String nombre = null;
+        String numeroDocumento = null;
+        String email = null;
+        String telefono = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String campo = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> id = UUID.fromString(in.nextString());
+                case "nombre" -> nombre = in.nextString();
+                case "numeroDocumento" -> numeroDocumento = in.nextString();
+                case "email" -> email = in.nextString();
+                case "telefono" -> telefono = in.nextString();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return Cliente.restaurar(id != null ? id : UUID.randomUUID(), nombre, numeroDocumento, email, telefono);
+    }
+}
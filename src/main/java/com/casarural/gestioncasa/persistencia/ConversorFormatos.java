@@ -0,0 +1,108 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detecta el formato de un archivo de datos y convierte entre JSON y binario.
+ *
+ * Uso desde la línea de comandos:
+ *   java -cp ... com.casarural.gestioncasa.persistencia.ConversorFormatos origen destino
+ * El formato de origen se detecta por su contenido; el de destino por la
+ * extensión (".bin" = binario, cualquier otra = JSON).
+ */
+public class ConversorFormatos {
+    public static final String EXTENSION_BINARIA = ".bin";
+
+    private final PersistenciaJson json;
+    private final PersistenciaBinaria binaria;
+
+    public ConversorFormatos() {
+        this(new PersistenciaJson(), new PersistenciaBinaria());
+    }
+
+    public ConversorFormatos(PersistenciaJson json, PersistenciaBinaria binaria) {
+        this.json = json;
+        this.binaria = binaria;
+    }
+
+    /**
+     * Formato de un archivo existente según su cabecera
+     */
+    public FormatoInstantanea detectar(Path archivo) throws IOException {
+        return PersistenciaBinaria.esBinario(archivo) ? binaria : json;
+    }
+
+    /**
+     * Formato que corresponde a un archivo nuevo según su extensión
+     */
+    public FormatoInstantanea porExtension(Path archivo) {
+        return archivo.getFileName().toString().endsWith(EXTENSION_BINARIA) ? binaria : json;
+    }
+
+    /**
+     * Convierte el archivo de origen al formato del archivo de destino
+     * @return Número de bytes escritos
+     */
+    public long convertir(Path origen, Path destino) throws IOException {
+        Contenido contenido = new Contenido();
+        detectar(origen).cargar(origen, contenido);
+        contenido.casaRural.setHabitaciones(contenido.habitaciones);
+        return porExtension(destino).guardar(destino, contenido.casaRural, contenido.clientes, contenido.reservas, true);
+    }
+
+    // Acumula el contenido completo del archivo de origen
+    private static class Contenido implements ReceptorDatos {
+        private CasaRural casaRural = new CasaRural();
+        private final List<Habitacion> habitaciones = new ArrayList<>();
+        private final List<Cliente> clientes = new ArrayList<>();
+        private final List<Reserva> reservas = new ArrayList<>();
+
+        @Override
+        public void casaRural(CasaRural casaRural) {
+            this.casaRural = casaRural;
+        }
+
+        @Override
+        public void habitacion(Habitacion habitacion) {
+            habitaciones.add(habitacion);
+        }
+
+        @Override
+        public void cliente(Cliente cliente) {
+            clientes.add(cliente);
+        }
+
+        @Override
+        public void reserva(Reserva reserva) {
+            reservas.add(reserva);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Uso: ConversorFormatos <origen> <destino>");
+            System.out.println("     destino con extensión " + EXTENSION_BINARIA + " = binario, cualquier otra = JSON");
+            return;
+        }
+        Path origen = Paths.get(args[0]);
+        Path destino = Paths.get(args[1]);
+        try {
+            long inicio = System.nanoTime();
+            long bytes = new ConversorFormatos().convertir(origen, destino);
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            System.out.println("✅ " + origen + " convertido en " + destino + " (" + bytes + " bytes en " + ms + " ms)");
+        } catch (IOException e) {
+            System.out.println("❌ Error al convertir " + origen + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Diario de mutaciones (write-ahead log) de solo añadido.
+ *
+ * Cada cambio del sistema se registra como una línea JSON compacta al final del
+ * archivo, de modo que el coste de persistir un cambio depende del tamaño del
+ * cambio y no del tamaño de todos los datos. Al arrancar se carga la última
+ * instantánea completa y se reproducen encima las entradas del diario.
+ *
+ * Al capturar una instantánea el diario se rota: el archivo actual se cierra
+ * como segmento sellado (gestion-cr.journal.1, .2, ...) y los cambios nuevos
+ * van a un archivo vacío. Cuando la instantánea queda guardada en disco, los
+ * segmentos que ya incluye se eliminan.
+ *
+ * Los métodos son sincronizados: los cambios se registran desde el hilo del
+ * operador y la rotación se hace desde el hilo de instantáneas.
+ *
+ * Formato de una entrada: {"op":"ESTADO_CAMBIADO","reservaId":"...","estado":"CONFIRMADA"}
+ */
+public class DiarioMutaciones implements Closeable {
+    private static final int TAMANO_BUFFER = 16 * 1024;
+
+    // Tipos de entrada del diario
+    private enum Operacion {
+        HABITACION_CREADA,
+        CLIENTE_REGISTRADO,
+        CLIENTE_ELIMINADO,
+        RESERVA_CREADA,
+        ESTADO_CAMBIADO,
+        PAGO_ASOCIADO,
+        PAGO_ANULADO
+    }
+
+    private final Path archivo;
+    private final PersistenciaJson persistencia;
+    private final Gson gson;
+
+    private final StringWriter entrada = new StringWriter();
+    private FileChannel canal;
+    private BufferedWriter out;
+    private int entradas;
+
+    public DiarioMutaciones(Path archivo, PersistenciaJson persistencia) {
+        this.archivo = archivo;
+        this.persistencia = persistencia;
+        this.gson = persistencia.getGson();
+        this.entradas = 0;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * @return Número de entradas registradas desde la última rotación
+     */
+    public synchronized int getEntradas() {
+        return entradas;
+    }
+
+    // ===== REGISTRO DE MUTACIONES =====
+
+    public synchronized void habitacionCreada(Habitacion habitacion) throws IOException {
+        JsonWriter w = iniciar(Operacion.HABITACION_CREADA);
+        w.name("habitacion");
+        gson.toJson(habitacion, Habitacion.class, w);
+        terminar(w);
+    }
+
+    public synchronized void clienteRegistrado(Cliente cliente) throws IOException {
+        JsonWriter w = iniciar(Operacion.CLIENTE_REGISTRADO);
+        w.name("cliente");
+        gson.toJson(cliente, Cliente.class, w);
+        terminar(w);
+    }
+
+    public synchronized void clienteEliminado(Cliente cliente) throws IOException {
+        JsonWriter w = iniciar(Operacion.CLIENTE_ELIMINADO);
+        w.name("clienteId").value(cliente.getId().toString());
+        terminar(w);
+    }
+
+    public synchronized void reservaCreada(Reserva reserva) throws IOException {
+        JsonWriter w = iniciar(Operacion.RESERVA_CREADA);
+        w.name("reserva");
+        persistencia.escribirReserva(w, reserva);
+        terminar(w);
+    }
+
+    /**
+     * Registra varias reservas nuevas con una sola escritura en el archivo
+     */
+    public synchronized void reservasCreadas(Collection<Reserva> reservas) throws IOException {
+        if (reservas.isEmpty()) {
+            return;
+        }
+        for (Reserva reserva : reservas) {
+            JsonWriter w = iniciar(Operacion.RESERVA_CREADA);
+            w.name("reserva");
+            persistencia.escribirReserva(w, reserva);
+            anadir(w);
+        }
+        out.flush();
+    }
+
+    public synchronized void estadoCambiado(Reserva reserva) throws IOException {
+        JsonWriter w = iniciar(Operacion.ESTADO_CAMBIADO);
+        w.name("reservaId").value(reserva.getId().toString());
+        w.name("estado").value(reserva.getEstado().name());
+        terminar(w);
+    }
+
+    public synchronized void pagoAsociado(Reserva reserva, Pago pago) throws IOException {
+        JsonWriter w = iniciar(Operacion.PAGO_ASOCIADO);
+        w.name("reservaId").value(reserva.getId().toString());
+        w.name("pago");
+        gson.toJson(pago, Pago.class, w);
+        terminar(w);
+    }
+
+    public synchronized void pagoAnulado(Reserva reserva) throws IOException {
+        JsonWriter w = iniciar(Operacion.PAGO_ANULADO);
+        w.name("reservaId").value(reserva.getId().toString());
+        terminar(w);
+    }
+
+    // Cada entrada se compone completa en memoria y se añade al archivo de una sola vez,
+    // para que un error a mitad de serialización no deje líneas mezcladas en el diario
+    private JsonWriter iniciar(Operacion operacion) throws IOException {
+        entrada.getBuffer().setLength(0);
+        JsonWriter writer = gson.newJsonWriter(entrada);
+        writer.beginObject();
+        writer.name("op").value(operacion.name());
+        return writer;
+    }
+
+    private void terminar(JsonWriter writer) throws IOException {
+        anadir(writer);
+        out.flush();
+    }
+
+    // Añade la entrada al buffer sin escribirla todavía en el archivo
+    private void anadir(JsonWriter writer) throws IOException {
+        writer.endObject();
+        abrir();
+        out.append(entrada.getBuffer()).append('\n');
+        entradas++;
+    }
+
+    private void abrir() throws IOException {
+        if (canal != null) {
+            return;
+        }
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    /**
+     * Fuerza al disco todas las entradas registradas
+     */
+    public synchronized void sincronizar() throws IOException {
+        if (canal != null) {
+            out.flush();
+            canal.force(false);
+        }
+    }
+
+    // ===== SEGMENTOS =====
+
+    /**
+     * Sella el archivo actual como segmento y empieza uno vacío.
+     * Debe llamarse de forma atómica con la captura de la instantánea.
+     *
+     * @return Número del último segmento sellado (todas sus entradas, y las de los
+     *         segmentos anteriores, quedan incluidas en la instantánea capturada)
+     */
+    public synchronized long rotar() throws IOException {
+        close();
+        long secuencia = ultimoSegmento();
+        if (Files.exists(archivo) && Files.size(archivo) > 0) {
+            secuencia++;
+            Files.move(archivo, segmento(secuencia), StandardCopyOption.ATOMIC_MOVE);
+        }
+        entradas = 0;
+        return secuencia;
+    }
+
+    /**
+     * Elimina los segmentos sellados hasta el número indicado (incluido),
+     * una vez que hay una instantánea en disco que contiene sus cambios
+     */
+    public synchronized void eliminarSegmentosHasta(long secuencia) throws IOException {
+        for (long numero : numerosSegmento()) {
+            if (numero <= secuencia) {
+                Files.deleteIfExists(segmento(numero));
+            }
+        }
+    }
+
+    private Path segmento(long numero) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + numero);
+    }
+
+    private long ultimoSegmento() throws IOException {
+        List<Long> numeros = numerosSegmento();
+        return numeros.isEmpty() ? 0 : numeros.get(numeros.size() - 1);
+    }
+
+    // Números de los segmentos sellados presentes en disco, en orden
+    private List<Long> numerosSegmento() throws IOException {
+        List<Long> numeros = new ArrayList<>();
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio == null || !Files.isDirectory(directorio)) {
+            return numeros;
+        }
+        String prefijo = archivo.getFileName() + ".";
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, prefijo + "*")) {
+            for (Path ruta : contenido) {
+                String sufijo = ruta.getFileName().toString().substring(prefijo.length());
+                if (!sufijo.isEmpty() && sufijo.chars().allMatch(Character::isDigit)) {
+                    numeros.add(Long.parseLong(sufijo));
+                }
+            }
+        }
+        Collections.sort(numeros);
+        return numeros;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (canal != null) {
+            try {
+                sincronizar();
+            } finally {
+                canal.close();
+                canal = null;
+                out = null;
+            }
+        }
+    }
+
+    // ===== REPRODUCCIÓN =====
+
+    /**
+     * Reproduce las entradas del diario (segmentos sellados en orden y después el
+     * archivo actual) sobre el estado cargado de la última instantánea.
+     * Una última línea incompleta (escritura interrumpida) se descarta.
+     *
+     * @param habitaciones Habitaciones ya cargadas (para resolver referencias)
+     * @param clientes     Clientes ya cargados
+     * @param reservas     Reservas ya cargadas (sus clientes y habitaciones también se resuelven)
+     * @return Número de entradas reproducidas
+     */
+    public synchronized int reproducir(Collection<Habitacion> habitaciones, Collection<Cliente> clientes, Collection<Reserva> reservas, ReceptorMutaciones receptor) throws IOException {
+        Referencias referencias = new Referencias();
+        for (Habitacion habitacion : habitaciones) {
+            referencias.canonica(habitacion);
+        }
+        for (Cliente cliente : clientes) {
+            referencias.canonico(cliente);
+        }
+        for (Reserva reserva : reservas) {
+            referencias.canonico(reserva.getCliente());
+            referencias.canonica(reserva.getHabitacion());
+        }
+
+        int reproducidas = 0;
+        for (long numero : numerosSegmento()) {
+            reproducidas += reproducirArchivo(segmento(numero), referencias, receptor);
+        }
+        if (Files.exists(archivo)) {
+            entradas = reproducirArchivo(archivo, referencias, receptor);
+            reproducidas += entradas;
+        }
+        return reproducidas;
+    }
+
+    private int reproducirArchivo(Path archivo, Referencias referencias, ReceptorMutaciones receptor) throws IOException {
+        int reproducidas = 0;
+        long bytesDescartados = 0;
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea = lector.readLine();
+            int numeroLinea = 0;
+            while (linea != null) {
+                numeroLinea++;
+                String siguiente = lector.readLine();
+                if (!linea.isBlank()) {
+                    try {
+                        reproducirEntrada(linea, referencias, receptor);
+                        reproducidas++;
+                    } catch (IOException | JsonParseException | IllegalStateException | IllegalArgumentException e) {
+                        if (siguiente != null) {
+                            throw new IOException("Entrada " + numeroLinea + " de " + archivo.getFileName() + " no válida: " + e.getMessage(), e);
+                        }
+                        // Última entrada a medio escribir: se ignora y se recorta del archivo
+                        // para que las entradas nuevas no se añadan a continuación
+                        bytesDescartados = linea.getBytes(StandardCharsets.UTF_8).length;
+                    }
+                }
+                linea = siguiente;
+            }
+        }
+
+        if (bytesDescartados > 0) {
+            try (FileChannel recorte = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer ultimo = ByteBuffer.allocate(1);
+                recorte.read(ultimo, recorte.size() - 1);
+                if (ultimo.get(0) == '\n') {
+                    bytesDescartados++;
+                }
+                recorte.truncate(Math.max(0, recorte.size() - bytesDescartados));
+            }
+        }
+
+        return reproducidas;
+    }
+
+    private void reproducirEntrada(String linea, Referencias referencias, ReceptorMutaciones receptor) throws IOException {
+        JsonReader reader = gson.newJsonReader(new StringReader(linea));
+
+        Operacion operacion = null;
+        UUID id = null;
+        EstadoReserva estado = null;
+        Habitacion habitacion = null;
+        Cliente cliente = null;
+        Reserva reserva = null;
+        Pago pago = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String campo = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "op" -> operacion = Operacion.valueOf(reader.nextString());
+                case "reservaId", "clienteId" -> id = UUID.fromString(reader.nextString());
+                case "estado" -> estado = EstadoReserva.valueOf(reader.nextString());
+                case "habitacion" -> habitacion = referencias.canonica(gson.fromJson(reader, Habitacion.class));
+                case "cliente" -> cliente = referencias.canonico(gson.fromJson(reader, Cliente.class));
+                case "reserva" -> reserva = persistencia.leerReserva(reader, referencias);
+                case "pago" -> pago = gson.fromJson(reader, Pago.class);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (operacion == null) {
+            throw new IOException("Entrada sin operación");
+        }
+
+        switch (operacion) {
+            case HABITACION_CREADA -> receptor.habitacionCreada(habitacion);
+            case CLIENTE_REGISTRADO -> receptor.clienteRegistrado(cliente);
+            case CLIENTE_ELIMINADO -> receptor.clienteEliminado(id);
+            case RESERVA_CREADA -> receptor.reservaCreada(reserva);
+            case ESTADO_CAMBIADO -> receptor.estadoCambiado(id, estado);
+            case PAGO_ASOCIADO -> receptor.pagoAsociado(id, pago);
+            case PAGO_ANULADO -> receptor.pagoAnulado(id);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.modelo.Dinero;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptador GSON para importes: se escriben como número con dos decimales
+ * (45.00), igual que se guardaban con BigDecimal, y se leen tanto de número
+ * como de texto.
+ *
+ * Los archivos guardados cuando los importes eran BigDecimal pueden tener
+ * más de dos decimales (45.555). El adaptador de la persistencia los
+ * redondea al céntimo con Dinero.redondear y los cuenta; el de la API los
+ * rechaza.
+ */
+public class DineroAdapter extends TypeAdapter<Dinero> {
+    private final boolean redondear;
+    private final LongAdder redondeados = new LongAdder();
+
+    public DineroAdapter() {
+        this(false);
+    }
+
+    /**
+     * @param redondear si es true los importes con más de dos decimales se redondean
+     *                  al céntimo (la mitad hacia arriba) en lugar de rechazarse
+     */
+    public DineroAdapter(boolean redondear) {
+        this.redondear = redondear;
+    }
+
+    /**
+     * @return Importes con más de dos decimales redondeados desde que se creó el adaptador
+     */
+    public long getRedondeados() {
+        return redondeados.sum();
+    }
+
+    @Override
+    public void write(JsonWriter out, Dinero value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(value.aBigDecimal());
+    }
+
+    @Override
+    public Dinero read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String texto = in.nextString();
+        try {
+            return Dinero.de(texto);
+        } catch (IllegalArgumentException e) {
+            if (!redondear) {
+                throw new JsonParseException("Importe no válido: " + texto, e);
+            }
+        }
+        try {
+            Dinero importe = Dinero.redondear(new BigDecimal(texto.trim()));
+            redondeados.increment();
+            return importe;
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Importe no válido: " + texto, e);
+        }
+    }
+}
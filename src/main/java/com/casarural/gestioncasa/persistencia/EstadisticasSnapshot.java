@@ -0,0 +1,20 @@
+package com.casarural.gestioncasa.persistencia;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de una instantánea escrita en disco
+ *
+ * @param numero   Número de instantánea desde el arranque
+ * @param fecha    Momento en que terminó de escribirse
+ * @param latencia Tiempo total (escritura, fsync y renombrado)
+ * @param bytes    Tamaño del archivo escrito
+ */
+public record EstadisticasSnapshot(long numero, LocalDateTime fecha, Duration latencia, long bytes) {
+
+    @Override
+    public String toString() {
+        return "instantánea #" + numero + ": " + bytes + " bytes en " + latencia.toMillis() + " ms";
+    }
+}
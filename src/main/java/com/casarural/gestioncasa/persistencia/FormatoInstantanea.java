@@ -0,0 +1,27 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Reserva;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Formato de archivo de una instantánea completa del sistema (JSON o binario)
+ */
+public interface FormatoInstantanea {
+
+    /**
+     * Guarda el estado completo en el archivo indicado
+     * @param forzarDisco si es true no se vuelve hasta que los datos están en el disco (fsync)
+     * @return Número de bytes escritos
+     */
+    long guardar(Path archivo, CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas, boolean forzarDisco) throws IOException;
+
+    /**
+     * Lee el archivo indicado entregando cada registro al receptor a medida que se lee
+     */
+    void cargar(Path archivo, ReceptorDatos receptor) throws IOException;
+}
@@ -0,0 +1,294 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Reserva;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escribe instantáneas completas en segundo plano sin bloquear al operador.
+ *
+ * Cada instantánea se escribe en un archivo temporal, se fuerza al disco y
+ * sustituye al archivo de datos con un renombrado atómico, de modo que un
+ * fallo a mitad de escritura nunca deja el archivo de datos corrupto. Antes
+ * de sustituirlo se conservan las últimas generaciones (gestion-cr.json.1,
+ * .2, ...) como copias de seguridad.
+ *
+ * El autoguardado se lanza un tiempo después del último cambio registrado
+ * (para agrupar ráfagas de cambios en una sola escritura), pero nunca más
+ * tarde de una espera máxima desde el primer cambio pendiente.
+ */
+public class GestorSnapshots implements Closeable {
+
+    /**
+     * Copia consistente del estado a guardar, tomada por el servicio
+     *
+     * @param segmentoDiario Último segmento del diario cuyos cambios incluye la copia
+     */
+    public record Instantanea(CasaRural casaRural, List<Cliente> clientes, List<Reserva> reservas, long segmentoDiario) {
+    }
+
+    /**
+     * Toma la copia del estado. Se invoca desde el hilo de instantáneas y
+     * debe rotar el diario de forma atómica con la copia de las listas.
+     */
+    public interface Capturador {
+        Instantanea capturar() throws IOException;
+    }
+
+    private final Path archivo;
+    private final FormatoInstantanea formato;
+    private final DiarioMutaciones diario;
+    private final Capturador capturador;
+    private final int generaciones;
+    private final Duration retardo;
+    private final Duration esperaMaxima;
+    private final ScheduledThreadPoolExecutor ejecutor;
+
+    // Autoguardado pendiente y momento (nanoTime) del primer cambio sin guardar
+    private ScheduledFuture<?> pendiente;
+    private long primerCambio;
+    // Instantánea pedida que todavía no ha empezado: las peticiones siguientes se suman a ella
+    private CompletableFuture<EstadisticasSnapshot> enCola;
+
+    private volatile EstadisticasSnapshot ultima;
+    private volatile IOException ultimoError;
+    private long instantaneas;
+    private long bytesTotales;
+
+    /**
+     * @param formato      Formato (JSON o binario) en el que se escriben las instantáneas
+     * @param generaciones Número de copias anteriores que se conservan
+     * @param retardo      Tiempo sin cambios tras el que se lanza el autoguardado
+     * @param esperaMaxima Tiempo máximo que un cambio puede quedar sin instantánea
+     */
+    public GestorSnapshots(Path archivo, FormatoInstantanea formato, DiarioMutaciones diario, Capturador capturador,
+                           int generaciones, Duration retardo, Duration esperaMaxima) {
+        this.archivo = archivo;
+        this.formato = formato;
+        this.diario = diario;
+        this.capturador = capturador;
+        this.generaciones = generaciones;
+        this.retardo = retardo;
+        this.esperaMaxima = esperaMaxima;
+
+        // Un único hilo: las instantáneas nunca se solapan entre sí
+        this.ejecutor = new ScheduledThreadPoolExecutor(1, tarea -> {
+            Thread hilo = new Thread(tarea, "instantaneas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.ejecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * Ruta de una generación anterior (1 = la más reciente)
+     */
+    public Path generacion(int numero) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + numero);
+    }
+
+    public int getGeneraciones() {
+        return generaciones;
+    }
+
+    // ===== AUTOGUARDADO =====
+
+    /**
+     * Avisa de que se ha registrado un cambio: (re)programa el autoguardado
+     */
+    public synchronized void cambioRegistrado() {
+        if (ejecutor.isShutdown()) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        if (primerCambio == 0) {
+            primerCambio = ahora;
+        }
+        long limite = primerCambio + esperaMaxima.toNanos() - ahora;
+        long espera = Math.max(0, Math.min(retardo.toNanos(), limite));
+
+        if (pendiente != null) {
+            pendiente.cancel(false);
+        }
+        pendiente = ejecutor.schedule(this::autoguardar, espera, TimeUnit.NANOSECONDS);
+    }
+
+    private void autoguardar() {
+        try {
+            escribirInstantanea();
+        } catch (IOException e) {
+            // Los cambios siguen a salvo en el diario; el error queda disponible en getUltimoError()
+        }
+    }
+
+    // ===== INSTANTÁNEAS =====
+
+    /**
+     * Lanza una instantánea en segundo plano. Si ya hay una pedida que aún no
+     * ha empezado se devuelve esa, que también recogerá los cambios hechos
+     * hasta ahora; así una ráfaga de peticiones no encola una escritura completa
+     * por cada una.
+     * @return Futuro con las estadísticas de la instantánea escrita
+     */
+    public synchronized CompletableFuture<EstadisticasSnapshot> guardarAhora() {
+        if (enCola != null) {
+            return enCola;
+        }
+        CompletableFuture<EstadisticasSnapshot> resultado = new CompletableFuture<>();
+        enCola = resultado;
+        try {
+            ejecutor.execute(() -> {
+                synchronized (this) {
+                    enCola = null;
+                }
+                try {
+                    resultado.complete(escribirInstantanea());
+                } catch (IOException | RuntimeException e) {
+                    resultado.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            enCola = null;
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    private EstadisticasSnapshot escribirInstantanea() throws IOException {
+        synchronized (this) {
+            // Los cambios posteriores a la captura abren una nueva espera de autoguardado
+            primerCambio = 0;
+            if (pendiente != null) {
+                pendiente.cancel(false);
+                pendiente = null;
+            }
+        }
+
+        long inicio = System.nanoTime();
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try {
+            Instantanea instantanea = capturador.capturar();
+            long bytes = formato.guardar(temporal, instantanea.casaRural(), instantanea.clientes(), instantanea.reservas(), true);
+
+            rotarGeneraciones();
+            Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            sincronizarDirectorio();
+
+            // La instantánea ya está en disco: los segmentos que incluye sobran
+            diario.eliminarSegmentosHasta(instantanea.segmentoDiario());
+
+            EstadisticasSnapshot estadisticas;
+            synchronized (this) {
+                instantaneas++;
+                bytesTotales += bytes;
+                estadisticas = new EstadisticasSnapshot(instantaneas, LocalDateTime.now(),
+                    Duration.ofNanos(System.nanoTime() - inicio), bytes);
+            }
+            ultima = estadisticas;
+            ultimoError = null;
+            return estadisticas;
+        } catch (IOException e) {
+            ultimoError = e;
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+    }
+
+    // Desplaza las copias anteriores (.1 -> .2, ...) y conserva el archivo actual como .1
+    private void rotarGeneraciones() throws IOException {
+        if (generaciones <= 0 || !Files.exists(archivo)) {
+            return;
+        }
+        Files.deleteIfExists(generacion(generaciones));
+        for (int i = generaciones - 1; i >= 1; i--) {
+            if (Files.exists(generacion(i))) {
+                Files.move(generacion(i), generacion(i + 1), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        try {
+            // Un enlace evita copiar el archivo; el renombrado posterior no lo modifica
+            Files.createLink(generacion(1), archivo);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(archivo, generacion(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Fuerza al disco la entrada del directorio tras el renombrado (no todos los sistemas lo permiten)
+    private void sincronizarDirectorio() {
+        Path directorio = archivo.toAbsolutePath().getParent();
+        if (directorio == null) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Sin soporte para sincronizar directorios: el renombrado sigue siendo atómico
+        }
+    }
+
+    // ===== ESTADÍSTICAS =====
+
+    /**
+     * @return Estadísticas de la última instantánea escrita o null si todavía no hay ninguna
+     */
+    public EstadisticasSnapshot getUltima() {
+        return ultima;
+    }
+
+    /**
+     * @return Error de la última instantánea o null si terminó bien
+     */
+    public IOException getUltimoError() {
+        return ultimoError;
+    }
+
+    public synchronized long getInstantaneas() {
+        return instantaneas;
+    }
+
+    public synchronized long getBytesTotales() {
+        return bytesTotales;
+    }
+
+    /**
+     * Escribe el autoguardado pendiente (si lo hay) y detiene el hilo de instantáneas
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<EstadisticasSnapshot> ultimaInstantanea = null;
+        synchronized (this) {
+            if (pendiente != null && pendiente.cancel(false)) {
+                ultimaInstantanea = guardarAhora();
+            }
+            pendiente = null;
+        }
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ultimaInstantanea != null && ultimaInstantanea.isCompletedExceptionally()) {
+            throw ultimoError != null ? ultimoError : new IOException("No se pudo escribir la última instantánea");
+        }
+    }
+}
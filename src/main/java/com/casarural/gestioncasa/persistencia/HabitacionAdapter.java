@@ -0,0 +1,75 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.modelo.Dinero;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Adaptador GSON en streaming para habitaciones
+ */
+public class HabitacionAdapter extends TypeAdapter<Habitacion> {
+    private final DineroAdapter importes;
+
+    public HabitacionAdapter(DineroAdapter importes) {
+        this.importes = importes;
+    }
+
+    @Override
+    public void write(JsonWriter out, Habitacion habitacion) throws IOException {
+        if (habitacion == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(habitacion.getId() != null ? habitacion.getId().toString() : null);
+        out.name("codigo").value(habitacion.getCodigo());
+        out.name("descripcion").value(habitacion.getDescripcion());
+        out.name("capacidad").value(habitacion.getCapacidad());
+        out.name("precioNoche");
+        importes.write(out, habitacion.getPrecioNoche());
+        out.name("disponible").value(habitacion.isDisponible());
+        out.endObject();
+    }
+
+    @Override
+    public Habitacion read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        UUID id = null;
+        String codigo = null;
+        String descripcion = null;
+        int capacidad = 0;
+        Dinero precioNoche = null;
+        boolean disponible = true;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String campo = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> id = UUID.fromString(in.nextString());
+                case "codigo" -> codigo = in.nextString();
+                case "descripcion" -> descripcion = in.nextString();
+                case "capacidad" -> capacidad = in.nextInt();
+                case "precioNoche" -> precioNoche = importes.read(in);
+                case "disponible" -> disponible = in.nextBoolean();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return Habitacion.restaurar(id != null ? id : UUID.randomUUID(), codigo, descripcion, capacidad, precioNoche, disponible);
+    }
+}
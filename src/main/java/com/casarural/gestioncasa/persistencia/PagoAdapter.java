@@ -0,0 +1,127 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Adaptador GSON en streaming para la jerarquía de pagos (PagoTarjeta / PagoEfectivo).
+ *
+ * El campo "tipo" ("PagoTarjeta" / "PagoEfectivo") se escribe el primero, junto a
+ * los demás campos. Al leer puede aparecer en cualquier posición (los archivos
+ * anteriores lo tienen al final): los campos se recogen en una sola pasada y la
+ * subclase se construye al terminar el objeto.
+ */
+public class PagoAdapter extends TypeAdapter<Pago> {
+    private static final String TARJETA = "PagoTarjeta";
+    private static final String EFECTIVO = "PagoEfectivo";
+
+    private final LocalDateTimeAdapter fechas;
+    private final DineroAdapter importes;
+
+    public PagoAdapter(LocalDateTimeAdapter fechas, DineroAdapter importes) {
+        this.fechas = fechas;
+        this.importes = importes;
+    }
+
+    @Override
+    public void write(JsonWriter out, Pago pago) throws IOException {
+        if (pago == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (pago instanceof PagoTarjeta tarjeta) {
+            out.name("tipo").value(TARJETA);
+            out.name("titular").value(tarjeta.getTitular());
+            out.name("numeroTarjeta").value(tarjeta.getNumeroTarjeta());
+            out.name("ultimos4Digitos").value(tarjeta.getUltimos4Digitos());
+            out.name("cvv").value(tarjeta.getCvv());
+            out.name("fechaVencimiento").value(tarjeta.getFechaVencimiento());
+        } else if (pago instanceof PagoEfectivo efectivo) {
+            out.name("tipo").value(EFECTIVO);
+            out.name("importeEfectivo");
+            importes.write(out, efectivo.getImporteEfectivo());
+            out.name("importeDevuelto");
+            importes.write(out, efectivo.getImporteDevuelto());
+        } else {
+            throw new JsonParseException("Tipo de pago desconocido: " + pago.getClass().getSimpleName());
+        }
+        out.name("id").value(pago.getId() != null ? pago.getId().toString() : null);
+        out.name("importe");
+        importes.write(out, pago.getImporte());
+        out.name("fechaPago");
+        fechas.write(out, pago.getFechaPago());
+        out.name("metodoPago").value(pago.getMetodoPago());
+        out.endObject();
+    }
+
+    @Override
+    public Pago read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String tipo = null;
+        UUID id = null;
+        Dinero importe = Dinero.CERO;
+        LocalDateTime fechaPago = null;
+        String metodoPago = null;
+        // PagoTarjeta
+        String titular = null;
+        String numeroTarjeta = null;
+        String ultimos4Digitos = null;
+        String cvv = null;
+        String fechaVencimiento = null;
+        // PagoEfectivo
+        Dinero importeEfectivo = Dinero.CERO;
+        Dinero importeDevuelto = Dinero.CERO;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String campo = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "tipo" -> tipo = in.nextString();
+                case "id" -> id = UUID.fromString(in.nextString());
+                case "importe" -> importe = importes.read(in);
+                case "fechaPago" -> fechaPago = fechas.read(in);
+                case "metodoPago" -> metodoPago = in.nextString();
+                case "titular" -> titular = in.nextString();
+                case "numeroTarjeta" -> numeroTarjeta = in.nextString();
+                case "ultimos4Digitos" -> ultimos4Digitos = in.nextString();
+                case "cvv" -> cvv = in.nextString();
+                case "fechaVencimiento" -> fechaVencimiento = in.nextString();
+                case "importeEfectivo" -> importeEfectivo = importes.read(in);
+                case "importeDevuelto" -> importeDevuelto = importes.read(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (id == null) {
+            id = UUID.randomUUID();
+        }
+        if (TARJETA.equals(tipo)) {
+            return PagoTarjeta.restaurar(id, importe, fechaPago, metodoPago, titular, numeroTarjeta, ultimos4Digitos, cvv, fechaVencimiento);
+        } else if (EFECTIVO.equals(tipo)) {
+            return PagoEfectivo.restaurar(id, importe, fechaPago, metodoPago, importeEfectivo, importeDevuelto);
+        } else {
+            throw new JsonParseException("Tipo de pago desconocido: " + tipo);
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Formato binario compacto para las instantáneas.
+ *
+ * Pensado para arrancar rápido con muchos registros: el archivo se lee
+ * proyectado en memoria (FileChannel.map) sin análisis de texto.
+ *
+ * Estructura (big-endian):
+ *   cabecera:     "GCRB" (int) | versión (short) | posición del diccionario (long)
+ *   casa rural:   presente (byte) [+ registro]
+ *   secciones:    habitaciones, clientes, clientes archivados, habitaciones
+ *                 archivadas y reservas, cada una como número de registros (int)
+ *                 seguido de los registros
+ *   diccionario:  número de cadenas (int) y cada cadena como longitud (int) + UTF-8
+ *
+ * Cada registro va precedido de su longitud en bytes, de modo que una versión
+ * posterior puede añadir campos al final sin romper la lectura. Las cadenas se
+ * guardan como índice en el diccionario (los valores repetidos, como el estado
+ * o el método de pago, ocupan 4 bytes), las fechas como segundos desde la época
+ * (UTC) más nanosegundos y los importes como valor sin escala (long) más escala
+ * (siempre céntimos con escala 2 al escribir; al leer se admite cualquier escala
+ * y los importes con más de dos decimales se redondean con Dinero.redondear).
+ * El límite de pago de las reservas se añadió así, al final de su registro: en
+ * los archivos anteriores no está y se lee como ausente.
+ */
+public class PersistenciaBinaria implements FormatoInstantanea {
+    /** Primeros bytes de todo archivo binario ("GCRB") */
+    public static final int MAGICO = 0x47435242;
+    public static final int VERSION_FORMATO = 1;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    // magico (4) + versión (2) + posición del diccionario (8)
+    private static final int TAMANO_CABECERA = 14;
+    private static final int POSICION_DICCIONARIO = 6;
+
+    // Valores ausentes
+    private static final int SIN_CADENA = -1;
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+    private static final byte SIN_IMPORTE = Byte.MIN_VALUE;
+    // Escala con la que se escriben los importes (céntimos)
+    private static final byte ESCALA_CENTIMOS = 2;
+
+    // Tipos de pago
+    private static final byte SIN_PAGO = 0;
+    private static final byte PAGO_TARJETA = 1;
+    private static final byte PAGO_EFECTIVO = 2;
+
+    /**
+     * Comprueba por la cabecera si un archivo está en formato binario
+     */
+    public static boolean esBinario(Path archivo) throws IOException {
+        if (!Files.isRegularFile(archivo) || Files.size(archivo) < 4) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(4);
+            while (cabecera.hasRemaining() && canal.read(cabecera) >= 0) {
+                // leer hasta completar la cabecera
+            }
+            return cabecera.getInt(0) == MAGICO;
+        }
+    }
+
+    // ===== ESCRITURA =====
+
+    @Override
+    public long guardar(Path archivo, CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas, boolean forzarDisco) throws IOException {
+        Archivados archivados = Archivados.de(casaRural, clientes, reservas);
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Escritor escritor = new Escritor(canal);
+            escritor.out.writeInt(MAGICO);
+            escritor.out.writeShort(VERSION_FORMATO);
+            escritor.out.writeLong(0); // se completa al final
+
+            escritor.out.writeByte(casaRural != null ? 1 : 0);
+            if (casaRural != null) {
+                escritor.uuid(casaRural.getId());
+                escritor.cadena(casaRural.getNombre());
+                escritor.cadena(casaRural.getDireccion());
+                escritor.cadena(casaRural.getTelefono());
+                escritor.terminarRegistro();
+            }
+
+            List<Habitacion> habitaciones = casaRural != null ? casaRural.getHabitaciones() : List.of();
+            escribirHabitaciones(escritor, habitaciones);
+            escribirClientes(escritor, clientes);
+            escribirClientes(escritor, archivados.clientes.values());
+            escribirHabitaciones(escritor, archivados.habitaciones.values());
+
+            escritor.out.writeInt(reservas.size());
+            for (Reserva reserva : reservas) {
+                escribirReserva(escritor, reserva);
+            }
+
+            // El diccionario va al final: así las cadenas se numeran en una sola pasada
+            escritor.out.flush();
+            long posicionDiccionario = canal.position();
+            escritor.escribirDiccionario();
+            escritor.out.flush();
+            canal.write(ByteBuffer.allocate(Long.BYTES).putLong(0, posicionDiccionario), POSICION_DICCIONARIO);
+
+            if (forzarDisco) {
+                canal.force(true);
+            }
+            return canal.size();
+        }
+    }
+
+    private void escribirHabitaciones(Escritor escritor, Collection<Habitacion> habitaciones) throws IOException {
+        escritor.out.writeInt(habitaciones.size());
+        for (Habitacion habitacion : habitaciones) {
+            escritor.uuid(habitacion.getId());
+            escritor.cadena(habitacion.getCodigo());
+            escritor.cadena(habitacion.getDescripcion());
+            escritor.registro.writeInt(habitacion.getCapacidad());
+            escritor.importe(habitacion.getPrecioNoche());
+            escritor.registro.writeBoolean(habitacion.isDisponible());
+            escritor.terminarRegistro();
+        }
+    }
+
+    private void escribirClientes(Escritor escritor, Collection<Cliente> clientes) throws IOException {
+        escritor.out.writeInt(clientes.size());
+        for (Cliente cliente : clientes) {
+            escritor.uuid(cliente.getId());
+            escritor.cadena(cliente.getNombre());
+            escritor.cadena(cliente.getNumeroDocumento());
+            escritor.cadena(cliente.getEmail());
+            escritor.cadena(cliente.getTelefono());
+            escritor.terminarRegistro();
+        }
+    }
+
+    private void escribirReserva(Escritor escritor, Reserva reserva) throws IOException {
+        escritor.uuid(reserva.getId());
+        escritor.uuid(reserva.getCliente() != null ? reserva.getCliente().getId() : null);
+        escritor.uuid(reserva.getHabitacion() != null ? reserva.getHabitacion().getId() : null);
+        escritor.fecha(reserva.getFechaInicio());
+        escritor.fecha(reserva.getFechaFin());
+        escritor.registro.writeInt(reserva.getNoches());
+        escritor.importe(reserva.getPrecioTotal());
+        escritor.cadena(reserva.getEstado() != null ? reserva.getEstado().name() : null);
+
+        Pago pago = reserva.getPago();
+        if (pago instanceof PagoTarjeta tarjeta) {
+            escritor.registro.writeByte(PAGO_TARJETA);
+            escribirDatosPago(escritor, pago);
+            escritor.cadena(tarjeta.getTitular());
+            escritor.cadena(tarjeta.getNumeroTarjeta());
+            escritor.cadena(tarjeta.getUltimos4Digitos());
+            escritor.cadena(tarjeta.getCvv());
+            escritor.cadena(tarjeta.getFechaVencimiento());
+        } else if (pago instanceof PagoEfectivo efectivo) {
+            escritor.registro.writeByte(PAGO_EFECTIVO);
+            escribirDatosPago(escritor, pago);
+            escritor.importe(efectivo.getImporteEfectivo());
+            escritor.importe(efectivo.getImporteDevuelto());
+        } else if (pago == null) {
+            escritor.registro.writeByte(SIN_PAGO);
+        } else {
+            throw new IOException("Tipo de pago desconocido: " + pago.getClass().getSimpleName());
+        }
+        // Añadido al final del registro: los archivos anteriores no lo tienen
+        escritor.fecha(reserva.getLimitePago());
+        escritor.terminarRegistro();
+    }
+
+    private void escribirDatosPago(Escritor escritor, Pago pago) throws IOException {
+        escritor.uuid(pago.getId());
+        escritor.importe(pago.getImporte());
+        escritor.fecha(pago.getFechaPago());
+        escritor.cadena(pago.getMetodoPago());
+    }
+
+    /**
+     * Compone cada registro en memoria (para conocer su longitud) y numera las cadenas
+     */
+    private static class Escritor {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream bytesRegistro = new ByteArrayOutputStream(256);
+        private final DataOutputStream registro = new DataOutputStream(bytesRegistro);
+        private final Map<String, Integer> diccionario = new HashMap<>();
+        private final List<String> cadenas = new ArrayList<>();
+
+        Escritor(FileChannel canal) {
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), TAMANO_BUFFER));
+        }
+
+        void cadena(String valor) throws IOException {
+            if (valor == null) {
+                registro.writeInt(SIN_CADENA);
+                return;
+            }
+            Integer indice = diccionario.get(valor);
+            if (indice == null) {
+                indice = cadenas.size();
+                diccionario.put(valor, indice);
+                cadenas.add(valor);
+            }
+            registro.writeInt(indice);
+        }
+
+        void uuid(UUID valor) throws IOException {
+            registro.writeBoolean(valor != null);
+            if (valor != null) {
+                registro.writeLong(valor.getMostSignificantBits());
+                registro.writeLong(valor.getLeastSignificantBits());
+            }
+        }
+
+        void fecha(LocalDateTime valor) throws IOException {
+            if (valor == null) {
+                registro.writeLong(SIN_FECHA);
+                return;
+            }
+            registro.writeLong(valor.toEpochSecond(ZoneOffset.UTC));
+            registro.writeInt(valor.getNano());
+        }
+
+        void importe(Dinero valor) throws IOException {
+            if (valor == null) {
+                registro.writeByte(SIN_IMPORTE);
+                return;
+            }
+            registro.writeByte(ESCALA_CENTIMOS);
+            registro.writeLong(valor.centimos());
+        }
+
+        void terminarRegistro() throws IOException {
+            out.writeInt(bytesRegistro.size());
+            bytesRegistro.writeTo(out);
+            bytesRegistro.reset();
+        }
+
+        void escribirDiccionario() throws IOException {
+            out.writeInt(cadenas.size());
+            for (String cadena : cadenas) {
+                byte[] bytes = cadena.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    // ===== LECTURA =====
+
+    @Override
+    public void cargar(Path archivo, ReceptorDatos receptor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE) {
+                throw new IOException("El archivo binario es demasiado grande para proyectarse en memoria: " + tamano + " bytes");
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+            leer(buffer, receptor);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("El archivo binario está dañado o incompleto: " + e, e);
+        }
+    }
+
+    private void leer(ByteBuffer buffer, ReceptorDatos receptor) throws IOException {
+        if (buffer.remaining() < TAMANO_CABECERA || buffer.getInt() != MAGICO) {
+            throw new IOException("El archivo no está en formato binario");
+        }
+        int version = buffer.getShort();
+        if (version > VERSION_FORMATO) {
+            throw new IOException("Versión de formato binario no soportada: " + version);
+        }
+        long posicionDiccionario = buffer.getLong();
+        if (posicionDiccionario < TAMANO_CABECERA || posicionDiccionario > buffer.limit()) {
+            throw new IOException("El archivo binario está incompleto (sin diccionario)");
+        }
+
+        Lector lector = new Lector(buffer, leerDiccionario(buffer.duplicate().position((int) posicionDiccionario)));
+        Referencias referencias = new Referencias();
+
+        if (buffer.get() != 0) {
+            int fin = lector.iniciarRegistro();
+            CasaRural casaRural = new CasaRural(lector.uuid(), lector.cadena(), lector.cadena(), lector.cadena());
+            buffer.position(fin);
+            receptor.casaRural(casaRural);
+        }
+
+        int habitaciones = buffer.getInt();
+        for (int i = 0; i < habitaciones; i++) {
+            receptor.habitacion(referencias.canonica(leerHabitacion(lector)));
+        }
+        int clientes = buffer.getInt();
+        for (int i = 0; i < clientes; i++) {
+            receptor.cliente(referencias.canonico(leerCliente(lector)));
+        }
+        int clientesArchivados = buffer.getInt();
+        for (int i = 0; i < clientesArchivados; i++) {
+            referencias.canonico(leerCliente(lector));
+        }
+        int habitacionesArchivadas = buffer.getInt();
+        for (int i = 0; i < habitacionesArchivadas; i++) {
+            referencias.canonica(leerHabitacion(lector));
+        }
+        int reservas = buffer.getInt();
+        for (int i = 0; i < reservas; i++) {
+            receptor.reserva(leerReserva(lector, referencias));
+        }
+
+        // Mismo modelo que el formato JSON actual (reservas con referencias)
+        receptor.version(PersistenciaJson.VERSION_FORMATO);
+        receptor.importesRedondeados(lector.redondeados);
+    }
+
+    private String[] leerDiccionario(ByteBuffer buffer) {
+        int numero = buffer.getInt();
+        if (numero < 0 || numero > buffer.remaining() / Integer.BYTES) {
+            throw new IndexOutOfBoundsException("diccionario de " + numero + " cadenas");
+        }
+        String[] cadenas = new String[numero];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < cadenas.length; i++) {
+            int longitud = buffer.getInt();
+            if (longitud > bytes.length) {
+                bytes = new byte[longitud];
+            }
+            buffer.get(bytes, 0, longitud);
+            cadenas[i] = new String(bytes, 0, longitud, StandardCharsets.UTF_8);
+        }
+        return cadenas;
+    }
+
+    private Habitacion leerHabitacion(Lector lector) {
+        int fin = lector.iniciarRegistro();
+        Habitacion habitacion = Habitacion.restaurar(lector.uuid(), lector.cadena(), lector.cadena(),
+            lector.buffer.getInt(), lector.importe(), lector.buffer.get() != 0);
+        lector.buffer.position(fin);
+        return habitacion;
+    }
+
+    private Cliente leerCliente(Lector lector) {
+        int fin = lector.iniciarRegistro();
+        Cliente cliente = Cliente.restaurar(lector.uuid(), lector.cadena(), lector.cadena(), lector.cadena(), lector.cadena());
+        lector.buffer.position(fin);
+        return cliente;
+    }
+
+    private Reserva leerReserva(Lector lector, Referencias referencias) throws IOException {
+        int fin = lector.iniciarRegistro();
+        ByteBuffer buffer = lector.buffer;
+
+        UUID id = lector.uuid();
+        UUID clienteId = lector.uuid();
+        UUID habitacionId = lector.uuid();
+        Cliente cliente = clienteId != null ? referencias.cliente(clienteId) : null;
+        Habitacion habitacion = habitacionId != null ? referencias.habitacion(habitacionId) : null;
+        LocalDateTime fechaInicio = lector.fecha();
+        LocalDateTime fechaFin = lector.fecha();
+        int noches = buffer.getInt();
+        Dinero precioTotal = lector.importe();
+        String estado = lector.cadena();
+
+        Pago pago;
+        byte tipoPago = buffer.get();
+        switch (tipoPago) {
+            case SIN_PAGO -> pago = null;
+            case PAGO_TARJETA -> pago = PagoTarjeta.restaurar(lector.uuid(), lector.importe(), lector.fecha(), lector.cadena(),
+                lector.cadena(), lector.cadena(), lector.cadena(), lector.cadena(), lector.cadena());
+            case PAGO_EFECTIVO -> pago = PagoEfectivo.restaurar(lector.uuid(), lector.importe(), lector.fecha(), lector.cadena(),
+                lector.importe(), lector.importe());
+            default -> throw new IOException("Tipo de pago desconocido en el archivo binario: " + tipoPago);
+        }
+
+        LocalDateTime limitePago = buffer.position() < fin ? lector.fecha() : null;
+
+        buffer.position(fin);
+        Reserva reserva = Reserva.restaurar(id, cliente, habitacion, fechaInicio, fechaFin, noches, precioTotal,
+            estado != null ? EstadoReserva.valueOf(estado) : EstadoReserva.PENDIENTE, pago);
+        reserva.setLimitePago(limitePago);
+        return reserva;
+    }
+
+    /**
+     * Lee los campos de los registros sobre el archivo proyectado en memoria
+     */
+    private static class Lector {
+        private final ByteBuffer buffer;
+        private final String[] cadenas;
+        // Importes con más de dos decimales redondeados al céntimo
+        private long redondeados;
+
+        Lector(ByteBuffer buffer, String[] cadenas) {
+            this.buffer = buffer;
+            this.cadenas = cadenas;
+        }
+
+        // Lee la longitud del registro y devuelve la posición donde termina
+        int iniciarRegistro() {
+            int longitud = buffer.getInt();
+            int fin = buffer.position() + longitud;
+            if (longitud < 0 || fin > buffer.limit()) {
+                throw new IndexOutOfBoundsException("registro de " + longitud + " bytes en la posición " + buffer.position());
+            }
+            return fin;
+        }
+
+        String cadena() {
+            int indice = buffer.getInt();
+            return indice == SIN_CADENA ? null : cadenas[indice];
+        }
+
+        UUID uuid() {
+            if (buffer.get() == 0) {
+                return null;
+            }
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        LocalDateTime fecha() {
+            long segundos = buffer.getLong();
+            if (segundos == SIN_FECHA) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(segundos, buffer.getInt(), ZoneOffset.UTC);
+        }
+
+        Dinero importe() {
+            byte escala = buffer.get();
+            if (escala == SIN_IMPORTE) {
+                return null;
+            }
+            long sinEscala = buffer.getLong();
+            if (escala == ESCALA_CENTIMOS) {
+                return Dinero.deCentimos(sinEscala);
+            }
+            // Archivos escritos con el importe en BigDecimal tal cual se introdujo
+            BigDecimal importe = BigDecimal.valueOf(sinEscala, escala);
+            if (importe.stripTrailingZeros().scale() > ESCALA_CENTIMOS) {
+                redondeados++;
+                return Dinero.redondear(importe);
+            }
+            return Dinero.de(importe);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.pago.Pago;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Motor de persistencia JSON en streaming.
+ *
+ * Escribe y lee el estado del sistema registro a registro (habitación,
+ * cliente, reserva) mediante JsonWriter/JsonReader sobre canales con buffer,
+ * de forma que nunca se materializa el documento completo ni un árbol
+ * intermedio.
+ *
+ * Formato versión 2 (actual): las reservas guardan solo los identificadores
+ * de su cliente y su habitación ("clienteId" / "habitacionId"):
+ * { "version": 2, "casaRural": {..., "habitaciones": [...]}, "clientes": [...],
+ *   "clientesArchivados": [...], "habitacionesArchivadas": [...], "reservas": [...] }
+ * Los clientes y habitaciones que solo siguen referenciados desde el historial de
+ * reservas (por ejemplo, un cliente eliminado) se guardan en las listas "Archivados".
+ *
+ * Formato versión 1 (anterior, sin campo "version"): cada reserva incluye copias
+ * completas de "cliente" y "habitacion". Se sigue pudiendo leer; al cargar, cada copia
+ * se sustituye por la instancia única con el mismo id.
+ */
+public class PersistenciaJson implements FormatoInstantanea {
+    public static final int VERSION_FORMATO = 2;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final Gson gson;
+    private final boolean legible;
+
+    // Adaptadores en streaming (sin reflexión ni árboles intermedios)
+    private final ClienteAdapter clienteAdapter = new ClienteAdapter();
+    // Los importes de archivos anteriores con más de dos decimales se redondean al céntimo
+    private final DineroAdapter dineroAdapter = new DineroAdapter(true);
+    private final HabitacionAdapter habitacionAdapter = new HabitacionAdapter(dineroAdapter);
+    private final CasaRuralAdapter casaRuralAdapter = new CasaRuralAdapter(habitacionAdapter);
+    private final LocalDateTimeAdapter fechaAdapter = new LocalDateTimeAdapter();
+    private final PagoAdapter pagoAdapter = new PagoAdapter(fechaAdapter, dineroAdapter);
+    private final ReservaAdapter reservaAdapter = new ReservaAdapter(clienteAdapter, habitacionAdapter, fechaAdapter, pagoAdapter, dineroAdapter);
+
+    public PersistenciaJson() {
+        this(false);
+    }
+
+    /**
+     * @param legible si es true el archivo se escribe indentado (más grande y más lento)
+     */
+    public PersistenciaJson(boolean legible) {
+        this.legible = legible;
+        this.gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, fechaAdapter)
+            .registerTypeAdapter(Dinero.class, dineroAdapter)
+            .registerTypeAdapter(Cliente.class, clienteAdapter)
+            .registerTypeAdapter(Habitacion.class, habitacionAdapter)
+            .registerTypeAdapter(CasaRural.class, casaRuralAdapter)
+            .registerTypeAdapter(Reserva.class, reservaAdapter)
+            .registerTypeHierarchyAdapter(Pago.class, pagoAdapter)
+            .create();
+    }
+
+    public Gson getGson() {
+        return gson;
+    }
+
+    /**
+     * @return Importes con más de dos decimales redondeados al leer (archivos y diario)
+     */
+    public long getImportesRedondeados() {
+        return dineroAdapter.getRedondeados();
+    }
+
+    // ===== ESCRITURA =====
+
+    /**
+     * Guarda el estado completo en el archivo indicado
+     * @return Número de bytes escritos
+     */
+    public long guardar(Path archivo, CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas) throws IOException {
+        return guardar(archivo, casaRural, clientes, reservas, false);
+    }
+
+    @Override
+    public long guardar(Path archivo, CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas, boolean forzarDisco) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            JsonWriter writer = gson.newJsonWriter(new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8), TAMANO_BUFFER));
+            if (legible) {
+                writer.setIndent("  ");
+            }
+            escribir(writer, casaRural, clientes, reservas);
+            writer.flush();
+            if (forzarDisco) {
+                canal.force(true);
+            }
+            long bytes = canal.size();
+            writer.close();
+            return bytes;
+        }
+    }
+
+    /**
+     * Escribe el documento completo sobre un JsonWriter ya abierto
+     */
+    public void escribir(JsonWriter writer, CasaRural casaRural, Collection<Cliente> clientes, Collection<Reserva> reservas) throws IOException {
+        writer.beginObject();
+        writer.name("version").value(VERSION_FORMATO);
+
+        if (casaRural != null) {
+            writer.name("casaRural");
+            casaRuralAdapter.write(writer, casaRural);
+        }
+
+        writer.name("clientes").beginArray();
+        for (Cliente cliente : clientes) {
+            clienteAdapter.write(writer, cliente);
+        }
+        writer.endArray();
+
+        // Clientes y habitaciones referenciados por reservas pero ya no registrados
+        Archivados archivados = Archivados.de(casaRural, clientes, reservas);
+
+        if (!archivados.clientes.isEmpty()) {
+            writer.name("clientesArchivados").beginArray();
+            for (Cliente cliente : archivados.clientes.values()) {
+                clienteAdapter.write(writer, cliente);
+            }
+            writer.endArray();
+        }
+
+        if (!archivados.habitaciones.isEmpty()) {
+            writer.name("habitacionesArchivadas").beginArray();
+            for (Habitacion habitacion : archivados.habitaciones.values()) {
+                habitacionAdapter.write(writer, habitacion);
+            }
+            writer.endArray();
+        }
+
+        writer.name("reservas").beginArray();
+        for (Reserva reserva : reservas) {
+            escribirReserva(writer, reserva);
+        }
+        writer.endArray();
+
+        writer.endObject();
+    }
+
+    /**
+     * Escribe una reserva con referencias (clienteId / habitacionId) en lugar de copias
+     */
+    void escribirReserva(JsonWriter writer, Reserva reserva) throws IOException {
+        reservaAdapter.escribir(writer, reserva, true);
+    }
+
+    // ===== LECTURA =====
+
+    @Override
+    public void cargar(Path archivo, ReceptorDatos receptor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+             JsonReader reader = gson.newJsonReader(new BufferedReader(Channels.newReader(canal, StandardCharsets.UTF_8), TAMANO_BUFFER))) {
+            leer(reader, receptor);
+        }
+    }
+
+    /**
+     * Lee el documento completo desde un JsonReader ya abierto.
+     * Acepta tanto el formato actual (referencias) como el anterior (copias anidadas).
+     */
+    public void leer(JsonReader reader, ReceptorDatos receptor) throws IOException {
+        Referencias referencias = new Referencias();
+        int version = 1;
+        long redondeados = dineroAdapter.getRedondeados();
+
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String campo = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (campo) {
+                    case "version" -> {
+                        version = reader.nextInt();
+                        if (version > VERSION_FORMATO) {
+                            throw new IOException("Versión de formato no soportada: " + version);
+                        }
+                    }
+                    case "casaRural" -> leerCasaRural(reader, receptor, referencias);
+                    case "clientes" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            receptor.cliente(referencias.canonico(clienteAdapter.read(reader)));
+                        }
+                        reader.endArray();
+                    }
+                    case "clientesArchivados" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            referencias.canonico(clienteAdapter.read(reader));
+                        }
+                        reader.endArray();
+                    }
+                    case "habitacionesArchivadas" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            referencias.canonica(habitacionAdapter.read(reader));
+                        }
+                        reader.endArray();
+                    }
+                    case "reservas" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            receptor.reserva(leerReserva(reader, referencias));
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("El archivo no tiene un formato JSON válido: " + e.getMessage(), e);
+        }
+
+        receptor.version(version);
+        receptor.importesRedondeados(dineroAdapter.getRedondeados() - redondeados);
+    }
+
+    /**
+     * Lee una reserva en cualquiera de los dos formatos y la enlaza con las
+     * instancias únicas de cliente y habitación
+     */
+    Reserva leerReserva(JsonReader reader, Referencias referencias) throws IOException {
+        return reservaAdapter.leer(reader, referencias);
+    }
+
+    private void leerCasaRural(JsonReader reader, ReceptorDatos receptor, Referencias referencias) throws IOException {
+        UUID id = null;
+        String nombre = null;
+        String direccion = null;
+        String telefono = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String campo = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> id = UUID.fromString(reader.nextString());
+                case "nombre" -> nombre = reader.nextString();
+                case "direccion" -> direccion = reader.nextString();
+                case "telefono" -> telefono = reader.nextString();
+                case "habitaciones" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        receptor.habitacion(referencias.canonica(habitacionAdapter.read(reader)));
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        receptor.casaRural(new CasaRural(id, nombre, direccion, telefono));
+    }
+}
@@ -0,0 +1,39 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+
+/**
+ * Recibe los registros a medida que se leen del archivo, uno a uno,
+ * sin que sea necesario tener el documento completo en memoria.
+ */
+public interface ReceptorDatos {
+
+    /**
+     * Datos generales de la casa rural (sin la lista de habitaciones,
+     * que llegan por separado a través de {@link #habitacion(Habitacion)})
+     */
+    void casaRural(CasaRural casaRural);
+
+    void habitacion(Habitacion habitacion);
+
+    void cliente(Cliente cliente);
+
+    void reserva(Reserva reserva);
+
+    /**
+     * Se invoca al terminar la lectura con la versión de formato del archivo
+     * (1 = reservas con copias anidadas, 2 = reservas con referencias)
+     */
+    default void version(int version) {
+    }
+
+    /**
+     * Se invoca al terminar la lectura con el número de importes guardados con más
+     * de dos decimales (archivos anteriores a Dinero) que se han redondeado al céntimo
+     */
+    default void importesRedondeados(long cantidad) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+import java.util.UUID;
+
+/**
+ * Recibe las mutaciones leídas del diario al reproducirlo, en el mismo orden
+ * en que se registraron. Las implementaciones deben ser idempotentes: una
+ * mutación puede llegar de nuevo si ya estaba incluida en la última instantánea.
+ */
+public interface ReceptorMutaciones {
+
+    void habitacionCreada(Habitacion habitacion);
+
+    void clienteRegistrado(Cliente cliente);
+
+    void clienteEliminado(UUID clienteId);
+
+    void reservaCreada(Reserva reserva);
+
+    void estadoCambiado(UUID reservaId, EstadoReserva estado);
+
+    void pagoAsociado(UUID reservaId, Pago pago);
+
+    void pagoAnulado(UUID reservaId);
+}
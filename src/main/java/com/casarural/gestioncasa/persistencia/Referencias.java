@@ -0,0 +1,45 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Mapa id -> instancia única de clientes y habitaciones usado al leer reservas.
+ * La primera instancia registrada con un id es la canónica; las copias
+ * posteriores se descartan en favor de ella.
+ */
+class Referencias {
+    private final Map<UUID, Cliente> clientes = new HashMap<>();
+    private final Map<UUID, Habitacion> habitaciones = new HashMap<>();
+
+    Cliente canonico(Cliente cliente) {
+        Cliente existente = clientes.putIfAbsent(cliente.getId(), cliente);
+        return existente != null ? existente : cliente;
+    }
+
+    Habitacion canonica(Habitacion habitacion) {
+        Habitacion existente = habitaciones.putIfAbsent(habitacion.getId(), habitacion);
+        return existente != null ? existente : habitacion;
+    }
+
+    Cliente cliente(UUID id) throws IOException {
+        Cliente cliente = clientes.get(id);
+        if (cliente == null) {
+            throw new IOException("La reserva referencia un cliente desconocido: " + id);
+        }
+        return cliente;
+    }
+
+    Habitacion habitacion(UUID id) throws IOException {
+        Habitacion habitacion = habitaciones.get(id);
+        if (habitacion == null) {
+            throw new IOException("La reserva referencia una habitación desconocida: " + id);
+        }
+        return habitacion;
+    }
+}
@@ -0,0 +1,142 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Adaptador GSON en streaming para reservas.
+ *
+ * Usado directamente (gson.toJson(reserva)) escribe la reserva completa, con
+ * copias de su cliente y su habitación. Dentro de un archivo de datos o del
+ * diario se escribe con referencias ("clienteId" / "habitacionId") que se
+ * resuelven al leer con las instancias ya cargadas.
+ */
+public class ReservaAdapter extends TypeAdapter<Reserva> {
+    private final ClienteAdapter clientes;
+    private final HabitacionAdapter habitaciones;
+    private final LocalDateTimeAdapter fechas;
+    private final PagoAdapter pagos;
+    private final DineroAdapter importes;
+
+    public ReservaAdapter(ClienteAdapter clientes, HabitacionAdapter habitaciones, LocalDateTimeAdapter fechas, PagoAdapter pagos,
+                          DineroAdapter importes) {
+        this.clientes = clientes;
+        this.habitaciones = habitaciones;
+        this.fechas = fechas;
+        this.pagos = pagos;
+        this.importes = importes;
+    }
+
+    @Override
+    public void write(JsonWriter out, Reserva reserva) throws IOException {
+        escribir(out, reserva, false);
+    }
+
+    @Override
+    public Reserva read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return leer(in, new Referencias());
+    }
+
+    /**
+     * @param conReferencias si es true el cliente y la habitación se escriben solo por su id
+     */
+    void escribir(JsonWriter out, Reserva reserva, boolean conReferencias) throws IOException {
+        if (reserva == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(reserva.getId() != null ? reserva.getId().toString() : null);
+        if (conReferencias) {
+            out.name("clienteId").value(reserva.getCliente() != null ? reserva.getCliente().getId().toString() : null);
+            out.name("habitacionId").value(reserva.getHabitacion() != null ? reserva.getHabitacion().getId().toString() : null);
+        } else {
+            out.name("cliente");
+            clientes.write(out, reserva.getCliente());
+            out.name("habitacion");
+            habitaciones.write(out, reserva.getHabitacion());
+        }
+        out.name("fechaInicio");
+        fechas.write(out, reserva.getFechaInicio());
+        out.name("fechaFin");
+        fechas.write(out, reserva.getFechaFin());
+        out.name("noches").value(reserva.getNoches());
+        out.name("precioTotal");
+        importes.write(out, reserva.getPrecioTotal());
+        out.name("estado").value(reserva.getEstado() != null ? reserva.getEstado().name() : null);
+        if (reserva.getPago() != null) {
+            out.name("pago");
+            pagos.write(out, reserva.getPago());
+        }
+        if (reserva.getLimitePago() != null) {
+            out.name("limitePago");
+            fechas.write(out, reserva.getLimitePago());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Lee una reserva con referencias o con copias anidadas y la enlaza con las
+     * instancias únicas de cliente y habitación
+     */
+    Reserva leer(JsonReader in, Referencias referencias) throws IOException {
+        UUID id = null;
+        Cliente cliente = null;
+        Habitacion habitacion = null;
+        LocalDateTime fechaInicio = null;
+        LocalDateTime fechaFin = null;
+        int noches = 0;
+        Dinero precioTotal = Dinero.CERO;
+        EstadoReserva estado = EstadoReserva.PENDIENTE;
+        Pago pago = null;
+        LocalDateTime limitePago = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String campo = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "id" -> id = UUID.fromString(in.nextString());
+                // Con referencias
+                case "clienteId" -> cliente = referencias.cliente(UUID.fromString(in.nextString()));
+                case "habitacionId" -> habitacion = referencias.habitacion(UUID.fromString(in.nextString()));
+                // Con copias anidadas
+                case "cliente" -> cliente = referencias.canonico(clientes.read(in));
+                case "habitacion" -> habitacion = referencias.canonica(habitaciones.read(in));
+                case "fechaInicio" -> fechaInicio = fechas.read(in);
+                case "fechaFin" -> fechaFin = fechas.read(in);
+                case "noches" -> noches = in.nextInt();
+                case "precioTotal" -> precioTotal = importes.read(in);
+                case "estado" -> estado = EstadoReserva.valueOf(in.nextString());
+                case "pago" -> pago = pagos.read(in);
+                case "limitePago" -> limitePago = fechas.read(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        Reserva reserva = Reserva.restaurar(id, cliente, habitacion, fechaInicio, fechaFin, noches, precioTotal, estado, pago);
+        reserva.setLimitePago(limitePago);
+        return reserva;
+    }
+}
@@ -0,0 +1,273 @@
+package com.casarural.gestioncasa.planificacion;
+
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cambia de estado las reservas cuando llega su momento, sin recorrer la lista:
+ * una reserva CONFIRMADA pasa a COMPLETADA al llegar su fecha de salida y una
+ * PENDIENTE que no se ha pagado pasa a CANCELADA cuando caduca (el plazo de pago
+ * antes de la entrada, o la propia entrada si se reservó ya dentro del plazo:
+ * ese límite se decide al crear la reserva con fijarLimitePago y se guarda en
+ * ella, de modo que no cambia al reiniciar).
+ *
+ * Los vencimientos se guardan en una cola de prioridad por fecha y un hilo
+ * duerme hasta el más próximo. Al despertar saca de una vez todos los vencidos
+ * y los aplica con el cambio de estado con versión de la reserva, así que pasan
+ * por el diario, los índices y los eventos como cualquier otro cambio.
+ *
+ * Los vencimientos no se quitan de la cola cuando la reserva cambia: al vencer
+ * se comprueba que la reserva sigue en el estado esperado y, si no, se descartan.
+ * Cada cambio de estado programa el vencimiento que corresponde al estado nuevo.
+ *
+ * No hace falta guardar por dónde se iba: cada cambio aplicado queda en el
+ * diario y, al cargar los datos, la cola se reconstruye a partir del estado de
+ * las reservas, así que lo que venció con la aplicación parada se aplica en el
+ * primer lote.
+ */
+public class PlanificadorCicloVida implements Closeable {
+    private static final int MAXIMO_LOTE = 256;
+    // Espera máxima sin revisar la cola (por si cambia la hora del sistema)
+    private static final long ESPERA_MAXIMA_MS = Duration.ofMinutes(1).toMillis();
+
+    private enum Transicion {
+        // CONFIRMADA -> COMPLETADA al llegar la fecha de salida
+        COMPLETAR(EstadoReserva.CONFIRMADA, EstadoReserva.COMPLETADA),
+        // PENDIENTE -> CANCELADA al terminar el plazo de pago
+        CADUCAR(EstadoReserva.PENDIENTE, EstadoReserva.CANCELADA);
+
+        private final EstadoReserva esperado;
+        private final EstadoReserva destino;
+
+        Transicion(EstadoReserva esperado, EstadoReserva destino) {
+            this.esperado = esperado;
+            this.destino = destino;
+        }
+    }
+
+    private record Vencimiento(LocalDateTime instante, long orden, Reserva reserva, Transicion transicion) {
+    }
+
+    private final Clock reloj;
+    private final Duration plazoPago;
+    // Protegida por su propio monitor, que también sirve para despertar al hilo
+    private final PriorityQueue<Vencimiento> cola = new PriorityQueue<>(
+        Comparator.comparing(Vencimiento::instante).thenComparingLong(Vencimiento::orden));
+    private long siguienteOrden;
+    // Cambia al reconstruir: los lotes sacados antes ya no se aplican
+    private long generacion;
+    private boolean activo = true;
+    private final Thread hilo;
+
+    private final AtomicLong completadas = new AtomicLong();
+    private final AtomicLong caducadas = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * @param reloj Reloj con el que se decide qué ha vencido
+     * @param plazoPago Antelación con la que una reserva pendiente debe estar pagada antes de la entrada
+     */
+    public PlanificadorCicloVida(Clock reloj, Duration plazoPago) {
+        this.reloj = reloj;
+        this.plazoPago = plazoPago;
+        this.hilo = Thread.ofPlatform().name("ciclo-vida").daemon().start(this::ejecutar);
+    }
+
+    // ===== PROGRAMACIÓN =====
+
+    /**
+     * Fija el límite de pago de una reserva que se está creando: si el plazo de
+     * pago ya ha empezado, tiene hasta la entrada. Debe llamarse al crearla, no al
+     * cargarla, porque compara con la hora actual.
+     */
+    public void fijarLimitePago(Reserva reserva) {
+        if (reserva.getLimitePago() == null
+                && !reserva.getFechaInicio().minus(plazoPago).isAfter(LocalDateTime.now(reloj))) {
+            reserva.setLimitePago(reserva.getFechaInicio());
+        }
+    }
+
+    /**
+     * Programa el siguiente vencimiento de la reserva según su estado actual
+     * (ninguno si está cancelada o completada)
+     */
+    public void programar(Reserva reserva) {
+        Vencimiento vencimiento = vencimiento(reserva);
+        if (vencimiento == null) {
+            return;
+        }
+        synchronized (cola) {
+            agregar(vencimiento);
+        }
+    }
+
+    /**
+     * Sustituye los vencimientos programados por los de las reservas indicadas
+     */
+    public void reconstruir(Collection<Reserva> reservas) {
+        List<Vencimiento> vencimientos = new ArrayList<>();
+        for (Reserva reserva : reservas) {
+            Vencimiento vencimiento = vencimiento(reserva);
+            if (vencimiento != null) {
+                vencimientos.add(vencimiento);
+            }
+        }
+        synchronized (cola) {
+            cola.clear();
+            generacion++;
+            for (Vencimiento vencimiento : vencimientos) {
+                agregar(vencimiento);
+            }
+        }
+    }
+
+    private Vencimiento vencimiento(Reserva reserva) {
+        EstadoReserva estado = reserva.getEstado();
+        if (estado == EstadoReserva.CONFIRMADA) {
+            return new Vencimiento(reserva.getFechaFin(), 0, reserva, Transicion.COMPLETAR);
+        }
+        if (estado == EstadoReserva.PENDIENTE) {
+            // No depende de la hora actual: al reconstruir, lo vencido sigue vencido
+            LocalDateTime caducidad = reserva.getLimitePago() != null
+                ? reserva.getLimitePago()
+                : reserva.getFechaInicio().minus(plazoPago);
+            return new Vencimiento(caducidad, 0, reserva, Transicion.CADUCAR);
+        }
+        return null;
+    }
+
+    // Con el monitor de la cola tomado
+    private void agregar(Vencimiento vencimiento) {
+        Vencimiento primero = cola.peek();
+        Vencimiento ordenado = new Vencimiento(vencimiento.instante(), siguienteOrden++, vencimiento.reserva(), vencimiento.transicion());
+        cola.add(ordenado);
+        if (primero == null || ordenado.instante().isBefore(primero.instante())) {
+            // Vence antes de lo que el hilo estaba esperando
+            cola.notifyAll();
+        }
+    }
+
+    // ===== EJECUCIÓN =====
+
+    private void ejecutar() {
+        List<Vencimiento> lote = new ArrayList<>(MAXIMO_LOTE);
+        while (true) {
+            long generacionLote;
+            synchronized (cola) {
+                while (activo && !hayVencidos()) {
+                    try {
+                        cola.wait(espera());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!activo) {
+                    return;
+                }
+                LocalDateTime ahora = LocalDateTime.now(reloj);
+                while (lote.size() < MAXIMO_LOTE && !cola.isEmpty() && !cola.peek().instante().isAfter(ahora)) {
+                    lote.add(cola.poll());
+                }
+                generacionLote = generacion;
+            }
+            // Los cambios se aplican fuera del monitor de la cola: toman el de cada reserva
+            for (Vencimiento vencimiento : lote) {
+                synchronized (cola) {
+                    if (generacion != generacionLote) {
+                        break;
+                    }
+                }
+                aplicar(vencimiento);
+            }
+            lote.clear();
+        }
+    }
+
+    private boolean hayVencidos() {
+        Vencimiento primero = cola.peek();
+        return primero != null && !primero.instante().isAfter(LocalDateTime.now(reloj));
+    }
+
+    // Milisegundos hasta el próximo vencimiento, sin pasar de la espera máxima
+    private long espera() {
+        Vencimiento primero = cola.peek();
+        if (primero == null) {
+            return ESPERA_MAXIMA_MS;
+        }
+        long hasta = Duration.between(LocalDateTime.now(reloj), primero.instante()).toMillis();
+        return Math.clamp(hasta, 1, ESPERA_MAXIMA_MS);
+    }
+
+    private void aplicar(Vencimiento vencimiento) {
+        Reserva reserva = vencimiento.reserva();
+        Transicion transicion = vencimiento.transicion();
+        long version;
+        EstadoReserva estado;
+        synchronized (reserva) {
+            version = reserva.getVersion();
+            estado = reserva.getEstado();
+        }
+        if (estado != transicion.esperado) {
+            // La reserva cambió después de programar el vencimiento
+            descartados.incrementAndGet();
+            return;
+        }
+        try {
+            reserva.cambiarEstado(transicion.destino, version);
+            (transicion == Transicion.COMPLETAR ? completadas : caducadas).incrementAndGet();
+        } catch (VersionObsoletaExcepcion | EstadoReservaExcepcion e) {
+            // Otro la cambió entretanto; ese cambio ya ha programado su propio vencimiento
+            descartados.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Vencimientos en cola (incluidos los de reservas que ya han cambiado y se descartarán)
+     */
+    public int getProgramados() {
+        synchronized (cola) {
+            return cola.size();
+        }
+    }
+
+    public long getCompletadas() {
+        return completadas.get();
+    }
+
+    public long getCaducadas() {
+        return caducadas.get();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * Detiene el hilo; los vencimientos pendientes se aplicarán en el próximo arranque
+     */
+    @Override
+    public void close() {
+        synchronized (cola) {
+            activo = false;
+            cola.notifyAll();
+        }
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
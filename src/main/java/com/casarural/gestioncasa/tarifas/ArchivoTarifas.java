@@ -0,0 +1,103 @@
+package com.casarural.gestioncasa.tarifas;
+
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.EstanciaLarga;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.FinDeSemana;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Ocupacion;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Temporada;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lee las reglas de tarifa de un archivo JSON: una lista de reglas, cada una
+ * con su "tipo" (temporada, finDeSemana, estanciaLarga u ocupacion), su
+ * "factor" y los campos del registro correspondiente de ReglaTarifa.
+ *
+ *   [{"tipo": "temporada", "nombre": "Verano", "desde": "2026-07-01", "hasta": "2026-08-31", "factor": 1.20},
+ *    {"tipo": "finDeSemana", "dias": ["FRIDAY", "SATURDAY"], "factor": 1.15},
+ *    {"tipo": "estanciaLarga", "nochesMinimas": 7, "factor": 0.90},
+ *    {"tipo": "ocupacion", "porcentajeMinimo": 80, "factor": 1.10}]
+ */
+public final class ArchivoTarifas {
+
+    private ArchivoTarifas() {
+    }
+
+    /**
+     * @throws IOException Si no se puede leer o alguna regla no es válida (no se aplica ninguna)
+     */
+    public static List<ReglaTarifa> leer(Path archivo) throws IOException {
+        List<ReglaTarifa> reglas = new ArrayList<>();
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+             JsonReader in = new JsonReader(lector)) {
+            in.beginArray();
+            while (in.hasNext()) {
+                try {
+                    reglas.add(leerRegla(in));
+                } catch (IllegalArgumentException | IllegalStateException | DateTimeException e) {
+                    throw new IOException("Regla " + (reglas.size() + 1) + " de " + archivo + ": " + e.getMessage(), e);
+                }
+            }
+            in.endArray();
+        } catch (IllegalStateException e) {
+            throw new IOException("Formato no válido en " + archivo + ": " + e.getMessage(), e);
+        }
+        return reglas;
+    }
+
+    private static ReglaTarifa leerRegla(JsonReader in) throws IOException {
+        String tipo = null;
+        String nombre = null;
+        LocalDate desde = null;
+        LocalDate hasta = null;
+        Set<DayOfWeek> dias = new HashSet<>();
+        int numero = -1;
+        BigDecimal factor = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "tipo" -> tipo = in.nextString();
+                case "nombre" -> nombre = in.nextString();
+                case "desde" -> desde = LocalDate.parse(in.nextString());
+                case "hasta" -> hasta = LocalDate.parse(in.nextString());
+                case "dias" -> {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        dias.add(DayOfWeek.valueOf(in.nextString().toUpperCase(Locale.ROOT)));
+                    }
+                    in.endArray();
+                }
+                case "nochesMinimas", "porcentajeMinimo" -> numero = in.nextInt();
+                case "factor" -> factor = new BigDecimal(in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (tipo == null) {
+            throw new IllegalArgumentException("falta el tipo");
+        }
+        return switch (tipo) {
+            case "temporada" -> new Temporada(nombre, desde, hasta, factor);
+            case "finDeSemana" -> new FinDeSemana(dias, factor);
+            case "estanciaLarga" -> new EstanciaLarga(numero, factor);
+            case "ocupacion" -> new Ocupacion(numero, factor);
+            default -> throw new IllegalArgumentException("tipo desconocido: " + tipo);
+        };
+    }
+}
@@ -0,0 +1,367 @@
+package com.casarural.gestioncasa.tarifas;
+
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.EstanciaLarga;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.FinDeSemana;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Ocupacion;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Temporada;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Calcula el precio de las estancias aplicando las reglas de tarifa
+ * (temporadas, fines de semana, ocupación de la casa y estancias largas).
+ *
+ * Las reglas se compilan en una tabla con el precio de cada noche de cada
+ * habitación para un horizonte de fechas, guardado como sumas acumuladas en
+ * céntimos: el precio de cualquier estancia dentro del horizonte es la resta de
+ * dos posiciones, sin evaluar las reglas noche a noche. Las estancias fuera del
+ * horizonte se calculan noche a noche.
+ *
+ * La tabla se vuelve a compilar (la primera vez que se pide un precio) cuando
+ * cambian las reglas, el precio por noche de una habitación, las habitaciones
+ * o el tramo de ocupación de alguna noche. Los precios que no salen de la tabla
+ * se guardan en una caché acotada que se descarta con cada compilación (para
+ * los de la tabla, consultar la caché costaría más que calcularlos).
+ *
+ * Las estancias tienen un máximo de noches, y las que se calculan noche a noche
+ * lo hacen con una copia de las reglas y de la ocupación de sus noches, fuera
+ * del monitor del motor: registrar una reserva (ocupar) no espera a que termine
+ * un cálculo largo.
+ */
+public class MotorTarifas {
+    /** Noches que puede tener como máximo una estancia que se cotiza */
+    public static final int ESTANCIA_MAXIMA = 365;
+    // Noches anteriores a hoy que cubre la tabla (para recalcular reservas recientes)
+    private static final int DIAS_PASADOS = 30;
+    private static final int HORIZONTE_DIAS = 730;
+    private static final int CAPACIDAD_CACHE = 4096;
+
+    /**
+     * Tabla compilada; no se modifica, se sustituye entera
+     * @param prefijos Por habitación: prefijo[i] es la suma de las noches anteriores a primerDia + i, en céntimos
+     * @param estancias Descuentos por estancia larga, de más noches a menos
+     */
+    private record Tabla(long generacion, long primerDia, Map<UUID, long[]> prefijos, List<EstanciaLarga> estancias) {
+    }
+
+    private record Clave(UUID habitacion, long entrada, long salida) {
+    }
+
+    private record Cotizacion(long generacion, long centimos) {
+    }
+
+    /**
+     * Lo necesario para calcular el factor de unas noches sin el monitor del motor
+     * @param ocupadas Habitaciones ocupadas cada noche desde primerDia
+     */
+    private record Reglas(List<Temporada> temporadas, List<FinDeSemana> finesDeSemana, List<Ocupacion> ocupaciones,
+                          int habitaciones, long primerDia, int[] ocupadas) {
+    }
+
+    private final Clock reloj;
+    private volatile Tabla tabla;
+    private long generacion;
+
+    // Estado a partir del que se compila (protegido por el monitor del motor)
+    private List<Temporada> temporadas = List.of();
+    private List<FinDeSemana> finesDeSemana = List.of();
+    // Ordenadas de más noches a menos
+    private List<EstanciaLarga> estancias = List.of();
+    // Ordenadas de mayor umbral a menor
+    private List<Ocupacion> ocupaciones = List.of();
+    private List<ReglaTarifa> reglas = List.of();
+    private final Map<UUID, Habitacion> habitaciones = new HashMap<>();
+    // Habitaciones ocupadas cada noche (día de la época), por reservas no canceladas
+    private final Map<Long, Integer> ocupadas = new HashMap<>();
+
+    // Últimos precios calculados (protegida por su propio monitor)
+    private final Map<Clave, Cotizacion> cache = new LinkedHashMap<>(CAPACIDAD_CACHE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Clave, Cotizacion> mayor) {
+            return size() > CAPACIDAD_CACHE;
+        }
+    };
+
+    public MotorTarifas(Clock reloj) {
+        this.reloj = reloj;
+    }
+
+    /**
+     * Precio sin reglas: el precio por noche por el número de noches
+     */
+    public static Dinero precioBase(Dinero precioNoche, long noches) {
+        return precioNoche.multiplicar(noches);
+    }
+
+    // ===== COTIZACIÓN =====
+
+    /**
+     * Precio de la estancia en la habitación entre las fechas indicadas (cuentan las noches entre los días)
+     */
+    public Dinero cotizar(Habitacion habitacion, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        long entrada = fechaInicio.toLocalDate().toEpochDay();
+        long salida = fechaFin.toLocalDate().toEpochDay();
+        if (salida <= entrada) {
+            return Dinero.CERO;
+        }
+        if (salida - entrada > ESTANCIA_MAXIMA) {
+            throw new IllegalArgumentException("La estancia no puede pasar de " + ESTANCIA_MAXIMA + " noches");
+        }
+        Tabla actual = tablaActual();
+        long[] prefijo = actual.prefijos().get(habitacion.getId());
+        if (prefijo != null && entrada >= actual.primerDia() && salida - actual.primerDia() < prefijo.length) {
+            long noches = prefijo[(int) (salida - actual.primerDia())] - prefijo[(int) (entrada - actual.primerDia())];
+            return Dinero.deCentimos(aplicarEstancia(actual, noches, salida - entrada));
+        }
+
+        Clave clave = new Clave(habitacion.getId(), entrada, salida);
+        synchronized (cache) {
+            Cotizacion cotizacion = cache.get(clave);
+            if (cotizacion != null && cotizacion.generacion() == actual.generacion()) {
+                return Dinero.deCentimos(cotizacion.centimos());
+            }
+        }
+        long centimos = aplicarEstancia(actual, sumarNoches(habitacion, entrada, salida), salida - entrada);
+        synchronized (cache) {
+            cache.put(clave, new Cotizacion(actual.generacion(), centimos));
+        }
+        return Dinero.deCentimos(centimos);
+    }
+
+    private Tabla tablaActual() {
+        Tabla actual = tabla;
+        // En la zona del reloj, igual que en compilar(): en UTC el día cambiaría a otra hora
+        long hoy = LocalDate.now(reloj).toEpochDay();
+        // Con el paso de los días el horizonte se queda corto: se vuelve a centrar
+        if (actual != null && hoy - actual.primerDia() <= 2 * DIAS_PASADOS) {
+            return actual;
+        }
+        synchronized (this) {
+            if (tabla == null || hoy - tabla.primerDia() > 2 * DIAS_PASADOS) {
+                tabla = compilar();
+            }
+            return tabla;
+        }
+    }
+
+    // Fuera del horizonte: noche a noche, con una copia de las reglas y de la ocupación de esas noches
+    private long sumarNoches(Habitacion habitacion, long entrada, long salida) {
+        Reglas reglas;
+        synchronized (this) {
+            reglas = copiarReglas(entrada, salida);
+        }
+        Dinero precioNoche = habitacion.getPrecioNoche();
+        long total = 0;
+        for (long dia = entrada; dia < salida; dia++) {
+            total += centimos(precioNoche, factorNoche(reglas, dia));
+        }
+        return total;
+    }
+
+    // Con el monitor del motor tomado
+    private Reglas copiarReglas(long primerDia, long ultimoDia) {
+        int[] ocupadasNoche = new int[(int) (ultimoDia - primerDia)];
+        for (int i = 0; i < ocupadasNoche.length; i++) {
+            ocupadasNoche[i] = ocupadas.getOrDefault(primerDia + i, 0);
+        }
+        // Las listas de reglas no se modifican: setReglas las sustituye
+        return new Reglas(temporadas, finesDeSemana, ocupaciones, habitaciones.size(), primerDia, ocupadasNoche);
+    }
+
+    private static long aplicarEstancia(Tabla tabla, long centimos, long noches) {
+        for (EstanciaLarga estancia : tabla.estancias()) {
+            if (noches >= estancia.nochesMinimas()) {
+                return BigDecimal.valueOf(centimos).multiply(estancia.factor()).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            }
+        }
+        return centimos;
+    }
+
+    // ===== COMPILACIÓN =====
+
+    // Con el monitor del motor tomado
+    private Tabla compilar() {
+        long primerDia = LocalDate.now(reloj).toEpochDay() - DIAS_PASADOS;
+        int dias = DIAS_PASADOS + HORIZONTE_DIAS;
+        Reglas reglas = copiarReglas(primerDia, primerDia + dias);
+        // El factor de cada noche es el mismo para todas las habitaciones
+        BigDecimal[] factores = new BigDecimal[dias];
+        for (int i = 0; i < dias; i++) {
+            factores[i] = factorNoche(reglas, primerDia + i);
+        }
+
+        Map<UUID, long[]> prefijos = new HashMap<>();
+        for (Habitacion habitacion : habitaciones.values()) {
+            Dinero precioNoche = habitacion.getPrecioNoche();
+            long[] prefijo = new long[dias + 1];
+            for (int i = 0; i < dias; i++) {
+                prefijo[i + 1] = prefijo[i] + centimos(precioNoche, factores[i]);
+            }
+            prefijos.put(habitacion.getId(), prefijo);
+        }
+        return new Tabla(++generacion, primerDia, prefijos, estancias);
+    }
+
+    private static BigDecimal factorNoche(Reglas reglas, long dia) {
+        BigDecimal factor = BigDecimal.ONE;
+        LocalDate noche = LocalDate.ofEpochDay(dia);
+        for (Temporada temporada : reglas.temporadas()) {
+            if (temporada.incluye(noche)) {
+                factor = factor.multiply(temporada.factor());
+                break;
+            }
+        }
+        for (FinDeSemana finDeSemana : reglas.finesDeSemana()) {
+            if (finDeSemana.dias().contains(noche.getDayOfWeek())) {
+                factor = factor.multiply(finDeSemana.factor());
+            }
+        }
+        Ocupacion ocupacion = tramoOcupacion(reglas.ocupaciones(), reglas.habitaciones(),
+            reglas.ocupadas()[(int) (dia - reglas.primerDia())]);
+        if (ocupacion != null) {
+            factor = factor.multiply(ocupacion.factor());
+        }
+        return factor;
+    }
+
+    private static long centimos(Dinero precioNoche, BigDecimal factor) {
+        if (factor.compareTo(BigDecimal.ONE) == 0) {
+            return precioNoche.centimos();
+        }
+        return BigDecimal.valueOf(precioNoche.centimos()).multiply(factor).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // Regla de ocupación que corresponde a las habitaciones ocupadas una noche (null si ninguna)
+    private Ocupacion tramoOcupacion(int ocupadasNoche) {
+        return tramoOcupacion(ocupaciones, habitaciones.size(), ocupadasNoche);
+    }
+
+    private static Ocupacion tramoOcupacion(List<Ocupacion> ocupaciones, int habitaciones, int ocupadasNoche) {
+        if (ocupaciones.isEmpty() || habitaciones == 0) {
+            return null;
+        }
+        int porcentaje = ocupadasNoche * 100 / habitaciones;
+        for (Ocupacion ocupacion : ocupaciones) {
+            if (porcentaje >= ocupacion.porcentajeMinimo()) {
+                return ocupacion;
+            }
+        }
+        return null;
+    }
+
+    // Con el monitor del motor tomado
+    private void invalidar() {
+        tabla = null;
+    }
+
+    // ===== CAMBIOS =====
+
+    /**
+     * Sustituye las reglas de tarifa
+     */
+    public synchronized void setReglas(List<ReglaTarifa> reglas) {
+        List<Temporada> temporadas = new ArrayList<>();
+        List<FinDeSemana> finesDeSemana = new ArrayList<>();
+        List<EstanciaLarga> estancias = new ArrayList<>();
+        List<Ocupacion> ocupaciones = new ArrayList<>();
+        for (ReglaTarifa regla : reglas) {
+            switch (regla) {
+                case Temporada temporada -> temporadas.add(temporada);
+                case FinDeSemana finDeSemana -> finesDeSemana.add(finDeSemana);
+                case EstanciaLarga estancia -> estancias.add(estancia);
+                case Ocupacion ocupacion -> ocupaciones.add(ocupacion);
+            }
+        }
+        estancias.sort(Comparator.comparingInt(EstanciaLarga::nochesMinimas).reversed());
+        ocupaciones.sort(Comparator.comparingInt(Ocupacion::porcentajeMinimo).reversed());
+        this.reglas = List.copyOf(reglas);
+        this.temporadas = temporadas;
+        this.finesDeSemana = finesDeSemana;
+        this.estancias = estancias;
+        this.ocupaciones = ocupaciones;
+        invalidar();
+    }
+
+    public synchronized List<ReglaTarifa> getReglas() {
+        return reglas;
+    }
+
+    public synchronized void habitacionAgregada(Habitacion habitacion) {
+        habitaciones.put(habitacion.getId(), habitacion);
+        invalidar();
+    }
+
+    public synchronized void precioCambiado(Habitacion habitacion) {
+        invalidar();
+    }
+
+    /**
+     * Cuenta las noches de la reserva en la ocupación de la casa
+     */
+    public synchronized void ocupar(Reserva reserva) {
+        cambiarOcupacion(reserva, 1);
+    }
+
+    /**
+     * Descuenta las noches de una reserva cancelada
+     */
+    public synchronized void liberar(Reserva reserva) {
+        cambiarOcupacion(reserva, -1);
+    }
+
+    private void cambiarOcupacion(Reserva reserva, int cambio) {
+        long entrada = reserva.getFechaInicio().toLocalDate().toEpochDay();
+        long salida = reserva.getFechaFin().toLocalDate().toEpochDay();
+        boolean cambiaTramo = false;
+        for (long dia = entrada; dia < salida; dia++) {
+            int antes = ocupadas.getOrDefault(dia, 0);
+            int despues = antes + cambio;
+            if (despues == 0) {
+                ocupadas.remove(dia);
+            } else {
+                ocupadas.put(dia, despues);
+            }
+            cambiaTramo |= tramoOcupacion(antes) != tramoOcupacion(despues);
+        }
+        // Sin reglas de ocupación (o sin cambio de tramo) los precios no cambian
+        if (cambiaTramo) {
+            invalidar();
+        }
+    }
+
+    /**
+     * Vuelve a contar la ocupación y las habitaciones tras cargar los datos
+     */
+    public synchronized void reconstruir(Collection<Habitacion> habitaciones, Collection<Reserva> reservas) {
+        this.habitaciones.clear();
+        for (Habitacion habitacion : habitaciones) {
+            this.habitaciones.put(habitacion.getId(), habitacion);
+        }
+        ocupadas.clear();
+        for (Reserva reserva : reservas) {
+            if (reserva.getEstado() != EstadoReserva.CANCELADA && reserva.getFechaInicio() != null && reserva.getFechaFin() != null) {
+                long salida = reserva.getFechaFin().toLocalDate().toEpochDay();
+                for (long dia = reserva.getFechaInicio().toLocalDate().toEpochDay(); dia < salida; dia++) {
+                    ocupadas.merge(dia, 1, Integer::sum);
+                }
+            }
+        }
+        invalidar();
+    }
+}
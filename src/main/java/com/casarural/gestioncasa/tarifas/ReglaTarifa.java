@@ -0,0 +1,72 @@
+package com.casarural.gestioncasa.tarifas;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Reglas que ajustan el precio por noche de las habitaciones. Los factores
+ * multiplican el precio (1.20 es un 20 % más; 0.90, un 10 % menos).
+ */
+public sealed interface ReglaTarifa {
+
+    /**
+     * Noches entre dos fechas (ambas incluidas). Si varias temporadas cubren
+     * la misma noche se aplica la primera de la lista.
+     */
+    record Temporada(String nombre, LocalDate desde, LocalDate hasta, BigDecimal factor) implements ReglaTarifa {
+        public Temporada {
+            comprobarFactor(factor);
+            if (desde == null || hasta == null || hasta.isBefore(desde)) {
+                throw new IllegalArgumentException("Fechas de temporada no válidas: " + desde + " - " + hasta);
+            }
+        }
+
+        boolean incluye(LocalDate noche) {
+            return !noche.isBefore(desde) && !noche.isAfter(hasta);
+        }
+    }
+
+    /**
+     * Noches que empiezan en los días indicados (normalmente viernes y sábado)
+     */
+    record FinDeSemana(Set<DayOfWeek> dias, BigDecimal factor) implements ReglaTarifa {
+        public FinDeSemana {
+            comprobarFactor(factor);
+            dias = Set.copyOf(dias);
+        }
+    }
+
+    /**
+     * Descuento sobre el total de las estancias de al menos esas noches. Si
+     * hay varias, se aplica la de más noches que cumpla la estancia.
+     */
+    record EstanciaLarga(int nochesMinimas, BigDecimal factor) implements ReglaTarifa {
+        public EstanciaLarga {
+            comprobarFactor(factor);
+            if (nochesMinimas < 1) {
+                throw new IllegalArgumentException("Las noches mínimas deben ser al menos 1: " + nochesMinimas);
+            }
+        }
+    }
+
+    /**
+     * Noches en las que la casa tiene ocupado al menos ese porcentaje de
+     * habitaciones. Si hay varias, se aplica la del umbral más alto alcanzado.
+     */
+    record Ocupacion(int porcentajeMinimo, BigDecimal factor) implements ReglaTarifa {
+        public Ocupacion {
+            comprobarFactor(factor);
+            if (porcentajeMinimo < 0 || porcentajeMinimo > 100) {
+                throw new IllegalArgumentException("Porcentaje de ocupación no válido: " + porcentajeMinimo);
+            }
+        }
+    }
+
+    private static void comprobarFactor(BigDecimal factor) {
+        if (factor == null || factor.signum() <= 0) {
+            throw new IllegalArgumentException("El factor debe ser mayor que cero: " + factor);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.casarural.gestioncasa;
+
+import com.casarural.gestioncasa.disponibilidad.CalendarioOcupacion;
+import com.casarural.gestioncasa.excepciones.EstadoReservaExcepcion;
+import com.casarural.gestioncasa.excepciones.HabitacionNoDisponibleExcepcion;
+import com.casarural.gestioncasa.excepciones.VersionObsoletaExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reservas y cancelaciones desde varios hilos a la vez a través del servicio,
+ * como llegan de la consola y de la API: nunca quedan dos reservas activas
+ * solapadas, cada cancelación disputada gana una sola vez, y al terminar las
+ * listas, los índices, las vistas, el calendario, los indicadores y el diario
+ * coinciden entre sí.
+ */
+class ReservasConcurrentesTest {
+    private static final LocalDate DESDE = LocalDate.of(2030, 1, 1);
+    private static final int DIAS = 120;
+    private static final int HABITACIONES = 8;
+    private static final int HILOS_RESERVA = 6;
+    private static final int HILOS_CANCELACION = 2;
+    private static final int INTENTOS = 1_500;
+
+    @TempDir
+    Path directorio;
+
+    private GestionCasaRuralService servicio;
+    private List<Habitacion> habitaciones;
+    private Cliente cliente;
+
+    @BeforeEach
+    void preparar() throws Exception {
+        servicio = new GestionCasaRuralService(directorio);
+        servicio.cargar();
+        for (int i = 1; i <= HABITACIONES; i++) {
+            servicio.darAltaHabitacion(String.format("H%03d", i), "Habitación " + i, 2, Dinero.de("50.00"));
+        }
+        habitaciones = servicio.getHabitaciones();
+        cliente = servicio.registrarCliente("Estres", "00000000T", "estres@casarural.com", "600000000");
+    }
+
+    @AfterEach
+    void cerrar() throws IOException {
+        servicio.cerrar();
+    }
+
+    @Test
+    void reservasYCancelacionesConcurrentesDejanTodoCoherente() throws Exception {
+        Queue<Reserva> aceptadas = new ConcurrentLinkedQueue<>();
+        Queue<Reserva> porCancelar = new ConcurrentLinkedQueue<>();
+        Queue<Throwable> fallos = new ConcurrentLinkedQueue<>();
+        AtomicInteger cancelacionesDobles = new AtomicInteger();
+
+        CountDownLatch salida = new CountDownLatch(1);
+        CountDownLatch reservando = new CountDownLatch(HILOS_RESERVA);
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < HILOS_RESERVA; h++) {
+            trabajadores.add(Thread.ofPlatform().name("reserva-" + h).start(() -> {
+                try {
+                    salida.await();
+                    reservarAlAzar(aceptadas, porCancelar);
+                } catch (Throwable e) {
+                    fallos.add(e);
+                } finally {
+                    reservando.countDown();
+                }
+            }));
+        }
+        for (int h = 0; h < HILOS_CANCELACION; h++) {
+            trabajadores.add(Thread.ofPlatform().name("cancelacion-" + h).start(() -> {
+                try {
+                    salida.await();
+                    // Cancela una de cada tres reservas aceptadas mientras quede alguien reservando
+                    while (reservando.getCount() > 0 || !porCancelar.isEmpty()) {
+                        Reserva reserva = porCancelar.poll();
+                        if (reserva == null) {
+                            Thread.onSpinWait();
+                        } else if (ThreadLocalRandom.current().nextInt(3) == 0 && disputarCancelacion(reserva) != 1) {
+                            cancelacionesDobles.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    fallos.add(e);
+                }
+            }));
+        }
+        salida.countDown();
+        for (Thread trabajador : trabajadores) {
+            trabajador.join();
+        }
+
+        assertTrue(fallos.isEmpty(), () -> "Fallos en los hilos: " + fallos);
+        assertEquals(0, cancelacionesDobles.get(), "Reservas canceladas más (o menos) de una vez");
+        assertTrue(aceptadas.size() > 0);
+
+        comprobarSinSolapes();
+        comprobarListasEIndices(new ArrayList<>(aceptadas));
+        comprobarCalendario();
+        assertEquals(List.of(), servicio.verificarIndicadores());
+        comprobarDiario();
+    }
+
+    private void reservarAlAzar(Queue<Reserva> aceptadas, Queue<Reserva> porCancelar) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < INTENTOS; i++) {
+            Habitacion habitacion = habitaciones.get(random.nextInt(habitaciones.size()));
+            LocalDateTime entrada = DESDE.plusDays(random.nextInt(DIAS)).atTime(14, 0);
+            LocalDateTime salida = entrada.toLocalDate().plusDays(1 + random.nextInt(7)).atTime(12, 0);
+            try {
+                Reserva reserva = servicio.reservar(cliente, habitacion, entrada, salida);
+                aceptadas.add(reserva);
+                porCancelar.add(reserva);
+            } catch (HabitacionNoDisponibleExcepcion e) {
+                // Solape con otra reserva activa
+            }
+        }
+    }
+
+    // Dos hilos intentan cancelar la misma reserva con la misma versión leída: solo uno debe conseguirlo
+    private int disputarCancelacion(Reserva reserva) throws InterruptedException {
+        long version = reserva.getVersion();
+        AtomicInteger exitos = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        Runnable cancelar = () -> {
+            try {
+                salida.await();
+                servicio.cambiarEstado(reserva, EstadoReserva.CANCELADA, version);
+                exitos.incrementAndGet();
+            } catch (VersionObsoletaExcepcion | EstadoReservaExcepcion e) {
+                // La ha cancelado el otro hilo
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread rival = Thread.ofPlatform().start(cancelar);
+        salida.countDown();
+        cancelar.run();
+        rival.join();
+        return exitos.get();
+    }
+
+    private void comprobarSinSolapes() {
+        for (Habitacion habitacion : habitaciones) {
+            List<Reserva> activas = activas(habitacion);
+            activas.sort((a, b) -> a.getFechaInicio().compareTo(b.getFechaInicio()));
+            for (int i = 1; i < activas.size(); i++) {
+                assertTrue(!activas.get(i).getFechaInicio().isBefore(activas.get(i - 1).getFechaFin()),
+                    "Reservas solapadas en " + habitacion.getCodigo() + ": " + activas.get(i - 1).getId()
+                        + " y " + activas.get(i).getId());
+            }
+        }
+    }
+
+    private void comprobarListasEIndices(List<Reserva> aceptadas) {
+        List<Reserva> reservas = servicio.getReservas();
+        assertEquals(new HashSet<>(aceptadas), new HashSet<>(reservas));
+        assertEquals(aceptadas.size(), reservas.size());
+        for (Reserva reserva : aceptadas) {
+            assertSame(reserva, servicio.buscarReserva(reserva.getId()));
+        }
+
+        // Índice por cliente y vistas por estado, actualizados por los observadores
+        assertEquals(new HashSet<>(reservas), new HashSet<>(servicio.getReservasCliente(cliente)));
+        Map<EstadoReserva, Integer> recuento = servicio.getRecuentoReservas(cliente);
+        for (EstadoReserva estado : EstadoReserva.values()) {
+            Set<Reserva> enEstado = new HashSet<>();
+            for (Reserva reserva : reservas) {
+                if (reserva.getEstado() == estado) {
+                    enEstado.add(reserva);
+                }
+            }
+            assertEquals(enEstado, new HashSet<>(servicio.getReservasPorEstado(estado)), estado.name());
+            assertEquals(enEstado.size(), recuento.getOrDefault(estado, 0), estado.name());
+        }
+        assertEquals(new HashSet<>(reservas), new HashSet<>(servicio.getReservasSinPago()));
+    }
+
+    private void comprobarCalendario() {
+        CalendarioOcupacion calendario = servicio.getCalendarioOcupacion();
+        for (Habitacion habitacion : habitaciones) {
+            long noches = 0;
+            for (Reserva reserva : activas(habitacion)) {
+                noches += reserva.getFechaFin().toLocalDate().toEpochDay() - reserva.getFechaInicio().toLocalDate().toEpochDay();
+            }
+            assertEquals(noches, calendario.nochesOcupadas(habitacion, DESDE, DESDE.plusDays(DIAS + 10L)), habitacion.getCodigo());
+        }
+    }
+
+    // Lo que hay en disco (instantánea más diario, sin cerrar el servicio) reproduce el mismo estado
+    private void comprobarDiario() throws IOException {
+        Path copia = Files.createDirectory(directorio.resolve("copia"));
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path archivo : archivos.filter(Files::isRegularFile).toList()) {
+                Files.copy(archivo, copia.resolve(archivo.getFileName()));
+            }
+        }
+
+        Map<UUID, EstadoReserva> estados = new HashMap<>();
+        for (Reserva reserva : servicio.getReservas()) {
+            estados.put(reserva.getId(), reserva.getEstado());
+        }
+
+        GestionCasaRuralService recuperado = new GestionCasaRuralService(copia);
+        try {
+            ResultadoCarga carga = recuperado.cargar();
+            assertNull(carga.errorDiario());
+            Map<UUID, EstadoReserva> recuperados = new HashMap<>();
+            for (Reserva reserva : recuperado.getReservas()) {
+                recuperados.put(reserva.getId(), reserva.getEstado());
+            }
+            assertEquals(estados, recuperados);
+            assertEquals(HABITACIONES, recuperado.getHabitaciones().size());
+            assertNotNull(recuperado.buscarCliente(cliente.getNumeroDocumento()));
+        } finally {
+            recuperado.cerrar();
+        }
+    }
+
+    private List<Reserva> activas(Habitacion habitacion) {
+        List<Reserva> activas = new ArrayList<>();
+        for (Reserva reserva : servicio.getReservas()) {
+            if (reserva.getHabitacion() == habitacion && reserva.getEstado() != EstadoReserva.CANCELADA) {
+                activas.add(reserva);
+            }
+        }
+        return activas;
+    }
+}
@@ -0,0 +1,103 @@
+package com.casarural.gestioncasa.api;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Las rutas que modifican una reserva exigen la versión leída: sin ella
+ * responden 428 y no cambian nada.
+ */
+class ServidorApiTest {
+
+    @TempDir
+    Path directorio;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private GestionCasaRuralService servicio;
+    private ServidorApi api;
+    private Reserva reserva;
+
+    @BeforeEach
+    void arrancar() throws Exception {
+        servicio = new GestionCasaRuralService(directorio);
+        servicio.cargar();
+        Habitacion habitacion = servicio.darAltaHabitacion("H001", "Doble", 2, Dinero.de("45.00"));
+        Cliente ana = servicio.registrarCliente("Ana", "12345678Z", "ana@email.com", "600000000");
+        reserva = servicio.reservar(ana, habitacion, LocalDateTime.of(2030, 5, 1, 14, 0), LocalDateTime.of(2030, 5, 3, 12, 0));
+        api = new ServidorApi(servicio, 0);
+        api.iniciar();
+    }
+
+    @AfterEach
+    void parar() throws Exception {
+        api.close();
+        servicio.cerrar();
+    }
+
+    private HttpResponse<String> enviar(String metodo, String ruta, String cuerpo, String ifMatch) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + api.getPuerto() + ruta))
+            .method(metodo, cuerpo == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(cuerpo));
+        if (ifMatch != null) {
+            peticion.header("If-Match", ifMatch);
+        }
+        return cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void cambiarElEstadoSinVersionResponde428() throws Exception {
+        String ruta = "/reservas/" + reserva.getId() + "/estado";
+        long version = reserva.getVersion();
+
+        assertEquals(428, enviar("PUT", ruta, "{\"estado\":\"CANCELADA\"}", null).statusCode());
+        assertEquals(EstadoReserva.PENDIENTE, reserva.getEstado());
+
+        assertEquals(412, enviar("PUT", ruta, "{\"estado\":\"CANCELADA\"}", "\"" + (version + 1) + "\"").statusCode());
+        assertEquals(200, enviar("PUT", ruta, "{\"estado\":\"CANCELADA\"}", "\"" + version + "\"").statusCode());
+        assertEquals(EstadoReserva.CANCELADA, reserva.getEstado());
+    }
+
+    @Test
+    void pagarSinVersionResponde428() throws Exception {
+        String ruta = "/reservas/" + reserva.getId() + "/pago";
+
+        assertEquals(428, enviar("POST", ruta, "{\"metodo\":\"efectivo\",\"importe\":100}", null).statusCode());
+        assertNull(reserva.getPago());
+
+        assertEquals(200, enviar("POST", ruta, "{\"metodo\":\"efectivo\",\"importe\":100,\"version\":"
+            + reserva.getVersion() + "}", null).statusCode());
+        assertEquals(PagoEfectivo.class, reserva.getPago().getClass());
+    }
+
+    @Test
+    void anularElPagoSinVersionResponde428() throws Exception {
+        servicio.asociarPago(reserva, new PagoEfectivo(reserva.getPrecioTotal(), "Efectivo", Dinero.de("100.00")), reserva.getVersion());
+        String ruta = "/reservas/" + reserva.getId() + "/pago";
+
+        assertEquals(428, enviar("DELETE", ruta, null, null).statusCode());
+        assertEquals(EstadoReserva.CONFIRMADA, reserva.getEstado());
+
+        assertEquals(400, enviar("DELETE", ruta + "?version=ultima", null, null).statusCode());
+        assertEquals(200, enviar("DELETE", ruta + "?version=" + reserva.getVersion(), null, null).statusCode());
+        assertNull(reserva.getPago());
+    }
+}
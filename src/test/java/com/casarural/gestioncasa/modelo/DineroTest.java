@@ -0,0 +1,104 @@
+package com.casarural.gestioncasa.modelo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Los resultados de Dinero son los mismos que daba la aritmética con BigDecimal
+ * a la que sustituye (importes con dos decimales y divisiones HALF_UP).
+ */
+class DineroTest {
+    private static final int CASOS = 100_000;
+
+    private final Random random = new Random(20260101L);
+
+    // Importe al azar entre -100.000,00 y 100.000,00, con sus dos decimales
+    private BigDecimal importe() {
+        return BigDecimal.valueOf(random.nextLong(-10_000_000L, 10_000_001L), 2);
+    }
+
+    @Test
+    void sumaYRestaComoBigDecimal() {
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = importe();
+            BigDecimal b = importe();
+            assertEquals(a.add(b), Dinero.de(a).sumar(Dinero.de(b)).aBigDecimal(), a + " + " + b);
+            assertEquals(a.subtract(b), Dinero.de(a).restar(Dinero.de(b)).aBigDecimal(), a + " - " + b);
+        }
+    }
+
+    @Test
+    void multiplicaComoBigDecimal() {
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = importe();
+            long veces = random.nextInt(-400, 401);
+            assertEquals(a.multiply(BigDecimal.valueOf(veces)), Dinero.de(a).multiplicar(veces).aBigDecimal(), a + " × " + veces);
+        }
+    }
+
+    @Test
+    void divideComoBigDecimalHalfUp() {
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = importe();
+            long partes = random.nextInt(1, 400) * (random.nextBoolean() ? 1 : -1);
+            BigDecimal esperado = a.divide(BigDecimal.valueOf(partes), 2, RoundingMode.HALF_UP);
+            assertEquals(esperado, Dinero.de(a).dividir(partes).aBigDecimal(), a + " / " + partes);
+        }
+        // Empates exactos a medio céntimo, en los dos sentidos
+        assertEquals(Dinero.de("0.01"), Dinero.de("0.01").dividir(2));
+        assertEquals(Dinero.de("-0.01"), Dinero.de("-0.01").dividir(2));
+        assertEquals(Dinero.de("0.03"), Dinero.de("0.05").dividir(2));
+        assertEquals(Dinero.de("-0.03"), Dinero.de("0.05").dividir(-2));
+    }
+
+    @Test
+    void sumaAcumuladaComoBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        long centimos = 0;
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = importe();
+            total = total.add(a);
+            centimos = Dinero.de(a).sumarA(centimos);
+        }
+        assertEquals(total.setScale(2), Dinero.deCentimos(centimos).aBigDecimal());
+    }
+
+    @Test
+    void comparaYMuestraComoBigDecimal() {
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = importe();
+            BigDecimal b = importe();
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(Dinero.de(a).compareTo(Dinero.de(b))));
+            assertEquals(a.signum(), Dinero.de(a).signo());
+            assertEquals(a.abs(), Dinero.de(a).abs().aBigDecimal());
+            assertEquals(a.setScale(2).toPlainString(), Dinero.de(a).toString());
+            assertEquals(Dinero.de(a), Dinero.de(a.toPlainString()));
+        }
+        // Importes escritos con menos decimales, como los guardaba BigDecimal
+        assertEquals("45.00", Dinero.de("45").toString());
+        assertEquals("45.50", Dinero.de(new BigDecimal("45.5")).toString());
+        assertEquals(Dinero.de("45.50"), Dinero.de("4.55E+1"));
+    }
+
+    @Test
+    void redondeaComoSetScaleHalfUp() {
+        for (int i = 0; i < CASOS; i++) {
+            BigDecimal a = BigDecimal.valueOf(random.nextLong(-100_000_000L, 100_000_001L), 3);
+            assertEquals(a.setScale(2, RoundingMode.HALF_UP), Dinero.redondear(a).aBigDecimal(), a.toPlainString());
+        }
+    }
+
+    @Test
+    void rechazaLoQueNoCabeEnCentimosYLosDesbordamientos() {
+        assertThrows(IllegalArgumentException.class, () -> Dinero.de("45.555"));
+        assertThrows(IllegalArgumentException.class, () -> Dinero.de("1e30"));
+        assertThrows(ArithmeticException.class, () -> Dinero.deCentimos(Long.MAX_VALUE).sumar(Dinero.de("0.01")));
+        assertThrows(ArithmeticException.class, () -> Dinero.deCentimos(Long.MAX_VALUE / 2 + 1).multiplicar(2));
+    }
+}
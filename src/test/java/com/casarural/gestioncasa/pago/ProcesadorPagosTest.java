@@ -0,0 +1,152 @@
+package com.casarural.gestioncasa.pago;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.excepciones.ClaveIdempotenciaExcepcion;
+import com.casarural.gestioncasa.modelo.Dinero;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcesadorPagosTest {
+    private static final Dinero PRECIO = Dinero.de("90.00");
+
+    private final Cliente cliente = new Cliente("Ana", "12345678Z", "ana@email.com", "600000000");
+    private final Habitacion habitacion = new Habitacion("H001", "Doble", 2, Dinero.de("45.00"));
+
+    private Reserva reserva(int dia) throws Exception {
+        LocalDateTime entrada = LocalDateTime.of(2030, 1, 1, 14, 0).plusDays(3L * dia);
+        return new Reserva(cliente, habitacion, entrada, entrada.plusDays(2).withHour(12), PRECIO);
+    }
+
+    private static PagoTarjeta tarjeta() {
+        return new PagoTarjeta(PRECIO, "Tarjeta", "Ana", "4111111111111111", "123", "12/30");
+    }
+
+    @Test
+    void recuerdaLaClaveDuranteLaRetencionYDespuesLaOlvida() throws Exception {
+        PasarelaSimulada pasarela = new PasarelaSimulada(Duration.ZERO);
+        Reloj reloj = new Reloj();
+        ProcesadorPagos pagos = new ProcesadorPagos(pasarela, 2, Duration.ofHours(24), reloj);
+        try {
+            Reserva reserva = reserva(0);
+            CompletableFuture<ResultadoCobro> cobro = pagos.enviar(reserva, tarjeta(), reserva.getVersion(), "clave-1");
+            assertTrue(cobro.get(5, TimeUnit.SECONDS).aceptado());
+
+            // Un reintento dentro de la retención devuelve el mismo resultado sin volver a cobrar
+            assertSame(cobro, pagos.enviar(reserva, tarjeta(), 0, "clave-1"));
+            assertEquals(1, pagos.getClavesRecordadas());
+            assertEquals(1, pasarela.getCargos());
+
+            reloj.avanzar(Duration.ofHours(24));
+            assertEquals(1, pagos.getClavesRecordadas());
+            reloj.avanzar(Duration.ofSeconds(1));
+            assertEquals(0, pagos.getClavesRecordadas());
+        } finally {
+            pagos.close();
+        }
+    }
+
+    @Test
+    void rechazaLaMismaClaveParaOtroPago() throws Exception {
+        PasarelaSimulada pasarela = new PasarelaSimulada(Duration.ZERO);
+        ProcesadorPagos pagos = new ProcesadorPagos(pasarela, 2);
+        try {
+            Reserva primera = reserva(0);
+            Reserva segunda = reserva(1);
+            assertTrue(pagos.enviar(primera, tarjeta(), primera.getVersion(), "clave-1").get(5, TimeUnit.SECONDS).aceptado());
+
+            // Otra reserva con la misma clave: ni se cobra ni devuelve el resultado de la primera
+            assertThrows(ClaveIdempotenciaExcepcion.class, () -> pagos.enviar(segunda, tarjeta(), segunda.getVersion(), "clave-1"));
+            // La misma reserva con otro importe
+            PagoTarjeta otroImporte = new PagoTarjeta(Dinero.de("10.00"), "Tarjeta", "Ana", "4111111111111111", "123", "12/30");
+            assertThrows(ClaveIdempotenciaExcepcion.class, () -> pagos.enviar(primera, otroImporte, 0, "clave-1"));
+
+            assertEquals(1, pasarela.getCargos());
+            assertNull(segunda.getPago());
+        } finally {
+            pagos.close();
+        }
+    }
+
+    @Test
+    void todoPagoEnviadoDuranteElCierreTermina() throws Exception {
+        for (int vuelta = 0; vuelta < 20; vuelta++) {
+            ProcesadorPagos pagos = new ProcesadorPagos(new PasarelaSimulada(Duration.ZERO), 4);
+            ConcurrentLinkedQueue<CompletableFuture<ResultadoCobro>> cobros = new ConcurrentLinkedQueue<>();
+            int hilos = 4;
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Thread> enviadores = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int primero = h * 1_000;
+                enviadores.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        salida.await();
+                        for (int i = primero; i < primero + 1_000; i++) {
+                            Reserva reserva = reserva(i);
+                            cobros.add(pagos.enviar(reserva, tarjeta(), reserva.getVersion(), "clave-" + i));
+                        }
+                    } catch (IllegalStateException e) {
+                        // Procesador ya cerrado: el pago no se ha aceptado
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }));
+            }
+            salida.countDown();
+            Thread.sleep(1);
+            pagos.close();
+            for (Thread enviador : enviadores) {
+                enviador.join();
+            }
+
+            for (CompletableFuture<ResultadoCobro> cobro : cobros) {
+                cobro.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(cobros.size(), pagos.getLiquidados() + pagos.getRechazados());
+        }
+    }
+
+    // Reloj que solo avanza cuando la prueba lo mueve
+    private static class Reloj extends Clock {
+        private volatile Instant instante = Instant.parse("2030-01-01T10:00:00Z");
+
+        void avanzar(Duration tiempo) {
+            instante = instante.plus(tiempo);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instante;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+import com.casarural.gestioncasa.pago.PagoTarjeta;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un archivo JSON convertido a binario y de vuelta a JSON queda igual, byte a byte.
+ */
+class ConversorFormatosTest {
+
+    @Test
+    void jsonABinarioYDeVueltaAJsonNoPierdeNada(@TempDir Path directorio) throws Exception {
+        CasaRural casaRural = new CasaRural(UUID.randomUUID(), "Casa Rural El Roble", "Camino del Río, 3", "920000000");
+        Habitacion doble = Habitacion.restaurar(UUID.randomUUID(), "H001", "Doble con vistas", 2, Dinero.de("45.50"), true);
+        Habitacion suite = Habitacion.restaurar(UUID.randomUUID(), "H002", "Suite «Ñandú»", 4, Dinero.de("120.00"), false);
+        casaRural.agregarHabitacion(doble);
+        casaRural.agregarHabitacion(suite);
+
+        Cliente ana = Cliente.restaurar(UUID.randomUUID(), "Ana", "12345678Z", "ana@email.com", "600000000");
+        Cliente luis = Cliente.restaurar(UUID.randomUUID(), "Luis Peña", "87654321X", null, "611111111");
+
+        // Fechas con segundos: el formato binario las guarda como segundos desde la época
+        LocalDateTime pago = LocalDateTime.of(2030, 4, 20, 10, 15, 30);
+        List<Reserva> reservas = new ArrayList<>();
+        reservas.add(Reserva.restaurar(UUID.randomUUID(), ana, doble, LocalDateTime.of(2030, 5, 1, 14, 0),
+            LocalDateTime.of(2030, 5, 3, 12, 0), 2, Dinero.de("91.00"), EstadoReserva.PENDIENTE, null));
+        reservas.add(Reserva.restaurar(UUID.randomUUID(), ana, suite, LocalDateTime.of(2030, 6, 1, 14, 0),
+            LocalDateTime.of(2030, 6, 4, 12, 0), 3, Dinero.de("360.00"), EstadoReserva.CONFIRMADA,
+            PagoTarjeta.restaurar(UUID.randomUUID(), Dinero.de("360.00"), pago, "Tarjeta", "Ana", "4111111111111111", "1111", "123", "12/30")));
+        reservas.add(Reserva.restaurar(UUID.randomUUID(), luis, doble, LocalDateTime.of(2030, 7, 1, 14, 0),
+            LocalDateTime.of(2030, 7, 2, 12, 0), 1, Dinero.de("45.50"), EstadoReserva.COMPLETADA,
+            PagoEfectivo.restaurar(UUID.randomUUID(), Dinero.de("45.50"), pago, "Efectivo", Dinero.de("50.00"), Dinero.de("4.50"))));
+        reservas.add(Reserva.restaurar(UUID.randomUUID(), luis, suite, LocalDateTime.of(2030, 8, 1, 14, 0),
+            LocalDateTime.of(2030, 8, 8, 12, 0), 7, Dinero.de("840.00"), EstadoReserva.CANCELADA, null));
+        // Pendiente reservada dentro del plazo de pago: puede pagarse hasta la entrada
+        reservas.get(0).setLimitePago(reservas.get(0).getFechaInicio());
+
+        Path original = directorio.resolve("original.json");
+        Path binario = directorio.resolve("gestion-cr" + ConversorFormatos.EXTENSION_BINARIA);
+        Path vuelta = directorio.resolve("vuelta.json");
+        new PersistenciaJson().guardar(original, casaRural, List.of(ana, luis), reservas, false);
+
+        ConversorFormatos conversor = new ConversorFormatos();
+        conversor.convertir(original, binario);
+        assertTrue(PersistenciaBinaria.esBinario(binario));
+        conversor.convertir(binario, vuelta);
+
+        assertEquals(Files.readString(original), Files.readString(vuelta));
+    }
+}
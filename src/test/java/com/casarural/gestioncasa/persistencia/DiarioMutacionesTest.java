@@ -0,0 +1,196 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+import com.casarural.gestioncasa.pago.Pago;
+import com.casarural.gestioncasa.pago.PagoEfectivo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Diario de solo añadido: se reproduce en el orden en que se escribió, una
+ * última línea a medio escribir se descarta y se recorta, y una línea dañada
+ * en medio del diario impide la carga.
+ */
+class DiarioMutacionesTest {
+
+    @TempDir
+    Path directorio;
+
+    private final Habitacion habitacion = new Habitacion("H001", "Doble", 2, Dinero.de("45.00"));
+    private final Cliente cliente = new Cliente("Ana", "12345678Z", "ana@email.com", "600000000");
+
+    private Reserva reserva() throws Exception {
+        LocalDateTime entrada = LocalDateTime.of(2030, 5, 1, 14, 0);
+        return new Reserva(cliente, habitacion, entrada, entrada.plusDays(2).withHour(12), Dinero.de("90.00"));
+    }
+
+    // Escribe una entrada de cada tipo, con la reserva y su pago
+    private Reserva escribirDiario(Path archivo) throws Exception {
+        Reserva reserva = reserva();
+        try (DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson())) {
+            diario.habitacionCreada(habitacion);
+            diario.clienteRegistrado(cliente);
+            diario.reservaCreada(reserva);
+            diario.estadoCambiado(reserva);
+            diario.pagoAsociado(reserva, new PagoEfectivo(Dinero.de("90.00"), "Efectivo", Dinero.de("100.00")));
+            diario.pagoAnulado(reserva);
+            diario.clienteEliminado(cliente);
+        }
+        return reserva;
+    }
+
+    @Test
+    void reproduceLasEntradasEnElOrdenEnQueSeEscribieron() throws Exception {
+        Path archivo = directorio.resolve("gestion-cr.journal");
+        Reserva reserva = escribirDiario(archivo);
+
+        Registro registro = new Registro();
+        DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson());
+        assertEquals(7, diario.reproducir(List.of(), List.of(), List.of(), registro));
+        assertEquals(List.of(
+            "HABITACION_CREADA H001",
+            "CLIENTE_REGISTRADO 12345678Z",
+            "RESERVA_CREADA " + reserva.getId(),
+            "ESTADO_CAMBIADO " + reserva.getId() + " PENDIENTE",
+            "PAGO_ASOCIADO " + reserva.getId() + " 90.00",
+            "PAGO_ANULADO " + reserva.getId(),
+            "CLIENTE_ELIMINADO " + cliente.getId()), registro.operaciones);
+        assertEquals(7, diario.getEntradas());
+
+        // Las referencias de la reserva apuntan a los objetos creados por las entradas anteriores
+        assertSame(registro.habitacion, registro.reserva.getHabitacion());
+        assertSame(registro.cliente, registro.reserva.getCliente());
+    }
+
+    @Test
+    void descartaYRecortaUnaUltimaLineaAMedioEscribir() throws Exception {
+        Path archivo = directorio.resolve("gestion-cr.journal");
+        Reserva reserva = escribirDiario(archivo);
+        long tamanoCompleto = Files.size(archivo);
+        Files.writeString(archivo, "{\"op\":\"ESTADO_CAMBIADO\",\"reservaId\":\"" + reserva.getId() + "\",\"est",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Registro registro = new Registro();
+        DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson());
+        assertEquals(7, diario.reproducir(List.of(), List.of(), List.of(), registro));
+        assertEquals(7, registro.operaciones.size());
+        assertEquals(tamanoCompleto, Files.size(archivo));
+
+        // Lo que se añade después empieza en una línea propia y se reproduce
+        reserva.setEstado(EstadoReserva.CONFIRMADA);
+        diario.estadoCambiado(reserva);
+        diario.close();
+
+        Registro despues = new Registro();
+        assertEquals(8, new DiarioMutaciones(archivo, new PersistenciaJson()).reproducir(List.of(), List.of(), List.of(), despues));
+        assertEquals("ESTADO_CAMBIADO " + reserva.getId() + " CONFIRMADA", despues.operaciones.get(7));
+    }
+
+    @Test
+    void unaLineaDanadaEnMedioImpideLaCarga() throws Exception {
+        Path archivo = directorio.resolve("gestion-cr.journal");
+        escribirDiario(archivo);
+        List<String> lineas = new ArrayList<>(Files.readAllLines(archivo, StandardCharsets.UTF_8));
+        lineas.set(3, lineas.get(3).substring(0, lineas.get(3).length() / 2));
+        Files.write(archivo, lineas, StandardCharsets.UTF_8);
+        long tamano = Files.size(archivo);
+
+        DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson());
+        IOException error = assertThrows(IOException.class,
+            () -> diario.reproducir(List.of(), List.of(), List.of(), new Registro()));
+        assertTrue(error.getMessage().contains("Entrada 4"), error.getMessage());
+        // No se recorta nada: el diario queda como estaba para recuperarlo a mano
+        assertEquals(tamano, Files.size(archivo));
+    }
+
+    @Test
+    void reproduceLosSegmentosSelladosAntesQueElArchivoActual() throws Exception {
+        Path archivo = directorio.resolve("gestion-cr.journal");
+        Reserva reserva = reserva();
+        try (DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson())) {
+            diario.habitacionCreada(habitacion);
+            diario.clienteRegistrado(cliente);
+            assertEquals(1, diario.rotar());
+            diario.reservaCreada(reserva);
+        }
+        assertTrue(Files.exists(directorio.resolve("gestion-cr.journal.1")));
+
+        Registro registro = new Registro();
+        DiarioMutaciones diario = new DiarioMutaciones(archivo, new PersistenciaJson());
+        assertEquals(3, diario.reproducir(List.of(), List.of(), List.of(), registro));
+        assertEquals("RESERVA_CREADA " + reserva.getId(), registro.operaciones.get(2));
+        // Solo cuentan para la compactación las entradas del archivo actual
+        assertEquals(1, diario.getEntradas());
+
+        // Sin el segmento, la habitación y el cliente los aporta la instantánea
+        diario.eliminarSegmentosHasta(1);
+        assertEquals(1, new DiarioMutaciones(archivo, new PersistenciaJson())
+            .reproducir(List.of(habitacion), List.of(cliente), List.of(), new Registro()));
+    }
+
+    // Anota cada operación reproducida en una línea legible
+    private static class Registro implements ReceptorMutaciones {
+        private final List<String> operaciones = new ArrayList<>();
+        private Habitacion habitacion;
+        private Cliente cliente;
+        private Reserva reserva;
+
+        @Override
+        public void habitacionCreada(Habitacion habitacion) {
+            this.habitacion = habitacion;
+            operaciones.add("HABITACION_CREADA " + habitacion.getCodigo());
+        }
+
+        @Override
+        public void clienteRegistrado(Cliente cliente) {
+            this.cliente = cliente;
+            operaciones.add("CLIENTE_REGISTRADO " + cliente.getNumeroDocumento());
+        }
+
+        @Override
+        public void clienteEliminado(UUID clienteId) {
+            operaciones.add("CLIENTE_ELIMINADO " + clienteId);
+        }
+
+        @Override
+        public void reservaCreada(Reserva reserva) {
+            this.reserva = reserva;
+            operaciones.add("RESERVA_CREADA " + reserva.getId());
+        }
+
+        @Override
+        public void estadoCambiado(UUID reservaId, EstadoReserva estado) {
+            operaciones.add("ESTADO_CAMBIADO " + reservaId + " " + estado);
+        }
+
+        @Override
+        public void pagoAsociado(UUID reservaId, Pago pago) {
+            operaciones.add("PAGO_ASOCIADO " + reservaId + " " + pago.getImporte());
+        }
+
+        @Override
+        public void pagoAnulado(UUID reservaId) {
+            operaciones.add("PAGO_ANULADO " + reservaId);
+        }
+    }
+}
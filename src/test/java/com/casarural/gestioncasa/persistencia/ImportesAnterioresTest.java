@@ -0,0 +1,200 @@
+package com.casarural.gestioncasa.persistencia;
+
+import com.casarural.gestioncasa.CasaRural;
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.GestionCasaRuralService;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.ResultadoCarga;
+import com.casarural.gestioncasa.modelo.Dinero;
+
+import com.google.gson.JsonParseException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Archivos guardados cuando los importes eran BigDecimal con cualquier número
+ * de decimales: se cargan redondeando al céntimo (la mitad hacia arriba) y
+ * avisando de cuántos importes se han redondeado.
+ */
+class ImportesAnterioresTest {
+
+    private static final String R1 = "00000000-0000-0000-0000-0000000000a1";
+    private static final String R2 = "00000000-0000-0000-0000-0000000000a2";
+    private static final String R3 = "00000000-0000-0000-0000-0000000000a3";
+
+    // Como lo escribía la versión anterior: precioTotal = precioNoche × noches, sin redondear
+    private static final String ARCHIVO_ANTERIOR = """
+        {"version":2,
+         "casaRural":{"habitaciones":[
+           {"id":"00000000-0000-0000-0000-000000000001","codigo":"H001","descripcion":"Doble","capacidad":2,"precioNoche":45.555,"disponible":true},
+           {"id":"00000000-0000-0000-0000-000000000002","codigo":"H002","descripcion":"Triple","capacidad":3,"precioNoche":60.125,"disponible":true}]},
+         "clientes":[{"id":"00000000-0000-0000-0000-0000000000c1","nombre":"Ana","numeroDocumento":"12345678Z","email":"ana@email.com","telefono":"600000000"}],
+         "reservas":[
+           {"id":"%s","clienteId":"00000000-0000-0000-0000-0000000000c1","habitacionId":"00000000-0000-0000-0000-000000000001",
+            "fechaInicio":"2030-05-01T14:00:00","fechaFin":"2030-05-03T12:00:00","noches":2,"precioTotal":91.110,"estado":"PENDIENTE"},
+           {"id":"%s","clienteId":"00000000-0000-0000-0000-0000000000c1","habitacionId":"00000000-0000-0000-0000-000000000002",
+            "fechaInicio":"2030-06-01T14:00:00","fechaFin":"2030-06-04T12:00:00","noches":3,"precioTotal":180.375,"estado":"CONFIRMADA",
+            "pago":{"tipo":"PagoEfectivo","importeEfectivo":200,"importeDevuelto":19.625,"id":"00000000-0000-0000-0000-0000000000b1",
+                    "importe":180.375,"fechaPago":"2030-05-20T10:00:00","metodoPago":"Efectivo"}},
+           {"id":"%s","clienteId":"00000000-0000-0000-0000-0000000000c1","habitacionId":"00000000-0000-0000-0000-000000000001",
+            "fechaInicio":"2030-07-01T14:00:00","fechaFin":"2030-07-02T12:00:00","noches":1,"precioTotal":45.50,"estado":"PENDIENTE"}]}
+        """.formatted(R1, R2, R3);
+
+    // Entrada del diario escrita por la versión anterior antes de la última instantánea
+    private static final String DIARIO_ANTERIOR = """
+        {"op":"PAGO_ASOCIADO","reservaId":"%s","pago":{"tipo":"PagoEfectivo","importeEfectivo":50,"importeDevuelto":4.495,\
+        "id":"00000000-0000-0000-0000-0000000000b2","importe":45.505,"fechaPago":"2030-06-20T10:00:00","metodoPago":"Efectivo"}}
+        """.formatted(R3);
+
+    // Importes tal como estaban guardados
+    private static final Map<String, String> PRECIOS_ANTERIORES = Map.of(R1, "91.110", R2, "180.375", R3, "45.50");
+    private static final Map<String, String> PAGOS_ANTERIORES = Map.of(R2, "180.375", R3, "45.505");
+
+    @Test
+    void cargaUnArchivoAnteriorRedondeandoLosImportes(@TempDir Path directorio) throws IOException {
+        Files.writeString(directorio.resolve("gestion-cr.json"), ARCHIVO_ANTERIOR);
+        Files.writeString(directorio.resolve("gestion-cr.journal"), DIARIO_ANTERIOR);
+
+        GestionCasaRuralService servicio = new GestionCasaRuralService(directorio);
+        try {
+            ResultadoCarga carga = servicio.cargar();
+            assertNull(carga.error());
+            assertNull(carga.errorDiario());
+            assertEquals(1, carga.cambiosRecuperados());
+            // 45.555, 60.125, 180.375 (precio y pago) y 19.625 del archivo; 45.505 y 4.495 del diario
+            assertEquals(7, carga.importesRedondeados());
+
+            assertEquals(Dinero.de("45.56"), servicio.buscarHabitacion("H001").getPrecioNoche());
+            assertEquals(Dinero.de("60.13"), servicio.buscarHabitacion("H002").getPrecioNoche());
+
+            long totalPrecios = 0;
+            long totalPagos = 0;
+            for (Reserva reserva : servicio.getReservas()) {
+                String id = reserva.getId().toString();
+                assertEquals(redondeado(PRECIOS_ANTERIORES.get(id)), reserva.getPrecioTotal(), id);
+                totalPrecios = reserva.getPrecioTotal().sumarA(totalPrecios);
+                if (reserva.getPago() != null) {
+                    assertEquals(redondeado(PAGOS_ANTERIORES.get(id)), reserva.getPago().getImporte(), id);
+                    totalPagos = reserva.getPago().getImporte().sumarA(totalPagos);
+                }
+            }
+            assertEquals(totalRedondeado(PRECIOS_ANTERIORES.values()), Dinero.deCentimos(totalPrecios));
+            assertEquals(totalRedondeado(PAGOS_ANTERIORES.values()), Dinero.deCentimos(totalPagos));
+        } finally {
+            servicio.cerrar();
+        }
+    }
+
+    @Test
+    void losImportesConDosDecimalesNoCambianNiSeCuentan(@TempDir Path directorio) throws IOException {
+        Path archivo = directorio.resolve("actual.json");
+        Files.writeString(archivo, ARCHIVO_ANTERIOR.replace("45.555", "45.55").replace("60.125", "60.10")
+            .replace("180.375", "180.30").replace("19.625", "19.70"));
+
+        Recogida recogida = new Recogida();
+        new PersistenciaJson().cargar(archivo, recogida);
+
+        assertEquals(0, recogida.redondeados);
+        assertEquals(Dinero.de("45.55"), recogida.habitaciones.get(0).getPrecioNoche());
+        assertEquals(Dinero.de("91.11"), recogida.reservas.get(0).getPrecioTotal());
+    }
+
+    @Test
+    void elFormatoBinarioRedondeaLosImportesConOtraEscala(@TempDir Path directorio) throws IOException {
+        CasaRural casaRural = new CasaRural();
+        Habitacion habitacion = new Habitacion("H001", "Doble", 2, Dinero.de("45.55"));
+        casaRural.agregarHabitacion(habitacion);
+        Path archivo = directorio.resolve("gestion-cr.bin");
+        new PersistenciaBinaria().guardar(archivo, casaRural, List.of(), List.of(), false);
+
+        // Mismo importe con escala 3 (45.555), como lo guardaba la versión anterior
+        byte[] bytes = Files.readAllBytes(archivo);
+        assertEquals(1, sustituirImporte(bytes, (byte) 2, 4555, (byte) 3, 45555));
+        Files.write(archivo, bytes);
+
+        Recogida recogida = new Recogida();
+        new PersistenciaBinaria().cargar(archivo, recogida);
+
+        assertEquals(1, recogida.redondeados);
+        assertEquals(Dinero.de("45.56"), recogida.habitaciones.get(0).getPrecioNoche());
+    }
+
+    @Test
+    void laApiSigueRechazandoMasDeDosDecimales() throws IOException {
+        DineroAdapter estricto = new DineroAdapter();
+        assertThrows(JsonParseException.class, () -> estricto.fromJson("45.555"));
+        assertNotNull(new DineroAdapter(true).fromJson("45.555"));
+    }
+
+    private static Dinero redondeado(String anterior) {
+        return Dinero.de(new BigDecimal(anterior).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private static Dinero totalRedondeado(Iterable<String> anteriores) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (String anterior : anteriores) {
+            total = total.add(new BigDecimal(anterior).setScale(2, RoundingMode.HALF_UP));
+        }
+        return Dinero.de(total);
+    }
+
+    // Sustituye cada importe binario (escala + valor sin escala) por otro de la misma longitud
+    private static int sustituirImporte(byte[] bytes, byte escala, long valor, byte nuevaEscala, long nuevoValor) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int sustituidos = 0;
+        for (int i = 0; i + 9 <= bytes.length; i++) {
+            if (bytes[i] == escala && buffer.getLong(i + 1) == valor) {
+                bytes[i] = nuevaEscala;
+                buffer.putLong(i + 1, nuevoValor);
+                sustituidos++;
+            }
+        }
+        return sustituidos;
+    }
+
+    private static class Recogida implements ReceptorDatos {
+        private final List<Habitacion> habitaciones = new ArrayList<>();
+        private final List<Reserva> reservas = new ArrayList<>();
+        private long redondeados;
+
+        @Override
+        public void casaRural(CasaRural casaRural) {
+        }
+
+        @Override
+        public void habitacion(Habitacion habitacion) {
+            habitaciones.add(habitacion);
+        }
+
+        @Override
+        public void cliente(Cliente cliente) {
+        }
+
+        @Override
+        public void reserva(Reserva reserva) {
+            reservas.add(reserva);
+        }
+
+        @Override
+        public void importesRedondeados(long cantidad) {
+            redondeados = cantidad;
+        }
+    }
+}
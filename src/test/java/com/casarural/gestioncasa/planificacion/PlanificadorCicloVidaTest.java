@@ -0,0 +1,173 @@
+package com.casarural.gestioncasa.planificacion;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.modelo.EstadoReserva;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Con un reloj que solo avanza cuando lo dice la prueba: las reservas cambian
+ * de estado al llegar su momento, los vencimientos de un estado anterior se
+ * descartan y lo que venció con la aplicación parada se aplica al reconstruir.
+ */
+class PlanificadorCicloVidaTest {
+    private static final Duration PLAZO_PAGO = Duration.ofHours(24);
+    private static final LocalDateTime INICIO = LocalDateTime.of(2030, 5, 1, 10, 0);
+
+    private final Reloj reloj = new Reloj(INICIO);
+    private final Habitacion habitacion = new Habitacion("H001", "Doble", 2, Dinero.de("45.00"));
+    private final Cliente cliente = new Cliente("Ana", "12345678Z", "ana@email.com", "600000000");
+    private PlanificadorCicloVida planificador = new PlanificadorCicloVida(reloj, PLAZO_PAGO);
+
+    @AfterEach
+    void parar() {
+        planificador.close();
+    }
+
+    private Reserva reserva(LocalDateTime entrada, LocalDateTime salida) throws Exception {
+        return new Reserva(cliente, habitacion, entrada, salida, Dinero.de("90.00"));
+    }
+
+    // Reserva pendiente ya vencida: al programarla despierta al hilo, que revisa toda la cola con la hora actual
+    private void despertar() throws Exception {
+        long caducadas = planificador.getCaducadas();
+        Reserva testigo = reserva(INICIO.plusHours(1), INICIO.plusDays(1));
+        testigo.setLimitePago(INICIO);
+        planificador.programar(testigo);
+        esperarHasta(() -> planificador.getCaducadas() > caducadas);
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "El planificador no ha aplicado el vencimiento");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void completaLaReservaConfirmadaAlLlegarLaSalida() throws Exception {
+        Reserva reserva = reserva(INICIO.plusDays(3), INICIO.plusDays(5));
+        reserva.setEstado(EstadoReserva.CONFIRMADA);
+        planificador.programar(reserva);
+
+        reloj.ir(reserva.getFechaFin().minusMinutes(1));
+        despertar();
+        assertEquals(EstadoReserva.CONFIRMADA, reserva.getEstado());
+
+        reloj.ir(reserva.getFechaFin());
+        despertar();
+        esperarHasta(() -> planificador.getCompletadas() == 1);
+        assertEquals(EstadoReserva.COMPLETADA, reserva.getEstado());
+    }
+
+    @Test
+    void cancelaLaPendienteAlTerminarElPlazoDePago() throws Exception {
+        Reserva reserva = reserva(INICIO.plusDays(10), INICIO.plusDays(12));
+        planificador.fijarLimitePago(reserva);
+        // Reservada antes del plazo: se aplica el plazo general
+        assertNull(reserva.getLimitePago());
+        planificador.programar(reserva);
+
+        reloj.ir(reserva.getFechaInicio().minus(PLAZO_PAGO).minusMinutes(1));
+        despertar();
+        assertEquals(EstadoReserva.PENDIENTE, reserva.getEstado());
+
+        reloj.ir(reserva.getFechaInicio().minus(PLAZO_PAGO));
+        despertar();
+        esperarHasta(() -> reserva.getEstado() == EstadoReserva.CANCELADA);
+        // Las dos reservas de despertar() y esta
+        assertEquals(3, planificador.getCaducadas());
+    }
+
+    @Test
+    void daHastaLaEntradaSiSeReservaDentroDelPlazo() throws Exception {
+        Reserva reserva = reserva(INICIO.plusHours(12), INICIO.plusDays(2));
+        planificador.fijarLimitePago(reserva);
+        assertEquals(reserva.getFechaInicio(), reserva.getLimitePago());
+
+        // Llamarlo de nuevo más tarde no lo cambia
+        reloj.ir(INICIO.plusHours(6));
+        planificador.fijarLimitePago(reserva);
+        assertEquals(reserva.getFechaInicio(), reserva.getLimitePago());
+    }
+
+    @Test
+    void descartaLosVencimientosDeUnEstadoAnterior() throws Exception {
+        Reserva reserva = reserva(INICIO.plusDays(10), INICIO.plusDays(12));
+        planificador.programar(reserva);
+        // Se paga: el vencimiento de la pendiente queda en la cola y se programa el de la confirmada
+        reserva.cambiarEstado(EstadoReserva.CONFIRMADA, reserva.getVersion());
+        planificador.programar(reserva);
+        assertEquals(2, planificador.getProgramados());
+
+        reloj.ir(reserva.getFechaInicio());
+        despertar();
+        esperarHasta(() -> planificador.getDescartados() == 1);
+        assertEquals(EstadoReserva.CONFIRMADA, reserva.getEstado());
+        assertEquals(1, planificador.getCaducadas());
+        assertEquals(1, planificador.getProgramados());
+    }
+
+    @Test
+    void alReconstruirCancelaLaPendienteQueVencioConLaAplicacionParada() throws Exception {
+        Reserva reserva = reserva(INICIO.plusDays(10), INICIO.plusDays(12));
+        planificador.fijarLimitePago(reserva);
+        planificador.programar(reserva);
+        planificador.close();
+
+        // Arranca de nuevo una hora después de que terminara el plazo, pero antes de la entrada
+        reloj.ir(reserva.getFechaInicio().minus(PLAZO_PAGO).plusHours(1));
+        planificador = new PlanificadorCicloVida(reloj, PLAZO_PAGO);
+        planificador.reconstruir(List.of(reserva));
+
+        esperarHasta(() -> planificador.getCaducadas() == 1);
+        assertEquals(EstadoReserva.CANCELADA, reserva.getEstado());
+        assertEquals(0, planificador.getProgramados());
+    }
+
+    // Reloj que solo avanza cuando la prueba lo mueve
+    private static class Reloj extends Clock {
+        private volatile Instant instante;
+
+        Reloj(LocalDateTime inicio) {
+            ir(inicio);
+        }
+
+        void ir(LocalDateTime momento) {
+            instante = momento.toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instante;
+        }
+    }
+}
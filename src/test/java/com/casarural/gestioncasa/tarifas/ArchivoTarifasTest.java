@@ -0,0 +1,65 @@
+package com.casarural.gestioncasa.tarifas;
+
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.EstanciaLarga;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.FinDeSemana;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Ocupacion;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Temporada;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las reglas de tarifa se leen de tarifas.json; un archivo con una regla no
+ * válida se rechaza entero.
+ */
+class ArchivoTarifasTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void leeUnaReglaDeCadaTipo() throws Exception {
+        Path archivo = directorio.resolve("tarifas.json");
+        Files.writeString(archivo, """
+            [
+              {"tipo": "temporada", "nombre": "Verano", "desde": "2026-07-01", "hasta": "2026-08-31", "factor": 1.20},
+              {"tipo": "finDeSemana", "dias": ["FRIDAY", "saturday"], "factor": 1.15},
+              {"tipo": "estanciaLarga", "nochesMinimas": 7, "factor": 0.90},
+              {"tipo": "ocupacion", "porcentajeMinimo": 80, "factor": 1.10}
+            ]
+            """);
+
+        assertEquals(List.of(
+            new Temporada("Verano", LocalDate.of(2026, 7, 1), LocalDate.of(2026, 8, 31), new BigDecimal("1.20")),
+            new FinDeSemana(Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY), new BigDecimal("1.15")),
+            new EstanciaLarga(7, new BigDecimal("0.90")),
+            new Ocupacion(80, new BigDecimal("1.10"))), ArchivoTarifas.leer(archivo));
+    }
+
+    @Test
+    void rechazaElArchivoSiUnaReglaNoEsValida() throws Exception {
+        Path archivo = directorio.resolve("tarifas.json");
+        Files.writeString(archivo, """
+            [
+              {"tipo": "estanciaLarga", "nochesMinimas": 7, "factor": 0.90},
+              {"tipo": "ocupacion", "porcentajeMinimo": 150, "factor": 1.10}
+            ]
+            """);
+
+        IOException error = assertThrows(IOException.class, () -> ArchivoTarifas.leer(archivo));
+        assertTrue(error.getMessage().startsWith("Regla 2"), error.getMessage());
+    }
+}
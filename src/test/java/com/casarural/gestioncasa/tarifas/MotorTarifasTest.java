@@ -0,0 +1,140 @@
+package com.casarural.gestioncasa.tarifas;
+
+import com.casarural.gestioncasa.Cliente;
+import com.casarural.gestioncasa.Habitacion;
+import com.casarural.gestioncasa.ObservadorHabitacion;
+import com.casarural.gestioncasa.Reserva;
+import com.casarural.gestioncasa.modelo.Dinero;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.EstanciaLarga;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.FinDeSemana;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Ocupacion;
+import com.casarural.gestioncasa.tarifas.ReglaTarifa.Temporada;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * El precio que sale de la tabla compilada es el mismo que el calculado noche
+ * a noche, y los precios guardados en caché se descartan cuando cambian el
+ * precio de la habitación o las reglas.
+ */
+class MotorTarifasTest {
+    private static final LocalDate HOY = LocalDate.of(2030, 1, 1);
+
+    // Fin del horizonte de la tabla con el reloj en HOY (30 días atrás y 730 adelante)
+    private static final LocalDate FIN_HORIZONTE = HOY.plusDays(730);
+
+    private static final Temporada NAVIDAD = new Temporada("Navidad", LocalDate.of(2031, 12, 30), LocalDate.of(2032, 1, 2), new BigDecimal("1.25"));
+    private static final FinDeSemana FIN_DE_SEMANA = new FinDeSemana(Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY), new BigDecimal("1.15"));
+    private static final EstanciaLarga SEMANA = new EstanciaLarga(7, new BigDecimal("0.90"));
+    private static final Ocupacion MEDIA_CASA = new Ocupacion(50, new BigDecimal("1.10"));
+    private static final List<ReglaTarifa> REGLAS = List.of(NAVIDAD, FIN_DE_SEMANA, SEMANA, MEDIA_CASA);
+
+    private final Habitacion doble = new Habitacion("H001", "Doble", 2, Dinero.de("45.50"));
+    private final Habitacion triple = new Habitacion("H002", "Triple", 3, Dinero.de("65.00"));
+    private final Cliente cliente = new Cliente("Ana", "12345678Z", "ana@email.com", "600000000");
+
+    private static MotorTarifas motor(LocalDate hoy) {
+        return new MotorTarifas(Clock.fixed(hoy.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    // La triple ocupada del 28 al 31 de diciembre: esas noches la casa está al 50 %
+    private MotorTarifas motorConReglas(LocalDate hoy) throws Exception {
+        MotorTarifas motor = motor(hoy);
+        motor.setReglas(REGLAS);
+        Reserva ocupada = new Reserva(cliente, triple, LocalDate.of(2031, 12, 28).atTime(14, 0),
+            LocalDate.of(2031, 12, 31).atTime(12, 0), Dinero.de("195.00"));
+        motor.reconstruir(List.of(doble, triple), List.of(ocupada));
+        return motor;
+    }
+
+    // Las mismas reglas aplicadas a mano, noche a noche
+    private static Dinero precioEsperado(Dinero precioNoche, LocalDate entrada, LocalDate salida) {
+        long total = 0;
+        long noches = 0;
+        for (LocalDate noche = entrada; noche.isBefore(salida); noche = noche.plusDays(1), noches++) {
+            BigDecimal factor = BigDecimal.ONE;
+            if (NAVIDAD.incluye(noche)) {
+                factor = factor.multiply(NAVIDAD.factor());
+            }
+            if (FIN_DE_SEMANA.dias().contains(noche.getDayOfWeek())) {
+                factor = factor.multiply(FIN_DE_SEMANA.factor());
+            }
+            if (!noche.isBefore(LocalDate.of(2031, 12, 28)) && noche.isBefore(LocalDate.of(2031, 12, 31))) {
+                factor = factor.multiply(MEDIA_CASA.factor());
+            }
+            total += BigDecimal.valueOf(precioNoche.centimos()).multiply(factor).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        if (noches >= SEMANA.nochesMinimas()) {
+            total = BigDecimal.valueOf(total).multiply(SEMANA.factor()).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        return Dinero.deCentimos(total);
+    }
+
+    @Test
+    void laTablaYElCalculoNocheANocheDanElMismoPrecio() throws Exception {
+        // Diez noches que empiezan dentro del horizonte y terminan fuera: se calculan noche a noche
+        LocalDate entrada = FIN_HORIZONTE.minusDays(6);
+        LocalDate salida = FIN_HORIZONTE.plusDays(4);
+        Dinero nocheANoche = motorConReglas(HOY).cotizar(doble, entrada.atTime(14, 0), salida.atTime(12, 0));
+
+        // Un mes después la misma estancia queda dentro del horizonte y sale de la tabla
+        Dinero tabla = motorConReglas(HOY.plusDays(30)).cotizar(doble, entrada.atTime(14, 0), salida.atTime(12, 0));
+
+        Dinero esperado = precioEsperado(doble.getPrecioNoche(), entrada, salida);
+        assertEquals(esperado, nocheANoche);
+        assertEquals(esperado, tabla);
+        assertNotEquals(MotorTarifas.precioBase(doble.getPrecioNoche(), 10), esperado);
+    }
+
+    @Test
+    void laCacheSeDescartaAlCambiarElPrecioOLasReglas() throws Exception {
+        MotorTarifas motor = motor(HOY);
+        motor.reconstruir(List.of(doble), List.of());
+        // Como hace el servicio: los cambios de precio de la habitación llegan al motor
+        doble.setObservador(new ObservadorHabitacion() {
+            @Override
+            public void disponibilidadCambiada(Habitacion habitacion, boolean disponible) {
+            }
+
+            @Override
+            public void precioCambiado(Habitacion habitacion) {
+                motor.precioCambiado(habitacion);
+            }
+        });
+        // Fuera del horizonte: el precio se guarda en la caché (del lunes 1 al viernes 5 de marzo)
+        LocalDateTime entrada = FIN_HORIZONTE.plusMonths(2).withDayOfMonth(1).atTime(14, 0);
+        LocalDateTime salida = entrada.plusDays(4).withHour(12);
+        assertEquals(Dinero.de("182.00"), motor.cotizar(doble, entrada, salida));
+        assertEquals(Dinero.de("182.00"), motor.cotizar(doble, entrada, salida));
+
+        doble.setPrecioNoche(Dinero.de("50.00"));
+        assertEquals(Dinero.de("200.00"), motor.cotizar(doble, entrada, salida));
+
+        motor.setReglas(List.of(new EstanciaLarga(4, new BigDecimal("0.80"))));
+        assertEquals(Dinero.de("160.00"), motor.cotizar(doble, entrada, salida));
+    }
+
+    @Test
+    void rechazaLasEstanciasDemasiadoLargas() {
+        MotorTarifas motor = motor(HOY);
+        LocalDateTime entrada = HOY.atTime(14, 0);
+        assertEquals(MotorTarifas.precioBase(doble.getPrecioNoche(), MotorTarifas.ESTANCIA_MAXIMA),
+            motor.cotizar(doble, entrada, entrada.plusDays(MotorTarifas.ESTANCIA_MAXIMA)));
+        assertThrows(IllegalArgumentException.class,
+            () -> motor.cotizar(doble, entrada, entrada.plusDays(MotorTarifas.ESTANCIA_MAXIMA + 1)));
+    }
+}